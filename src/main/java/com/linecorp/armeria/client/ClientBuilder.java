@@ -29,6 +29,7 @@ import org.apache.thrift.protocol.TProtocolFactory;
 
 import com.linecorp.armeria.client.http.SimpleHttpClientCodec;
 import com.linecorp.armeria.client.thrift.ThriftClientCodec;
+import com.linecorp.armeria.common.DomainSocketAddress;
 import com.linecorp.armeria.common.Scheme;
 import com.linecorp.armeria.common.SerializationFormat;
 import com.linecorp.armeria.common.SessionProtocol;
@@ -175,6 +176,25 @@ public final class ClientBuilder {
                       requireNonNull(responseTimeoutPolicy, "responseTimeoutPolicy"));
     }
 
+    /**
+     * Sets whether to hand over the arguments and the result of an invocation as Java objects rather than
+     * serializing them, when the client connects to a server in the same JVM via
+     * {@link SessionProtocol#LOCAL}. Only Thrift clients support this option.
+     */
+    public ClientBuilder inProcess(boolean inProcess) {
+        return option(ClientOption.IN_PROCESS, inProcess);
+    }
+
+    /**
+     * Sets whether to decode the {@code binary} fields of a response as read-only
+     * {@link java.nio.ByteBuffer}s which share the memory of the received response rather than copying
+     * them. The {@link java.nio.ByteBuffer}s are valid only until the {@code AsyncMethodCallback} of
+     * the invocation returns. Only asynchronous Thrift clients support this option.
+     */
+    public ClientBuilder zeroCopyBinary(boolean zeroCopyBinary) {
+        return option(ClientOption.ZERO_COPY_BINARY, zeroCopyBinary);
+    }
+
     /**
      * Adds the specified {@code decorator}.
      */
@@ -236,7 +256,7 @@ public final class ClientBuilder {
 
         final ClientOptions options = ClientOptions.of(this.options.values());
 
-        final Client decoratable = options.decorator().apply(newClient(interfaceClass));
+        final Client decoratable = options.decorator().apply(newClient(interfaceClass, options));
 
         final InvocationHandler handler = new ClientInvocationHandler(
                 uri, interfaceClass, decoratable.invoker(), decoratable.codec(), options);
@@ -246,7 +266,7 @@ public final class ClientBuilder {
                                           handler);
     }
 
-    private Client newClient(Class<?> interfaceClass) {
+    private Client newClient(Class<?> interfaceClass, ClientOptions options) {
         final Scheme scheme = Scheme.parse(uri.getScheme());
         final SessionProtocol sessionProtocol = scheme.sessionProtocol();
 
@@ -255,22 +275,24 @@ public final class ClientBuilder {
             throw new IllegalArgumentException("unsupported scheme: " + scheme);
         }
 
-        final ClientCodec codec = createCodec(uri, scheme, interfaceClass);
+        final ClientCodec codec = createCodec(uri, scheme, interfaceClass, options);
 
         return new SimpleClient(codec, remoteInvoker);
     }
 
-    private static ClientCodec createCodec(URI uri, Scheme scheme, Class<?> interfaceClass) {
+    private static ClientCodec createCodec(URI uri, Scheme scheme, Class<?> interfaceClass,
+                                           ClientOptions options) {
         SessionProtocol sessionProtocol = scheme.sessionProtocol();
         SerializationFormat serializationFormat = scheme.serializationFormat();
         if (SerializationFormat.ofThrift().contains(serializationFormat)) {
             TProtocolFactory protocolFactory = ThriftProtocolFactories.get(serializationFormat);
-            return new ThriftClientCodec(uri, interfaceClass, protocolFactory);
+            return new ThriftClientCodec(uri, interfaceClass, protocolFactory,
+                                         options.inProcess(), options.zeroCopyBinary());
         }
 
         if (SessionProtocol.ofHttp().contains(sessionProtocol) &&
                    serializationFormat == SerializationFormat.NONE) {
-            return new SimpleHttpClientCodec(uri.getHost());
+            return new SimpleHttpClientCodec(DomainSocketAddress.host(uri));
         }
 
         throw new IllegalArgumentException("unsupported scheme:" + scheme);
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Optional;
+
+import com.linecorp.armeria.common.ServiceInvocationContext;
+import com.linecorp.armeria.common.util.UnitFormatter;
+
+import io.netty.util.AttributeKey;
+
+/**
+ * The time spent in each phase of a client invocation. The phases of a session creation, such as DNS
+ * resolution and TCP connection, are available only when the invocation had to wait for a new session to be
+ * created. All durations are in nanoseconds, and {@code -1} means the phase did not happen or has not been
+ * completed yet.
+ *
+ * <p>A decorator or a logger can retrieve the timings of an invocation using
+ * {@link #get(ServiceInvocationContext)}. The timings are complete when the result of the invocation is
+ * notified.
+ */
+public final class ClientInvocationTimings {
+
+    private static final AttributeKey<ClientInvocationTimings> TIMINGS =
+            AttributeKey.valueOf(ClientInvocationTimings.class, "TIMINGS");
+
+    /**
+     * Returns the {@link ClientInvocationTimings} of the specified client-side
+     * {@link ServiceInvocationContext}.
+     *
+     * @return the {@link ClientInvocationTimings}, or {@link Optional#empty()} if the invocation has not been
+     *         performed by an HTTP-based {@link RemoteInvoker}
+     */
+    public static Optional<ClientInvocationTimings> get(ServiceInvocationContext ctx) {
+        requireNonNull(ctx, "ctx");
+        return Optional.ofNullable(ctx.attr(TIMINGS).get());
+    }
+
+    static ClientInvocationTimings set(ServiceInvocationContext ctx, long startNanos, long acquireEndNanos,
+                                       SessionTimings sessionTimings) {
+
+        // Include the timings of the session only when the invocation waited for it to be created.
+        if (sessionTimings != null && sessionTimings.startNanos() - startNanos < 0) {
+            sessionTimings = null;
+        }
+
+        final ClientInvocationTimings timings =
+                new ClientInvocationTimings(startNanos, acquireEndNanos, sessionTimings);
+        ctx.attr(TIMINGS).set(timings);
+        return timings;
+    }
+
+    private final long startNanos;
+    private final long acquireEndNanos;
+    private final SessionTimings sessionTimings;
+
+    long requestWriteStartNanos;
+    long requestWriteEndNanos;
+    long responseEndNanos;
+    long responseDecodeStartNanos;
+    long responseDecodeEndNanos;
+
+    private ClientInvocationTimings(long startNanos, long acquireEndNanos, SessionTimings sessionTimings) {
+        this.startNanos = startNanos;
+        this.acquireEndNanos = acquireEndNanos;
+        this.sessionTimings = sessionTimings;
+    }
+
+    /**
+     * Returns {@code true} if the invocation waited for a new session to be created.
+     */
+    public boolean isNewSession() {
+        return sessionTimings != null;
+    }
+
+    /**
+     * Returns the time spent acquiring a session from the pool, including the creation of a new session.
+     */
+    public long acquireDurationNanos() {
+        return duration(startNanos, acquireEndNanos);
+    }
+
+    /**
+     * Returns the time spent resolving the host name of the new session.
+     */
+    public long dnsResolutionDurationNanos() {
+        return sessionTimings != null ? duration(sessionTimings.dnsResolutionStartNanos,
+                                                 sessionTimings.dnsResolutionEndNanos) : -1;
+    }
+
+    /**
+     * Returns the time spent establishing the TCP connection of the new session.
+     */
+    public long socketConnectDurationNanos() {
+        return sessionTimings != null ? duration(sessionTimings.socketConnectStartNanos,
+                                                 sessionTimings.socketConnectEndNanos) : -1;
+    }
+
+    /**
+     * Returns the time spent on the TLS handshake of the new session, including the protocol negotiation
+     * via ALPN.
+     */
+    public long tlsHandshakeDurationNanos() {
+        return sessionTimings != null ? duration(sessionTimings.tlsHandshakeStartNanos,
+                                                 sessionTimings.tlsHandshakeEndNanos) : -1;
+    }
+
+    /**
+     * Returns the time spent on the HTTP/2 upgrade of the new cleartext session.
+     */
+    public long protocolNegotiationDurationNanos() {
+        return sessionTimings != null ? duration(sessionTimings.protocolNegotiationStartNanos,
+                                                 sessionTimings.protocolNegotiationEndNanos) : -1;
+    }
+
+    /**
+     * Returns the time spent writing the request to the session.
+     */
+    public long requestWriteDurationNanos() {
+        return duration(requestWriteStartNanos, requestWriteEndNanos);
+    }
+
+    /**
+     * Returns the time between the end of the request write and the end of the response. Note that
+     * the response is aggregated before it is decoded, and thus this includes the time spent receiving
+     * the whole response.
+     */
+    public long responseWaitDurationNanos() {
+        return duration(requestWriteEndNanos, responseEndNanos);
+    }
+
+    /**
+     * Returns the time spent decoding the response.
+     */
+    public long responseDecodeDurationNanos() {
+        return duration(responseDecodeStartNanos, responseDecodeEndNanos);
+    }
+
+    private static long duration(long startNanos, long endNanos) {
+        return startNanos != 0 && endNanos != 0 ? endNanos - startNanos : -1;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder(128);
+        buf.append("{acquire=");
+        appendDuration(buf, acquireDurationNanos());
+        if (sessionTimings != null) {
+            buf.append(", dnsResolution=");
+            appendDuration(buf, dnsResolutionDurationNanos());
+            buf.append(", socketConnect=");
+            appendDuration(buf, socketConnectDurationNanos());
+            buf.append(", tlsHandshake=");
+            appendDuration(buf, tlsHandshakeDurationNanos());
+            buf.append(", protocolNegotiation=");
+            appendDuration(buf, protocolNegotiationDurationNanos());
+        }
+        buf.append(", requestWrite=");
+        appendDuration(buf, requestWriteDurationNanos());
+        buf.append(", responseWait=");
+        appendDuration(buf, responseWaitDurationNanos());
+        buf.append(", responseDecode=");
+        appendDuration(buf, responseDecodeDurationNanos());
+        return buf.append('}').toString();
+    }
+
+    private static void appendDuration(StringBuilder buf, long durationNanos) {
+        if (durationNanos >= 0) {
+            UnitFormatter.appendElapsed(buf, 0, durationNanos);
+        } else {
+            buf.append("n/a");
+        }
+    }
+}
@@ -56,6 +56,20 @@ public final class ClientOption<T> extends AbstractOption<T> {
      */
     public static final ClientOption<HttpHeaders> HTTP_HEADERS = valueOf("HTTP_HEADERS");
 
+    /**
+     * Whether to hand over the arguments and the result of an invocation as Java objects rather than
+     * serializing them, when the client connects to a server in the same JVM via
+     * {@link SessionProtocol#LOCAL}. Used only by Thrift clients.
+     */
+    public static final ClientOption<Boolean> IN_PROCESS = valueOf("IN_PROCESS");
+
+    /**
+     * Whether to decode the {@code binary} fields of a response as read-only {@link java.nio.ByteBuffer}s
+     * which share the memory of the received response rather than copying them. Used only by asynchronous
+     * Thrift clients.
+     */
+    public static final ClientOption<Boolean> ZERO_COPY_BINARY = valueOf("ZERO_COPY_BINARY");
+
     /**
      * The {@link Function} that decorates the client components provided by {@link Client}.
      */
@@ -18,8 +18,10 @@ package com.linecorp.armeria.client;
 
 import static com.linecorp.armeria.client.ClientOption.DECORATOR;
 import static com.linecorp.armeria.client.ClientOption.HTTP_HEADERS;
+import static com.linecorp.armeria.client.ClientOption.IN_PROCESS;
 import static com.linecorp.armeria.client.ClientOption.RESPONSE_TIMEOUT_POLICY;
 import static com.linecorp.armeria.client.ClientOption.WRITE_TIMEOUT_POLICY;
+import static com.linecorp.armeria.client.ClientOption.ZERO_COPY_BINARY;
 import static java.util.Objects.requireNonNull;
 
 import java.time.Duration;
@@ -200,6 +202,22 @@ public final class ClientOptions extends AbstractOptions {
         return getOrElse(WRITE_TIMEOUT_POLICY, DEFAULT_WRITE_TIMEOUT_POLICY);
     }
 
+    /**
+     * Returns whether the arguments and the result of an invocation are handed over as Java objects
+     * rather than serialized, when connected to a server in the same JVM.
+     */
+    public boolean inProcess() {
+        return getOrElse(IN_PROCESS, false);
+    }
+
+    /**
+     * Returns whether the {@code binary} fields of a response are decoded as read-only
+     * {@link java.nio.ByteBuffer}s which share the memory of the received response.
+     */
+    public boolean zeroCopyBinary() {
+        return getOrElse(ZERO_COPY_BINARY, false);
+    }
+
     /**
      * Returns the {@link Function} that decorates the components of a client.
      */
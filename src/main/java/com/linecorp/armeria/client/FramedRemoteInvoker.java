@@ -0,0 +1,277 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linecorp.armeria.client.ClientCodec.EncodeResult;
+import com.linecorp.armeria.client.FramedSessionHandler.Invocation;
+import com.linecorp.armeria.client.pool.DefaultKeyedChannelPool;
+import com.linecorp.armeria.client.pool.KeyedChannelPool;
+import com.linecorp.armeria.client.pool.KeyedChannelPoolHandler;
+import com.linecorp.armeria.client.pool.KeyedChannelPoolHandlerAdapter;
+import com.linecorp.armeria.client.pool.PoolKey;
+import com.linecorp.armeria.common.DomainSocketAddress;
+import com.linecorp.armeria.common.Scheme;
+import com.linecorp.armeria.common.SerializationFormat;
+import com.linecorp.armeria.common.ServiceInvocationContext;
+import com.linecorp.armeria.common.SessionProtocol;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * A {@link RemoteInvoker} which sends Thrift calls over {@link SessionProtocol#FRAMED}, i.e.
+ * {@code TFramedTransport} over TCP without an HTTP envelope. The calls to the same endpoint share a pooled
+ * connection and are matched with their responses by their sequence IDs.
+ */
+final class FramedRemoteInvoker implements RemoteInvoker {
+
+    private static final Logger logger = LoggerFactory.getLogger(FramedRemoteInvoker.class);
+
+    private static final KeyedChannelPoolHandlerAdapter<PoolKey> NOOP_POOL_HANDLER =
+            new KeyedChannelPoolHandlerAdapter<>();
+
+    private static final ChannelHealthChecker HEALTH_CHECKER =
+            ch -> ch.eventLoop().newSucceededFuture(FramedSessionHandler.isActive(ch));
+
+    final ConcurrentMap<EventLoop, KeyedChannelPool<PoolKey>> map = PlatformDependent.newConcurrentHashMap();
+
+    private final EventLoopGroup eventLoopGroup;
+    private final Bootstrap baseBootstrap;
+    private final RemoteInvokerOptions options;
+
+    FramedRemoteInvoker(EventLoopGroup eventLoopGroup, Bootstrap baseBootstrap, RemoteInvokerOptions options) {
+        this.eventLoopGroup = requireNonNull(eventLoopGroup, "eventLoopGroup");
+        this.baseBootstrap = requireNonNull(baseBootstrap, "baseBootstrap");
+        this.options = requireNonNull(options, "options");
+
+        assert baseBootstrap.group() == null;
+    }
+
+    private KeyedChannelPool<PoolKey> pool(EventLoop eventLoop) {
+        KeyedChannelPool<PoolKey> pool = map.get(eventLoop);
+        if (pool != null) {
+            return pool;
+        }
+
+        return map.computeIfAbsent(eventLoop, e -> {
+            final Bootstrap bootstrap = baseBootstrap.clone();
+            bootstrap.group(eventLoop);
+
+            final Function<PoolKey, Future<Channel>> factory = key -> {
+                final Promise<Channel> sessionPromise = eventLoop.newPromise();
+                final ChannelFuture connectFuture =
+                        bootstrap.clone().handler(newChannelInitializer(key)).connect(key.remoteAddress());
+                connectFuture.addListener((ChannelFuture f) -> {
+                    if (f.isSuccess()) {
+                        sessionPromise.setSuccess(f.channel());
+                    } else {
+                        sessionPromise.setFailure(f.cause());
+                    }
+                });
+                return sessionPromise;
+            };
+
+            final KeyedChannelPoolHandler<PoolKey> handler =
+                    options.poolHandlerDecorator().apply(NOOP_POOL_HANDLER);
+
+            eventLoop.terminationFuture().addListener((FutureListener<Object>) f -> map.remove(eventLoop));
+
+            return new DefaultKeyedChannelPool<>(eventLoop, factory, HEALTH_CHECKER, handler, true,
+                                                 key -> key.sessionProtocol().isMultiplex());
+        });
+    }
+
+    /**
+     * Returns the {@link ChannelInitializer} of a new connection, which speaks only the serialization format
+     * of the specified {@link PoolKey}.
+     */
+    private ChannelInitializer<Channel> newChannelInitializer(PoolKey key) {
+        final SerializationFormat serializationFormat = key.serializationFormat();
+        return new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) throws Exception {
+                final ChannelPipeline p = ch.pipeline();
+                p.addLast(new LengthFieldBasedFrameDecoder(options.maxFrameLength(), 0, 4, 0, 4));
+                p.addLast(new LengthFieldPrepender(4));
+                p.addLast(new FramedSessionHandler(serializationFormat));
+            }
+        };
+    }
+
+    @Override
+    public <T> Future<T> invoke(URI uri, ClientOptions options, ClientCodec codec, Method method,
+                                Object[] args) throws Exception {
+        requireNonNull(uri, "uri");
+        requireNonNull(options, "options");
+        requireNonNull(codec, "codec");
+        requireNonNull(method, "method");
+
+        final EventLoop eventLoop =
+                ServiceInvocationContext.mapCurrent(ServiceInvocationContext::eventLoop, eventLoopGroup::next);
+        final Scheme scheme = Scheme.parse(uri.getScheme());
+        final InetSocketAddress remoteAddress = convertToSocketAddress(uri, scheme);
+
+        // The serialization format is a part of the key, because a framed server tells the format of
+        // a response frame nowhere but in its connection.
+        final PoolKey poolKey =
+                new PoolKey(remoteAddress, SessionProtocol.FRAMED, scheme.serializationFormat());
+        final long startNanos = System.nanoTime();
+        final Future<Channel> channelFuture = pool(eventLoop).acquire(poolKey);
+
+        final Promise<T> resultPromise = eventLoop.newPromise();
+
+        codec.prepareRequest(method, args, resultPromise);
+        if (channelFuture.isSuccess()) {
+            invoke0(codec, channelFuture.getNow(), method, args, options, resultPromise, poolKey, startNanos);
+        } else {
+            channelFuture.addListener((Future<Channel> future) -> {
+                if (future.isSuccess()) {
+                    invoke0(codec, future.getNow(), method, args, options, resultPromise, poolKey,
+                            startNanos);
+                } else {
+                    resultPromise.setFailure(future.cause());
+                }
+            });
+        }
+
+        return resultPromise;
+    }
+
+    private static <T> void invoke0(ClientCodec codec, Channel channel,
+                                    Method method, Object[] args, ClientOptions options,
+                                    Promise<T> resultPromise, PoolKey poolKey, long startNanos) {
+
+        final long acquireEndNanos = System.nanoTime();
+        final KeyedChannelPool<PoolKey> pool = KeyedChannelPool.findPool(channel);
+
+        final EncodeResult encodeResult = codec.encodeRequest(channel, SessionProtocol.FRAMED, method, args);
+        if (!encodeResult.isSuccess()) {
+            final Throwable cause = encodeResult.cause();
+            if (!resultPromise.tryFailure(cause)) {
+                logger.warn("Failed to reject an invocation promise ({}) with {}",
+                            resultPromise, cause, cause);
+            }
+        } else if (!(encodeResult.content() instanceof ByteBuf)) {
+            ReferenceCountUtil.safeRelease(encodeResult.content());
+            resultPromise.tryFailure(new IllegalStateException(
+                    "content is not a ByteBuf: " + encodeResult.content().getClass().getName()));
+        } else {
+            final ServiceInvocationContext ctx = encodeResult.invocationContext();
+            final Promise<ByteBuf> responsePromise = channel.eventLoop().newPromise();
+            final ClientInvocationTimings timings =
+                    ClientInvocationTimings.set(ctx, startNanos, acquireEndNanos, null);
+
+            final Invocation invocation =
+                    new Invocation(ctx, responsePromise, (ByteBuf) encodeResult.content());
+            timings.requestWriteStartNanos = System.nanoTime();
+
+            final long writeTimeoutMillis = options.writeTimeoutPolicy().timeout(ctx);
+            final ChannelPromise writePromise = channel.newPromise();
+            channel.writeAndFlush(invocation, writePromise);
+            HttpRemoteInvoker.scheduleTimeout(channel, writePromise, writeTimeoutMillis, true);
+            writePromise.addListener(fut -> {
+                if (!fut.isSuccess()) {
+                    ctx.rejectPromise(responsePromise, fut.cause());
+                } else {
+                    timings.requestWriteEndNanos = System.nanoTime();
+                    final long responseTimeoutMillis = options.responseTimeoutPolicy().timeout(ctx);
+                    HttpRemoteInvoker.scheduleTimeout(channel, responsePromise, responseTimeoutMillis, false);
+                }
+            });
+
+            responsePromise.addListener((Future<ByteBuf> future) -> {
+                if (future.isSuccess()) {
+                    decodeResult(codec, resultPromise, ctx, timings, future.getNow());
+                } else {
+                    ctx.rejectPromise(resultPromise, future.cause());
+                }
+            });
+        }
+
+        // The calls are multiplexed, so the channel can be released as soon as the call is written.
+        pool.release(poolKey, channel);
+    }
+
+    private static <T> void decodeResult(ClientCodec codec, Promise<T> resultPromise,
+                                         ServiceInvocationContext ctx, ClientInvocationTimings timings,
+                                         ByteBuf frame) {
+        final long responseEndNanos = System.nanoTime();
+        timings.responseEndNanos = responseEndNanos;
+        timings.responseDecodeStartNanos = responseEndNanos;
+        try {
+            final Object result = codec.decodeResponse(ctx, frame, frame);
+            timings.responseDecodeEndNanos = System.nanoTime();
+            ctx.resolvePromise(resultPromise, result);
+        } catch (Throwable e) {
+            timings.responseDecodeEndNanos = System.nanoTime();
+            ctx.rejectPromise(resultPromise, e);
+        } finally {
+            ReferenceCountUtil.release(frame);
+        }
+    }
+
+    private static InetSocketAddress convertToSocketAddress(URI uri, Scheme scheme) {
+        if (scheme.sessionProtocol() != SessionProtocol.FRAMED) {
+            throw new IllegalArgumentException("unsupported session protocol: " + scheme.sessionProtocol());
+        }
+        if (!SerializationFormat.ofThrift().contains(scheme.serializationFormat())) {
+            throw new IllegalArgumentException(
+                    "unsupported serialization format: " + scheme.serializationFormat());
+        }
+        if (DomainSocketAddress.of(uri).isPresent()) {
+            throw new IllegalArgumentException(
+                    "Unix domain socket is not supported by " + SessionProtocol.FRAMED + ": " + uri);
+        }
+        if (uri.getHost() == null || uri.getPort() < 0) {
+            // Unlike HTTP, there's no well-known port.
+            throw new IllegalArgumentException("uri: " + uri + " (expected: a host name and a port number)");
+        }
+
+        return InetSocketAddress.createUnresolved(uri.getHost(), uri.getPort());
+    }
+
+    @Override
+    public void close() {
+        map.values().forEach(KeyedChannelPool::close);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linecorp.armeria.common.SerializationFormat;
+import com.linecorp.armeria.common.ServiceInvocationContext;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.thrift.TByteBufTransport;
+import com.linecorp.armeria.common.thrift.ThriftProtocolFactories;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.concurrent.Promise;
+
+/**
+ * Sends the Thrift calls over a {@link SessionProtocol#FRAMED} connection and matches the response frames
+ * with the pending calls by their sequence IDs, so that more than one call can be in flight on
+ * a connection.
+ */
+final class FramedSessionHandler extends ChannelDuplexHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(FramedSessionHandler.class);
+
+    /**
+     * Returns {@code true} if the specified {@link Channel} can accept a new call.
+     */
+    static boolean isActive(Channel ch) {
+        final FramedSessionHandler handler = ch.pipeline().get(FramedSessionHandler.class);
+        return handler != null && handler.active;
+    }
+
+    /**
+     * The pending calls mapped by their sequence IDs. Accessed only by the event loop of the channel.
+     */
+    private final IntObjectMap<Invocation> pendingInvocations = new IntObjectHashMap<>();
+    /**
+     * The serialization format of the connection. A framed server speaks only one serialization format,
+     * so the calls of the other formats are sent over the other connections.
+     */
+    private final SerializationFormat serializationFormat;
+    private final TProtocolFactory protocolFactory;
+    private boolean active = true;
+
+    FramedSessionHandler(SerializationFormat serializationFormat) {
+        this.serializationFormat = requireNonNull(serializationFormat, "serializationFormat");
+        protocolFactory = ThriftProtocolFactories.get(serializationFormat);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (!(msg instanceof Invocation)) {
+            ctx.write(msg, promise);
+            return;
+        }
+
+        final Invocation invocation = (Invocation) msg;
+        final ByteBuf content = invocation.content();
+        final SerializationFormat invocationSerializationFormat =
+                invocation.invocationContext().scheme().serializationFormat();
+        if (invocationSerializationFormat != serializationFormat) {
+            ReferenceCountUtil.safeRelease(content);
+            promise.setFailure(new IllegalStateException(
+                    "serialization format: " + invocationSerializationFormat +
+                    " (expected: " + serializationFormat + ')'));
+            return;
+        }
+
+        final TMessage header;
+        try {
+            header = readMessageBegin(content);
+        } catch (TException e) {
+            ReferenceCountUtil.safeRelease(content);
+            promise.setFailure(e);
+            return;
+        }
+
+        if (header.type == TMessageType.ONEWAY) {
+            // No response will be sent for a oneway call.
+            promise.addListener(future -> {
+                if (future.isSuccess()) {
+                    invocation.invocationContext().resolvePromise(invocation.responsePromise(),
+                                                                  Unpooled.EMPTY_BUFFER);
+                }
+            });
+        } else {
+            final int seqId = header.seqid;
+            if (pendingInvocations.containsKey(seqId)) {
+                ReferenceCountUtil.safeRelease(content);
+                promise.setFailure(new IllegalStateException(
+                        "a call with the same sequence ID is in progress: " + seqId));
+                return;
+            }
+
+            pendingInvocations.put(seqId, invocation);
+            invocation.responsePromise().addListener(future -> {
+                // Remove the call if it failed, e.g. timed out, so that a late response is ignored.
+                if (pendingInvocations.get(seqId) == invocation) {
+                    pendingInvocations.remove(seqId);
+                }
+            });
+        }
+
+        ctx.write(content, promise);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof ByteBuf)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        final ByteBuf frame = (ByteBuf) msg;
+        final Invocation invocation;
+        try {
+            invocation = pendingInvocations.remove(readMessageBegin(frame).seqid);
+        } catch (TException e) {
+            ReferenceCountUtil.safeRelease(frame);
+            logger.warn("{} Received a malformed response; closing the connection", ctx.channel(), e);
+            ctx.close();
+            return;
+        }
+
+        if (invocation == null) {
+            // The call has been completed already, e.g. timed out.
+            ReferenceCountUtil.safeRelease(frame);
+            return;
+        }
+
+        if (!invocation.responsePromise().trySuccess(frame)) {
+            ReferenceCountUtil.safeRelease(frame);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        active = false;
+        if (!pendingInvocations.isEmpty()) {
+            final List<Invocation> invocations = new ArrayList<>(pendingInvocations.values());
+            pendingInvocations.clear();
+            invocations.forEach(i -> i.invocationContext().rejectPromise(i.responsePromise(),
+                                                                         ClosedSessionException.INSTANCE));
+        }
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        logger.warn("{} Unexpected exception; closing the connection", ctx.channel(), cause);
+        ctx.close();
+    }
+
+    /**
+     * Reads the header of the Thrift message in the specified buffer without changing its reader index.
+     */
+    private TMessage readMessageBegin(ByteBuf buf) throws TException {
+        return protocolFactory.getProtocol(new TByteBufTransport(buf.duplicate())).readMessageBegin();
+    }
+
+    static final class Invocation {
+        private final ServiceInvocationContext invocationContext;
+        private final Promise<ByteBuf> responsePromise;
+        private final ByteBuf content;
+
+        Invocation(ServiceInvocationContext invocationContext, Promise<ByteBuf> responsePromise,
+                   ByteBuf content) {
+            this.invocationContext = invocationContext;
+            this.responsePromise = responsePromise;
+            this.content = content;
+        }
+
+        ServiceInvocationContext invocationContext() {
+            return invocationContext;
+        }
+
+        Promise<ByteBuf> responsePromise() {
+            return responsePromise;
+        }
+
+        ByteBuf content() {
+            return content;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http2.Http2ConnectionHandler;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.internal.OneTimeTask;
+
+/**
+ * Sends an HTTP/2 PING frame when no response has been received from a session for a while, and closes
+ * the session if the PING is not acknowledged in time. A dead connection is therefore closed and evicted
+ * from the pool before an invocation is sent over it.
+ *
+ * @see RemoteInvokerOption#PING_INTERVAL
+ * @see RemoteInvokerOption#PING_TIMEOUT
+ */
+class Http2ClientKeepAliveHandler extends IdleStateHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(Http2ClientKeepAliveHandler.class);
+
+    static void pingAckReceived(Channel ch, ByteBuf data) {
+        final Http2ClientKeepAliveHandler keepAliveHandler =
+                ch.pipeline().get(Http2ClientKeepAliveHandler.class);
+        if (keepAliveHandler != null) {
+            keepAliveHandler.onPingAck(data);
+        }
+    }
+
+    private final long pingTimeoutMillis;
+    private final SessionRoundTripTimes roundTripTimes;
+    private final SessionRoundTripTimes.Entry roundTripTime;
+
+    /**
+     * The payload of the PING frame which has not been acknowledged yet, which is the value of
+     * {@link System#nanoTime()} when the PING frame was sent.
+     */
+    private long pingSentNanos;
+    private ScheduledFuture<?> pingTimeoutFuture;
+
+    Http2ClientKeepAliveHandler(long pingIntervalMillis, long pingTimeoutMillis,
+                                SessionRoundTripTimes roundTripTimes) {
+        super(pingIntervalMillis, 0, 0, TimeUnit.MILLISECONDS);
+        this.pingTimeoutMillis = pingTimeoutMillis;
+        this.roundTripTimes = roundTripTimes;
+        roundTripTime = roundTripTimes.newEntry();
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        roundTripTimes.register(ctx.channel(), roundTripTime);
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        cancelPingTimeout();
+        roundTripTimes.unregister(roundTripTime);
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    protected void channelIdle(ChannelHandlerContext ctx, IdleStateEvent evt) throws Exception {
+        if (evt.state() == IdleState.READER_IDLE && pingTimeoutFuture == null) {
+            sendPing(ctx);
+        }
+
+        ctx.fireUserEventTriggered(evt);
+    }
+
+    private void sendPing(ChannelHandlerContext ctx) {
+        final ChannelHandlerContext http2Ctx = ctx.pipeline().context(Http2ConnectionHandler.class);
+        if (http2Ctx == null) {
+            // Not an HTTP/2 session or being closed.
+            return;
+        }
+
+        final Http2ConnectionHandler http2Handler = (Http2ConnectionHandler) http2Ctx.handler();
+        final long pingSentNanos = System.nanoTime();
+        this.pingSentNanos = pingSentNanos;
+
+        final ByteBuf data = ctx.alloc().buffer(8).writeLong(pingSentNanos);
+        http2Handler.encoder().writePing(http2Ctx, false, data, http2Ctx.newPromise());
+        http2Ctx.flush();
+
+        pingTimeoutFuture = ctx.executor().schedule(new OneTimeTask() {
+            @Override
+            public void run() {
+                pingTimeoutFuture = null;
+                logger.debug("{} Closing due to PING timeout ({}ms)", ctx.channel(), pingTimeoutMillis);
+                // A dead session has no invocation to wait for even if it is draining.
+                HttpSessionHandler.closeWithoutDraining(ctx.channel());
+            }
+        }, pingTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void onPingAck(ByteBuf data) {
+        if (pingTimeoutFuture == null || data.readableBytes() != 8 ||
+            data.getLong(data.readerIndex()) != pingSentNanos) {
+            // Not the acknowledgement of the PING we sent.
+            return;
+        }
+
+        cancelPingTimeout();
+        roundTripTime.update(System.nanoTime() - pingSentNanos);
+    }
+
+    private void cancelPingTimeout() {
+        final ScheduledFuture<?> pingTimeoutFuture = this.pingTimeoutFuture;
+        if (pingTimeoutFuture != null) {
+            this.pingTimeoutFuture = null;
+            pingTimeoutFuture.cancel(false);
+        }
+    }
+}
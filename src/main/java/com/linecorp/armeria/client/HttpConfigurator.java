@@ -30,18 +30,21 @@ import javax.net.ssl.SSLException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.linecorp.armeria.common.DomainSocketAddress;
 import com.linecorp.armeria.common.SessionProtocol;
 import com.linecorp.armeria.common.http.AbstractHttpToHttp2ConnectionHandler;
 import com.linecorp.armeria.common.http.Http1ClientCodec;
 import com.linecorp.armeria.common.http.Http1ClientUpgradeHandler;
 import com.linecorp.armeria.common.util.Exceptions;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.local.LocalAddress;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
@@ -61,11 +64,16 @@ import io.netty.handler.codec.http2.DefaultHttp2FrameWriter;
 import io.netty.handler.codec.http2.Http2ClientUpgradeCodec;
 import io.netty.handler.codec.http2.Http2CodecUtil;
 import io.netty.handler.codec.http2.Http2Connection;
+import io.netty.handler.codec.http2.Http2ConnectionAdapter;
 import io.netty.handler.codec.http2.Http2ConnectionDecoder;
 import io.netty.handler.codec.http2.Http2ConnectionEncoder;
 import io.netty.handler.codec.http2.Http2ConnectionHandler;
+import io.netty.handler.codec.http2.Http2Exception;
+import io.netty.handler.codec.http2.Http2FrameListener;
+import io.netty.handler.codec.http2.Http2FrameListenerDecorator;
 import io.netty.handler.codec.http2.Http2FrameReader;
 import io.netty.handler.codec.http2.Http2FrameWriter;
+import io.netty.handler.codec.http2.Http2Headers;
 import io.netty.handler.codec.http2.Http2SecurityUtil;
 import io.netty.handler.codec.http2.Http2Settings;
 import io.netty.handler.codec.http2.HttpConversionUtil.ExtensionHeaderNames;
@@ -93,12 +101,15 @@ class HttpConfigurator extends ChannelDuplexHandler {
     private final SslContext sslCtx;
     private final HttpPreference httpPreference;
     private final RemoteInvokerOptions options;
-    private InetSocketAddress remoteAddress;
+    private final SessionRoundTripTimes roundTripTimes;
+    private SocketAddress remoteAddress;
 
-    HttpConfigurator(SessionProtocol sessionProtocol, RemoteInvokerOptions options) {
+    HttpConfigurator(SessionProtocol sessionProtocol, RemoteInvokerOptions options,
+                     SessionRoundTripTimes roundTripTimes) {
         switch (sessionProtocol) {
         case HTTP:
         case HTTPS:
+        case LOCAL:
             httpPreference = HttpPreference.HTTP2_PREFERRED;
             break;
         case H1:
@@ -115,6 +126,7 @@ class HttpConfigurator extends ChannelDuplexHandler {
         }
 
         this.options = requireNonNull(options, "options");
+        this.roundTripTimes = requireNonNull(roundTripTimes, "roundTripTimes");
 
         if (sessionProtocol.isTls()) {
             try {
@@ -149,10 +161,27 @@ class HttpConfigurator extends ChannelDuplexHandler {
                         ChannelPromise promise) throws Exception {
 
         // Remember the requested remote address for later use.
-        this.remoteAddress = (InetSocketAddress) remoteAddress;
+        if (remoteAddress instanceof LocalAddress) {
+            // Use the same address with the one in the PoolKey, whose host name is the name of the local port.
+            this.remoteAddress = InetSocketAddress.createUnresolved(((LocalAddress) remoteAddress).id(), 80);
+        } else {
+            this.remoteAddress = DomainSocketAddress.convert(remoteAddress);
+        }
 
         // Configure the pipeline.
         final Channel ch = ctx.channel();
+        final SessionTimings timings = SessionTimings.getOrCreate(ch);
+        timings.socketConnectStartNanos = System.nanoTime();
+        promise.addListener(future -> {
+            if (future.isSuccess()) {
+                final long socketConnectEndNanos = System.nanoTime();
+                timings.socketConnectEndNanos = socketConnectEndNanos;
+                if (sslCtx != null) {
+                    timings.tlsHandshakeStartNanos = socketConnectEndNanos;
+                }
+            }
+        });
+
         try {
             if (sslCtx != null) {
                 configureAsHttps(ch);
@@ -192,6 +221,8 @@ class HttpConfigurator extends ChannelDuplexHandler {
                     return;
                 }
 
+                SessionTimings.getOrCreate(ctx.channel()).tlsHandshakeEndNanos = System.nanoTime();
+
                 final SessionProtocol protocol;
                 if (isHttp2Protocol(sslHandler)) {
                     if (httpPreference == HttpPreference.HTTP1_REQUIRED) {
@@ -203,7 +234,7 @@ class HttpConfigurator extends ChannelDuplexHandler {
                     protocol = H2;
                 } else {
                     if (httpPreference != HttpPreference.HTTP1_REQUIRED) {
-                        SessionProtocolNegotiationCache.setUnsupported(ctx.channel().remoteAddress(), H2);
+                        SessionProtocolNegotiationCache.setUnsupported(remoteAddress, H2);
                     }
 
                     if (httpPreference == HttpPreference.HTTP2_REQUIRED) {
@@ -265,6 +296,8 @@ class HttpConfigurator extends ChannelDuplexHandler {
 
     // FIXME: Ensure unnecessary handlers are all removed from the pipeline for all protocol types.
     void finishSuccessfully(ChannelPipeline pipeline, SessionProtocol protocol) {
+        SessionProtocolNegotiationCache.setNegotiated(remoteAddress, protocol);
+
         switch (protocol) {
         case H1:
         case H1C:
@@ -294,7 +327,13 @@ class HttpConfigurator extends ChannelDuplexHandler {
             pipeline.addLast(timeoutHandler);
         }
 
-        pipeline.addLast(new HttpSessionHandler(protocol));
+        final long pingIntervalMillis = options.pingIntervalMillis();
+        if (pingIntervalMillis > 0 && (protocol == H2 || protocol == H2C)) {
+            pipeline.addLast(new Http2ClientKeepAliveHandler(pingIntervalMillis, options.pingTimeoutMillis(),
+                                                             roundTripTimes));
+        }
+
+        pipeline.addLast(new HttpSessionHandler(protocol, options.drainTimeoutMillis()));
         pipeline.channel().eventLoop().execute(() -> pipeline.fireUserEventTriggered(protocol));
     }
 
@@ -331,11 +370,18 @@ class HttpConfigurator extends ChannelDuplexHandler {
             // Note: There's no need to fill Connection, Upgrade, and HTTP2-Settings headers here
             //       because they are filled by Http2ClientUpgradeCodec.
 
-            final String host = HttpHostHeaderUtil.hostHeader(
-                    remoteAddress.getHostString(), remoteAddress.getPort(), sslCtx != null);
+            final String host;
+            if (remoteAddress instanceof InetSocketAddress) {
+                final InetSocketAddress inetRemoteAddress = (InetSocketAddress) remoteAddress;
+                host = HttpHostHeaderUtil.hostHeader(
+                        inetRemoteAddress.getHostString(), inetRemoteAddress.getPort(), sslCtx != null);
+            } else {
+                host = DomainSocketAddress.HOST;
+            }
 
             upgradeReq.headers().set(HttpHeaderNames.HOST, host);
 
+            SessionTimings.getOrCreate(ctx.channel()).protocolNegotiationStartNanos = System.nanoTime();
             ctx.writeAndFlush(upgradeReq);
             ctx.fireChannelActive();
         }
@@ -389,6 +435,8 @@ class HttpConfigurator extends ChannelDuplexHandler {
                 return;
             }
 
+            SessionTimings.getOrCreate(ctx.channel()).protocolNegotiationEndNanos = System.nanoTime();
+
             final ChannelPipeline p = ctx.pipeline();
 
             // Done with this handler, remove it from the pipeline.
@@ -397,7 +445,7 @@ class HttpConfigurator extends ChannelDuplexHandler {
             if ("close".equalsIgnoreCase(upgradeRes.headers().get(HttpHeaderNames.CONNECTION))) {
                 // Server wants us to close the connection, which means we cannot use this connection
                 // to send the request that contains the actual invocation.
-                SessionProtocolNegotiationCache.setUnsupported(ctx.channel().remoteAddress(), H2C);
+                SessionProtocolNegotiationCache.setUnsupported(remoteAddress, H2C);
 
                 if (httpPreference == HttpPreference.HTTP2_REQUIRED) {
                     finishWithNegotiationFailure(ctx, H2C, H1C,
@@ -414,7 +462,7 @@ class HttpConfigurator extends ChannelDuplexHandler {
                 finishSuccessfully(p, H2C);
                 break;
             case UPGRADE_REJECTED:
-                SessionProtocolNegotiationCache.setUnsupported(ctx.channel().remoteAddress(), H2C);
+                SessionProtocolNegotiationCache.setUnsupported(remoteAddress, H2C);
 
                 if (httpPreference == HttpPreference.HTTP2_REQUIRED) {
                     finishWithNegotiationFailure(ctx, H2C, H1C, "upgrade request rejected");
@@ -440,9 +488,32 @@ class HttpConfigurator extends ChannelDuplexHandler {
     private Http2ConnectionHandler newHttp2ConnectionHandler() {
         final boolean validateHeaders = false;
         final Http2Connection conn = new DefaultHttp2Connection(false);
-        final InboundHttp2ToHttpAdapter listener = new InboundHttp2ToHttpAdapterBuilder(conn)
+        final InboundHttp2ToHttpAdapter adapter = new InboundHttp2ToHttpAdapterBuilder(conn)
                 .propagateSettings(true).validateHttpHeaders(validateHeaders)
                 .maxContentLength(options.maxFrameLength()).build();
+        final Http2FrameListener listener = new Http2FrameListenerDecorator(adapter) {
+            @Override
+            public void onPingAckRead(ChannelHandlerContext ctx, ByteBuf data) throws Http2Exception {
+                Http2ClientKeepAliveHandler.pingAckReceived(ctx.channel(), data);
+                super.onPingAckRead(ctx, data);
+            }
+
+            @Override
+            public void onHeadersRead(ChannelHandlerContext ctx, int streamId, Http2Headers headers,
+                                      int padding, boolean endOfStream) throws Http2Exception {
+                HttpSessionHandler.responseStarted(ctx.channel(), streamId);
+                super.onHeadersRead(ctx, streamId, headers, padding, endOfStream);
+            }
+
+            @Override
+            public void onHeadersRead(ChannelHandlerContext ctx, int streamId, Http2Headers headers,
+                                      int streamDependency, short weight, boolean exclusive, int padding,
+                                      boolean endOfStream) throws Http2Exception {
+                HttpSessionHandler.responseStarted(ctx.channel(), streamId);
+                super.onHeadersRead(ctx, streamId, headers, streamDependency, weight, exclusive, padding,
+                                    endOfStream);
+            }
+        };
 
         Http2FrameReader reader = new DefaultHttp2FrameReader(validateHeaders);
         Http2FrameWriter writer = new DefaultHttp2FrameWriter();
@@ -478,6 +549,17 @@ class HttpConfigurator extends ChannelDuplexHandler {
             super(decoder, encoder, initialSettings, validateHeaders);
         }
 
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+            super.handlerAdded(ctx);
+            connection().addListener(new Http2ConnectionAdapter() {
+                @Override
+                public void onGoAwayReceived(int lastStreamId, long errorCode, ByteBuf debugData) {
+                    HttpSessionHandler.goAwayReceived(ctx.channel(), lastStreamId);
+                }
+            });
+        }
+
         @Override
         protected void onCloseRequest(ChannelHandlerContext ctx) throws Exception {
             HttpSessionHandler.deactivate(ctx.channel());
@@ -21,12 +21,15 @@ import static com.linecorp.armeria.common.SessionProtocol.H2;
 import static com.linecorp.armeria.common.SessionProtocol.H2C;
 import static com.linecorp.armeria.common.SessionProtocol.HTTP;
 import static com.linecorp.armeria.common.SessionProtocol.HTTPS;
+import static com.linecorp.armeria.common.SessionProtocol.LOCAL;
 import static java.util.Objects.requireNonNull;
 
 import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.net.URI;
 import java.util.EnumSet;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledFuture;
@@ -43,17 +46,21 @@ import com.linecorp.armeria.client.pool.KeyedChannelPoolHandler;
 import com.linecorp.armeria.client.pool.KeyedChannelPoolHandlerAdapter;
 import com.linecorp.armeria.client.pool.PoolKey;
 import com.linecorp.armeria.client.pool.DefaultKeyedChannelPool;
+import com.linecorp.armeria.common.DomainSocketAddress;
 import com.linecorp.armeria.common.Scheme;
 import com.linecorp.armeria.common.ServiceInvocationContext;
 import com.linecorp.armeria.common.SessionProtocol;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.resolver.AddressResolverGroup;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.FutureListener;
@@ -68,18 +75,24 @@ final class HttpRemoteInvoker implements RemoteInvoker {
     private static final KeyedChannelPoolHandlerAdapter<PoolKey> NOOP_POOL_HANDLER =
             new KeyedChannelPoolHandlerAdapter<>();
 
-    static final Set<SessionProtocol> HTTP_PROTOCOLS = EnumSet.of(H1, H1C, H2, H2C, HTTPS, HTTP);
+    static final Set<SessionProtocol> HTTP_PROTOCOLS = EnumSet.of(H1, H1C, H2, H2C, HTTPS, HTTP, LOCAL);
 
     final ConcurrentMap<EventLoop, KeyedChannelPool<PoolKey>> map = PlatformDependent.newConcurrentHashMap();
 
     private final EventLoopGroup eventLoopGroup;
     private final Bootstrap baseBootstrap;
+    private final AddressResolverGroup<InetSocketAddress> addressResolverGroup;
     private final RemoteInvokerOptions options;
+    private final SessionRoundTripTimes roundTripTimes;
 
-    HttpRemoteInvoker(EventLoopGroup eventLoopGroup, Bootstrap baseBootstrap, RemoteInvokerOptions options) {
+    HttpRemoteInvoker(EventLoopGroup eventLoopGroup, Bootstrap baseBootstrap,
+                      AddressResolverGroup<InetSocketAddress> addressResolverGroup,
+                      RemoteInvokerOptions options, SessionRoundTripTimes roundTripTimes) {
         this.eventLoopGroup = requireNonNull(eventLoopGroup, "eventLoopGroup");
         this.baseBootstrap = requireNonNull(baseBootstrap, "baseBootstrap");
+        this.addressResolverGroup = requireNonNull(addressResolverGroup, "addressResolverGroup");
         this.options = requireNonNull(options, "options");
+        this.roundTripTimes = requireNonNull(roundTripTimes, "roundTripTimes");
 
         assert baseBootstrap.group() == null;
     }
@@ -94,7 +107,8 @@ final class HttpRemoteInvoker implements RemoteInvoker {
             final Bootstrap bootstrap = baseBootstrap.clone();
             bootstrap.group(eventLoop);
 
-            Function<PoolKey, Future<Channel>> factory = new HttpSessionChannelFactory(bootstrap, options);
+            Function<PoolKey, Future<Channel>> factory =
+                    new HttpSessionChannelFactory(bootstrap, addressResolverGroup, options, roundTripTimes);
 
             final KeyedChannelPoolHandler<PoolKey> handler =
                     options.poolHandlerDecorator().apply(NOOP_POOL_HANDLER);
@@ -103,10 +117,35 @@ final class HttpRemoteInvoker implements RemoteInvoker {
 
             //TODO(inch772) handle options.maxConcurrency();
             return new DefaultKeyedChannelPool<>(eventLoop, factory,
-                                                 HttpSessionChannelFactory.HEALTH_CHECKER, handler, true);
+                                                 HttpSessionChannelFactory.HEALTH_CHECKER, handler, true,
+                                                 HttpRemoteInvoker::coalesceConnects);
         });
     }
 
+    /**
+     * Returns whether the concurrent connection attempts for the specified {@link PoolKey} can be coalesced
+     * into one, i.e. whether the new session is likely to be multiplexed. For a {@link SessionProtocol} which
+     * negotiates the actual protocol, such as {@link SessionProtocol#HTTP}, the protocol most recently
+     * negotiated with the remote address is used. If it turns out to be HTTP/1 this time, the coalesced
+     * acquirers get the new session one after another, which is still no worse than a connection storm.
+     */
+    static boolean coalesceConnects(PoolKey key) {
+        final SessionProtocol sessionProtocol = key.sessionProtocol();
+        if (sessionProtocol.isMultiplex()) {
+            return true;
+        }
+
+        switch (sessionProtocol) {
+        case HTTP:
+        case HTTPS:
+        case LOCAL:
+            return SessionProtocolNegotiationCache.negotiatedProtocol(key.remoteSocketAddress())
+                                                  .map(SessionProtocol::isMultiplex).orElse(false);
+        default:
+            return false;
+        }
+    }
+
     @Override
     public <T> Future<T> invoke(URI uri, ClientOptions options, ClientCodec codec, Method method,
                                 Object[] args) throws Exception {
@@ -118,9 +157,10 @@ final class HttpRemoteInvoker implements RemoteInvoker {
         final EventLoop eventLoop = eventLoop();
         final Scheme scheme = Scheme.parse(uri.getScheme());
         final SessionProtocol sessionProtocol = validateSessionProtocol(scheme.sessionProtocol());
-        final InetSocketAddress remoteAddress = convertToSocketAddress(uri, sessionProtocol.isTls());
+        final SocketAddress remoteAddress = convertToSocketAddress(uri, sessionProtocol);
 
         final PoolKey poolKey = new PoolKey(remoteAddress, sessionProtocol);
+        final long startNanos = System.nanoTime();
         final Future<Channel> channelFuture = pool(eventLoop).acquire(poolKey);
 
         final Promise<T> resultPromise = eventLoop.newPromise();
@@ -128,12 +168,12 @@ final class HttpRemoteInvoker implements RemoteInvoker {
         codec.prepareRequest(method, args, resultPromise);
         if (channelFuture.isSuccess()) {
             Channel ch = channelFuture.getNow();
-            invoke0(codec, ch, method, args, options, resultPromise, poolKey);
+            invoke0(codec, ch, method, args, options, resultPromise, poolKey, startNanos);
         } else {
             channelFuture.addListener((Future<Channel> future) -> {
                 if (future.isSuccess()) {
                     Channel ch = future.getNow();
-                    invoke0(codec, ch, method, args, options, resultPromise, poolKey);
+                    invoke0(codec, ch, method, args, options, resultPromise, poolKey, startNanos);
                 } else {
                     resultPromise.setFailure(channelFuture.cause());
                 }
@@ -149,43 +189,25 @@ final class HttpRemoteInvoker implements RemoteInvoker {
 
     static <T> void invoke0(ClientCodec codec, Channel channel,
                             Method method, Object[] args, ClientOptions options,
-                            Promise<T> resultPromise, PoolKey poolKey) {
+                            Promise<T> resultPromise, PoolKey poolKey, long startNanos) {
 
+        final long acquireEndNanos = System.nanoTime();
         final SessionProtocol sessionProtocol = HttpSessionHandler.protocol(channel);
         if (sessionProtocol == null) {
             resultPromise.setFailure(ClosedSessionException.INSTANCE);
             return;
         }
 
+        final KeyedChannelPool<PoolKey> pool = KeyedChannelPool.findPool(channel);
+
         final EncodeResult encodeResult = codec.encodeRequest(channel, sessionProtocol, method, args);
         if (encodeResult.isSuccess()) {
-            ServiceInvocationContext ctx = encodeResult.invocationContext();
-            Promise<FullHttpResponse> responsePromise = channel.eventLoop().newPromise();
-
-            final Invocation invocation = new Invocation(ctx, options, responsePromise, encodeResult.content());
-            //write request
-            final ChannelFuture writeFuture = writeRequest(channel, invocation, ctx, options);
-            writeFuture.addListener(fut -> {
-                if (!fut.isSuccess()) {
-                    ctx.rejectPromise(responsePromise, fut.cause());
-                } else {
-                    long responseTimeoutMillis = options.responseTimeoutPolicy().timeout(ctx);
-                    scheduleTimeout(channel, responsePromise, responseTimeoutMillis, false);
-                }
-            });
-
-            //handle response
-            if (responsePromise.isSuccess()) {
-                decodeResult(codec, resultPromise, ctx, responsePromise.getNow());
-            } else {
-                responsePromise.addListener((Future<FullHttpResponse> future) -> {
-                    if (future.isSuccess()) {
-                        decodeResult(codec, resultPromise, ctx, responsePromise.getNow());
-                    } else {
-                        ctx.rejectPromise(resultPromise, future.cause());
-                    }
-                });
-            }
+            final Object content = encodeResult.content();
+            // Keep the encoded request so that it is sent again as it is when the server goes away
+            // without processing it. The copy is released as soon as the server accepts the stream.
+            final Object retryContent = sessionProtocol.isMultiplex() ? retainedDuplicate(content) : null;
+            send(codec, pool, channel, encodeResult.invocationContext(), content, retryContent,
+                 options, resultPromise, poolKey, startNanos, acquireEndNanos);
         } else {
             final Throwable cause = encodeResult.cause();
             if (!resultPromise.tryFailure(cause)) {
@@ -194,8 +216,96 @@ final class HttpRemoteInvoker implements RemoteInvoker {
             }
         }
 
-        //release channel
-        final KeyedChannelPool<PoolKey> pool = KeyedChannelPool.findPool(channel);
+        release(pool, poolKey, channel, sessionProtocol, resultPromise);
+    }
+
+    private static <T> void send(ClientCodec codec, KeyedChannelPool<PoolKey> pool, Channel channel,
+                                 ServiceInvocationContext ctx, Object content, Object retryContent,
+                                 ClientOptions options, Promise<T> resultPromise, PoolKey poolKey,
+                                 long startNanos, long acquireEndNanos) {
+
+        Promise<FullHttpResponse> responsePromise = channel.eventLoop().newPromise();
+        final ClientInvocationTimings timings = ClientInvocationTimings.set(
+                ctx, startNanos, acquireEndNanos, SessionTimings.get(channel));
+
+        final Invocation invocation = new Invocation(ctx, options, responsePromise, content, retryContent);
+        //write request
+        timings.requestWriteStartNanos = System.nanoTime();
+        final ChannelFuture writeFuture = writeRequest(channel, invocation, ctx, options);
+        writeFuture.addListener(fut -> {
+            if (!fut.isSuccess()) {
+                ctx.rejectPromise(responsePromise, fut.cause());
+            } else {
+                timings.requestWriteEndNanos = System.nanoTime();
+                long responseTimeoutMillis = options.responseTimeoutPolicy().timeout(ctx);
+                scheduleTimeout(channel, responsePromise, responseTimeoutMillis, false);
+            }
+        });
+
+        //handle response
+        if (responsePromise.isSuccess()) {
+            invocation.releaseRetryContent();
+            decodeResult(codec, resultPromise, ctx, timings, responsePromise.getNow());
+        } else {
+            responsePromise.addListener((Future<FullHttpResponse> future) -> {
+                if (future.isSuccess()) {
+                    invocation.releaseRetryContent();
+                    decodeResult(codec, resultPromise, ctx, timings, responsePromise.getNow());
+                    return;
+                }
+
+                final Object unsentContent = invocation.takeRetryContent();
+                if (unsentContent != null && !resultPromise.isDone() &&
+                    future.cause() == HttpSessionHandler.UNPROCESSED_EXCEPTION) {
+                    // The server went away without processing the request; send it again on a new session.
+                    retry(codec, pool, ctx, unsentContent, options, resultPromise, poolKey, startNanos);
+                } else {
+                    ReferenceCountUtil.release(unsentContent);
+                    ctx.rejectPromise(resultPromise, future.cause());
+                }
+            });
+        }
+    }
+
+    private static <T> void retry(ClientCodec codec, KeyedChannelPool<PoolKey> pool,
+                                  ServiceInvocationContext ctx, Object content, ClientOptions options,
+                                  Promise<T> resultPromise, PoolKey poolKey, long startNanos) {
+
+        pool.acquire(poolKey).addListener((Future<Channel> future) -> {
+            if (!future.isSuccess()) {
+                ReferenceCountUtil.release(content);
+                ctx.rejectPromise(resultPromise, future.cause());
+                return;
+            }
+
+            final long acquireEndNanos = System.nanoTime();
+            final Channel channel = future.getNow();
+            final SessionProtocol sessionProtocol = HttpSessionHandler.protocol(channel);
+            if (sessionProtocol == null) {
+                ReferenceCountUtil.release(content);
+                ctx.rejectPromise(resultPromise, ClosedSessionException.INSTANCE);
+                return;
+            }
+
+            // Do not retry more than once.
+            send(codec, pool, channel, ctx, content, null, options, resultPromise, poolKey,
+                 startNanos, acquireEndNanos);
+            release(pool, poolKey, channel, sessionProtocol, resultPromise);
+        });
+    }
+
+    private static Object retainedDuplicate(Object content) {
+        if (content instanceof ByteBuf) {
+            return ((ByteBuf) content).duplicate().retain();
+        }
+        if (content instanceof FullHttpRequest) {
+            return ((FullHttpRequest) content).duplicate().retain();
+        }
+        return null;
+    }
+
+    private static void release(KeyedChannelPool<PoolKey> pool, PoolKey poolKey, Channel channel,
+                                SessionProtocol sessionProtocol, Future<?> resultPromise) {
         if (sessionProtocol.isMultiplex()) {
             pool.release(poolKey, channel);
         } else {
@@ -204,10 +314,17 @@ final class HttpRemoteInvoker implements RemoteInvoker {
     }
 
     private static <T> void decodeResult(ClientCodec codec, Promise<T> resultPromise,
-                                         ServiceInvocationContext ctx, FullHttpResponse response) {
+                                         ServiceInvocationContext ctx, ClientInvocationTimings timings,
+                                         FullHttpResponse response) {
+        final long responseEndNanos = System.nanoTime();
+        timings.responseEndNanos = responseEndNanos;
+        timings.responseDecodeStartNanos = responseEndNanos;
         try {
-            ctx.resolvePromise(resultPromise, codec.decodeResponse(ctx, response.content(), response));
+            final Object result = codec.decodeResponse(ctx, response.content(), response);
+            timings.responseDecodeEndNanos = System.nanoTime();
+            ctx.resolvePromise(resultPromise, result);
         } catch (Throwable e) {
+            timings.responseDecodeEndNanos = System.nanoTime();
             ctx.rejectPromise(resultPromise, e);
         } finally {
             ReferenceCountUtil.release(response);
@@ -223,7 +340,7 @@ final class HttpRemoteInvoker implements RemoteInvoker {
         return writePromise;
     }
 
-    private static <T> void scheduleTimeout(
+    static <T> void scheduleTimeout(
             Channel channel, Promise<T> promise, long timeoutMillis, boolean useWriteTimeoutException) {
         final ScheduledFuture<?> timeoutFuture;
         if (timeoutMillis > 0) {
@@ -265,10 +382,17 @@ final class HttpRemoteInvoker implements RemoteInvoker {
         }
     }
 
-    private static InetSocketAddress convertToSocketAddress(URI uri, boolean useTls) {
+    private static SocketAddress convertToSocketAddress(URI uri, SessionProtocol sessionProtocol) {
+        final Optional<DomainSocketAddress> domainSocketAddress = DomainSocketAddress.of(uri);
+        if (domainSocketAddress.isPresent()) {
+            return domainSocketAddress.get();
+        }
+
         int port = uri.getPort();
-        if (port < 0) {
-            port = useTls ? 443 : 80;
+        if (port < 0 || sessionProtocol == LOCAL) {
+            // Note that a local port has no port number; use the default one so that it does not appear in
+            // the "Host" header.
+            port = sessionProtocol.isTls() ? 443 : 80;
         }
         return InetSocketAddress.createUnresolved(uri.getHost(), port);
     }
@@ -18,16 +18,22 @@ package com.linecorp.armeria.client;
 
 import static java.util.Objects.requireNonNull;
 
+import java.net.Inet6Address;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import com.linecorp.armeria.client.pool.PoolKey;
+import com.linecorp.armeria.common.DomainSocketAddress;
 import com.linecorp.armeria.common.SessionProtocol;
 import com.linecorp.armeria.common.TimeoutException;
 
@@ -37,11 +43,18 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoop;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
 import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.resolver.AddressResolverGroup;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.Promise;
 import io.netty.util.internal.OneTimeTask;
+import io.netty.util.internal.PlatformDependent;
 
 class HttpSessionChannelFactory implements Function<PoolKey, Future<Channel>> {
 
@@ -50,22 +63,49 @@ class HttpSessionChannelFactory implements Function<PoolKey, Future<Channel>> {
     static final ChannelHealthChecker HEALTH_CHECKER =
             ch -> ch.eventLoop().newSucceededFuture(HttpSessionHandler.isActive(ch));
 
+    /**
+     * The delay between the connection attempts to the different addresses of the same host name,
+     * as recommended by RFC 8305.
+     */
+    private static final long CONNECTION_ATTEMPT_DELAY_MILLIS = 250;
+
+    /**
+     * How long an address which failed to accept a connection is tried after the other addresses.
+     */
+    private static final long FAILED_ADDRESS_TTL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * The addresses which failed to accept a connection recently, mapped to when they are expired from
+     * this map, in {@link System#nanoTime()}.
+     */
+    private static final ConcurrentMap<InetAddress, Long> recentlyFailedAddresses =
+            PlatformDependent.newConcurrentHashMap();
+
     private final Bootstrap baseBootstrap;
+    private final AddressResolverGroup<InetSocketAddress> addressResolverGroup;
     private final EventLoop eventLoop;
     private final Map<SessionProtocol, Bootstrap> bootstrapMap;
+    private final Map<SessionProtocol, Bootstrap> domainSocketBootstrapMap;
+    private final Map<SessionProtocol, Bootstrap> localBootstrapMap;
     private final RemoteInvokerOptions options;
+    private final SessionRoundTripTimes roundTripTimes;
 
-    HttpSessionChannelFactory(Bootstrap bootstrap, RemoteInvokerOptions options) {
+    HttpSessionChannelFactory(Bootstrap bootstrap, AddressResolverGroup<InetSocketAddress> addressResolverGroup,
+                              RemoteInvokerOptions options, SessionRoundTripTimes roundTripTimes) {
         baseBootstrap = requireNonNull(bootstrap);
+        this.addressResolverGroup = requireNonNull(addressResolverGroup);
         eventLoop = (EventLoop) bootstrap.group();
 
         bootstrapMap = Collections.synchronizedMap(new EnumMap<>(SessionProtocol.class));
+        domainSocketBootstrapMap = Collections.synchronizedMap(new EnumMap<>(SessionProtocol.class));
+        localBootstrapMap = Collections.synchronizedMap(new EnumMap<>(SessionProtocol.class));
         this.options = options;
+        this.roundTripTimes = roundTripTimes;
     }
 
     @Override
     public Future<Channel> apply(PoolKey key) {
-        final InetSocketAddress remoteAddress = key.remoteAddress();
+        final SocketAddress remoteAddress = key.remoteSocketAddress();
         final SessionProtocol protocol = key.sessionProtocol();
 
         if (SessionProtocolNegotiationCache.isUnsupported(remoteAddress, protocol)) {
@@ -74,44 +114,194 @@ class HttpSessionChannelFactory implements Function<PoolKey, Future<Channel>> {
                     new SessionProtocolNegotiationException(protocol, "previously failed negotiation"));
         }
 
+        if (remoteAddress instanceof DomainSocketAddress && !Epoll.isAvailable()) {
+            return eventLoop.newFailedFuture(new IllegalStateException(
+                    "Unix domain socket requires the native epoll transport: " + remoteAddress,
+                    Epoll.unavailabilityCause()));
+        }
+
         final Promise<Channel> sessionPromise = eventLoop.newPromise();
-        connect(remoteAddress, protocol, sessionPromise);
+        if (remoteAddress instanceof DomainSocketAddress) {
+            connect(((DomainSocketAddress) remoteAddress).asNettyAddress(), protocol, sessionPromise, 0, 0);
+        } else if (protocol == SessionProtocol.LOCAL) {
+            // The host name of a local port is its name.
+            connect(new LocalAddress(key.remoteAddress().getHostString()), protocol, sessionPromise, 0, 0);
+        } else if (key.remoteAddress().isUnresolved()) {
+            resolveAndConnect(key.remoteAddress(), protocol, sessionPromise);
+        } else {
+            connect(remoteAddress, protocol, sessionPromise, 0, 0);
+        }
 
         return sessionPromise;
     }
 
+    private void resolveAndConnect(InetSocketAddress remoteAddress, SessionProtocol protocol,
+                                   Promise<Channel> sessionPromise) {
+
+        final long resolveStartNanos = System.nanoTime();
+        final Future<List<InetSocketAddress>> resolveFuture;
+        try {
+            resolveFuture = addressResolverGroup.getResolver(eventLoop).resolveAll(remoteAddress);
+        } catch (Throwable t) {
+            sessionPromise.setFailure(t);
+            return;
+        }
+
+        resolveFuture.addListener((Future<List<InetSocketAddress>> future) -> {
+            if (!future.isSuccess()) {
+                sessionPromise.tryFailure(future.cause());
+                return;
+            }
+
+            final long resolveEndNanos = System.nanoTime();
+            final List<InetSocketAddress> addresses = sortAddresses(future.getNow());
+            if (addresses.size() == 1) {
+                connect(addresses.get(0), protocol, sessionPromise, resolveStartNanos, resolveEndNanos);
+            } else {
+                new ConnectionAttempts(addresses, protocol, sessionPromise,
+                                       resolveStartNanos, resolveEndNanos).start();
+            }
+        });
+    }
+
     private void connect(SocketAddress remoteAddress, SessionProtocol protocol,
-                         Promise<Channel> sessionPromise) {
+                         Promise<Channel> sessionPromise, long resolveStartNanos, long resolveEndNanos) {
+
+        final Bootstrap bootstrap;
+        if (remoteAddress instanceof io.netty.channel.unix.DomainSocketAddress) {
+            bootstrap = domainSocketBootstrap(protocol);
+        } else if (remoteAddress instanceof LocalAddress) {
+            bootstrap = localBootstrap(protocol);
+        } else {
+            bootstrap = bootstrap(protocol);
+        }
 
-        final Bootstrap bootstrap = bootstrap(protocol);
         final ChannelFuture connectFuture = bootstrap.connect(remoteAddress);
         final Channel ch = connectFuture.channel();
 
         if (connectFuture.isDone()) {
-            notifySessionPromise(ch, connectFuture, sessionPromise);
+            notifySessionPromise(ch, connectFuture, sessionPromise, resolveStartNanos, resolveEndNanos);
         } else {
             connectFuture.addListener(
-                    (Future<Void> future) -> notifySessionPromise(ch, future, sessionPromise));
+                    (Future<Void> future) -> notifySessionPromise(ch, future, sessionPromise,
+                                                                  resolveStartNanos, resolveEndNanos));
         }
     }
 
+    /**
+     * Sorts the resolved addresses in the order of connection attempts, as recommended by RFC 8305.
+     * The address families are interleaved, starting with the family of the first address, and the
+     * addresses which failed to accept a connection recently are tried last.
+     */
+    static List<InetSocketAddress> sortAddresses(List<InetSocketAddress> addresses) {
+        if (addresses.size() <= 1) {
+            return addresses;
+        }
+
+        final List<InetSocketAddress> preferred = new ArrayList<>(addresses.size());
+        final List<InetSocketAddress> other = new ArrayList<>(addresses.size());
+        final boolean preferIpv6 = addresses.get(0).getAddress() instanceof Inet6Address;
+        for (InetSocketAddress a : addresses) {
+            if (a.getAddress() instanceof Inet6Address == preferIpv6) {
+                preferred.add(a);
+            } else {
+                other.add(a);
+            }
+        }
+
+        final List<InetSocketAddress> sorted = new ArrayList<>(addresses.size());
+        final List<InetSocketAddress> failed = new ArrayList<>();
+        for (int i = 0; i < Math.max(preferred.size(), other.size()); i++) {
+            if (i < preferred.size()) {
+                addSortedAddress(sorted, failed, preferred.get(i));
+            }
+            if (i < other.size()) {
+                addSortedAddress(sorted, failed, other.get(i));
+            }
+        }
+
+        sorted.addAll(failed);
+        return sorted;
+    }
+
+    private static void addSortedAddress(List<InetSocketAddress> sorted, List<InetSocketAddress> failed,
+                                         InetSocketAddress address) {
+        if (isRecentlyFailed(address.getAddress())) {
+            failed.add(address);
+        } else {
+            sorted.add(address);
+        }
+    }
+
+    static boolean isRecentlyFailed(InetAddress address) {
+        final Long expiryNanos = recentlyFailedAddresses.get(address);
+        if (expiryNanos == null) {
+            return false;
+        }
+
+        if (expiryNanos - System.nanoTime() > 0) {
+            return true;
+        }
+
+        recentlyFailedAddresses.remove(address, expiryNanos);
+        return false;
+    }
+
+    static void setRecentlyFailed(InetAddress address) {
+        recentlyFailedAddresses.put(address, System.nanoTime() + FAILED_ADDRESS_TTL_NANOS);
+    }
+
     private Bootstrap bootstrap(SessionProtocol sessionProtocol) {
         return bootstrapMap.computeIfAbsent(sessionProtocol, sp -> {
             Bootstrap bs = baseBootstrap.clone();
-            bs.handler(new ChannelInitializer<Channel>() {
-                @Override
-                protected void initChannel(Channel ch) throws Exception {
-                    ch.pipeline().addLast(new HttpConfigurator(sp, options));
-                }
-            });
+            bs.handler(newChannelInitializer(sp));
             return bs;
         });
     }
 
-    private void notifySessionPromise(Channel ch, Future<Void> connectFuture,
-                                      Promise<Channel> sessionPromise) {
+    private Bootstrap localBootstrap(SessionProtocol sessionProtocol) {
+        return localBootstrapMap.computeIfAbsent(
+                sessionProtocol, sp -> newNonTcpBootstrap(sp, LocalChannel.class));
+    }
+
+    private Bootstrap domainSocketBootstrap(SessionProtocol sessionProtocol) {
+        return domainSocketBootstrapMap.computeIfAbsent(
+                sessionProtocol, sp -> newNonTcpBootstrap(sp, EpollDomainSocketChannel.class));
+    }
+
+    /**
+     * Creates a new {@link Bootstrap} for a non-TCP transport. Unlike {@link #bootstrap(SessionProtocol)},
+     * it is not cloned from the base {@link Bootstrap} whose channel type and TCP options can't be replaced.
+     */
+    private Bootstrap newNonTcpBootstrap(SessionProtocol sessionProtocol,
+                                         Class<? extends Channel> channelType) {
+        final Bootstrap bs = new Bootstrap();
+        bs.group(eventLoop);
+        bs.channel(channelType);
+        bs.option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+                  ConvertUtils.safeLongToInt(options.connectTimeoutMillis()));
+        bs.handler(newChannelInitializer(sessionProtocol));
+        return bs;
+    }
+
+    private ChannelInitializer<Channel> newChannelInitializer(SessionProtocol sessionProtocol) {
+        return new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) throws Exception {
+                ch.pipeline().addLast(new HttpConfigurator(sessionProtocol, options, roundTripTimes));
+            }
+        };
+    }
+
+    private void notifySessionPromise(Channel ch, Future<Void> connectFuture, Promise<Channel> sessionPromise,
+                                      long resolveStartNanos, long resolveEndNanos) {
         assert connectFuture.isDone();
         if (connectFuture.isSuccess()) {
+            if (resolveStartNanos != 0) {
+                final SessionTimings timings = SessionTimings.getOrCreate(ch);
+                timings.dnsResolutionStartNanos = resolveStartNanos;
+                timings.dnsResolutionEndNanos = resolveEndNanos;
+            }
             watchSessionActive(ch, sessionPromise);
         } else {
             sessionPromise.setFailure(connectFuture.cause());
@@ -175,7 +365,7 @@ class HttpSessionChannelFactory implements Function<PoolKey, Future<Channel>> {
                     // Protocol upgrade has failed, but needs to retry.
                     timeoutFuture.cancel(false);
                     ctx.close();
-                    connect(ctx.channel().remoteAddress(), SessionProtocol.H1C, sessionPromise);
+                    connect(ctx.channel().remoteAddress(), SessionProtocol.H1C, sessionPromise, 0, 0);
                     return;
                 }
 
@@ -183,4 +373,112 @@ class HttpSessionChannelFactory implements Function<PoolKey, Future<Channel>> {
             }
         });
     }
+
+    /**
+     * Makes staggered connection attempts to the resolved addresses of a host name, as described in
+     * RFC 8305. A new attempt is started when the previous attempt fails or does not complete within
+     * {@link #CONNECTION_ATTEMPT_DELAY_MILLIS}. The first established connection wins and the other
+     * attempts are cancelled. All methods are invoked by the {@link EventLoop} of the factory.
+     */
+    private final class ConnectionAttempts {
+
+        private final List<InetSocketAddress> addresses;
+        private final SessionProtocol protocol;
+        private final Promise<Channel> sessionPromise;
+        private final long resolveStartNanos;
+        private final long resolveEndNanos;
+        private final List<ChannelFuture> pendingAttempts = new ArrayList<>();
+
+        private int nextIndex;
+        private ScheduledFuture<?> nextAttemptFuture;
+        private Throwable lastCause;
+        private boolean done;
+
+        ConnectionAttempts(List<InetSocketAddress> addresses, SessionProtocol protocol,
+                           Promise<Channel> sessionPromise, long resolveStartNanos, long resolveEndNanos) {
+            this.addresses = addresses;
+            this.protocol = protocol;
+            this.sessionPromise = sessionPromise;
+            this.resolveStartNanos = resolveStartNanos;
+            this.resolveEndNanos = resolveEndNanos;
+        }
+
+        void start() {
+            assert eventLoop.inEventLoop();
+            connectNext();
+        }
+
+        private void connectNext() {
+            cancelNextAttempt();
+            if (done) {
+                return;
+            }
+
+            final InetSocketAddress address = addresses.get(nextIndex++);
+            final ChannelFuture connectFuture = bootstrap(protocol).connect(address);
+            pendingAttempts.add(connectFuture);
+
+            // Schedule the next attempt before adding the listener, which may start the next attempt
+            // immediately if the connection attempt has failed already.
+            if (nextIndex < addresses.size()) {
+                nextAttemptFuture = eventLoop.schedule(new OneTimeTask() {
+                    @Override
+                    public void run() {
+                        nextAttemptFuture = null;
+                        connectNext();
+                    }
+                }, CONNECTION_ATTEMPT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+
+            connectFuture.addListener((ChannelFuture future) -> onConnectComplete(address, future));
+        }
+
+        private void onConnectComplete(InetSocketAddress address, ChannelFuture connectFuture) {
+            pendingAttempts.remove(connectFuture);
+
+            if (done) {
+                // Lost the race.
+                if (connectFuture.isSuccess()) {
+                    connectFuture.channel().close();
+                }
+                return;
+            }
+
+            if (connectFuture.isSuccess()) {
+                done = true;
+                cancelNextAttempt();
+                recentlyFailedAddresses.remove(address.getAddress());
+
+                final List<ChannelFuture> losers = new ArrayList<>(pendingAttempts);
+                pendingAttempts.clear();
+                for (ChannelFuture f : losers) {
+                    f.cancel(false);
+                    f.channel().close();
+                }
+
+                notifySessionPromise(connectFuture.channel(), connectFuture, sessionPromise,
+                                     resolveStartNanos, resolveEndNanos);
+                return;
+            }
+
+            setRecentlyFailed(address.getAddress());
+            lastCause = connectFuture.cause();
+
+            if (nextIndex < addresses.size()) {
+                // Do not wait for the delay to elapse.
+                connectNext();
+            } else if (pendingAttempts.isEmpty()) {
+                done = true;
+                sessionPromise.tryFailure(lastCause);
+            }
+        }
+
+        private void cancelNextAttempt() {
+            final ScheduledFuture<?> nextAttemptFuture = this.nextAttemptFuture;
+            if (nextAttemptFuture != null) {
+                this.nextAttemptFuture = null;
+                nextAttemptFuture.cancel(false);
+            }
+        }
+    }
 }
@@ -18,9 +18,15 @@ package com.linecorp.armeria.client;
 import static java.util.Objects.requireNonNull;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,7 +57,11 @@ import io.netty.handler.codec.http2.HttpConversionUtil.ExtensionHeaderNames;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.collection.IntObjectHashMap;
 import io.netty.util.collection.IntObjectMap;
+import io.netty.util.collection.IntObjectMap.PrimitiveEntry;
 import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.PromiseNotifier;
+import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.OneTimeTask;
 
 class HttpSessionHandler extends ChannelDuplexHandler {
 
@@ -59,6 +69,18 @@ class HttpSessionHandler extends ChannelDuplexHandler {
 
     private static final String ARMERIA_USER_AGENT = "armeria client";
 
+    /**
+     * The cause of the failure of the invocations whose streams were not processed by the server because
+     * the server sent a GOAWAY frame. Such invocations are safe to retry on another connection.
+     */
+    @SuppressWarnings("ThrowableInstanceNeverThrown")
+    static final ClosedSessionException UNPROCESSED_EXCEPTION =
+            new ClosedSessionException("GOAWAY received; invocation not processed by the server");
+
+    static {
+        UNPROCESSED_EXCEPTION.setStackTrace(EmptyArrays.EMPTY_STACK_TRACE);
+    }
+
     static boolean isActive(Channel ch) {
         final boolean active;
         if (!ch.isActive()) {
@@ -79,6 +101,41 @@ class HttpSessionHandler extends ChannelDuplexHandler {
         }
     }
 
+    static void goAwayReceived(Channel ch, int lastStreamId) {
+        final HttpSessionHandler sessionHandler = ch.pipeline().get(HttpSessionHandler.class);
+        if (sessionHandler == null) {
+            // Protocol has not been determined yet.
+        } else {
+            sessionHandler.drainSession(lastStreamId);
+        }
+    }
+
+    /**
+     * Invoked when the first frame of the response to the specified stream is received. The server has
+     * accepted the stream, so its request will never be sent again and its retry copy is released.
+     */
+    static void responseStarted(Channel ch, int streamId) {
+        final HttpSessionHandler sessionHandler = ch.pipeline().get(HttpSessionHandler.class);
+        if (sessionHandler != null && sessionHandler.isMultiplex) {
+            final Invocation invocation = ((MultiplexWaitsHolder) sessionHandler.waitsHolder).get(streamId);
+            if (invocation != null) {
+                invocation.releaseRetryContent();
+            }
+        }
+    }
+
+    /**
+     * Closes the specified session without waiting for the invocations being processed by the server even if
+     * a GOAWAY frame has been received, e.g. when the session turned out to be dead.
+     */
+    static void closeWithoutDraining(Channel ch) {
+        final HttpSessionHandler sessionHandler = ch.pipeline().get(HttpSessionHandler.class);
+        if (sessionHandler != null) {
+            sessionHandler.draining = false;
+        }
+        ch.close();
+    }
+
     static SessionProtocol protocol(Channel ch) {
         final HttpSessionHandler sessionHandler = ch.pipeline().get(HttpSessionHandler.class);
         if (sessionHandler == null || !sessionHandler.active) {
@@ -91,10 +148,30 @@ class HttpSessionHandler extends ChannelDuplexHandler {
     private final SessionProtocol sessionProtocol;
     private final boolean isMultiplex;
     private final WaitsHolder waitsHolder;
+
+    /**
+     * How long a session which received a GOAWAY frame waits for the invocations being processed by
+     * the server before it is closed anyway, so that it is not left open forever when a response never
+     * comes and no response timeout is set.
+     */
+    private final long drainTimeoutMillis;
     private volatile boolean active = true;
 
+    /**
+     * Set to {@code true} when a GOAWAY frame is received, which means the invocations whose streams were
+     * accepted by the server should complete before the session is closed.
+     */
+    private boolean draining;
+    private ChannelPromise deferredClosePromise;
+    private ScheduledFuture<?> drainTimeoutFuture;
+
     HttpSessionHandler(SessionProtocol sessionProtocol) {
+        this(sessionProtocol, RemoteInvokerOptions.DEFAULT.drainTimeoutMillis());
+    }
+
+    HttpSessionHandler(SessionProtocol sessionProtocol, long drainTimeoutMillis) {
         this.sessionProtocol = requireNonNull(sessionProtocol);
+        this.drainTimeoutMillis = drainTimeoutMillis;
         isMultiplex = sessionProtocol.isMultiplex();
         waitsHolder = isMultiplex ? new MultiplexWaitsHolder() : new SequentialWaitsHolder();
     }
@@ -160,6 +237,8 @@ class HttpSessionHandler extends ChannelDuplexHandler {
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         failPendingResponses(ClosedSessionException.INSTANCE);
+        closeDeferred(ctx);
+
         ctx.fireChannelInactive();
     }
 
@@ -172,6 +251,78 @@ class HttpSessionHandler extends ChannelDuplexHandler {
         }
     }
 
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        if (!draining || isDrained()) {
+            ctx.close(promise);
+            return;
+        }
+
+        // Let the invocations being processed by the server complete before closing the session.
+        // The pool closes the session as soon as it is found inactive, so we have to defer it here,
+        // but not for longer than the drain timeout.
+        if (deferredClosePromise != null) {
+            deferredClosePromise.addListener(new PromiseNotifier<>(promise));
+            return;
+        }
+
+        deferredClosePromise = promise;
+        drainTimeoutFuture = ctx.executor().schedule(new OneTimeTask() {
+            @Override
+            public void run() {
+                drainTimeoutFuture = null;
+                logger.debug("{} Closing due to drain timeout ({}ms)", ctx.channel(), drainTimeoutMillis);
+                draining = false;
+                closeDeferred(ctx);
+            }
+        }, drainTimeoutMillis, TimeUnit.MILLISECONDS);
+        waitsHolder.getAll().forEach(i -> i.resultPromise().addListener(f -> closeIfDrained(ctx)));
+    }
+
+    private boolean isDrained() {
+        return waitsHolder.getAll().stream().allMatch(i -> i.resultPromise().isDone());
+    }
+
+    private void closeIfDrained(ChannelHandlerContext ctx) {
+        if (isDrained()) {
+            closeDeferred(ctx);
+        }
+    }
+
+    private void closeDeferred(ChannelHandlerContext ctx) {
+        final ScheduledFuture<?> drainTimeoutFuture = this.drainTimeoutFuture;
+        if (drainTimeoutFuture != null) {
+            this.drainTimeoutFuture = null;
+            drainTimeoutFuture.cancel(false);
+        }
+
+        final ChannelPromise deferredClosePromise = this.deferredClosePromise;
+        if (deferredClosePromise != null) {
+            this.deferredClosePromise = null;
+            ctx.close(deferredClosePromise);
+        }
+    }
+
+    /**
+     * Stops accepting new invocations and fails the invocations whose streams are greater than
+     * {@code lastStreamId}, so that they can be retried on another session. The other invocations
+     * were accepted by the server, so their retry copies are released, and they will be completed as usual.
+     */
+    private void drainSession(int lastStreamId) {
+        if (!isMultiplex) {
+            return;
+        }
+
+        active = false;
+        draining = true;
+
+        final Collection<Invocation> unprocessed =
+                ((MultiplexWaitsHolder) waitsHolder).removeAbove(lastStreamId);
+        unprocessed.forEach(
+                i -> i.invocationContext().rejectPromise(i.resultPromise(), UNPROCESSED_EXCEPTION));
+        waitsHolder.getAll().forEach(Invocation::releaseRetryContent);
+    }
+
     void deactivateSession() {
         failPendingResponses(ClosedSessionException.INSTANCE);
     }
@@ -261,7 +412,8 @@ class HttpSessionHandler extends ChannelDuplexHandler {
         @Override
         public void put(Invocation invocation, FullHttpRequest request) {
             int streamId = nextStreamID();
-            request.headers().add(ExtensionHeaderNames.STREAM_ID.text(), streamIdToString(streamId));
+            // Set rather than add, because the request of an unprocessed invocation is sent again.
+            request.headers().set(ExtensionHeaderNames.STREAM_ID.text(), streamIdToString(streamId));
             resultExpectMap.put(streamId, invocation);
         }
 
@@ -275,6 +427,32 @@ class HttpSessionHandler extends ChannelDuplexHandler {
             resultExpectMap.clear();
         }
 
+        Invocation get(int streamId) {
+            return resultExpectMap.get(streamId);
+        }
+
+        Collection<Invocation> removeAbove(int lastStreamId) {
+            List<Integer> streamIds = null;
+            for (PrimitiveEntry<Invocation> e : resultExpectMap.entries()) {
+                if (e.key() > lastStreamId) {
+                    if (streamIds == null) {
+                        streamIds = new ArrayList<>();
+                    }
+                    streamIds.add(e.key());
+                }
+            }
+
+            if (streamIds == null) {
+                return Collections.emptyList();
+            }
+
+            final List<Invocation> removed = new ArrayList<>(streamIds.size());
+            for (int streamId : streamIds) {
+                removed.add(resultExpectMap.remove(streamId));
+            }
+            return removed;
+        }
+
         private static String streamIdToString(int streamID) {
             return Integer.toString(streamID);
         }
@@ -328,7 +506,13 @@ class HttpSessionHandler extends ChannelDuplexHandler {
     }
 
     private static String hostHeader(ServiceInvocationContext ctx) {
-        final int port = ((InetSocketAddress) ctx.remoteAddress()).getPort();
+        final SocketAddress remoteAddress = ctx.remoteAddress();
+        if (!(remoteAddress instanceof InetSocketAddress)) {
+            // A Unix domain socket, which has no port.
+            return ctx.host();
+        }
+
+        final int port = ((InetSocketAddress) remoteAddress).getPort();
         return HttpHostHeaderUtil.hostHeader(ctx.host(), port,
                                              ctx.scheme().sessionProtocol().isTls());
     }
@@ -339,12 +523,25 @@ class HttpSessionHandler extends ChannelDuplexHandler {
         private final ClientOptions options;
         private final Object content;
 
+        /**
+         * A retained duplicate of {@link #content} which is sent again when the server goes away without
+         * processing the invocation. It holds the memory of the request until the server is known to have
+         * accepted the stream, i.e. until the first response frame or a GOAWAY frame which covers the stream.
+         */
+        private Object retryContent;
+
         Invocation(ServiceInvocationContext invocationContext, ClientOptions options,
                    Promise<FullHttpResponse> resultPromise, Object content) {
+            this(invocationContext, options, resultPromise, content, null);
+        }
+
+        Invocation(ServiceInvocationContext invocationContext, ClientOptions options,
+                   Promise<FullHttpResponse> resultPromise, Object content, Object retryContent) {
             this.invocationContext = invocationContext;
             this.resultPromise = resultPromise;
             this.options = options;
             this.content = content;
+            this.retryContent = retryContent;
         }
 
         ServiceInvocationContext invocationContext() {
@@ -362,5 +559,19 @@ class HttpSessionHandler extends ChannelDuplexHandler {
         ClientOptions options() {
             return options;
         }
+
+        /**
+         * Returns the retry copy of the request and transfers its ownership to the caller, or {@code null}
+         * if the request must not be sent again.
+         */
+        Object takeRetryContent() {
+            final Object retryContent = this.retryContent;
+            this.retryContent = null;
+            return retryContent;
+        }
+
+        void releaseRetryContent() {
+            ReferenceCountUtil.release(takeRetryContent());
+        }
     }
 }
@@ -45,6 +45,7 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioDatagramChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
 import io.netty.resolver.dns.DnsAddressResolverGroup;
 import io.netty.resolver.dns.DnsNameResolverBuilder;
 import io.netty.resolver.dns.DnsServerAddresses;
@@ -99,6 +100,7 @@ public final class RemoteInvokerFactory implements AutoCloseable {
     private final EventLoopGroup eventLoopGroup;
     private final boolean closeEventLoopGroup;
     private final Map<SessionProtocol, RemoteInvoker> remoteInvokers;
+    private final SessionRoundTripTimes sessionRoundTripTimes = new SessionRoundTripTimes();
 
     /**
      * Creates a new instance with the specified {@link RemoteInvokerOptions}.
@@ -114,8 +116,8 @@ public final class RemoteInvokerFactory implements AutoCloseable {
         final Bootstrap baseBootstrap = new Bootstrap();
 
         baseBootstrap.channel(channelType());
-        baseBootstrap.resolver(new DnsAddressResolverGroup(datagramChannelType(),
-                                                           DnsServerAddresses.defaultAddresses()) {
+        final AddressResolverGroup<InetSocketAddress> addressResolverGroup =
+                new DnsAddressResolverGroup(datagramChannelType(), DnsServerAddresses.defaultAddresses()) {
             @Override
             protected AddressResolver<InetSocketAddress> newResolver(
                     EventLoop eventLoop, ChannelFactory<? extends DatagramChannel> channelFactory,
@@ -130,7 +132,8 @@ public final class RemoteInvokerFactory implements AutoCloseable {
                         .build()
                         .asAddressResolver();
             }
-        });
+        };
+        baseBootstrap.resolver(addressResolverGroup);
 
         baseBootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
                              ConvertUtils.safeLongToInt(options.connectTimeoutMillis()));
@@ -146,10 +149,14 @@ public final class RemoteInvokerFactory implements AutoCloseable {
         }
 
         final EnumMap<SessionProtocol, RemoteInvoker> remoteInvokers = new EnumMap<>(SessionProtocol.class);
-        final HttpRemoteInvoker remoteInvoker = new HttpRemoteInvoker(eventLoopGroup, baseBootstrap, options);
+        final HttpRemoteInvoker remoteInvoker =
+                new HttpRemoteInvoker(eventLoopGroup, baseBootstrap, addressResolverGroup, options,
+                                      sessionRoundTripTimes);
 
         SessionProtocol.ofHttp().stream().forEach(
                 protocol -> remoteInvokers.put(protocol, remoteInvoker));
+        remoteInvokers.put(SessionProtocol.FRAMED,
+                           new FramedRemoteInvoker(eventLoopGroup, baseBootstrap, options));
 
         this.remoteInvokers = Collections.unmodifiableMap(remoteInvokers);
     }
@@ -175,6 +182,13 @@ public final class RemoteInvokerFactory implements AutoCloseable {
         return eventLoopGroup;
     }
 
+    /**
+     * Returns the round-trip times of the sessions created by this remote invoker factory.
+     */
+    public SessionRoundTripTimes sessionRoundTripTimes() {
+        return sessionRoundTripTimes;
+    }
+
     /**
      * Returns a {@link RemoteInvoker} that can handle the specified {@link SessionProtocol}.
      */
@@ -54,6 +54,25 @@ public class RemoteInvokerOption<T> extends AbstractOption<T> {
      */
     public static final RemoteInvokerOption<Duration> IDLE_TIMEOUT = valueOf("IDLE_TIMEOUT");
 
+    /**
+     * The interval of the HTTP/2 PING frames sent to check if a session is still alive. A PING frame is sent
+     * when no response has been received for this amount of time. {@link Duration#ZERO} disables it.
+     */
+    public static final RemoteInvokerOption<Duration> PING_INTERVAL = valueOf("PING_INTERVAL");
+
+    /**
+     * The time to wait for the acknowledgement of an HTTP/2 PING frame before closing the session.
+     *
+     * @see #PING_INTERVAL
+     */
+    public static final RemoteInvokerOption<Duration> PING_TIMEOUT = valueOf("PING_TIMEOUT");
+
+    /**
+     * The maximum time an HTTP/2 session which received a GOAWAY frame waits for the invocations being
+     * processed by the server before it is closed anyway, even if no response timeout is set.
+     */
+    public static final RemoteInvokerOption<Duration> DRAIN_TIMEOUT = valueOf("DRAIN_TIMEOUT");
+
     /**
      * The maximum allowed length of the frame (or the content) decoded at the session layer. e.g. the
      * content of an HTTP request.
@@ -16,10 +16,13 @@
 package com.linecorp.armeria.client;
 
 import static com.linecorp.armeria.client.RemoteInvokerOption.CONNECT_TIMEOUT;
+import static com.linecorp.armeria.client.RemoteInvokerOption.DRAIN_TIMEOUT;
 import static com.linecorp.armeria.client.RemoteInvokerOption.EVENT_LOOP_GROUP;
 import static com.linecorp.armeria.client.RemoteInvokerOption.IDLE_TIMEOUT;
 import static com.linecorp.armeria.client.RemoteInvokerOption.MAX_CONCURRENCY;
 import static com.linecorp.armeria.client.RemoteInvokerOption.MAX_FRAME_LENGTH;
+import static com.linecorp.armeria.client.RemoteInvokerOption.PING_INTERVAL;
+import static com.linecorp.armeria.client.RemoteInvokerOption.PING_TIMEOUT;
 import static com.linecorp.armeria.client.RemoteInvokerOption.POOL_HANDLER_DECORATOR;
 import static com.linecorp.armeria.client.RemoteInvokerOption.TRUST_MANAGER_FACTORY;
 import static java.util.Objects.requireNonNull;
@@ -44,12 +47,18 @@ public class RemoteInvokerOptions extends AbstractOptions {
 
     private static final Duration DEFAULT_CONNECTION_TIMEOUT = Duration.ofMillis(3200);
     private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_PING_INTERVAL = Duration.ZERO;
+    private static final Duration DEFAULT_PING_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(10);
     private static final int DEFAULT_MAX_FRAME_LENGTH = 10485760; //10 MB
     private static final Integer DEFAULT_MAX_CONCURRENCY = Integer.MAX_VALUE;
 
     private static final RemoteInvokerOptionValue<?>[] DEFAULT_OPTION_VALUES = {
             CONNECT_TIMEOUT.newValue(DEFAULT_CONNECTION_TIMEOUT),
             IDLE_TIMEOUT.newValue(DEFAULT_IDLE_TIMEOUT),
+            PING_INTERVAL.newValue(DEFAULT_PING_INTERVAL),
+            PING_TIMEOUT.newValue(DEFAULT_PING_TIMEOUT),
+            DRAIN_TIMEOUT.newValue(DEFAULT_DRAIN_TIMEOUT),
             MAX_FRAME_LENGTH.newValue(DEFAULT_MAX_FRAME_LENGTH),
             MAX_CONCURRENCY.newValue(DEFAULT_MAX_CONCURRENCY)
     };
@@ -87,6 +96,12 @@ public class RemoteInvokerOptions extends AbstractOptions {
             validateIdleTimeout((Duration) value);
         } else if (option == MAX_CONCURRENCY) {
             validateMaxConcurrency((Integer) value);
+        } else if (option == PING_INTERVAL) {
+            validatePingInterval((Duration) value);
+        } else if (option == PING_TIMEOUT) {
+            validatePingTimeout((Duration) value);
+        } else if (option == DRAIN_TIMEOUT) {
+            validateDrainTimeout((Duration) value);
         }
 
         return optionValue;
@@ -117,6 +132,33 @@ public class RemoteInvokerOptions extends AbstractOptions {
         return idleTimeout;
     }
 
+    private static Duration validatePingInterval(Duration pingInterval) {
+        requireNonNull(pingInterval, "pingInterval");
+        if (pingInterval.isNegative()) {
+            throw new IllegalArgumentException(
+                    "pingInterval: " + pingInterval + " (expected: >= 0)");
+        }
+        return pingInterval;
+    }
+
+    private static Duration validatePingTimeout(Duration pingTimeout) {
+        requireNonNull(pingTimeout, "pingTimeout");
+        if (pingTimeout.isNegative() || pingTimeout.isZero()) {
+            throw new IllegalArgumentException(
+                    "pingTimeout: " + pingTimeout + " (expected: > 0)");
+        }
+        return pingTimeout;
+    }
+
+    private static Duration validateDrainTimeout(Duration drainTimeout) {
+        requireNonNull(drainTimeout, "drainTimeout");
+        if (drainTimeout.isNegative() || drainTimeout.isZero()) {
+            throw new IllegalArgumentException(
+                    "drainTimeout: " + drainTimeout + " (expected: > 0)");
+        }
+        return drainTimeout;
+    }
+
     private static int validateMaxConcurrency(int maxConcurrency) {
         if (maxConcurrency <= 0) {
             throw new IllegalArgumentException("maxConcurrency: " + maxConcurrency + " (expected: > 0)");
@@ -189,6 +231,30 @@ public class RemoteInvokerOptions extends AbstractOptions {
         return idleTimeout().toMillis();
     }
 
+    public Duration pingInterval() {
+        return getOrElse(PING_INTERVAL, DEFAULT_PING_INTERVAL);
+    }
+
+    public long pingIntervalMillis() {
+        return pingInterval().toMillis();
+    }
+
+    public Duration pingTimeout() {
+        return getOrElse(PING_TIMEOUT, DEFAULT_PING_TIMEOUT);
+    }
+
+    public long pingTimeoutMillis() {
+        return pingTimeout().toMillis();
+    }
+
+    public Duration drainTimeout() {
+        return getOrElse(DRAIN_TIMEOUT, DEFAULT_DRAIN_TIMEOUT);
+    }
+
+    public long drainTimeoutMillis() {
+        return drainTimeout().toMillis();
+    }
+
     public int maxFrameLength() {
         return getOrElse(MAX_FRAME_LENGTH, DEFAULT_MAX_FRAME_LENGTH);
     }
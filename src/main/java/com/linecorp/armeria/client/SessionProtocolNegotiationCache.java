@@ -21,59 +21,62 @@ import static java.util.Objects.requireNonNull;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.EnumSet;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.locks.StampedLock;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.linecorp.armeria.common.DomainSocketAddress;
 import com.linecorp.armeria.common.SessionProtocol;
-import com.linecorp.armeria.common.util.LruMap;
+
+import io.netty.util.internal.PlatformDependent;
 
 /**
- * Keeps the recent {@link SessionProtocol} negotiation failures. It is a LRU cache which keeps at most
- * 64k 'host name + port' pairs.
+ * Keeps the recent {@link SessionProtocol} negotiation results of 'host name + port' pairs. An entry
+ * expires 10 minutes after its last update, so that a remote endpoint which started to support a protocol
+ * is not considered unsupported forever. At most 64k pairs are kept.
  */
 public final class SessionProtocolNegotiationCache {
 
     private static final Logger logger = LoggerFactory.getLogger(SessionProtocolNegotiationCache.class);
 
-    private static final StampedLock lock = new StampedLock();
-    private static final Map<String, CacheEntry> cache = new LruMap<String, CacheEntry>(65536) {
-        private static final long serialVersionUID = -2506868886873712772L;
+    private static final int MAX_ENTRIES = 65536;
+    private static final long TTL_NANOS = TimeUnit.MINUTES.toNanos(10);
 
-        @Override
-        protected boolean removeEldestEntry(Entry<String, CacheEntry> eldest) {
-            final boolean remove = super.removeEldestEntry(eldest);
-            if (remove) {
-                logger.debug("Evicted: '{}' does not support ", eldest.getKey(), eldest.getValue());
-            }
+    private static final ConcurrentMap<SocketAddress, CacheEntry> cache =
+            PlatformDependent.newConcurrentHashMap();
 
-            return remove;
-        }
-    };
+    private static final LongAdder hitCount = new LongAdder();
+    private static final LongAdder missCount = new LongAdder();
 
     /**
      * Returns {@code true} if the specified {@code remoteAddress} is known to have no support for
      * the specified {@link SessionProtocol}.
      */
     public static boolean isUnsupported(SocketAddress remoteAddress, SessionProtocol protocol) {
-        final String key = key(remoteAddress);
-        final CacheEntry e;
-        final long stamp = lock.readLock();
-        try {
-            e = cache.get(key);
-        } finally {
-            lock.unlockRead(stamp);
-        }
-
+        requireNonNull(protocol, "protocol");
+        final CacheEntry e = get(key(remoteAddress));
         if (e == null) {
             // Can't tell if it's unsupported
             return false;
         }
 
-        return e.isUnsupported(protocol);
+        return e.unsupported.contains(protocol);
+    }
+
+    /**
+     * Returns the {@link SessionProtocol} most recently negotiated with the specified {@code remoteAddress}.
+     *
+     * @return the negotiated {@link SessionProtocol}, or {@link Optional#empty()} if unknown
+     */
+    public static Optional<SessionProtocol> negotiatedProtocol(SocketAddress remoteAddress) {
+        final CacheEntry e = get(key(remoteAddress));
+        return e != null ? Optional.ofNullable(e.negotiated) : Optional.empty();
     }
 
     /**
@@ -81,31 +84,50 @@ public final class SessionProtocolNegotiationCache {
      * the specified {@link SessionProtocol}.
      */
     public static void setUnsupported(SocketAddress remoteAddress, SessionProtocol protocol) {
-        final String key = key(remoteAddress);
-        final CacheEntry e = getOrCreate(key);
+        requireNonNull(protocol, "protocol");
+        final SocketAddress key = key(remoteAddress);
+        final CacheEntry e = update(key, old -> old.withUnsupported(protocol));
+        if (logger.isDebugEnabled()) {
+            logger.debug("Updated: '{}' does not support {} ({})", key, protocol, e);
+        }
+    }
 
-        if (e.addUnsupported(protocol)) {
-            logger.debug("Updated: '{}' does not support {}", key, e);
+    /**
+     * Updates the cache with the information that the specified {@link SessionProtocol} has been negotiated
+     * successfully with the specified {@code remoteAddress}.
+     */
+    public static void setNegotiated(SocketAddress remoteAddress, SessionProtocol protocol) {
+        requireNonNull(protocol, "protocol");
+        final SocketAddress key = key(remoteAddress);
+        final CacheEntry e = update(key, old -> old.withNegotiated(protocol));
+        if (logger.isDebugEnabled()) {
+            logger.debug("Updated: '{}' negotiated {} ({})", key, protocol, e);
         }
     }
 
+    /**
+     * Returns the number of the lookups which found an unexpired entry.
+     */
+    public static long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of the lookups which did not find an unexpired entry.
+     */
+    public static long missCount() {
+        return missCount.sum();
+    }
+
     /**
      * Clears the cache.
      */
     public static void clear() {
-        int size;
-        long stamp = lock.readLock();
-        try {
-            size = cache.size();
-            if (size == 0) {
-                return;
-            }
-
-            stamp = convertToWriteLock(stamp);
-            size = cache.size();
-            cache.clear();
-        } finally {
-            lock.unlock(stamp);
+        int size = 0;
+        for (Iterator<CacheEntry> i = cache.values().iterator(); i.hasNext();) {
+            i.next();
+            i.remove();
+            size++;
         }
 
         if (size != 0 && logger.isDebugEnabled()) {
@@ -117,79 +139,121 @@ public final class SessionProtocolNegotiationCache {
         }
     }
 
-    private static CacheEntry getOrCreate(String key) {
-        long stamp = lock.readLock();
-        try {
-            final CacheEntry entry = cache.get(key);
-            if (entry != null) {
-                return entry;
+    private static CacheEntry get(SocketAddress key) {
+        final CacheEntry e = cache.get(key);
+        if (e == null) {
+            missCount.increment();
+            return null;
+        }
+
+        if (e.isExpired(System.nanoTime())) {
+            cache.remove(key, e);
+            missCount.increment();
+            return null;
+        }
+
+        hitCount.increment();
+        return e;
+    }
+
+    private static CacheEntry update(SocketAddress key, UnaryOperator<CacheEntry> updater) {
+        final long currentTimeNanos = System.nanoTime();
+        final CacheEntry e = cache.compute(key, (k, old) -> {
+            if (old == null || old.isExpired(currentTimeNanos)) {
+                old = CacheEntry.EMPTY;
             }
+            return updater.apply(old).withExpiry(currentTimeNanos + TTL_NANOS);
+        });
+
+        if (cache.size() > MAX_ENTRIES) {
+            evict(currentTimeNanos);
+        }
 
-            stamp = convertToWriteLock(stamp);
+        return e;
+    }
+
+    /**
+     * Removes the expired entries, and then the arbitrary entries if the cache is still full.
+     */
+    private static void evict(long currentTimeNanos) {
+        for (Iterator<CacheEntry> i = cache.values().iterator(); i.hasNext();) {
+            if (i.next().isExpired(currentTimeNanos)) {
+                i.remove();
+            }
+        }
 
-            return cache.computeIfAbsent(key, CacheEntry::new);
-        } finally {
-            lock.unlock(stamp);
+        for (Iterator<SocketAddress> i = cache.keySet().iterator();
+             cache.size() > MAX_ENTRIES && i.hasNext();) {
+            final SocketAddress key = i.next();
+            i.remove();
+            logger.debug("Evicted: '{}'", key);
         }
     }
 
-    private static String key(SocketAddress remoteAddress) {
+    /**
+     * Returns the cache key of the specified {@code remoteAddress}, which is an unresolved
+     * {@link InetSocketAddress} so that the resolved and unresolved addresses of the same
+     * 'host name + port' pair share the same entry, or a {@link DomainSocketAddress} as it is.
+     */
+    private static SocketAddress key(SocketAddress remoteAddress) {
         requireNonNull(remoteAddress, "remoteAddress");
+        if (remoteAddress instanceof DomainSocketAddress) {
+            return remoteAddress;
+        }
         if (!(remoteAddress instanceof InetSocketAddress)) {
             throw new IllegalArgumentException(
                     "remoteAddress: " + remoteAddress +
-                    " (expected: an " + InetSocketAddress.class.getSimpleName() + ')');
+                    " (expected: an " + InetSocketAddress.class.getSimpleName() + " or a " +
+                    DomainSocketAddress.class.getSimpleName() + ')');
         }
 
         final InetSocketAddress raddr = (InetSocketAddress) remoteAddress;
-        final String host = raddr.getHostString();
-
-        return new StringBuilder(host.length() + 6)
-                .append(host)
-                .append(':')
-                .append(raddr.getPort())
-                .toString();
-    }
-
-    private static long convertToWriteLock(long stamp) {
-        final long writeStamp = lock.tryConvertToWriteLock(stamp);
-        if (writeStamp == 0L) {
-            lock.unlockRead(stamp);
-            stamp = lock.writeLock();
-        } else {
-            stamp = writeStamp;
+        if (raddr.isUnresolved()) {
+            return raddr;
         }
-        return stamp;
+
+        return InetSocketAddress.createUnresolved(raddr.getHostString(), raddr.getPort());
     }
 
     private static final class CacheEntry {
-        private volatile EnumSet<SessionProtocol> unsupported = EnumSet.noneOf(SessionProtocol.class);
 
-        CacheEntry(String key) {
-            // Key is unused. It's just here to simplify the Map.computeIfAbsent() call in getOrCreate().
+        static final CacheEntry EMPTY =
+                new CacheEntry(EnumSet.noneOf(SessionProtocol.class), null, 0);
+
+        final EnumSet<SessionProtocol> unsupported;
+        final SessionProtocol negotiated;
+        private final long expiryNanos;
+
+        private CacheEntry(EnumSet<SessionProtocol> unsupported, SessionProtocol negotiated,
+                           long expiryNanos) {
+            this.unsupported = unsupported;
+            this.negotiated = negotiated;
+            this.expiryNanos = expiryNanos;
         }
 
-        boolean addUnsupported(SessionProtocol protocol) {
-            EnumSet<SessionProtocol> unsupported = this.unsupported;
-            if (unsupported.contains(protocol)) {
-                return false;
-            }
+        boolean isExpired(long currentTimeNanos) {
+            return expiryNanos - currentTimeNanos <= 0;
+        }
 
+        CacheEntry withUnsupported(SessionProtocol protocol) {
             final EnumSet<SessionProtocol> copy = EnumSet.copyOf(unsupported);
             copy.add(protocol);
+            return new CacheEntry(copy, negotiated != protocol ? negotiated : null, expiryNanos);
+        }
 
-            this.unsupported = copy;
-            return true;
+        CacheEntry withNegotiated(SessionProtocol protocol) {
+            final EnumSet<SessionProtocol> copy = EnumSet.copyOf(unsupported);
+            copy.remove(protocol);
+            return new CacheEntry(copy, protocol, expiryNanos);
         }
 
-        boolean isUnsupported(SessionProtocol protocol) {
-            requireNonNull(protocol, "protocol");
-            return unsupported.contains(protocol);
+        CacheEntry withExpiry(long expiryNanos) {
+            return new CacheEntry(unsupported, negotiated, expiryNanos);
         }
 
         @Override
         public String toString() {
-            return unsupported.toString();
+            return "unsupported: " + unsupported + ", negotiated: " + negotiated;
         }
     }
 
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentMap;
+
+import io.netty.channel.Channel;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Keeps the round-trip times of the open client sessions created by a {@link RemoteInvokerFactory},
+ * measured with HTTP/2 PING frames. A round-trip time is available only when
+ * {@link RemoteInvokerOption#PING_INTERVAL} is enabled and at least one PING has been acknowledged by
+ * the remote endpoint.
+ *
+ * @see RemoteInvokerFactory#sessionRoundTripTimes()
+ */
+public final class SessionRoundTripTimes {
+
+    private final ConcurrentMap<InetSocketAddress, Entry> map = PlatformDependent.newConcurrentHashMap();
+
+    SessionRoundTripTimes() {}
+
+    /**
+     * Returns the round-trip time to the specified remote endpoint most recently measured by any of the open
+     * sessions, in nanoseconds.
+     *
+     * @return the round-trip time, or {@link OptionalLong#empty()} if not measured yet
+     */
+    public OptionalLong get(String host, int port) {
+        return get(InetSocketAddress.createUnresolved(requireNonNull(host, "host"), port));
+    }
+
+    /**
+     * Returns the round-trip time to the specified remote endpoint most recently measured by any of the open
+     * sessions, in nanoseconds.
+     *
+     * @return the round-trip time, or {@link OptionalLong#empty()} if not measured yet
+     */
+    public OptionalLong get(InetSocketAddress remoteAddress) {
+        final Entry e = map.get(key(requireNonNull(remoteAddress, "remoteAddress")));
+        if (e == null) {
+            return OptionalLong.empty();
+        }
+
+        final long rttNanos = e.rttNanos;
+        return rttNanos >= 0 ? OptionalLong.of(rttNanos) : OptionalLong.empty();
+    }
+
+    Entry newEntry() {
+        return new Entry();
+    }
+
+    void register(Channel ch, Entry e) {
+        e.key = key(ch.remoteAddress());
+    }
+
+    void unregister(Entry e) {
+        final InetSocketAddress key = e.key;
+        if (key != null) {
+            map.remove(key, e);
+        }
+    }
+
+    private static InetSocketAddress key(SocketAddress remoteAddress) {
+        if (!(remoteAddress instanceof InetSocketAddress)) {
+            return null;
+        }
+
+        final InetSocketAddress raddr = (InetSocketAddress) remoteAddress;
+        return raddr.isUnresolved() ? raddr : InetSocketAddress.createUnresolved(raddr.getHostString(),
+                                                                                raddr.getPort());
+    }
+
+    /**
+     * The round-trip time measured by a session.
+     */
+    final class Entry {
+        private InetSocketAddress key;
+        private volatile long rttNanos = -1;
+
+        void update(long rttNanos) {
+            this.rttNanos = rttNanos;
+            final InetSocketAddress key = this.key;
+            if (key != null) {
+                // Make this session's measurement the most recent one for the endpoint.
+                map.put(key, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * The timestamps of the phases of a session creation, in {@link System#nanoTime()}. {@code 0} means
+ * the phase did not happen. All fields are accessed by the {@link Channel#eventLoop()} of the session.
+ */
+final class SessionTimings {
+
+    private static final AttributeKey<SessionTimings> TIMINGS =
+            AttributeKey.valueOf(SessionTimings.class, "TIMINGS");
+
+    static SessionTimings get(Channel ch) {
+        return ch.attr(TIMINGS).get();
+    }
+
+    static SessionTimings getOrCreate(Channel ch) {
+        final SessionTimings timings = get(ch);
+        if (timings != null) {
+            return timings;
+        }
+
+        final SessionTimings newTimings = new SessionTimings();
+        ch.attr(TIMINGS).set(newTimings);
+        return newTimings;
+    }
+
+    long dnsResolutionStartNanos;
+    long dnsResolutionEndNanos;
+    long socketConnectStartNanos;
+    long socketConnectEndNanos;
+    long tlsHandshakeStartNanos;
+    long tlsHandshakeEndNanos;
+    long protocolNegotiationStartNanos;
+    long protocolNegotiationEndNanos;
+
+    private SessionTimings() {}
+
+    /**
+     * Returns when the creation of the session has started.
+     */
+    long startNanos() {
+        return dnsResolutionStartNanos != 0 ? dnsResolutionStartNanos : socketConnectStartNanos;
+    }
+}
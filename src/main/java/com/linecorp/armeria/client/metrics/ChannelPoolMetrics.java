@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.linecorp.armeria.client.pool.PoolKey;
+
+/**
+ * A snapshot of the metrics of the {@link io.netty.channel.Channel}s pooled for a {@link PoolKey}, collected
+ * by {@link KeyedChannelPoolMetrics}. The counts are cumulative since the creation of the
+ * {@link KeyedChannelPoolMetrics}.
+ */
+public final class ChannelPoolMetrics {
+
+    private static final List<Long> ACQUIRE_TIME_BUCKET_BOUNDS = Collections.unmodifiableList(Arrays.asList(
+            TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(500),
+            TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(5),
+            TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(50),
+            TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(500),
+            TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(5), TimeUnit.SECONDS.toNanos(10)));
+
+    /**
+     * Returns the inclusive upper bounds of the buckets of {@link #acquireTimeHistogram()}, in nanoseconds.
+     * The last bucket of the histogram, which has no upper bound, is not included.
+     */
+    public static List<Long> acquireTimeBucketBoundsNanos() {
+        return ACQUIRE_TIME_BUCKET_BOUNDS;
+    }
+
+    static int acquireTimeBucketIndex(long acquireTimeNanos) {
+        final List<Long> bounds = ACQUIRE_TIME_BUCKET_BOUNDS;
+        final int size = bounds.size();
+        for (int i = 0; i < size; i++) {
+            if (acquireTimeNanos <= bounds.get(i)) {
+                return i;
+            }
+        }
+        return size;
+    }
+
+    private final long openChannels;
+    private final long inUseChannels;
+    private final long createdChannels;
+    private final long closedChannels;
+    private final long acquireCount;
+    private final long acquireFailureCount;
+    private final long[] acquireTimeHistogram;
+    private final long healthCheckFailureCount;
+    private final long totalLifetimeNanos;
+    private final long maxLifetimeNanos;
+
+    ChannelPoolMetrics(long openChannels, long inUseChannels, long createdChannels, long closedChannels,
+                       long acquireCount, long acquireFailureCount, long[] acquireTimeHistogram,
+                       long healthCheckFailureCount, long totalLifetimeNanos, long maxLifetimeNanos) {
+        this.openChannels = openChannels;
+        this.inUseChannels = inUseChannels;
+        this.createdChannels = createdChannels;
+        this.closedChannels = closedChannels;
+        this.acquireCount = acquireCount;
+        this.acquireFailureCount = acquireFailureCount;
+        this.acquireTimeHistogram = acquireTimeHistogram;
+        this.healthCheckFailureCount = healthCheckFailureCount;
+        this.totalLifetimeNanos = totalLifetimeNanos;
+        this.maxLifetimeNanos = maxLifetimeNanos;
+    }
+
+    /**
+     * Returns the number of the open {@link io.netty.channel.Channel}s.
+     */
+    public long openChannels() {
+        return openChannels;
+    }
+
+    /**
+     * Returns the number of the {@link io.netty.channel.Channel}s acquired and not released yet.
+     */
+    public long inUseChannels() {
+        return inUseChannels;
+    }
+
+    /**
+     * Returns the number of the open {@link io.netty.channel.Channel}s which are not in use.
+     */
+    public long idleChannels() {
+        return Math.max(openChannels - inUseChannels, 0);
+    }
+
+    /**
+     * Returns the number of the {@link io.netty.channel.Channel}s created.
+     */
+    public long createdChannels() {
+        return createdChannels;
+    }
+
+    /**
+     * Returns the number of the {@link io.netty.channel.Channel}s closed.
+     */
+    public long closedChannels() {
+        return closedChannels;
+    }
+
+    /**
+     * Returns the number of the completed acquisitions, including the failed ones.
+     */
+    public long acquireCount() {
+        return acquireCount;
+    }
+
+    /**
+     * Returns the number of the failed acquisitions.
+     */
+    public long acquireFailureCount() {
+        return acquireFailureCount;
+    }
+
+    /**
+     * Returns the number of the completed acquisitions in each bucket of the time taken.
+     *
+     * @see #acquireTimeBucketBoundsNanos()
+     */
+    public long[] acquireTimeHistogram() {
+        return acquireTimeHistogram.clone();
+    }
+
+    /**
+     * Returns the number of the {@link io.netty.channel.Channel}s closed due to a health check failure.
+     */
+    public long healthCheckFailureCount() {
+        return healthCheckFailureCount;
+    }
+
+    /**
+     * Returns the sum of the lifetimes of the closed {@link io.netty.channel.Channel}s, in nanoseconds.
+     */
+    public long totalLifetimeNanos() {
+        return totalLifetimeNanos;
+    }
+
+    /**
+     * Returns the longest lifetime of the closed {@link io.netty.channel.Channel}s, in nanoseconds.
+     */
+    public long maxLifetimeNanos() {
+        return maxLifetimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelPoolMetrics(open: " + openChannels + ", inUse: " + inUseChannels +
+               ", created: " + createdChannels + ", closed: " + closedChannels +
+               ", acquired: " + acquireCount + ", acquireFailures: " + acquireFailureCount +
+               ", acquireTimeHistogram: " + Arrays.toString(acquireTimeHistogram) +
+               ", healthCheckFailures: " + healthCheckFailureCount +
+               ", totalLifetimeNanos: " + totalLifetimeNanos + ", maxLifetimeNanos: " + maxLifetimeNanos + ')';
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.metrics;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import org.slf4j.LoggerFactory;
+
+import com.linecorp.armeria.common.Scheme;
+import com.linecorp.armeria.common.SessionProtocol;
+
+/**
+ * Consumes the metrics collected by {@link MetricCollectingClient}.
+ */
+@FunctionalInterface
+public interface ClientMetricConsumer {
+    /**
+     * Invoked for each invocation that has been completed.
+     *
+     * @param scheme the {@link Scheme} which the invocation has been performed on
+     * @param hostname the host name of the remote endpoint
+     * @param path the path of the remote service
+     * @param method the name of the invoked method
+     * @param code the {@link SessionProtocol}-specific status code of the response, e.g. HTTP response
+     *             status code. {@code 0} if no response has been received.
+     * @param acquireTimeNanos elapsed nano time waiting for a connection to send the request on
+     * @param wireTimeNanos elapsed nano time between the end of the request encoding and the beginning of
+     *                      the response decoding. {@code 0} if no response has been received.
+     * @param totalTimeNanos elapsed nano time of the whole invocation
+     * @param requestSize number of bytes in request if possible, otherwise it will be 0
+     * @param responseSize number of bytes in response if possible, otherwise it will be 0
+     * @param cause the cause of the invocation failure, or {@link Optional#empty()} if succeeded
+     */
+    void invocationComplete(Scheme scheme, String hostname, String path, String method, int code,
+                            long acquireTimeNanos, long wireTimeNanos, long totalTimeNanos,
+                            int requestSize, int responseSize, Optional<Throwable> cause);
+
+    default ClientMetricConsumer andThen(ClientMetricConsumer other) {
+        Objects.requireNonNull(other, "other");
+        return (scheme, hostname, path, method, code, acquireTimeNanos, wireTimeNanos, totalTimeNanos,
+                requestSize, responseSize, cause) -> {
+            try {
+                invocationComplete(scheme, hostname, path, method, code, acquireTimeNanos, wireTimeNanos,
+                                   totalTimeNanos, requestSize, responseSize, cause);
+            } catch (Throwable e) {
+                LoggerFactory.getLogger(ClientMetricConsumer.class).warn(
+                        "invocationComplete() failed with an exception: {}", e);
+            }
+            other.invocationComplete(scheme, hostname, path, method, code, acquireTimeNanos, wireTimeNanos,
+                                     totalTimeNanos, requestSize, responseSize, cause);
+        };
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import com.linecorp.armeria.client.pool.DecoratingKeyedChannelPoolHandler;
+import com.linecorp.armeria.client.pool.KeyedChannelPoolHandler;
+import com.linecorp.armeria.client.pool.PoolKey;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * Decorates a {@link KeyedChannelPoolHandler} to collect the metrics of the connection pool into
+ * {@link KeyedChannelPoolMetrics}.
+ *
+ * @see KeyedChannelPoolMetrics#newHandlerDecorator()
+ */
+public class KeyedChannelPoolMetricCollectingHandler extends DecoratingKeyedChannelPoolHandler<PoolKey> {
+
+    private static final AttributeKey<Long> CREATED_NANOS =
+            AttributeKey.valueOf(KeyedChannelPoolMetricCollectingHandler.class, "CREATED_NANOS");
+
+    private final KeyedChannelPoolMetrics metrics;
+
+    /**
+     * Creates a new instance that decorates the specified {@code handler}.
+     */
+    public KeyedChannelPoolMetricCollectingHandler(KeyedChannelPoolHandler<PoolKey> handler,
+                                                   KeyedChannelPoolMetrics metrics) {
+        super(handler);
+        this.metrics = requireNonNull(metrics, "metrics");
+    }
+
+    @Override
+    public void channelCreated(PoolKey key, Channel ch) throws Exception {
+        ch.attr(CREATED_NANOS).set(System.nanoTime());
+
+        // A new Channel is handed to its first acquirer without channelAcquired().
+        final KeyedChannelPoolMetrics.Counters c = metrics.counters(key);
+        c.createdChannels.increment();
+        c.openChannels.increment();
+        c.inUseChannels.increment();
+
+        super.channelCreated(key, ch);
+    }
+
+    @Override
+    public void channelAcquired(PoolKey key, Channel ch) throws Exception {
+        metrics.counters(key).inUseChannels.increment();
+        super.channelAcquired(key, ch);
+    }
+
+    @Override
+    public void channelReleased(PoolKey key, Channel ch) throws Exception {
+        metrics.counters(key).inUseChannels.decrement();
+        super.channelReleased(key, ch);
+    }
+
+    @Override
+    public void channelClosed(PoolKey key, Channel ch) throws Exception {
+        final Long createdNanos = ch.attr(CREATED_NANOS).get();
+        final long lifetimeNanos = createdNanos != null ? System.nanoTime() - createdNanos : 0;
+        metrics.counters(key).channelClosed(lifetimeNanos);
+        super.channelClosed(key, ch);
+    }
+
+    @Override
+    public void channelUnhealthy(PoolKey key, Channel ch) throws Exception {
+        metrics.counters(key).healthCheckFailureCount.increment();
+        super.channelUnhealthy(key, ch);
+    }
+
+    @Override
+    public void acquireCompleted(PoolKey key, long elapsedNanos, Throwable cause) throws Exception {
+        metrics.counters(key).acquireCompleted(elapsedNanos, cause == null);
+        super.acquireCompleted(key, elapsedNanos, cause);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.linecorp.armeria.client.RemoteInvokerOption;
+import com.linecorp.armeria.client.pool.KeyedChannelPoolHandler;
+import com.linecorp.armeria.client.pool.PoolKey;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Keeps the metrics of the {@link io.netty.channel.Channel} pools, collected by
+ * {@link KeyedChannelPoolMetricCollectingHandler}. A single instance is usually shared by the handlers of all
+ * pools, e.g.:
+ * <pre>{@code
+ * KeyedChannelPoolMetrics metrics = new KeyedChannelPoolMetrics();
+ * RemoteInvokerOptions options = RemoteInvokerOptions.of(
+ *         RemoteInvokerOption.POOL_HANDLER_DECORATOR.newValue(metrics.newHandlerDecorator()));
+ * ...
+ * Map<PoolKey, ChannelPoolMetrics> snapshot = metrics.snapshot();
+ * }</pre>
+ */
+public final class KeyedChannelPoolMetrics {
+
+    private final ConcurrentMap<PoolKey, Counters> counters = PlatformDependent.newConcurrentHashMap();
+
+    /**
+     * Returns a new decorator which can be specified as {@link RemoteInvokerOption#POOL_HANDLER_DECORATOR}.
+     */
+    public Function<KeyedChannelPoolHandler<PoolKey>, KeyedChannelPoolHandler<PoolKey>> newHandlerDecorator() {
+        return handler -> new KeyedChannelPoolMetricCollectingHandler(handler, this);
+    }
+
+    /**
+     * Returns the snapshot of the metrics of all {@link PoolKey}s.
+     */
+    public Map<PoolKey, ChannelPoolMetrics> snapshot() {
+        final Map<PoolKey, ChannelPoolMetrics> snapshot = new HashMap<>();
+        counters.forEach((key, c) -> snapshot.put(key, c.snapshot()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Returns the snapshot of the metrics of the specified {@link PoolKey}.
+     */
+    public Optional<ChannelPoolMetrics> snapshot(PoolKey key) {
+        final Counters c = counters.get(requireNonNull(key, "key"));
+        return c != null ? Optional.of(c.snapshot()) : Optional.empty();
+    }
+
+    Counters counters(PoolKey key) {
+        final Counters c = counters.get(key);
+        if (c != null) {
+            return c;
+        }
+        return counters.computeIfAbsent(key, k -> new Counters());
+    }
+
+    static final class Counters {
+        final LongAdder openChannels = new LongAdder();
+        final LongAdder inUseChannels = new LongAdder();
+        final LongAdder createdChannels = new LongAdder();
+        final LongAdder closedChannels = new LongAdder();
+        final LongAdder acquireCount = new LongAdder();
+        final LongAdder acquireFailureCount = new LongAdder();
+        final LongAdder[] acquireTimeHistogram;
+        final LongAdder healthCheckFailureCount = new LongAdder();
+        final LongAdder totalLifetimeNanos = new LongAdder();
+        final LongAccumulator maxLifetimeNanos = new LongAccumulator(Math::max, 0);
+
+        Counters() {
+            acquireTimeHistogram = new LongAdder[ChannelPoolMetrics.acquireTimeBucketBoundsNanos().size() + 1];
+            for (int i = 0; i < acquireTimeHistogram.length; i++) {
+                acquireTimeHistogram[i] = new LongAdder();
+            }
+        }
+
+        void acquireCompleted(long elapsedNanos, boolean success) {
+            acquireCount.increment();
+            if (!success) {
+                acquireFailureCount.increment();
+            }
+            acquireTimeHistogram[ChannelPoolMetrics.acquireTimeBucketIndex(elapsedNanos)].increment();
+        }
+
+        void channelClosed(long lifetimeNanos) {
+            openChannels.decrement();
+            closedChannels.increment();
+            totalLifetimeNanos.add(lifetimeNanos);
+            maxLifetimeNanos.accumulate(lifetimeNanos);
+        }
+
+        ChannelPoolMetrics snapshot() {
+            final long[] histogram = new long[acquireTimeHistogram.length];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = acquireTimeHistogram[i].sum();
+            }
+
+            return new ChannelPoolMetrics(
+                    openChannels.sum(), inUseChannels.sum(), createdChannels.sum(), closedChannels.sum(),
+                    acquireCount.sum(), acquireFailureCount.sum(), histogram,
+                    healthCheckFailureCount.sum(), totalLifetimeNanos.sum(), maxLifetimeNanos.get());
+        }
+    }
+}
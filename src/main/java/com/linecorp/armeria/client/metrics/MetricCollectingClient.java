@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.Function;
+
+import com.linecorp.armeria.client.Client;
+import com.linecorp.armeria.client.DecoratingClient;
+
+/**
+ * Decorates a {@link Client} to collect the metrics of every invocation and report them to
+ * a {@link ClientMetricConsumer}.
+ */
+public class MetricCollectingClient extends DecoratingClient {
+
+    /**
+     * Creates a new instance that decorates the specified {@link Client}.
+     */
+    public MetricCollectingClient(Client client, ClientMetricConsumer consumer) {
+        super(client, Function.identity(),
+              invoker -> new MetricCollectingRemoteInvoker(invoker, requireNonNull(consumer, "consumer")));
+    }
+}
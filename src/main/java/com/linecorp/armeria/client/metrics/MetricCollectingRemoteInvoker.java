@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.metrics;
+
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.Optional;
+
+import com.linecorp.armeria.client.ClientCodec;
+import com.linecorp.armeria.client.ClientOptions;
+import com.linecorp.armeria.client.DecoratingClientCodec;
+import com.linecorp.armeria.client.DecoratingRemoteInvoker;
+import com.linecorp.armeria.client.RemoteInvoker;
+import com.linecorp.armeria.common.DomainSocketAddress;
+import com.linecorp.armeria.common.Scheme;
+import com.linecorp.armeria.common.ServiceInvocationContext;
+import com.linecorp.armeria.common.SessionProtocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+
+/**
+ * Decorates a {@link RemoteInvoker} to collect the metrics of every invocation.
+ */
+final class MetricCollectingRemoteInvoker extends DecoratingRemoteInvoker {
+
+    private final ClientMetricConsumer consumer;
+
+    MetricCollectingRemoteInvoker(RemoteInvoker delegate, ClientMetricConsumer consumer) {
+        super(delegate);
+        this.consumer = consumer;
+    }
+
+    @Override
+    public <T> Future<T> invoke(URI uri, ClientOptions options, ClientCodec codec, Method method,
+                                Object[] args) throws Exception {
+
+        final InvocationMetrics metrics = new InvocationMetrics(codec, uri, method);
+        final Future<T> future;
+        try {
+            future = delegate().invoke(uri, options, metrics, method, args);
+        } catch (Throwable cause) {
+            metrics.complete(cause);
+            throw cause;
+        }
+
+        future.addListener(metrics);
+        return future;
+    }
+
+    /**
+     * Records the metrics of an invocation. A new instance is created for each invocation so that it can
+     * decorate the {@link ClientCodec} and listen to the result of the invocation at the same time.
+     */
+    private final class InvocationMetrics extends DecoratingClientCodec implements FutureListener<Object> {
+
+        private final URI uri;
+        private final Method method;
+        private final long startTimeNanos = System.nanoTime();
+
+        private long encodeStartTimeNanos;
+        private long encodeEndTimeNanos;
+        private long decodeStartTimeNanos;
+        private int requestSize;
+        private int responseSize;
+        private int code;
+
+        InvocationMetrics(ClientCodec delegate, URI uri, Method method) {
+            super(delegate);
+            this.uri = uri;
+            this.method = method;
+        }
+
+        @Override
+        public EncodeResult encodeRequest(Channel channel, SessionProtocol sessionProtocol, Method method,
+                                          Object[] args) {
+            encodeStartTimeNanos = System.nanoTime();
+            final EncodeResult result = delegate().encodeRequest(channel, sessionProtocol, method, args);
+            encodeEndTimeNanos = System.nanoTime();
+
+            if (result.isSuccess()) {
+                final Object content = result.content();
+                if (content instanceof ByteBuf) {
+                    requestSize = ((ByteBuf) content).readableBytes();
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public <T> T decodeResponse(ServiceInvocationContext ctx, ByteBuf content,
+                                    Object originalResponse) throws Exception {
+            decodeStartTimeNanos = System.nanoTime();
+            responseSize = content.readableBytes();
+            if (originalResponse instanceof HttpResponse) {
+                code = ((HttpResponse) originalResponse).status().code();
+            }
+            return delegate().decodeResponse(ctx, content, originalResponse);
+        }
+
+        @Override
+        public void operationComplete(Future<Object> future) throws Exception {
+            complete(future.cause());
+        }
+
+        void complete(Throwable cause) {
+            final long endTimeNanos = System.nanoTime();
+            final long acquireTimeNanos =
+                    (encodeStartTimeNanos != 0 ? encodeStartTimeNanos : endTimeNanos) - startTimeNanos;
+            final long wireTimeNanos =
+                    decodeStartTimeNanos != 0 ? decodeStartTimeNanos - encodeEndTimeNanos : 0;
+
+            consumer.invocationComplete(
+                    Scheme.parse(uri.getScheme()), DomainSocketAddress.host(uri), uri.getPath(),
+                    method.getName(), code,
+                    acquireTimeNanos, wireTimeNanos, endTimeNanos - startTimeNanos,
+                    requestSize, responseSize, Optional.ofNullable(cause));
+        }
+    }
+}
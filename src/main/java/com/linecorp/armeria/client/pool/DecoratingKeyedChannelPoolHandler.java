@@ -61,4 +61,14 @@ public class DecoratingKeyedChannelPoolHandler<K> implements KeyedChannelPoolHan
     public void channelClosed(K key, Channel ch) throws Exception {
         delegate().channelClosed(key, ch);
     }
+
+    @Override
+    public void channelUnhealthy(K key, Channel ch) throws Exception {
+        delegate().channelUnhealthy(key, ch);
+    }
+
+    @Override
+    public void acquireCompleted(K key, long elapsedNanos, Throwable cause) throws Exception {
+        delegate().acquireCompleted(key, elapsedNanos, cause);
+    }
 }
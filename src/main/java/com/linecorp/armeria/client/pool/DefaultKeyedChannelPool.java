@@ -17,9 +17,13 @@ package com.linecorp.armeria.client.pool;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 import io.netty.channel.Channel;
 import io.netty.channel.EventLoop;
@@ -50,10 +54,12 @@ public class DefaultKeyedChannelPool<K> implements KeyedChannelPool<K> {
     private final EventLoop eventLoop;
     private final Function<K, Future<Channel>> channelFactory;
     private final ChannelHealthChecker healthCheck;
-    private final KeyedChannelPoolHandler<K> channelPoolHandler;
+    private final SafeKeyedChannelPoolHandler<K> channelPoolHandler;
     private final boolean releaseHealthCheck;
+    private final Predicate<K> coalesceConnects;
 
     private final Map<K, Deque<Channel>> pool;
+    private final Map<K, CoalescedAcquisition> coalescedAcquisitions;
 
     /**
      * Creates a new instance.
@@ -79,14 +85,33 @@ public class DefaultKeyedChannelPool<K> implements KeyedChannelPool<K> {
                                    ChannelHealthChecker healthCheck,
                                    KeyedChannelPoolHandler<K> channelPoolHandler,
                                    boolean releaseHealthCheck) {
+        this(eventLoop, channelFactory, healthCheck, channelPoolHandler, releaseHealthCheck, key -> false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param coalesceConnects the {@link Predicate} that returns {@code true} for the keys whose
+     *                         {@link Channel}s can be shared by more than one acquirer. When there is no
+     *                         {@link Channel} in the pool for such a key, concurrent acquisitions wait for
+     *                         a single connection attempt instead of each creating a new {@link Channel},
+     *                         and then get the new {@link Channel} one after another as each acquirer
+     *                         releases it.
+     */
+    public DefaultKeyedChannelPool(EventLoop eventLoop, Function<K, Future<Channel>> channelFactory,
+                                   ChannelHealthChecker healthCheck,
+                                   KeyedChannelPoolHandler<K> channelPoolHandler,
+                                   boolean releaseHealthCheck, Predicate<K> coalesceConnects) {
         this.eventLoop = requireNonNull(eventLoop, "eventLoop");
         this.channelFactory = requireNonNull(channelFactory, "channelFactory");
         this.healthCheck = requireNonNull(healthCheck, "healthCheck");
         this.channelPoolHandler = new SafeKeyedChannelPoolHandler<>(requireNonNull(channelPoolHandler,
                                                                                    "channelPoolHandler"));
         this.releaseHealthCheck = releaseHealthCheck;
+        this.coalesceConnects = requireNonNull(coalesceConnects, "coalesceConnects");
 
         pool = PlatformDependent.newConcurrentHashMap();
+        coalescedAcquisitions = PlatformDependent.newConcurrentHashMap();
     }
 
     @Override
@@ -99,6 +124,16 @@ public class DefaultKeyedChannelPool<K> implements KeyedChannelPool<K> {
         requireNonNull(key, "key");
         requireNonNull(promise, "promise");
 
+        if (channelPoolHandler.handlesAcquireCompleted()) {
+            final long startNanos = System.nanoTime();
+            promise.addListener((Future<Channel> future) -> channelPoolHandler.acquireCompleted(
+                    key, System.nanoTime() - startNanos, future.cause()));
+        }
+
+        return acquire0(key, promise);
+    }
+
+    private Future<Channel> acquire0(final K key, final Promise<Channel> promise) {
         if (eventLoop.inEventLoop()) {
             acquireHealthyFromPoolOrNew(key, promise);
         } else {
@@ -117,16 +152,35 @@ public class DefaultKeyedChannelPool<K> implements KeyedChannelPool<K> {
         final Deque<Channel> queue = pool.get(key);
         final Channel ch = queue == null ? null : queue.poll();
 
+        final boolean coalesce = coalesceConnects.test(key);
         if (ch == null) {
+            final CoalescedAcquisition acquisition;
+            if (coalesce) {
+                final CoalescedAcquisition pending = coalescedAcquisitions.get(key);
+                if (pending != null && pending.addWaiter(promise)) {
+                    // Another acquirer is establishing a connection or holds the Channel;
+                    // wait until it's handed over.
+                    return promise;
+                }
+                acquisition = new CoalescedAcquisition(null);
+                coalescedAcquisitions.put(key, acquisition);
+            } else {
+                acquisition = null;
+            }
+
             Future<Channel> f = channelFactory.apply(key);
             if (f.isDone()) {
-                notifyConnect(key, f, promise);
+                notifyConnect(key, f, promise, acquisition);
             } else {
-                f.addListener((Future<Channel> future) -> notifyConnect(key, future, promise));
+                f.addListener((Future<Channel> future) -> notifyConnect(key, future, promise, acquisition));
             }
             return promise;
         }
 
+        if (coalesce && !coalescedAcquisitions.containsKey(key)) {
+            coalescedAcquisitions.put(key, new CoalescedAcquisition(ch));
+        }
+
         EventLoop loop = ch.eventLoop();
         if (loop.inEventLoop()) {
             doHealthCheck(key, ch, promise);
@@ -142,7 +196,8 @@ public class DefaultKeyedChannelPool<K> implements KeyedChannelPool<K> {
         return promise;
     }
 
-    private void notifyConnect(K key, Future<Channel> future, Promise<Channel> promise) {
+    private void notifyConnect(K key, Future<Channel> future, Promise<Channel> promise,
+                               CoalescedAcquisition acquisition) {
         assert future.isDone();
 
         try {
@@ -150,9 +205,22 @@ public class DefaultKeyedChannelPool<K> implements KeyedChannelPool<K> {
                 Channel channel = future.getNow();
                 channel.attr(KeyedChannelPoolUtil.POOL).set(this);
                 channelPoolHandler.channelCreated(key, channel);
-                channel.closeFuture().addListener(f -> channelPoolHandler.channelClosed(key, channel));
+                if (acquisition != null) {
+                    // Set before adding the listener below, which may be notified immediately.
+                    acquisition.channel = channel;
+                }
+                channel.closeFuture().addListener(f -> {
+                    // Evict the closed Channel so that it is not found by the later acquisitions.
+                    removeChannel(key, channel);
+                    abandonCoalescedAcquisition(key, channel);
+                    channelPoolHandler.channelClosed(key, channel);
+                });
                 promise.setSuccess(channel);
             } else {
+                if (acquisition != null) {
+                    coalescedAcquisitions.remove(key, acquisition);
+                    acquisition.removeWaiters().forEach(waiter -> waiter.tryFailure(future.cause()));
+                }
                 promise.setFailure(future.cause());
             }
         } catch (Exception e) {
@@ -160,6 +228,24 @@ public class DefaultKeyedChannelPool<K> implements KeyedChannelPool<K> {
         }
     }
 
+    /**
+     * Lets the acquisitions waiting for the specified {@link Channel} acquire another one, because it has
+     * been closed or turned out to be unhealthy before being handed over to them.
+     */
+    private void abandonCoalescedAcquisition(K key, Channel channel) {
+        final CoalescedAcquisition acquisition = coalescedAcquisitions.get(key);
+        if (acquisition == null || acquisition.channel != channel) {
+            return;
+        }
+
+        coalescedAcquisitions.remove(key, acquisition);
+        for (Promise<Channel> waiter : acquisition.removeWaiters()) {
+            if (!waiter.isDone()) {
+                acquire0(key, waiter);
+            }
+        }
+    }
+
     private void doHealthCheck(final K key, final Channel ch, final Promise<Channel> promise) {
         assert ch.eventLoop().inEventLoop();
 
@@ -189,11 +275,15 @@ public class DefaultKeyedChannelPool<K> implements KeyedChannelPool<K> {
                     closeAndFail(ch, cause, promise);
                 }
             } else {
+                channelPoolHandler.channelUnhealthy(key, ch);
                 closeChannel(ch);
+                abandonCoalescedAcquisition(key, ch);
                 acquireHealthyFromPoolOrNew(key, promise);
             }
         } else {
+            channelPoolHandler.channelUnhealthy(key, ch);
             closeChannel(ch);
+            abandonCoalescedAcquisition(key, ch);
             acquireHealthyFromPoolOrNew(key, promise);
         }
     }
@@ -272,12 +362,26 @@ public class DefaultKeyedChannelPool<K> implements KeyedChannelPool<K> {
             releaseAndOffer(key, channel, promise);
         } else { //channel ont healthy, just releasing it.
             channelPoolHandler.channelReleased(key, channel);
+            channelPoolHandler.channelUnhealthy(key, channel);
             closeAndFail(channel, UNHEALTHY_NON_OFFERED_TO_POOL, promise);
         }
     }
 
     private void releaseAndOffer(K key, Channel channel, Promise<Void> promise) throws Exception {
-        if (offerChannel(key, channel)) {
+        final Promise<Channel> waiter = pollCoalescedWaiter(key, channel);
+        if (waiter != null) {
+            // Hand the Channel over to the next waiter directly, so that the waiter does not find
+            // the pool empty and establish another connection.
+            channelPoolHandler.channelReleased(key, channel);
+            promise.setSuccess(null);
+
+            channel.attr(KeyedChannelPoolUtil.POOL).set(this);
+            channelPoolHandler.channelAcquired(key, channel);
+            if (!waiter.trySuccess(channel)) {
+                // The waiter has given up in the meantime.
+                release(key, channel);
+            }
+        } else if (offerChannel(key, channel)) {
             channelPoolHandler.channelReleased(key, channel);
             promise.setSuccess(null);
         } else {
@@ -285,6 +389,20 @@ public class DefaultKeyedChannelPool<K> implements KeyedChannelPool<K> {
         }
     }
 
+    private Promise<Channel> pollCoalescedWaiter(K key, Channel channel) {
+        final CoalescedAcquisition acquisition = coalescedAcquisitions.get(key);
+        if (acquisition == null || acquisition.channel != channel) {
+            return null;
+        }
+
+        final Promise<Channel> waiter = acquisition.pollWaiter();
+        if (waiter == null) {
+            // No one is waiting; the Channel goes back to the pool.
+            coalescedAcquisitions.remove(key, acquisition);
+        }
+        return waiter;
+    }
+
     protected Channel pollChannel(K key) {
         final Deque<Channel> queue = pool.get(key);
         final Channel ch;
@@ -299,6 +417,13 @@ public class DefaultKeyedChannelPool<K> implements KeyedChannelPool<K> {
         return ch;
     }
 
+    private void removeChannel(K key, Channel channel) {
+        final Deque<Channel> queue = pool.get(key);
+        if (queue != null) {
+            queue.remove(channel);
+        }
+    }
+
     protected boolean offerChannel(K key, Channel channel) {
         return pool.computeIfAbsent(key, k -> PlatformDependent.newConcurrentDeque()).offer(channel);
     }
@@ -315,4 +440,47 @@ public class DefaultKeyedChannelPool<K> implements KeyedChannelPool<K> {
             }
         });
     }
+
+    /**
+     * The acquisitions waiting for the {@link Channel} of a key whose {@link Channel}s are shared, while
+     * the {@link Channel} is being connected or is held by an acquirer who has not released it yet.
+     */
+    private static final class CoalescedAcquisition {
+
+        volatile Channel channel;
+        private final Deque<Promise<Channel>> waiters = new ArrayDeque<>();
+        private boolean done;
+
+        CoalescedAcquisition(Channel channel) {
+            this.channel = channel;
+        }
+
+        synchronized boolean addWaiter(Promise<Channel> waiter) {
+            if (done) {
+                return false;
+            }
+            waiters.add(waiter);
+            return true;
+        }
+
+        synchronized Promise<Channel> pollWaiter() {
+            for (;;) {
+                final Promise<Channel> waiter = waiters.poll();
+                if (waiter == null) {
+                    done = true;
+                    return null;
+                }
+                if (!waiter.isDone()) {
+                    return waiter;
+                }
+            }
+        }
+
+        synchronized List<Promise<Channel>> removeWaiters() {
+            done = true;
+            final List<Promise<Channel>> removed = new ArrayList<>(waiters);
+            waiters.clear();
+            return removed;
+        }
+    }
 }
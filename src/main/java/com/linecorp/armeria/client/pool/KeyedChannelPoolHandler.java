@@ -41,4 +41,21 @@ public interface KeyedChannelPoolHandler<K> {
      * Invoked when the specified {@code channel} has been closed and removed from the pool.
      */
     void channelClosed(K key, Channel ch) throws Exception;
+
+    /**
+     * Invoked when the specified {@code channel} has failed the health check and is about to be closed.
+     * This method does nothing by default.
+     */
+    default void channelUnhealthy(K key, Channel ch) throws Exception {}
+
+    /**
+     * Invoked when an acquisition of a {@link Channel} for the specified {@code key} has been completed.
+     * This method does nothing by default. A pool does not measure the acquisitions at all unless this
+     * method is overridden.
+     *
+     * @param elapsedNanos the time taken to acquire a {@link Channel}, including the time taken to create
+     *                     a new {@link Channel}
+     * @param cause the cause of the acquisition failure, or {@code null} if succeeded
+     */
+    default void acquireCompleted(K key, long elapsedNanos, Throwable cause) throws Exception {}
 }
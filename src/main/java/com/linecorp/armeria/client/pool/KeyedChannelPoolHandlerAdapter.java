@@ -35,4 +35,10 @@ public class KeyedChannelPoolHandlerAdapter<K> implements KeyedChannelPoolHandle
 
     @Override
     public void channelClosed(K key, Channel ch) throws Exception {}
+
+    @Override
+    public void channelUnhealthy(K key, Channel ch) throws Exception {}
+
+    @Override
+    public void acquireCompleted(K key, long elapsedNanos, Throwable cause) throws Exception {}
 }
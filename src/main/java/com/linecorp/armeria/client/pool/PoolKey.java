@@ -19,36 +19,89 @@ package com.linecorp.armeria.client.pool;
 import static java.util.Objects.requireNonNull;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 
+import com.linecorp.armeria.common.DomainSocketAddress;
+import com.linecorp.armeria.common.SerializationFormat;
 import com.linecorp.armeria.common.SessionProtocol;
 
 /**
  * The default key of {@link KeyedChannelPool}. It consists of:
  * <ul>
- *   <li>the server's {@link InetSocketAddress}</li>
+ *   <li>the server's {@link InetSocketAddress} or {@link DomainSocketAddress}</li>
  *   <li>the server's {@link SessionProtocol}</li>
+ *   <li>the {@link SerializationFormat} of the connection, which is {@link SerializationFormat#NONE}
+ *       unless the {@link SessionProtocol} carries the serialized messages without an envelope
+ *       which tells their format, e.g. {@link SessionProtocol#FRAMED}</li>
  * </ul>
  */
 public final class PoolKey {
 
-    private final InetSocketAddress remoteAddress;
+    private final SocketAddress remoteAddress;
     private final SessionProtocol sessionProtocol;
+    private final SerializationFormat serializationFormat;
     private final String value;
 
     /**
      * Creates a new key with the specified {@code remoteAddress} and {@code sessionProtocol}.
+     *
+     * @param remoteAddress an {@link InetSocketAddress} or a {@link DomainSocketAddress}
      */
-    public PoolKey(InetSocketAddress remoteAddress, SessionProtocol sessionProtocol) {
-        this.remoteAddress = requireNonNull(remoteAddress, "remoteAddress");
+    public PoolKey(SocketAddress remoteAddress, SessionProtocol sessionProtocol) {
+        this(remoteAddress, sessionProtocol, SerializationFormat.NONE);
+    }
+
+    /**
+     * Creates a new key with the specified {@code remoteAddress}, {@code sessionProtocol} and
+     * {@code serializationFormat}.
+     *
+     * @param remoteAddress an {@link InetSocketAddress} or a {@link DomainSocketAddress}
+     */
+    public PoolKey(SocketAddress remoteAddress, SessionProtocol sessionProtocol,
+                   SerializationFormat serializationFormat) {
+        requireNonNull(remoteAddress, "remoteAddress");
+        if (!(remoteAddress instanceof InetSocketAddress) && !(remoteAddress instanceof DomainSocketAddress)) {
+            throw new IllegalArgumentException(
+                    "remoteAddress: " + remoteAddress + " (expected: an " +
+                    InetSocketAddress.class.getSimpleName() + " or a " +
+                    DomainSocketAddress.class.getSimpleName() + ')');
+        }
+        this.remoteAddress = remoteAddress;
         this.sessionProtocol = requireNonNull(sessionProtocol, "sessionProtocol");
-        value = sessionProtocol.uriText() + "://" + remoteAddress.getHostString() + ':' +
-                remoteAddress.getPort();
+        this.serializationFormat = requireNonNull(serializationFormat, "serializationFormat");
+
+        final StringBuilder buf = new StringBuilder();
+        if (serializationFormat != SerializationFormat.NONE) {
+            buf.append(serializationFormat.uriText()).append('+');
+        }
+        buf.append(sessionProtocol.uriText()).append("://");
+        if (remoteAddress instanceof InetSocketAddress) {
+            final InetSocketAddress inetRemoteAddress = (InetSocketAddress) remoteAddress;
+            buf.append(inetRemoteAddress.getHostString()).append(':').append(inetRemoteAddress.getPort());
+        } else {
+            buf.append(remoteAddress);
+        }
+        value = buf.toString();
     }
 
     /**
-     * Returns the remote address of the server associated with this key.
+     * Returns the remote IP address and port of the server associated with this key.
+     *
+     * @throws IllegalStateException if the server listens to a Unix domain socket.
+     *                               Use {@link #remoteSocketAddress()} instead.
      */
     public InetSocketAddress remoteAddress() {
+        if (!(remoteAddress instanceof InetSocketAddress)) {
+            throw new IllegalStateException("not an IP socket address: " + remoteAddress);
+        }
+        return (InetSocketAddress) remoteAddress;
+    }
+
+    /**
+     * Returns the remote address of the server associated with this key, which is either
+     * an {@link InetSocketAddress} or a {@link DomainSocketAddress}.
+     */
+    public SocketAddress remoteSocketAddress() {
         return remoteAddress;
     }
 
@@ -59,6 +112,13 @@ public final class PoolKey {
         return sessionProtocol;
     }
 
+    /**
+     * Returns the {@link SerializationFormat} of the connections associated with this key.
+     */
+    public SerializationFormat serializationFormat() {
+        return serializationFormat;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) { return true; }
@@ -28,9 +28,43 @@ class SafeKeyedChannelPoolHandler<K> implements KeyedChannelPoolHandler<K> {
     private static final Logger logger = LoggerFactory.getLogger(SafeKeyedChannelPoolHandler.class);
 
     private final KeyedChannelPoolHandler<K> handler;
+    private final boolean handlesAcquireCompleted;
 
     SafeKeyedChannelPoolHandler(KeyedChannelPoolHandler<K> handler) {
         this.handler = handler;
+        handlesAcquireCompleted = handlesAcquireCompleted(handler);
+    }
+
+    /**
+     * Returns whether the decorated handler does anything in
+     * {@link #acquireCompleted(Object, long, Throwable)}, so that a pool does not have to measure
+     * the acquisitions otherwise.
+     */
+    boolean handlesAcquireCompleted() {
+        return handlesAcquireCompleted;
+    }
+
+    private static boolean handlesAcquireCompleted(KeyedChannelPoolHandler<?> handler) {
+        final Class<?> declaringClass;
+        try {
+            declaringClass = handler.getClass().getMethod(
+                    "acquireCompleted", Object.class, long.class, Throwable.class).getDeclaringClass();
+        } catch (NoSuchMethodException e) {
+            // Should never reach here.
+            return true;
+        }
+
+        if (declaringClass == KeyedChannelPoolHandler.class ||
+            declaringClass == KeyedChannelPoolHandlerAdapter.class) {
+            return false;
+        }
+        if (declaringClass == DecoratingKeyedChannelPoolHandler.class) {
+            return handlesAcquireCompleted(((DecoratingKeyedChannelPoolHandler<?>) handler).delegate());
+        }
+        if (declaringClass == SafeKeyedChannelPoolHandler.class) {
+            return ((SafeKeyedChannelPoolHandler<?>) handler).handlesAcquireCompleted;
+        }
+        return true;
     }
 
     private static void logFailure(String handlerName, Throwable cause) {
@@ -72,4 +106,22 @@ class SafeKeyedChannelPoolHandler<K> implements KeyedChannelPoolHandler<K> {
             logFailure("channelClosed", e);
         }
     }
+
+    @Override
+    public void channelUnhealthy(K key, Channel ch) {
+        try {
+            handler.channelUnhealthy(key, ch);
+        } catch (Exception e) {
+            logFailure("channelUnhealthy", e);
+        }
+    }
+
+    @Override
+    public void acquireCompleted(K key, long elapsedNanos, Throwable cause) {
+        try {
+            handler.acquireCompleted(key, elapsedNanos, cause);
+        } catch (Exception e) {
+            logFailure("acquireCompleted", e);
+        }
+    }
 }
@@ -25,7 +25,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.apache.thrift.TApplicationException;
 import org.apache.thrift.TBase;
@@ -39,13 +42,28 @@ import org.apache.thrift.protocol.TProtocolFactory;
 import org.apache.thrift.transport.TTransportException;
 
 import com.linecorp.armeria.client.ClientCodec;
+import com.linecorp.armeria.client.InvalidResponseException;
+import com.linecorp.armeria.common.DomainSocketAddress;
 import com.linecorp.armeria.common.Scheme;
+import com.linecorp.armeria.common.SerializationFormat;
 import com.linecorp.armeria.common.ServiceInvocationContext;
 import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.thrift.TByteBufTransport;
+import com.linecorp.armeria.common.thrift.ThriftInProcessCall;
 import com.linecorp.armeria.common.thrift.ThriftProtocolFactories;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.Promise;
 
 /**
@@ -53,7 +71,13 @@ import io.netty.util.concurrent.Promise;
  */
 public class ThriftClientCodec implements ClientCodec {
 
-    private static final Map<Class<?>, Map<String, ThriftMethod>> methodMapCache = new HashMap<>();
+    private static final Map<Class<?>, Map<String, ThriftMethod>> methodMapCache = new ConcurrentHashMap<>();
+
+    private static final Map<SerializationFormat, ThreadLocalTProtocol> FORMAT_TO_THREAD_LOCAL_OUT_PROTOCOL =
+            Collections.unmodifiableMap(
+                    SerializationFormat.ofThrift().stream().collect(
+                            Collectors.toMap(Function.identity(),
+                                             f -> new ThreadLocalTProtocol(ThriftProtocolFactories.get(f)))));
 
     private static final String SYNC_IFACE = "Iface";
     private static final String ASYNC_IFACE = "AsyncIface";
@@ -62,19 +86,69 @@ public class ThriftClientCodec implements ClientCodec {
     private final boolean isAsyncClient;
     private final Map<String, ThriftMethod> methodMap;
     private final TProtocolFactory protocolFactory;
+    private final SerializationFormat serializationFormat;
+    /**
+     * The thread-local {@link TProtocol} to encode a request with, or {@code null} if {@link #protocolFactory}
+     * is not one of the {@link ThriftProtocolFactories} and thus a new {@link TProtocol} has to be created
+     * for each request.
+     */
+    private final ThreadLocalTProtocol threadLocalOutProtocol;
     private final String loggerName;
+    private final boolean inProcess;
+    private final boolean zeroCopyBinary;
 
-    private final AtomicInteger seq = new AtomicInteger();
+    /**
+     * Shared by all clients so that the calls multiplexed over a {@link SessionProtocol#FRAMED} connection
+     * never have the same sequence ID.
+     */
+    private static final AtomicInteger seq = new AtomicInteger();
 
     /**
      * Creates a new instance.
      */
     public ThriftClientCodec(URI uri, Class<?> interfaceClass, TProtocolFactory protocolFactory) {
+        this(uri, interfaceClass, protocolFactory, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param inProcess whether to hand over the arguments and the result of an invocation as Java objects
+     *                  rather than serializing them when connected via {@link SessionProtocol#LOCAL}.
+     *                  The arguments and the result are deep-copied so that neither side can see
+     *                  the modification made by the other side.
+     */
+    public ThriftClientCodec(URI uri, Class<?> interfaceClass, TProtocolFactory protocolFactory,
+                             boolean inProcess) {
+        this(uri, interfaceClass, protocolFactory, inProcess, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param inProcess whether to hand over the arguments and the result of an invocation as Java objects
+     *                  rather than serializing them when connected via {@link SessionProtocol#LOCAL}.
+     *                  The arguments and the result are deep-copied so that neither side can see
+     *                  the modification made by the other side.
+     * @param zeroCopyBinary whether to decode the {@code binary} fields of a response as read-only
+     *                       {@link java.nio.ByteBuffer}s which share the memory of the response.
+     *                       The response is released after the {@link AsyncMethodCallback} returns, so
+     *                       the {@link java.nio.ByteBuffer}s must not be accessed after that.
+     *                       Only an {@code AsyncIface} client can enable this.
+     */
+    public ThriftClientCodec(URI uri, Class<?> interfaceClass, TProtocolFactory protocolFactory,
+                             boolean inProcess, boolean zeroCopyBinary) {
 
         requireNonNull(interfaceClass, "interfaceClass");
 
         this.uri = requireNonNull(uri, "uri");
         this.protocolFactory = requireNonNull(protocolFactory, "protocolFactory");
+        serializationFormat = ThriftProtocolFactories.toSerializationFormat(protocolFactory);
+        if (protocolFactory == ThriftProtocolFactories.get(serializationFormat)) {
+            threadLocalOutProtocol = FORMAT_TO_THREAD_LOCAL_OUT_PROTOCOL.get(serializationFormat);
+        } else {
+            threadLocalOutProtocol = null;
+        }
 
         final String interfaceName = interfaceClass.getName();
         if (interfaceName.endsWith('$' + ASYNC_IFACE)) {
@@ -87,15 +161,30 @@ public class ThriftClientCodec implements ClientCodec {
 
         loggerName = interfaceName.substring(0, interfaceName.lastIndexOf('$'));
         methodMap = getThriftMethodMapFromInterface(interfaceClass, isAsyncClient);
+        if (zeroCopyBinary && !isAsyncClient) {
+            // A synchronous client returns the result after the response has been released.
+            throw new IllegalArgumentException(
+                    "zeroCopyBinary requires an " + ASYNC_IFACE + " client: " + interfaceName);
+        }
+
+        this.inProcess = inProcess;
+        this.zeroCopyBinary = zeroCopyBinary;
     }
 
     private static Map<String, ThriftMethod> getThriftMethodMapFromInterface(Class<?> interfaceClass,
                                                                              boolean isAsyncInterface) {
-        Map<String, ThriftMethod> methodMap = methodMapCache.get(interfaceClass);
+        final Map<String, ThriftMethod> methodMap = methodMapCache.get(interfaceClass);
         if (methodMap != null) {
             return methodMap;
         }
-        methodMap = new HashMap<>();
+
+        return methodMapCache.computeIfAbsent(
+                interfaceClass, c -> newThriftMethodMapFromInterface(c, isAsyncInterface));
+    }
+
+    private static Map<String, ThriftMethod> newThriftMethodMapFromInterface(Class<?> interfaceClass,
+                                                                             boolean isAsyncInterface) {
+        final Map<String, ThriftMethod> methodMap = new HashMap<>();
 
         String interfaceName = interfaceClass.getName();
         ClassLoader loader = interfaceClass.getClassLoader();
@@ -117,11 +206,7 @@ public class ThriftClientCodec implements ClientCodec {
             methodMap.put(method.getName(), thriftMethod);
         }
 
-        Map<String, ThriftMethod> resultMap = Collections.unmodifiableMap(methodMap);
-        methodMapCache.put(interfaceClass, resultMap);
-
-        return methodMap;
-
+        return Collections.unmodifiableMap(methodMap);
     }
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -164,13 +249,25 @@ public class ThriftClientCodec implements ClientCodec {
             throw new IllegalStateException("Thrift method not found: " + method.getName());
         }
 
-        final Scheme scheme = Scheme.of(ThriftProtocolFactories.toSerializationFormat(protocolFactory),
-                                        sessionProtocol);
+        final Scheme scheme = Scheme.of(serializationFormat, sessionProtocol);
+        if (inProcess && sessionProtocol == SessionProtocol.LOCAL) {
+            return encodeInProcessRequest(channel, scheme, method, thriftMethod, args);
+        }
+
+        final ByteBuf outByteBuf = channel.alloc().buffer(thriftMethod.encodedSizeEstimate());
+        final TByteBufTransport outTransport;
+        final TProtocol tProtocol;
+        if (threadLocalOutProtocol != null) {
+            tProtocol = threadLocalOutProtocol.get();
+            tProtocol.reset();
+            outTransport = (TByteBufTransport) tProtocol.getTransport();
+            outTransport.reset(outByteBuf);
+        } else {
+            outTransport = new TByteBufTransport(outByteBuf);
+            tProtocol = protocolFactory.getProtocol(outTransport);
+        }
 
         try {
-            final ByteBuf outByteBuf = channel.alloc().buffer();
-            final TByteBufOutputTransport outTransport = new TByteBufOutputTransport(outByteBuf);
-            final TProtocol tProtocol = protocolFactory.getProtocol(outTransport);
             final TMessage tMessage = new TMessage(method.getName(), thriftMethod.methodType(),
                                                    seq.incrementAndGet());
 
@@ -178,14 +275,49 @@ public class ThriftClientCodec implements ClientCodec {
             final TBase tArgs = thriftMethod.createArgs(isAsyncClient, args);
             tArgs.write(tProtocol);
             tProtocol.writeMessageEnd();
+            thriftMethod.recordEncodedSize(outByteBuf.readableBytes());
+
+            AsyncMethodCallback asyncMethodCallback = null;
+            if (isAsyncClient) {
+                asyncMethodCallback = ThriftMethod.asyncCallback(args);
+            }
+            return new ThriftInvocation(
+                    channel, scheme, DomainSocketAddress.host(uri), uri.getPath(), uri.getPath(), loggerName,
+                    outByteBuf, tMessage, thriftMethod, tArgs, asyncMethodCallback);
+        } catch (Exception e) {
+            ReferenceCountUtil.safeRelease(outByteBuf);
+            Exception decodedException = decodeException(e, thriftMethod.declaredThrowableException());
+            return new ThriftEncodeFailureResult(decodedException, scheme, uri);
+        } finally {
+            outTransport.clear();
+        }
+    }
+
+    /**
+     * Registers a {@link ThriftInProcessCall} with the deep copy of the arguments instead of serializing
+     * them, and returns the request which carries only the ID of the call.
+     */
+    @SuppressWarnings("rawtypes")
+    private EncodeResult encodeInProcessRequest(Channel channel, Scheme scheme, Method method,
+                                                ThriftMethod thriftMethod, Object[] args) {
+        try {
+            final TMessage tMessage = new TMessage(method.getName(), thriftMethod.methodType(),
+                                                   seq.incrementAndGet());
+            final TBase tArgs = thriftMethod.createArgs(isAsyncClient, args);
+            final ThriftInProcessCall call = ThriftInProcessCall.register(
+                    tMessage.name, tMessage.type, tMessage.seqid, tArgs.deepCopy());
+
+            final FullHttpRequest request = new DefaultFullHttpRequest(
+                    HttpVersion.HTTP_1_1, HttpMethod.POST, uri.getPath(), Unpooled.EMPTY_BUFFER);
+            request.headers().set(ThriftInProcessCall.HEADER_NAME, call.id());
 
             AsyncMethodCallback asyncMethodCallback = null;
             if (isAsyncClient) {
                 asyncMethodCallback = ThriftMethod.asyncCallback(args);
             }
             return new ThriftInvocation(
-                    channel, scheme, uri.getHost(), uri.getPath(), uri.getPath(), loggerName, outByteBuf,
-                    tMessage, thriftMethod, tArgs, asyncMethodCallback);
+                    channel, scheme, DomainSocketAddress.host(uri), uri.getPath(), uri.getPath(), loggerName,
+                    request, tMessage, thriftMethod, tArgs, asyncMethodCallback, call);
         } catch (Exception e) {
             Exception decodedException = decodeException(e, thriftMethod.declaredThrowableException());
             return new ThriftEncodeFailureResult(decodedException, scheme, uri);
@@ -196,6 +328,13 @@ public class ThriftClientCodec implements ClientCodec {
     @Override
     public <T> T decodeResponse(ServiceInvocationContext ctx, ByteBuf content, Object originalResponse)
             throws Exception {
+        if (ctx instanceof ThriftInvocation && ((ThriftInvocation) ctx).inProcessCall() != null &&
+            (content == null || !content.isReadable())) {
+            // A serialized response is decoded as usual below. The server sends one when it could not
+            // take the call, e.g. the ID of the call was unknown to it.
+            return decodeInProcessResponse((ThriftInvocation) ctx, originalResponse);
+        }
+
         if (content == null) {
             return null;
         }
@@ -208,7 +347,15 @@ public class ThriftClientCodec implements ClientCodec {
             throw new TApplicationException(TApplicationException.MISSING_RESULT, ctx.toString());
         }
 
-        TByteBufInputTransport inputTransport = new TByteBufInputTransport(content);
+        final TByteBufTransport inputTransport;
+        if (zeroCopyBinary && ctx instanceof ThriftInvocation) {
+            // Keep the response until the invocation is complete, because the decoded binary fields
+            // share its memory.
+            ((ThriftInvocation) ctx).retainUntilCompletion(content);
+            inputTransport = new TByteBufTransport(content, true);
+        } else {
+            inputTransport = new TByteBufTransport(content);
+        }
         TProtocol inputProtocol = protocolFactory.getProtocol(inputTransport);
         TMessage msg = inputProtocol.readMessageBegin();
         if (msg.type == TMessageType.EXCEPTION) {
@@ -224,6 +371,45 @@ public class ThriftClientCodec implements ClientCodec {
         result.read(inputProtocol);
         inputProtocol.readMessageEnd();
 
+        return decodeResult(method, result);
+    }
+
+    /**
+     * Returns the result the server stored into the {@link ThriftInProcessCall} of the specified invocation.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T> T decodeInProcessResponse(ThriftInvocation invocation,
+                                                 Object originalResponse) throws Exception {
+        final ThriftInProcessCall call = invocation.inProcessCall();
+        final TApplicationException exception = call.exception();
+        if (exception != null) {
+            throw exception;
+        }
+
+        if (originalResponse instanceof HttpResponse) {
+            final HttpResponseStatus status = ((HttpResponse) originalResponse).status();
+            if (status.codeClass() != HttpStatusClass.SUCCESS) {
+                throw new InvalidResponseException("HTTP Response code: " + status);
+            }
+        }
+
+        final ThriftMethod method = invocation.thriftMethod();
+        final TBase<? extends TBase, TFieldIdEnum> result =
+                (TBase<? extends TBase, TFieldIdEnum>) call.result();
+        if (result == null) {
+            if (method.isOneWay()) {
+                return null;
+            }
+            throw new TApplicationException(TApplicationException.MISSING_RESULT, invocation.toString());
+        }
+
+        return decodeResult(method, result);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T> T decodeResult(ThriftMethod method, TBase<? extends TBase, TFieldIdEnum> result)
+            throws TException {
+
         for (TFieldIdEnum fieldIdEnum : method.getExceptionFields()) {
             if (result.isSet(fieldIdEnum)) {
                 throw (TException) result.getFieldValue(fieldIdEnum);
@@ -278,6 +464,20 @@ public class ThriftClientCodec implements ClientCodec {
         return isAsyncClient;
     }
 
+    private static final class ThreadLocalTProtocol extends FastThreadLocal<TProtocol> {
+
+        private final TProtocolFactory protoFactory;
+
+        private ThreadLocalTProtocol(TProtocolFactory protoFactory) {
+            this.protoFactory = protoFactory;
+        }
+
+        @Override
+        protected TProtocol initialValue() {
+            return protoFactory.getProtocol(new TByteBufTransport());
+        }
+    }
+
     private static final class ThriftEncodeFailureResult implements EncodeResult {
 
         private final Throwable cause;
@@ -313,7 +513,7 @@ public class ThriftClientCodec implements ClientCodec {
         @Override
         public Optional<String> encodedHost() {
             if (uri.isPresent()) {
-                return Optional.ofNullable(uri.get().getHost());
+                return Optional.ofNullable(DomainSocketAddress.host(uri.get()));
             } else {
                 return Optional.empty();
             }
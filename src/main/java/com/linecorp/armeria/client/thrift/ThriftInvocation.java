@@ -29,10 +29,13 @@ import org.apache.thrift.protocol.TMessageType;
 import com.linecorp.armeria.client.ClientCodec.EncodeResult;
 import com.linecorp.armeria.common.Scheme;
 import com.linecorp.armeria.common.ServiceInvocationContext;
+import com.linecorp.armeria.common.thrift.ThriftInProcessCall;
 import com.linecorp.armeria.common.thrift.ThriftUtil;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.util.concurrent.Promise;
 
 /**
  * Object that contains Thrift Method Invocation Information
@@ -44,7 +47,9 @@ class ThriftInvocation extends ServiceInvocationContext implements EncodeResult
     private final TBase tArgs;
     private final ThriftMethod method;
     private final AsyncMethodCallback<?> asyncMethodCallback;
-    private final ByteBuf content;
+    private final Object content;
+    private final ThriftInProcessCall inProcessCall;
+    private ByteBuf retainedContent;
 
     ThriftInvocation(
             Channel ch, Scheme scheme, String host, String path, String mappedPath,
@@ -52,6 +57,30 @@ class ThriftInvocation extends ServiceInvocationContext implements EncodeResult
             TMessage tMessage, ThriftMethod method, @SuppressWarnings("rawtypes") TBase tArgs,
             AsyncMethodCallback<?> asyncMethodCallback) {
 
+        this(ch, scheme, host, path, mappedPath, loggerName, (Object) content,
+             tMessage, method, tArgs, asyncMethodCallback, null);
+    }
+
+    /**
+     * Creates a new in-process invocation whose {@code content} is the {@link FullHttpRequest} that carries
+     * the ID of the specified {@link ThriftInProcessCall}.
+     */
+    ThriftInvocation(
+            Channel ch, Scheme scheme, String host, String path, String mappedPath,
+            String loggerName, FullHttpRequest content,
+            TMessage tMessage, ThriftMethod method, @SuppressWarnings("rawtypes") TBase tArgs,
+            AsyncMethodCallback<?> asyncMethodCallback, ThriftInProcessCall inProcessCall) {
+
+        this(ch, scheme, host, path, mappedPath, loggerName, (Object) content,
+             tMessage, method, tArgs, asyncMethodCallback, requireNonNull(inProcessCall, "inProcessCall"));
+    }
+
+    private ThriftInvocation(
+            Channel ch, Scheme scheme, String host, String path, String mappedPath,
+            String loggerName, Object content,
+            TMessage tMessage, ThriftMethod method, @SuppressWarnings("rawtypes") TBase tArgs,
+            AsyncMethodCallback<?> asyncMethodCallback, ThriftInProcessCall inProcessCall) {
+
         super(ch, scheme, host, path, mappedPath, loggerName, content);
 
         this.content = requireNonNull(content);
@@ -59,6 +88,7 @@ class ThriftInvocation extends ServiceInvocationContext implements EncodeResult
         this.tArgs = requireNonNull(tArgs, "tArgs");
         this.method = requireNonNull(method, "method");
         this.asyncMethodCallback = asyncMethodCallback;
+        this.inProcessCall = inProcessCall;
     }
 
     TMessage tMessage() {
@@ -77,6 +107,14 @@ class ThriftInvocation extends ServiceInvocationContext implements EncodeResult
         return method;
     }
 
+    /**
+     * Returns the {@link ThriftInProcessCall} of this invocation, or {@code null} if the arguments of this
+     * invocation have been serialized.
+     */
+    ThriftInProcessCall inProcessCall() {
+        return inProcessCall;
+    }
+
     @Override
     public String invocationId() {
         return ThriftUtil.seqIdToString(tMessage().seqid);
@@ -107,6 +145,47 @@ class ThriftInvocation extends ServiceInvocationContext implements EncodeResult
         return asyncMethodCallback;
     }
 
+    /**
+     * Retains the specified response content and releases it when the invocation is complete, after
+     * the listeners added before completion, such as the {@link AsyncMethodCallback}, are notified.
+     */
+    void retainUntilCompletion(ByteBuf content) {
+        assert retainedContent == null;
+        retainedContent = content.retain();
+    }
+
+    @Override
+    public void resolvePromise(Promise<?> promise, Object result) {
+        unregisterInProcessCall();
+        releaseRetainedContentOnCompletion(promise);
+        super.resolvePromise(promise, result);
+    }
+
+    @Override
+    public void rejectPromise(Promise<?> promise, Throwable cause) {
+        unregisterInProcessCall();
+        releaseRetainedContentOnCompletion(promise);
+        super.rejectPromise(promise, cause);
+    }
+
+    private void releaseRetainedContentOnCompletion(Promise<?> promise) {
+        final ByteBuf retainedContent = this.retainedContent;
+        if (retainedContent != null) {
+            this.retainedContent = null;
+            promise.addListener(future -> retainedContent.release());
+        }
+    }
+
+    /**
+     * Makes sure the {@link ThriftInProcessCall} does not stay in the registry when the server did not
+     * take it, e.g. the request was not written or timed out.
+     */
+    private void unregisterInProcessCall() {
+        if (inProcessCall != null) {
+            inProcessCall.unregister();
+        }
+    }
+
     @Override
     public boolean isSuccess() {
         return true;
@@ -118,7 +197,7 @@ class ThriftInvocation extends ServiceInvocationContext implements EncodeResult
     }
 
     @Override
-    public ByteBuf content() {
+    public Object content() {
         return content;
     }
 
@@ -38,6 +38,10 @@ import com.linecorp.armeria.common.thrift.ThriftUtil;
 
 @SuppressWarnings("rawtypes")
 class ThriftMethod {
+
+    private static final int INITIAL_ENCODED_SIZE_ESTIMATE = 256;
+    private static final int MIN_ENCODED_SIZE_ESTIMATE = 64;
+
     private final boolean oneWay;
     private final String name;
     final Class<?>[] declaredThrowableException;
@@ -51,6 +55,12 @@ class ThriftMethod {
     private final List<Class<?>> paramTypes;
     private final Class<?> returnType;
 
+    /**
+     * The expected size of an encoded call message, learned from the previous invocations. Updated without
+     * synchronization because it is only a hint for the initial capacity of the outbound buffer.
+     */
+    private volatile int encodedSizeEstimate = INITIAL_ENCODED_SIZE_ESTIMATE;
+
     @SuppressWarnings({ "unchecked", "SuspiciousArrayCast" })
     ThriftMethod(Class<?> clientClass, Method method, String thriftServiceName) {
         requireNonNull(clientClass);
@@ -164,6 +174,27 @@ class ThriftMethod {
         return oneWay;
     }
 
+    int encodedSizeEstimate() {
+        return encodedSizeEstimate;
+    }
+
+    /**
+     * Updates the encoded size estimate. Grows to the largest recent message immediately so that a buffer
+     * rarely needs to be expanded, and decays slowly towards smaller messages.
+     */
+    void recordEncodedSize(int encodedSize) {
+        final int estimate = encodedSizeEstimate;
+        if (encodedSize > estimate) {
+            encodedSizeEstimate = encodedSize;
+        } else {
+            final int newEstimate = Math.max(estimate - (estimate - encodedSize >>> 4),
+                                             MIN_ENCODED_SIZE_ESTIMATE);
+            if (newEstimate != estimate) {
+                encodedSizeEstimate = newEstimate;
+            }
+        }
+    }
+
     byte methodType() {
         return oneWay ? TMessageType.ONEWAY : TMessageType.CALL;
     }
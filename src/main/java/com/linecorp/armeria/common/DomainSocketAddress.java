@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * The address of a Unix domain socket, which is designated by the path of its socket file rather than
+ * an IP address and a port number. It can be specified as the address of a
+ * {@link com.linecorp.armeria.server.ServerPort} and a {@link com.linecorp.armeria.client.pool.PoolKey}.
+ * Note that a Unix domain socket is available only when the native epoll transport is available.
+ *
+ * <p>A client connects to a Unix domain socket when the authority of its {@link URI} is {@code "unix:"}
+ * followed by the percent-encoded path of the socket:</p>
+ * <pre>{@code
+ * Clients.newClient("tbinary+http://unix:%2Fvar%2Frun%2Fhello.sock/hello", HelloService.Iface.class);
+ * }</pre>
+ */
+public final class DomainSocketAddress extends SocketAddress {
+
+    private static final long serialVersionUID = 5389285722919016592L;
+
+    /**
+     * The host name of the requests sent to a Unix domain socket, which appears in the {@code "Host"} header.
+     */
+    public static final String HOST = "localhost";
+
+    private static final String AUTHORITY_PREFIX = "unix:";
+
+    /**
+     * Returns the {@link DomainSocketAddress} designated by the authority of the specified {@link URI}.
+     *
+     * @return the {@link DomainSocketAddress}, or {@link Optional#empty()} if the authority of the specified
+     *         {@link URI} does not start with {@code "unix:"}
+     */
+    public static Optional<DomainSocketAddress> of(URI uri) {
+        requireNonNull(uri, "uri");
+        final String authority = uri.getAuthority();
+        if (uri.getHost() != null || authority == null || !authority.startsWith(AUTHORITY_PREFIX) ||
+            authority.length() == AUTHORITY_PREFIX.length()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new DomainSocketAddress(authority.substring(AUTHORITY_PREFIX.length())));
+    }
+
+    /**
+     * Returns the host name of the requests sent to the specified {@link URI}, which is {@link URI#getHost()}
+     * or {@link #HOST} if the {@link URI} designates a Unix domain socket.
+     *
+     * @see #of(URI)
+     */
+    public static String host(URI uri) {
+        requireNonNull(uri, "uri");
+        final String host = uri.getHost();
+        if (host != null) {
+            return host;
+        }
+
+        return of(uri).isPresent() ? HOST : null;
+    }
+
+    /**
+     * Converts the specified {@link SocketAddress} into a {@link DomainSocketAddress} if it is a Netty
+     * {@link io.netty.channel.unix.DomainSocketAddress}, as returned by {@code Channel.remoteAddress()} of
+     * a Unix domain socket channel.
+     *
+     * @return the converted {@link DomainSocketAddress}, or the specified {@link SocketAddress} as it is
+     */
+    public static SocketAddress convert(SocketAddress address) {
+        if (address instanceof io.netty.channel.unix.DomainSocketAddress) {
+            return new DomainSocketAddress(((io.netty.channel.unix.DomainSocketAddress) address).path());
+        }
+
+        return address;
+    }
+
+    private final String path;
+
+    /**
+     * Creates a new instance with the specified socket file path.
+     */
+    public DomainSocketAddress(String path) {
+        requireNonNull(path, "path");
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("path is empty.");
+        }
+        this.path = path;
+    }
+
+    /**
+     * Returns the path of the socket file.
+     */
+    public String path() {
+        return path;
+    }
+
+    /**
+     * Converts this address into a Netty {@link io.netty.channel.unix.DomainSocketAddress}, which is
+     * required when binding or connecting a Unix domain socket channel.
+     */
+    public io.netty.channel.unix.DomainSocketAddress asNettyAddress() {
+        return new io.netty.channel.unix.DomainSocketAddress(path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof DomainSocketAddress)) {
+            return false;
+        }
+
+        return path.equals(((DomainSocketAddress) obj).path);
+    }
+
+    @Override
+    public String toString() {
+        return AUTHORITY_PREFIX + path;
+    }
+}
@@ -47,10 +47,21 @@ public enum SessionProtocol {
     /**
      * HTTP/2 (cleartext)
      */
-    H2C(false, "h2c", true);
+    H2C(false, "h2c", true),
+    /**
+     * HTTP over an in-JVM local channel (cleartext, HTTP/2 preferred). The host part of a URI is the name
+     * of the local port, e.g. {@code "tbinary+local://hello/hello"}.
+     */
+    LOCAL(false, "local", false),
+    /**
+     * Thrift {@code TFramedTransport} over TCP (cleartext), which has no HTTP envelope. A frame is a Thrift
+     * message prefixed with its 4-byte length. The concurrent calls on a connection are told apart by their
+     * sequence IDs, e.g. {@code "tbinary+framed://127.0.0.1:9090/"}.
+     */
+    FRAMED(false, "framed", true);
 
     private static final Set<SessionProtocol> HTTP_PROTOCOLS = Collections.unmodifiableSet(
-            EnumSet.of(HTTP, HTTPS, H1, H1C, H2, H2C));
+            EnumSet.of(HTTP, HTTPS, H1, H1C, H2, H2C, LOCAL));
 
     /**
      * Returns the set of all known HTTP session protocols. This method is useful when determining if a
@@ -0,0 +1,395 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.thrift;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TMap;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolException;
+import org.apache.thrift.protocol.TSet;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.transport.TTransportException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * The Thrift binary protocol which reads and writes the primitives directly from and to the {@link ByteBuf}
+ * of a {@link TByteBufTransport}. The wire format is identical to that of
+ * {@link org.apache.thrift.protocol.TBinaryProtocol} with {@code strictRead} disabled and
+ * {@code strictWrite} enabled.
+ */
+final class TByteBufBinaryProtocol extends TProtocol {
+
+    private static final int VERSION_MASK = 0xffff0000;
+    private static final int VERSION_1 = 0x80010000;
+
+    private static final TStruct ANONYMOUS_STRUCT = new TStruct();
+    private static final TField STOP_FIELD = new TField("", TType.STOP, (short) 0);
+
+    private final TByteBufTransport trans;
+
+    TByteBufBinaryProtocol(TByteBufTransport trans) {
+        super(trans);
+        this.trans = trans;
+    }
+
+    // Write methods
+
+    @Override
+    public void writeMessageBegin(TMessage message) throws TException {
+        final ByteBuf buf = trans.buf();
+        buf.writeInt(VERSION_1 | message.type);
+        writeString(buf, message.name);
+        buf.writeInt(message.seqid);
+    }
+
+    @Override
+    public void writeMessageEnd() {}
+
+    @Override
+    public void writeStructBegin(TStruct struct) {}
+
+    @Override
+    public void writeStructEnd() {}
+
+    @Override
+    public void writeFieldBegin(TField field) throws TException {
+        final ByteBuf buf = trans.buf();
+        buf.writeByte(field.type);
+        buf.writeShort(field.id);
+    }
+
+    @Override
+    public void writeFieldEnd() {}
+
+    @Override
+    public void writeFieldStop() throws TException {
+        trans.buf().writeByte(TType.STOP);
+    }
+
+    @Override
+    public void writeMapBegin(TMap map) throws TException {
+        final ByteBuf buf = trans.buf();
+        buf.writeByte(map.keyType);
+        buf.writeByte(map.valueType);
+        buf.writeInt(map.size);
+    }
+
+    @Override
+    public void writeMapEnd() {}
+
+    @Override
+    public void writeListBegin(TList list) throws TException {
+        final ByteBuf buf = trans.buf();
+        buf.writeByte(list.elemType);
+        buf.writeInt(list.size);
+    }
+
+    @Override
+    public void writeListEnd() {}
+
+    @Override
+    public void writeSetBegin(TSet set) throws TException {
+        final ByteBuf buf = trans.buf();
+        buf.writeByte(set.elemType);
+        buf.writeInt(set.size);
+    }
+
+    @Override
+    public void writeSetEnd() {}
+
+    @Override
+    public void writeBool(boolean b) throws TException {
+        trans.buf().writeByte(b ? 1 : 0);
+    }
+
+    @Override
+    public void writeByte(byte b) throws TException {
+        trans.buf().writeByte(b);
+    }
+
+    @Override
+    public void writeI16(short i16) throws TException {
+        trans.buf().writeShort(i16);
+    }
+
+    @Override
+    public void writeI32(int i32) throws TException {
+        trans.buf().writeInt(i32);
+    }
+
+    @Override
+    public void writeI64(long i64) throws TException {
+        trans.buf().writeLong(i64);
+    }
+
+    @Override
+    public void writeDouble(double dub) throws TException {
+        trans.buf().writeLong(Double.doubleToLongBits(dub));
+    }
+
+    @Override
+    public void writeString(String str) throws TException {
+        writeString(trans.buf(), str);
+    }
+
+    private static void writeString(ByteBuf buf, String str) {
+        final int length = utf8Length(str);
+        if (length >= 0) {
+            buf.ensureWritable(4 + length);
+            buf.writeInt(length);
+            ByteBufUtil.writeUtf8(buf, str);
+        } else {
+            final byte[] bytes = str.getBytes(UTF_8);
+            buf.writeInt(bytes.length);
+            buf.writeBytes(bytes);
+        }
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer bin) throws TException {
+        final ByteBuf buf = trans.buf();
+        buf.writeInt(bin.remaining());
+        buf.writeBytes(bin.duplicate());
+    }
+
+    // Read methods
+
+    @Override
+    public TMessage readMessageBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        final int size = readInt(buf);
+        if (size < 0) {
+            final int version = size & VERSION_MASK;
+            if (version != VERSION_1) {
+                throw new TProtocolException(TProtocolException.BAD_VERSION,
+                                             "Bad version in readMessageBegin");
+            }
+            final String name = readString(buf, readLength(buf));
+            return new TMessage(name, (byte) (size & 0x000000ff), readInt(buf));
+        } else {
+            // An old client which does not send the version.
+            final String name = readString(buf, checkLength(buf, size));
+            final byte type = readByte(buf);
+            return new TMessage(name, type, readInt(buf));
+        }
+    }
+
+    @Override
+    public void readMessageEnd() {}
+
+    @Override
+    public TStruct readStructBegin() {
+        return ANONYMOUS_STRUCT;
+    }
+
+    @Override
+    public void readStructEnd() {}
+
+    @Override
+    public TField readFieldBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        final byte type = readByte(buf);
+        if (type == TType.STOP) {
+            return STOP_FIELD;
+        }
+        return new TField("", type, readShort(buf));
+    }
+
+    @Override
+    public void readFieldEnd() {}
+
+    @Override
+    public TMap readMapBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        ensureReadable(buf, 6);
+        final byte keyType = buf.readByte();
+        final byte valueType = buf.readByte();
+        return new TMap(keyType, valueType, readLength(buf));
+    }
+
+    @Override
+    public void readMapEnd() {}
+
+    @Override
+    public TList readListBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        final byte elemType = readByte(buf);
+        return new TList(elemType, readLength(buf));
+    }
+
+    @Override
+    public void readListEnd() {}
+
+    @Override
+    public TSet readSetBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        final byte elemType = readByte(buf);
+        return new TSet(elemType, readLength(buf));
+    }
+
+    @Override
+    public void readSetEnd() {}
+
+    @Override
+    public boolean readBool() throws TException {
+        return readByte(trans.buf()) == 1;
+    }
+
+    @Override
+    public byte readByte() throws TException {
+        return readByte(trans.buf());
+    }
+
+    @Override
+    public short readI16() throws TException {
+        return readShort(trans.buf());
+    }
+
+    @Override
+    public int readI32() throws TException {
+        return readInt(trans.buf());
+    }
+
+    @Override
+    public long readI64() throws TException {
+        return readLong(trans.buf());
+    }
+
+    @Override
+    public double readDouble() throws TException {
+        return Double.longBitsToDouble(readLong(trans.buf()));
+    }
+
+    @Override
+    public String readString() throws TException {
+        final ByteBuf buf = trans.buf();
+        return readString(buf, readLength(buf));
+    }
+
+    @Override
+    public ByteBuffer readBinary() throws TException {
+        final ByteBuf buf = trans.buf();
+        return readBinary(trans, buf, readLength(buf));
+    }
+
+    /**
+     * Reads the binary value of the specified length, which is either a copy or a read-only view of
+     * the {@link ByteBuf} depending on {@link TByteBufTransport#isZeroCopyBinary()}.
+     */
+    static ByteBuffer readBinary(TByteBufTransport trans, ByteBuf buf, int length) {
+        if (trans.isZeroCopyBinary()) {
+            final ByteBuffer binary = buf.nioBuffer(buf.readerIndex(), length).asReadOnlyBuffer();
+            buf.skipBytes(length);
+            return binary;
+        }
+
+        final byte[] bytes = new byte[length];
+        buf.readBytes(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static byte readByte(ByteBuf buf) throws TException {
+        ensureReadable(buf, 1);
+        return buf.readByte();
+    }
+
+    private static short readShort(ByteBuf buf) throws TException {
+        ensureReadable(buf, 2);
+        return buf.readShort();
+    }
+
+    private static int readInt(ByteBuf buf) throws TException {
+        ensureReadable(buf, 4);
+        return buf.readInt();
+    }
+
+    private static long readLong(ByteBuf buf) throws TException {
+        ensureReadable(buf, 8);
+        return buf.readLong();
+    }
+
+    /**
+     * Reads the length of a string, a binary or a container, which must not be greater than the number of
+     * the remaining bytes because every element occupies at least one byte.
+     */
+    private static int readLength(ByteBuf buf) throws TException {
+        return checkLength(buf, readInt(buf));
+    }
+
+    static int checkLength(ByteBuf buf, int length) throws TProtocolException {
+        if (length < 0) {
+            throw new TProtocolException(TProtocolException.NEGATIVE_SIZE, "Negative length: " + length);
+        }
+        if (length > buf.readableBytes()) {
+            throw new TProtocolException(TProtocolException.SIZE_LIMIT,
+                                         "Length exceeds the remaining bytes: " + length);
+        }
+        return length;
+    }
+
+    static void ensureReadable(ByteBuf buf, int length) throws TTransportException {
+        if (buf.readableBytes() < length) {
+            throw new TTransportException(TTransportException.END_OF_FILE, "unexpected end of frame");
+        }
+    }
+
+    /**
+     * Decodes the UTF-8 string of the specified length from the current reader index of the specified
+     * {@link ByteBuf} without copying it into a temporary array.
+     */
+    static String readString(ByteBuf buf, int length) {
+        if (length == 0) {
+            return "";
+        }
+        final String str = buf.toString(buf.readerIndex(), length, UTF_8);
+        buf.skipBytes(length);
+        return str;
+    }
+
+    /**
+     * Returns the number of the bytes of the UTF-8 representation of the specified {@link String}, or
+     * {@code -1} if the {@link String} contains a surrogate, whose encoding is left to {@link String}.
+     */
+    static int utf8Length(String str) {
+        final int length = str.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            final char c = str.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                utf8Length++;
+            } else if (Character.isSurrogate(c)) {
+                return -1;
+            } else {
+                utf8Length += 2;
+            }
+        }
+        return utf8Length;
+    }
+}
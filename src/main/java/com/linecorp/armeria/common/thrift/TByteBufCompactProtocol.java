@@ -0,0 +1,643 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.thrift;
+
+import static com.linecorp.armeria.common.thrift.TByteBufBinaryProtocol.checkLength;
+import static com.linecorp.armeria.common.thrift.TByteBufBinaryProtocol.ensureReadable;
+import static com.linecorp.armeria.common.thrift.TByteBufBinaryProtocol.utf8Length;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TMap;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolException;
+import org.apache.thrift.protocol.TSet;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.protocol.TType;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * The Thrift compact protocol which reads and writes the primitives directly from and to the
+ * {@link ByteBuf} of a {@link TByteBufTransport}. The wire format is identical to that of
+ * {@link org.apache.thrift.protocol.TCompactProtocol}.
+ */
+final class TByteBufCompactProtocol extends TProtocol {
+
+    private static final TStruct ANONYMOUS_STRUCT = new TStruct("");
+    private static final TField STOP_FIELD = new TField("", TType.STOP, (short) 0);
+
+    private static final byte PROTOCOL_ID = (byte) 0x82;
+    private static final byte VERSION = 1;
+    private static final byte VERSION_MASK = 0x1f;
+    private static final byte TYPE_MASK = (byte) 0xE0;
+    private static final byte TYPE_BITS = 0x07;
+    private static final int TYPE_SHIFT_AMOUNT = 5;
+
+    /**
+     * The types of the compact protocol, which differ from {@link TType}.
+     */
+    private static final byte CT_STOP = 0x00;
+    private static final byte CT_BOOLEAN_TRUE = 0x01;
+    private static final byte CT_BOOLEAN_FALSE = 0x02;
+    private static final byte CT_BYTE = 0x03;
+    private static final byte CT_I16 = 0x04;
+    private static final byte CT_I32 = 0x05;
+    private static final byte CT_I64 = 0x06;
+    private static final byte CT_DOUBLE = 0x07;
+    private static final byte CT_BINARY = 0x08;
+    private static final byte CT_LIST = 0x09;
+    private static final byte CT_SET = 0x0A;
+    private static final byte CT_MAP = 0x0B;
+    private static final byte CT_STRUCT = 0x0C;
+
+    private static final byte[] TTYPE_TO_COMPACT_TYPE = new byte[16];
+
+    static {
+        TTYPE_TO_COMPACT_TYPE[TType.STOP] = CT_STOP;
+        TTYPE_TO_COMPACT_TYPE[TType.BOOL] = CT_BOOLEAN_TRUE;
+        TTYPE_TO_COMPACT_TYPE[TType.BYTE] = CT_BYTE;
+        TTYPE_TO_COMPACT_TYPE[TType.I16] = CT_I16;
+        TTYPE_TO_COMPACT_TYPE[TType.I32] = CT_I32;
+        TTYPE_TO_COMPACT_TYPE[TType.I64] = CT_I64;
+        TTYPE_TO_COMPACT_TYPE[TType.DOUBLE] = CT_DOUBLE;
+        TTYPE_TO_COMPACT_TYPE[TType.STRING] = CT_BINARY;
+        TTYPE_TO_COMPACT_TYPE[TType.LIST] = CT_LIST;
+        TTYPE_TO_COMPACT_TYPE[TType.SET] = CT_SET;
+        TTYPE_TO_COMPACT_TYPE[TType.MAP] = CT_MAP;
+        TTYPE_TO_COMPACT_TYPE[TType.STRUCT] = CT_STRUCT;
+    }
+
+    private static final int INITIAL_LAST_FIELD_IDS_LENGTH = 16;
+    private static final int MAX_RETAINED_LAST_FIELD_IDS_LENGTH = 64;
+
+    private final TByteBufTransport trans;
+
+    /**
+     * The IDs of the last fields of the enclosing structs.
+     */
+    private short[] lastFieldIds = new short[INITIAL_LAST_FIELD_IDS_LENGTH];
+    private int depth;
+    private short lastFieldId;
+
+    /**
+     * The boolean field whose header is not written yet, because its value is encoded in the header.
+     */
+    private TField booleanField;
+
+    /**
+     * The value of the boolean field whose header has been read, or {@code -1} if there's no such field.
+     */
+    private byte booleanValue = -1;
+
+    TByteBufCompactProtocol(TByteBufTransport trans) {
+        super(trans);
+        this.trans = trans;
+    }
+
+    @Override
+    public void reset() {
+        if (lastFieldIds.length > MAX_RETAINED_LAST_FIELD_IDS_LENGTH) {
+            // Do not keep the stack grown by a deeply nested message, because a protocol is reused by a thread
+            // for a long time.
+            lastFieldIds = new short[INITIAL_LAST_FIELD_IDS_LENGTH];
+        }
+        depth = 0;
+        lastFieldId = 0;
+        booleanField = null;
+        booleanValue = -1;
+    }
+
+    /**
+     * Returns the number of the field IDs this protocol keeps for the enclosing structs.
+     */
+    int retainedBufferLength() {
+        return lastFieldIds.length;
+    }
+
+    // Write methods
+
+    @Override
+    public void writeMessageBegin(TMessage message) throws TException {
+        final ByteBuf buf = trans.buf();
+        buf.writeByte(PROTOCOL_ID);
+        buf.writeByte(VERSION & VERSION_MASK | (message.type << TYPE_SHIFT_AMOUNT) & TYPE_MASK);
+        writeVarint32(buf, message.seqid);
+        writeString(buf, message.name);
+    }
+
+    @Override
+    public void writeMessageEnd() {}
+
+    @Override
+    public void writeStructBegin(TStruct struct) {
+        pushLastFieldId();
+    }
+
+    @Override
+    public void writeStructEnd() {
+        popLastFieldId();
+    }
+
+    @Override
+    public void writeFieldBegin(TField field) throws TException {
+        if (field.type == TType.BOOL) {
+            // Write the header with the value in writeBool().
+            booleanField = field;
+        } else {
+            writeFieldBegin(trans.buf(), field, compactType(field.type));
+        }
+    }
+
+    private void writeFieldBegin(ByteBuf buf, TField field, byte compactType) {
+        final int delta = field.id - lastFieldId;
+        if (delta > 0 && delta <= 15) {
+            buf.writeByte((delta << 4) | compactType);
+        } else {
+            buf.writeByte(compactType);
+            writeVarint32(buf, intToZigZag(field.id));
+        }
+        lastFieldId = field.id;
+    }
+
+    @Override
+    public void writeFieldEnd() {}
+
+    @Override
+    public void writeFieldStop() throws TException {
+        trans.buf().writeByte(CT_STOP);
+    }
+
+    @Override
+    public void writeMapBegin(TMap map) throws TException {
+        final ByteBuf buf = trans.buf();
+        if (map.size == 0) {
+            buf.writeByte(0);
+        } else {
+            writeVarint32(buf, map.size);
+            buf.writeByte((compactType(map.keyType) << 4) | compactType(map.valueType));
+        }
+    }
+
+    @Override
+    public void writeMapEnd() {}
+
+    @Override
+    public void writeListBegin(TList list) throws TException {
+        writeCollectionBegin(trans.buf(), list.elemType, list.size);
+    }
+
+    @Override
+    public void writeListEnd() {}
+
+    @Override
+    public void writeSetBegin(TSet set) throws TException {
+        writeCollectionBegin(trans.buf(), set.elemType, set.size);
+    }
+
+    @Override
+    public void writeSetEnd() {}
+
+    private static void writeCollectionBegin(ByteBuf buf, byte elemType, int size) {
+        if (size <= 14) {
+            buf.writeByte((size << 4) | compactType(elemType));
+        } else {
+            buf.writeByte(0xf0 | compactType(elemType));
+            writeVarint32(buf, size);
+        }
+    }
+
+    @Override
+    public void writeBool(boolean b) throws TException {
+        final byte compactType = b ? CT_BOOLEAN_TRUE : CT_BOOLEAN_FALSE;
+        final TField booleanField = this.booleanField;
+        if (booleanField != null) {
+            this.booleanField = null;
+            writeFieldBegin(trans.buf(), booleanField, compactType);
+        } else {
+            // An element of a container.
+            trans.buf().writeByte(compactType);
+        }
+    }
+
+    @Override
+    public void writeByte(byte b) throws TException {
+        trans.buf().writeByte(b);
+    }
+
+    @Override
+    public void writeI16(short i16) throws TException {
+        writeVarint32(trans.buf(), intToZigZag(i16));
+    }
+
+    @Override
+    public void writeI32(int i32) throws TException {
+        writeVarint32(trans.buf(), intToZigZag(i32));
+    }
+
+    @Override
+    public void writeI64(long i64) throws TException {
+        writeVarint64(trans.buf(), longToZigZag(i64));
+    }
+
+    @Override
+    public void writeDouble(double dub) throws TException {
+        // The compact protocol writes a double in little endian.
+        trans.buf().writeLong(Long.reverseBytes(Double.doubleToLongBits(dub)));
+    }
+
+    @Override
+    public void writeString(String str) throws TException {
+        writeString(trans.buf(), str);
+    }
+
+    private static void writeString(ByteBuf buf, String str) {
+        final int length = utf8Length(str);
+        if (length >= 0) {
+            buf.ensureWritable(5 + length);
+            writeVarint32(buf, length);
+            ByteBufUtil.writeUtf8(buf, str);
+        } else {
+            final byte[] bytes = str.getBytes(UTF_8);
+            writeVarint32(buf, bytes.length);
+            buf.writeBytes(bytes);
+        }
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer bin) throws TException {
+        final ByteBuf buf = trans.buf();
+        writeVarint32(buf, bin.remaining());
+        buf.writeBytes(bin.duplicate());
+    }
+
+    /**
+     * Writes an unsigned varint, setting the bytes directly after ensuring the capacity only once.
+     */
+    private static void writeVarint32(ByteBuf buf, int n) {
+        if ((n & ~0x7F) == 0) {
+            buf.writeByte(n);
+            return;
+        }
+
+        buf.ensureWritable(5);
+        int idx = buf.writerIndex();
+        do {
+            buf.setByte(idx++, (n & 0x7F) | 0x80);
+            n >>>= 7;
+        } while ((n & ~0x7F) != 0);
+        buf.setByte(idx++, n);
+        buf.writerIndex(idx);
+    }
+
+    private static void writeVarint64(ByteBuf buf, long n) {
+        if ((n & ~0x7FL) == 0) {
+            buf.writeByte((int) n);
+            return;
+        }
+
+        buf.ensureWritable(10);
+        int idx = buf.writerIndex();
+        do {
+            buf.setByte(idx++, ((int) n & 0x7F) | 0x80);
+            n >>>= 7;
+        } while ((n & ~0x7FL) != 0);
+        buf.setByte(idx++, (int) n);
+        buf.writerIndex(idx);
+    }
+
+    // Read methods
+
+    @Override
+    public TMessage readMessageBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        ensureReadable(buf, 2);
+        final byte protocolId = buf.readByte();
+        if (protocolId != PROTOCOL_ID) {
+            throw new TProtocolException("Expected protocol id " + Integer.toHexString(PROTOCOL_ID) +
+                                         " but got " + Integer.toHexString(protocolId));
+        }
+        final byte versionAndType = buf.readByte();
+        final byte version = (byte) (versionAndType & VERSION_MASK);
+        if (version != VERSION) {
+            throw new TProtocolException("Expected version " + VERSION + " but got " + version);
+        }
+        final byte type = (byte) ((versionAndType >> TYPE_SHIFT_AMOUNT) & TYPE_BITS);
+        final int seqId = readVarint32(buf);
+        final String name = readString(buf);
+        return new TMessage(name, type, seqId);
+    }
+
+    @Override
+    public void readMessageEnd() {}
+
+    @Override
+    public TStruct readStructBegin() {
+        pushLastFieldId();
+        return ANONYMOUS_STRUCT;
+    }
+
+    @Override
+    public void readStructEnd() {
+        popLastFieldId();
+    }
+
+    @Override
+    public TField readFieldBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        ensureReadable(buf, 1);
+        final byte header = buf.readByte();
+        final byte compactType = (byte) (header & 0x0f);
+        if (compactType == CT_STOP) {
+            return STOP_FIELD;
+        }
+
+        final int delta = (header & 0xf0) >>> 4;
+        final short fieldId;
+        if (delta == 0) {
+            fieldId = (short) zigzagToInt(readVarint32(buf));
+        } else {
+            fieldId = (short) (lastFieldId + delta);
+        }
+
+        final TField field = new TField("", ttype(compactType), fieldId);
+        if (compactType == CT_BOOLEAN_TRUE || compactType == CT_BOOLEAN_FALSE) {
+            // The value of a boolean field is in its header.
+            booleanValue = compactType;
+        }
+        lastFieldId = fieldId;
+        return field;
+    }
+
+    @Override
+    public void readFieldEnd() {}
+
+    @Override
+    public TMap readMapBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        final int size = checkLength(buf, readVarint32(buf));
+        if (size == 0) {
+            return new TMap(TType.STOP, TType.STOP, 0);
+        }
+
+        ensureReadable(buf, 1);
+        final byte keyAndValueType = buf.readByte();
+        return new TMap(ttype((byte) (keyAndValueType >> 4)), ttype((byte) (keyAndValueType & 0x0f)), size);
+    }
+
+    @Override
+    public void readMapEnd() {}
+
+    @Override
+    public TList readListBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        ensureReadable(buf, 1);
+        final byte sizeAndType = buf.readByte();
+        int size = (sizeAndType >> 4) & 0x0f;
+        if (size == 15) {
+            size = readVarint32(buf);
+        }
+        return new TList(ttype(sizeAndType), checkLength(buf, size));
+    }
+
+    @Override
+    public void readListEnd() {}
+
+    @Override
+    public TSet readSetBegin() throws TException {
+        final TList list = readListBegin();
+        return new TSet(list.elemType, list.size);
+    }
+
+    @Override
+    public void readSetEnd() {}
+
+    @Override
+    public boolean readBool() throws TException {
+        final byte booleanValue = this.booleanValue;
+        if (booleanValue >= 0) {
+            this.booleanValue = -1;
+            return booleanValue == CT_BOOLEAN_TRUE;
+        }
+
+        // An element of a container.
+        final ByteBuf buf = trans.buf();
+        ensureReadable(buf, 1);
+        return buf.readByte() == CT_BOOLEAN_TRUE;
+    }
+
+    @Override
+    public byte readByte() throws TException {
+        final ByteBuf buf = trans.buf();
+        ensureReadable(buf, 1);
+        return buf.readByte();
+    }
+
+    @Override
+    public short readI16() throws TException {
+        return (short) zigzagToInt(readVarint32(trans.buf()));
+    }
+
+    @Override
+    public int readI32() throws TException {
+        return zigzagToInt(readVarint32(trans.buf()));
+    }
+
+    @Override
+    public long readI64() throws TException {
+        return zigzagToLong(readVarint64(trans.buf()));
+    }
+
+    @Override
+    public double readDouble() throws TException {
+        final ByteBuf buf = trans.buf();
+        ensureReadable(buf, 8);
+        return Double.longBitsToDouble(Long.reverseBytes(buf.readLong()));
+    }
+
+    @Override
+    public String readString() throws TException {
+        return readString(trans.buf());
+    }
+
+    private static String readString(ByteBuf buf) throws TException {
+        return TByteBufBinaryProtocol.readString(buf, checkLength(buf, readVarint32(buf)));
+    }
+
+    @Override
+    public ByteBuffer readBinary() throws TException {
+        final ByteBuf buf = trans.buf();
+        return TByteBufBinaryProtocol.readBinary(trans, buf, checkLength(buf, readVarint32(buf)));
+    }
+
+    /**
+     * Reads an unsigned varint. When the whole varint is guaranteed to be readable, the bytes are read with
+     * absolute indexes without checking the bounds of every byte.
+     */
+    private static int readVarint32(ByteBuf buf) throws TException {
+        final int readerIndex = buf.readerIndex();
+        if (buf.readableBytes() >= 5) {
+            int idx = readerIndex;
+            int b = buf.getByte(idx++);
+            int result = b & 0x7F;
+            if (b < 0) {
+                b = buf.getByte(idx++);
+                result |= (b & 0x7F) << 7;
+                if (b < 0) {
+                    b = buf.getByte(idx++);
+                    result |= (b & 0x7F) << 14;
+                    if (b < 0) {
+                        b = buf.getByte(idx++);
+                        result |= (b & 0x7F) << 21;
+                        if (b < 0) {
+                            b = buf.getByte(idx++);
+                            if (b < 0) {
+                                throw new TProtocolException(TProtocolException.INVALID_DATA,
+                                                             "malformed varint32");
+                            }
+                            result |= b << 28;
+                        }
+                    }
+                }
+            }
+            buf.readerIndex(idx);
+            return result;
+        }
+
+        // Near the end of the buffer.
+        int result = 0;
+        int shift = 0;
+        for (;;) {
+            ensureReadable(buf, 1);
+            final byte b = buf.readByte();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+            shift += 7;
+            if (shift > 28) {
+                throw new TProtocolException(TProtocolException.INVALID_DATA, "malformed varint32");
+            }
+        }
+    }
+
+    private static long readVarint64(ByteBuf buf) throws TException {
+        long result = 0;
+        int shift = 0;
+        if (buf.readableBytes() >= 10) {
+            int idx = buf.readerIndex();
+            for (;;) {
+                final byte b = buf.getByte(idx++);
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    buf.readerIndex(idx);
+                    return result;
+                }
+                shift += 7;
+                if (shift > 63) {
+                    throw new TProtocolException(TProtocolException.INVALID_DATA, "malformed varint64");
+                }
+            }
+        }
+
+        // Near the end of the buffer.
+        for (;;) {
+            ensureReadable(buf, 1);
+            final byte b = buf.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new TProtocolException(TProtocolException.INVALID_DATA, "malformed varint64");
+            }
+        }
+    }
+
+    private void pushLastFieldId() {
+        if (depth == lastFieldIds.length) {
+            final short[] newLastFieldIds = new short[depth << 1];
+            System.arraycopy(lastFieldIds, 0, newLastFieldIds, 0, depth);
+            lastFieldIds = newLastFieldIds;
+        }
+        lastFieldIds[depth++] = lastFieldId;
+        lastFieldId = 0;
+    }
+
+    private void popLastFieldId() {
+        lastFieldId = lastFieldIds[--depth];
+    }
+
+    private static byte compactType(byte ttype) {
+        return TTYPE_TO_COMPACT_TYPE[ttype];
+    }
+
+    private static byte ttype(byte compactType) throws TProtocolException {
+        switch ((byte) (compactType & 0x0f)) {
+        case CT_STOP:
+            return TType.STOP;
+        case CT_BOOLEAN_FALSE:
+        case CT_BOOLEAN_TRUE:
+            return TType.BOOL;
+        case CT_BYTE:
+            return TType.BYTE;
+        case CT_I16:
+            return TType.I16;
+        case CT_I32:
+            return TType.I32;
+        case CT_I64:
+            return TType.I64;
+        case CT_DOUBLE:
+            return TType.DOUBLE;
+        case CT_BINARY:
+            return TType.STRING;
+        case CT_LIST:
+            return TType.LIST;
+        case CT_SET:
+            return TType.SET;
+        case CT_MAP:
+            return TType.MAP;
+        case CT_STRUCT:
+            return TType.STRUCT;
+        default:
+            throw new TProtocolException("don't know what type: " + (byte) (compactType & 0x0f));
+        }
+    }
+
+    private static int intToZigZag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    private static long longToZigZag(long l) {
+        return (l << 1) ^ (l >> 63);
+    }
+
+    private static int zigzagToInt(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static long zigzagToLong(long n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+}
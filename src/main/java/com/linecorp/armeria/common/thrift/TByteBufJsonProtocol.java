@@ -0,0 +1,1035 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.thrift;
+
+import static com.linecorp.armeria.common.thrift.TByteBufBinaryProtocol.ensureReadable;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TMap;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolException;
+import org.apache.thrift.protocol.TSet;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.transport.TTransportException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * The Thrift JSON protocol which scans and writes the JSON text directly from and to the {@link ByteBuf}
+ * of a {@link TByteBufTransport}. The wire format is identical to that of
+ * {@link org.apache.thrift.protocol.TJSONProtocol} with the field IDs as the keys of a struct.
+ */
+final class TByteBufJsonProtocol extends TProtocol {
+
+    private static final int VERSION = 1;
+
+    private static final byte COMMA = ',';
+    private static final byte COLON = ':';
+    private static final byte LBRACE = '{';
+    private static final byte RBRACE = '}';
+    private static final byte LBRACKET = '[';
+    private static final byte RBRACKET = ']';
+    private static final byte QUOTE = '"';
+    private static final byte BACKSLASH = '\\';
+
+    /**
+     * How to escape the characters less than {@code 0x30}: {@code 0} for a hexadecimal escape sequence,
+     * {@code 1} for as is, or the character to write after a backslash.
+     */
+    private static final byte[] JSON_CHAR_TABLE = {
+            0, 0, 0, 0, 0, 0, 0, 0, 'b', 't', 'n', 0, 'f', 'r', 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 1, '"', 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+    };
+
+    private static final byte[] HEX_CHARS = "0123456789abcdef".getBytes(US_ASCII);
+
+    private static final byte[] BASE64_CHARS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(US_ASCII);
+
+    private static final byte[] BASE64_VALUES = new byte[256];
+
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        for (int i = 0; i < BASE64_CHARS.length; i++) {
+            BASE64_VALUES[BASE64_CHARS[i]] = (byte) i;
+        }
+    }
+
+    private static final byte[] NAME_BOOL = "tf".getBytes(US_ASCII);
+    private static final byte[] NAME_BYTE = "i8".getBytes(US_ASCII);
+    private static final byte[] NAME_I16 = "i16".getBytes(US_ASCII);
+    private static final byte[] NAME_I32 = "i32".getBytes(US_ASCII);
+    private static final byte[] NAME_I64 = "i64".getBytes(US_ASCII);
+    private static final byte[] NAME_DOUBLE = "dbl".getBytes(US_ASCII);
+    private static final byte[] NAME_STRUCT = "rec".getBytes(US_ASCII);
+    private static final byte[] NAME_STRING = "str".getBytes(US_ASCII);
+    private static final byte[] NAME_MAP = "map".getBytes(US_ASCII);
+    private static final byte[] NAME_LIST = "lst".getBytes(US_ASCII);
+    private static final byte[] NAME_SET = "set".getBytes(US_ASCII);
+
+    private static final TStruct ANONYMOUS_STRUCT = new TStruct();
+    private static final TField STOP_FIELD = new TField("", TType.STOP, (short) 0);
+
+    // The states of a JSON context, which correspond to the JSON*Context classes of TJSONProtocol.
+
+    /** The top level, which has no separators. */
+    private static final byte CONTEXT_BASE = 0;
+    /** An array before its first element. */
+    private static final byte CONTEXT_LIST_FIRST = 1;
+    /** An array after its first element, which precedes the next element with a comma. */
+    private static final byte CONTEXT_LIST = 2;
+    /** An object before its first key. */
+    private static final byte CONTEXT_PAIR_FIRST = 3;
+    /** An object after a key, which precedes the value with a colon. */
+    private static final byte CONTEXT_PAIR_KEY = 4;
+    /** An object after a value, which precedes the next key with a comma. */
+    private static final byte CONTEXT_PAIR_VALUE = 5;
+
+    private static final int INITIAL_CONTEXT_STACK_LENGTH = 16;
+    private static final int MAX_RETAINED_CONTEXT_STACK_LENGTH = 64;
+    private static final int INITIAL_TMPBUF_LENGTH = 32;
+    private static final int MAX_RETAINED_TMPBUF_LENGTH = 1024;
+
+    private final TByteBufTransport trans;
+
+    /**
+     * The states of the nested JSON contexts, whose first element is always {@link #CONTEXT_BASE}.
+     */
+    private byte[] contexts = new byte[INITIAL_CONTEXT_STACK_LENGTH];
+    private int depth;
+
+    /**
+     * The buffer for formatting an integer or decoding a string with escape sequences.
+     */
+    private byte[] tmpbuf = new byte[INITIAL_TMPBUF_LENGTH];
+
+    /**
+     * The length of the content of {@link #tmpbuf} decoded by {@link #unescape(ByteBuf)}.
+     */
+    private int tmpbufLength;
+
+    TByteBufJsonProtocol(TByteBufTransport trans) {
+        super(trans);
+        this.trans = trans;
+    }
+
+    @Override
+    public void reset() {
+        // Do not keep the buffers grown by a deeply nested message or a long escaped string, because
+        // a protocol is reused by a thread for a long time.
+        if (contexts.length > MAX_RETAINED_CONTEXT_STACK_LENGTH) {
+            contexts = new byte[INITIAL_CONTEXT_STACK_LENGTH];
+        }
+        if (tmpbuf.length > MAX_RETAINED_TMPBUF_LENGTH) {
+            tmpbuf = new byte[INITIAL_TMPBUF_LENGTH];
+        }
+        depth = 0;
+    }
+
+    /**
+     * Returns the number of the bytes this protocol keeps for decoding and encoding, besides its fields.
+     */
+    int retainedBufferLength() {
+        return contexts.length + tmpbuf.length;
+    }
+
+    // JSON contexts
+
+    private void pushContext(byte context) {
+        if (++depth == contexts.length) {
+            contexts = Arrays.copyOf(contexts, depth << 1);
+        }
+        contexts[depth] = context;
+    }
+
+    private void popContext() {
+        if (depth > 0) {
+            depth--;
+        }
+    }
+
+    /**
+     * Writes the separator which precedes the next value in the current context.
+     */
+    private void writeContext(ByteBuf buf) {
+        switch (contexts[depth]) {
+        case CONTEXT_LIST_FIRST:
+            contexts[depth] = CONTEXT_LIST;
+            break;
+        case CONTEXT_LIST:
+            buf.writeByte(COMMA);
+            break;
+        case CONTEXT_PAIR_FIRST:
+            contexts[depth] = CONTEXT_PAIR_KEY;
+            break;
+        case CONTEXT_PAIR_KEY:
+            buf.writeByte(COLON);
+            contexts[depth] = CONTEXT_PAIR_VALUE;
+            break;
+        case CONTEXT_PAIR_VALUE:
+            buf.writeByte(COMMA);
+            contexts[depth] = CONTEXT_PAIR_KEY;
+            break;
+        }
+    }
+
+    /**
+     * Reads the separator which precedes the next value in the current context.
+     */
+    private void readContext(ByteBuf buf) throws TException {
+        switch (contexts[depth]) {
+        case CONTEXT_LIST_FIRST:
+            contexts[depth] = CONTEXT_LIST;
+            break;
+        case CONTEXT_LIST:
+            readSyntaxChar(buf, COMMA);
+            break;
+        case CONTEXT_PAIR_FIRST:
+            contexts[depth] = CONTEXT_PAIR_KEY;
+            break;
+        case CONTEXT_PAIR_KEY:
+            readSyntaxChar(buf, COLON);
+            contexts[depth] = CONTEXT_PAIR_VALUE;
+            break;
+        case CONTEXT_PAIR_VALUE:
+            readSyntaxChar(buf, COMMA);
+            contexts[depth] = CONTEXT_PAIR_KEY;
+            break;
+        }
+    }
+
+    /**
+     * Returns whether a number must be quoted in the current context, i.e. whether it is the key of
+     * an object.
+     */
+    private boolean escapeNum() {
+        return contexts[depth] == CONTEXT_PAIR_KEY;
+    }
+
+    // Write methods
+
+    @Override
+    public void writeMessageBegin(TMessage message) throws TException {
+        final ByteBuf buf = trans.buf();
+        writeArrayStart(buf);
+        writeInteger(buf, VERSION);
+        writeString(buf, message.name);
+        writeInteger(buf, message.type);
+        writeInteger(buf, message.seqid);
+    }
+
+    @Override
+    public void writeMessageEnd() throws TException {
+        writeArrayEnd(trans.buf());
+    }
+
+    @Override
+    public void writeStructBegin(TStruct struct) throws TException {
+        writeObjectStart(trans.buf());
+    }
+
+    @Override
+    public void writeStructEnd() throws TException {
+        writeObjectEnd(trans.buf());
+    }
+
+    @Override
+    public void writeFieldBegin(TField field) throws TException {
+        final ByteBuf buf = trans.buf();
+        writeInteger(buf, field.id);
+        writeObjectStart(buf);
+        writeTypeName(buf, field.type);
+    }
+
+    @Override
+    public void writeFieldEnd() throws TException {
+        writeObjectEnd(trans.buf());
+    }
+
+    @Override
+    public void writeFieldStop() {}
+
+    @Override
+    public void writeMapBegin(TMap map) throws TException {
+        final ByteBuf buf = trans.buf();
+        writeArrayStart(buf);
+        writeTypeName(buf, map.keyType);
+        writeTypeName(buf, map.valueType);
+        writeInteger(buf, map.size);
+        writeObjectStart(buf);
+    }
+
+    @Override
+    public void writeMapEnd() throws TException {
+        final ByteBuf buf = trans.buf();
+        writeObjectEnd(buf);
+        writeArrayEnd(buf);
+    }
+
+    @Override
+    public void writeListBegin(TList list) throws TException {
+        writeSequenceBegin(list.elemType, list.size);
+    }
+
+    @Override
+    public void writeListEnd() throws TException {
+        writeArrayEnd(trans.buf());
+    }
+
+    @Override
+    public void writeSetBegin(TSet set) throws TException {
+        writeSequenceBegin(set.elemType, set.size);
+    }
+
+    @Override
+    public void writeSetEnd() throws TException {
+        writeArrayEnd(trans.buf());
+    }
+
+    private void writeSequenceBegin(byte elemType, int size) throws TException {
+        final ByteBuf buf = trans.buf();
+        writeArrayStart(buf);
+        writeTypeName(buf, elemType);
+        writeInteger(buf, size);
+    }
+
+    @Override
+    public void writeBool(boolean b) throws TException {
+        writeInteger(trans.buf(), b ? 1 : 0);
+    }
+
+    @Override
+    public void writeByte(byte b) throws TException {
+        writeInteger(trans.buf(), b);
+    }
+
+    @Override
+    public void writeI16(short i16) throws TException {
+        writeInteger(trans.buf(), i16);
+    }
+
+    @Override
+    public void writeI32(int i32) throws TException {
+        writeInteger(trans.buf(), i32);
+    }
+
+    @Override
+    public void writeI64(long i64) throws TException {
+        writeInteger(trans.buf(), i64);
+    }
+
+    @Override
+    public void writeDouble(double dub) throws TException {
+        final ByteBuf buf = trans.buf();
+        writeContext(buf);
+
+        final String str = Double.toString(dub);
+        // NaN and (-)Infinity are not valid JSON numbers.
+        final char firstChar = str.charAt(0);
+        final boolean escapeNum = firstChar == 'N' || firstChar == 'I' ||
+                                  (firstChar == '-' && str.charAt(1) == 'I') ||
+                                  escapeNum();
+        if (escapeNum) {
+            buf.writeByte(QUOTE);
+        }
+        final int length = str.length();
+        buf.ensureWritable(length);
+        for (int i = 0; i < length; i++) {
+            buf.writeByte(str.charAt(i));
+        }
+        if (escapeNum) {
+            buf.writeByte(QUOTE);
+        }
+    }
+
+    @Override
+    public void writeString(String str) throws TException {
+        writeString(trans.buf(), str);
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer bin) throws TException {
+        final ByteBuf buf = trans.buf();
+        writeContext(buf);
+
+        int length = bin.remaining();
+        buf.ensureWritable(2 + (length + 2) / 3 * 4);
+        buf.writeByte(QUOTE);
+        // Encode without padding, as TJSONProtocol does.
+        int i = bin.position();
+        for (; length >= 3; length -= 3, i += 3) {
+            final int b0 = bin.get(i) & 0xFF;
+            final int b1 = bin.get(i + 1) & 0xFF;
+            final int b2 = bin.get(i + 2) & 0xFF;
+            buf.writeByte(BASE64_CHARS[b0 >>> 2]);
+            buf.writeByte(BASE64_CHARS[(b0 << 4 | b1 >>> 4) & 0x3F]);
+            buf.writeByte(BASE64_CHARS[(b1 << 2 | b2 >>> 6) & 0x3F]);
+            buf.writeByte(BASE64_CHARS[b2 & 0x3F]);
+        }
+        if (length > 0) {
+            final int b0 = bin.get(i) & 0xFF;
+            final int b1 = length > 1 ? bin.get(i + 1) & 0xFF : 0;
+            buf.writeByte(BASE64_CHARS[b0 >>> 2]);
+            buf.writeByte(BASE64_CHARS[(b0 << 4 | b1 >>> 4) & 0x3F]);
+            if (length > 1) {
+                buf.writeByte(BASE64_CHARS[b1 << 2 & 0x3F]);
+            }
+        }
+        buf.writeByte(QUOTE);
+    }
+
+    private void writeObjectStart(ByteBuf buf) {
+        writeContext(buf);
+        buf.writeByte(LBRACE);
+        pushContext(CONTEXT_PAIR_FIRST);
+    }
+
+    private void writeObjectEnd(ByteBuf buf) {
+        popContext();
+        buf.writeByte(RBRACE);
+    }
+
+    private void writeArrayStart(ByteBuf buf) {
+        writeContext(buf);
+        buf.writeByte(LBRACKET);
+        pushContext(CONTEXT_LIST_FIRST);
+    }
+
+    private void writeArrayEnd(ByteBuf buf) {
+        popContext();
+        buf.writeByte(RBRACKET);
+    }
+
+    private void writeInteger(ByteBuf buf, long num) {
+        writeContext(buf);
+
+        final boolean escapeNum = escapeNum();
+        if (escapeNum) {
+            buf.writeByte(QUOTE);
+        }
+
+        // Format the digits backwards without allocating a String.
+        final byte[] tmpbuf = this.tmpbuf;
+        int i = tmpbuf.length;
+        long n = num;
+        do {
+            // n % 10 is negative if n is negative, which also works for Long.MIN_VALUE.
+            tmpbuf[--i] = (byte) ('0' + Math.abs(n % 10));
+            n /= 10;
+        } while (n != 0);
+        if (num < 0) {
+            tmpbuf[--i] = '-';
+        }
+        buf.writeBytes(tmpbuf, i, tmpbuf.length - i);
+
+        if (escapeNum) {
+            buf.writeByte(QUOTE);
+        }
+    }
+
+    /**
+     * Writes the specified {@link String} as a JSON string, escaping its UTF-8 representation with
+     * the same rules as TJSONProtocol without encoding it into a temporary array.
+     */
+    private void writeString(ByteBuf buf, String str) {
+        writeContext(buf);
+
+        final int length = str.length();
+        buf.ensureWritable(length + 2);
+        buf.writeByte(QUOTE);
+        for (int i = 0; i < length; i++) {
+            final char c = str.charAt(i);
+            if (c < 0x30) {
+                final byte escape = JSON_CHAR_TABLE[c];
+                if (escape == 1) {
+                    buf.writeByte(c);
+                } else if (escape > 1) {
+                    buf.writeByte(BACKSLASH);
+                    buf.writeByte(escape);
+                } else {
+                    buf.writeByte(BACKSLASH);
+                    buf.writeByte('u');
+                    buf.writeByte('0');
+                    buf.writeByte('0');
+                    buf.writeByte(HEX_CHARS[c >>> 4]);
+                    buf.writeByte(HEX_CHARS[c & 0xF]);
+                }
+            } else if (c < 0x80) {
+                if (c == BACKSLASH) {
+                    buf.writeByte(BACKSLASH);
+                }
+                buf.writeByte(c);
+            } else if (c < 0x800) {
+                buf.writeByte(0xC0 | c >>> 6);
+                buf.writeByte(0x80 | c & 0x3F);
+            } else if (!Character.isSurrogate(c)) {
+                buf.writeByte(0xE0 | c >>> 12);
+                buf.writeByte(0x80 | c >>> 6 & 0x3F);
+                buf.writeByte(0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                       Character.isLowSurrogate(str.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, str.charAt(++i));
+                buf.writeByte(0xF0 | codePoint >>> 18);
+                buf.writeByte(0x80 | codePoint >>> 12 & 0x3F);
+                buf.writeByte(0x80 | codePoint >>> 6 & 0x3F);
+                buf.writeByte(0x80 | codePoint & 0x3F);
+            } else {
+                // A malformed surrogate, which String.getBytes() replaces with '?'.
+                buf.writeByte('?');
+            }
+        }
+        buf.writeByte(QUOTE);
+    }
+
+    private void writeTypeName(ByteBuf buf, byte type) throws TException {
+        final byte[] name = typeName(type);
+        writeContext(buf);
+        buf.ensureWritable(name.length + 2);
+        buf.writeByte(QUOTE);
+        buf.writeBytes(name);
+        buf.writeByte(QUOTE);
+    }
+
+    private static byte[] typeName(byte type) throws TException {
+        switch (type) {
+        case TType.BOOL:
+            return NAME_BOOL;
+        case TType.BYTE:
+            return NAME_BYTE;
+        case TType.I16:
+            return NAME_I16;
+        case TType.I32:
+            return NAME_I32;
+        case TType.I64:
+            return NAME_I64;
+        case TType.DOUBLE:
+            return NAME_DOUBLE;
+        case TType.STRING:
+            return NAME_STRING;
+        case TType.STRUCT:
+            return NAME_STRUCT;
+        case TType.MAP:
+            return NAME_MAP;
+        case TType.SET:
+            return NAME_SET;
+        case TType.LIST:
+            return NAME_LIST;
+        default:
+            throw new TProtocolException(TProtocolException.NOT_IMPLEMENTED, "Unrecognized type");
+        }
+    }
+
+    // Read methods
+
+    @Override
+    public TMessage readMessageBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        readArrayStart(buf);
+        if (readInteger(buf) != VERSION) {
+            throw new TProtocolException(TProtocolException.BAD_VERSION, "Message contained bad version.");
+        }
+        final String name = readString(buf);
+        final byte type = (byte) readInteger(buf);
+        final int seqId = (int) readInteger(buf);
+        return new TMessage(name, type, seqId);
+    }
+
+    @Override
+    public void readMessageEnd() throws TException {
+        readArrayEnd(trans.buf());
+    }
+
+    @Override
+    public TStruct readStructBegin() throws TException {
+        readObjectStart(trans.buf());
+        return ANONYMOUS_STRUCT;
+    }
+
+    @Override
+    public void readStructEnd() throws TException {
+        readObjectEnd(trans.buf());
+    }
+
+    @Override
+    public TField readFieldBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        ensureReadable(buf, 1);
+        if (buf.getByte(buf.readerIndex()) == RBRACE) {
+            return STOP_FIELD;
+        }
+
+        final short id = (short) readInteger(buf);
+        readObjectStart(buf);
+        return new TField("", readTypeName(buf), id);
+    }
+
+    @Override
+    public void readFieldEnd() throws TException {
+        readObjectEnd(trans.buf());
+    }
+
+    @Override
+    public TMap readMapBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        readArrayStart(buf);
+        final byte keyType = readTypeName(buf);
+        final byte valueType = readTypeName(buf);
+        final int size = (int) readInteger(buf);
+        readObjectStart(buf);
+        return new TMap(keyType, valueType, size);
+    }
+
+    @Override
+    public void readMapEnd() throws TException {
+        final ByteBuf buf = trans.buf();
+        readObjectEnd(buf);
+        readArrayEnd(buf);
+    }
+
+    @Override
+    public TList readListBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        readArrayStart(buf);
+        final byte elemType = readTypeName(buf);
+        return new TList(elemType, (int) readInteger(buf));
+    }
+
+    @Override
+    public void readListEnd() throws TException {
+        readArrayEnd(trans.buf());
+    }
+
+    @Override
+    public TSet readSetBegin() throws TException {
+        final ByteBuf buf = trans.buf();
+        readArrayStart(buf);
+        final byte elemType = readTypeName(buf);
+        return new TSet(elemType, (int) readInteger(buf));
+    }
+
+    @Override
+    public void readSetEnd() throws TException {
+        readArrayEnd(trans.buf());
+    }
+
+    @Override
+    public boolean readBool() throws TException {
+        return readInteger(trans.buf()) != 0;
+    }
+
+    @Override
+    public byte readByte() throws TException {
+        return (byte) readInteger(trans.buf());
+    }
+
+    @Override
+    public short readI16() throws TException {
+        return (short) readInteger(trans.buf());
+    }
+
+    @Override
+    public int readI32() throws TException {
+        return (int) readInteger(trans.buf());
+    }
+
+    @Override
+    public long readI64() throws TException {
+        return readInteger(trans.buf());
+    }
+
+    @Override
+    public double readDouble() throws TException {
+        final ByteBuf buf = trans.buf();
+        readContext(buf);
+
+        ensureReadable(buf, 1);
+        if (buf.getByte(buf.readerIndex()) == QUOTE) {
+            final double dub = parseDouble(readStringContent(buf));
+            if (!escapeNum() && !Double.isNaN(dub) && !Double.isInfinite(dub)) {
+                throw new TProtocolException(TProtocolException.INVALID_DATA,
+                                             "Numeric data unexpectedly quoted");
+            }
+            return dub;
+        }
+
+        if (escapeNum()) {
+            // Throws an exception because the next character is not a quote.
+            readSyntaxChar(buf, QUOTE);
+        }
+        final int length = numericLength(buf);
+        final String str = buf.toString(buf.readerIndex(), length, US_ASCII);
+        buf.skipBytes(length);
+        return parseDouble(str);
+    }
+
+    @Override
+    public String readString() throws TException {
+        return readString(trans.buf());
+    }
+
+    @Override
+    public ByteBuffer readBinary() throws TException {
+        final ByteBuf buf = trans.buf();
+        readContext(buf);
+        readSyntaxChar(buf, QUOTE);
+
+        final int length = buf.bytesBefore(QUOTE);
+        if (length < 0 || buf.bytesBefore(length, BACKSLASH) >= 0) {
+            // Base64 never needs an escape sequence, but TJSONProtocol accepts one.
+            final byte[] unescaped = unescape(buf);
+            return ByteBuffer.wrap(decodeBase64(Unpooled.wrappedBuffer(unescaped), 0, tmpbufLength));
+        }
+
+        final byte[] decoded = decodeBase64(buf, buf.readerIndex(), length);
+        buf.skipBytes(length + 1);
+        return ByteBuffer.wrap(decoded);
+    }
+
+    private void readObjectStart(ByteBuf buf) throws TException {
+        readContext(buf);
+        readSyntaxChar(buf, LBRACE);
+        pushContext(CONTEXT_PAIR_FIRST);
+    }
+
+    private void readObjectEnd(ByteBuf buf) throws TException {
+        readSyntaxChar(buf, RBRACE);
+        popContext();
+    }
+
+    private void readArrayStart(ByteBuf buf) throws TException {
+        readContext(buf);
+        readSyntaxChar(buf, LBRACKET);
+        pushContext(CONTEXT_LIST_FIRST);
+    }
+
+    private void readArrayEnd(ByteBuf buf) throws TException {
+        readSyntaxChar(buf, RBRACKET);
+        popContext();
+    }
+
+    private static void readSyntaxChar(ByteBuf buf, byte expected) throws TException {
+        ensureReadable(buf, 1);
+        final byte ch = buf.readByte();
+        if (ch != expected) {
+            throw new TProtocolException(TProtocolException.INVALID_DATA,
+                                         "Unexpected character:" + (char) ch);
+        }
+    }
+
+    /**
+     * Reads a JSON integer, decoding the digits directly from the {@link ByteBuf}.
+     */
+    private long readInteger(ByteBuf buf) throws TException {
+        readContext(buf);
+        final boolean escapeNum = escapeNum();
+        if (escapeNum) {
+            readSyntaxChar(buf, QUOTE);
+        }
+
+        final int start = buf.readerIndex();
+        final int length = numericLength(buf);
+        final long num = parseLong(buf, start, length);
+        buf.skipBytes(length);
+
+        if (escapeNum) {
+            readSyntaxChar(buf, QUOTE);
+        }
+        return num;
+    }
+
+    /**
+     * Returns the number of the characters that may be a part of a JSON number from the current reader
+     * index of the specified {@link ByteBuf}.
+     */
+    private static int numericLength(ByteBuf buf) {
+        final int start = buf.readerIndex();
+        final int end = buf.writerIndex();
+        int i = start;
+        for (; i < end; i++) {
+            switch (buf.getByte(i)) {
+            case '+':
+            case '-':
+            case '.':
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+            case 'E':
+            case 'e':
+                continue;
+            }
+            break;
+        }
+        return i - start;
+    }
+
+    /**
+     * Parses the decimal integer in the specified range, accepting the same input as
+     * {@link Long#parseLong(String)}.
+     */
+    private static long parseLong(ByteBuf buf, int start, int length) throws TProtocolException {
+        if (length == 0) {
+            throw badNumericData();
+        }
+
+        final int end = start + length;
+        int i = start;
+        final byte first = buf.getByte(i);
+        final boolean negative = first == '-';
+        if (negative || first == '+') {
+            if (++i == end) {
+                throw badNumericData();
+            }
+        }
+
+        // Accumulate negatively so that Long.MIN_VALUE does not overflow.
+        final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        final long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            final int digit = buf.getByte(i) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw badNumericData();
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw badNumericData();
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private static double parseDouble(String str) throws TProtocolException {
+        try {
+            return Double.parseDouble(str);
+        } catch (NumberFormatException e) {
+            throw badNumericData();
+        }
+    }
+
+    private static TProtocolException badNumericData() {
+        return new TProtocolException(TProtocolException.INVALID_DATA, "Bad data encounted in numeric data");
+    }
+
+    /**
+     * Reads a JSON string, decoding it directly from the {@link ByteBuf} unless it has an escape sequence.
+     */
+    private String readString(ByteBuf buf) throws TException {
+        readContext(buf);
+        return readStringContent(buf);
+    }
+
+    private String readStringContent(ByteBuf buf) throws TException {
+        readSyntaxChar(buf, QUOTE);
+
+        final int end = buf.bytesBefore(QUOTE);
+        if (end >= 0 && buf.bytesBefore(end, BACKSLASH) < 0) {
+            final String str = end != 0 ? buf.toString(buf.readerIndex(), end, UTF_8) : "";
+            buf.skipBytes(end + 1);
+            return str;
+        }
+
+        return new String(unescape(buf), 0, tmpbufLength, UTF_8);
+    }
+
+    /**
+     * Decodes the content of a JSON string with escape sequences into {@link #tmpbuf} up to the closing
+     * quote. Only the escape sequences written by TJSONProtocol are recognized, i.e. a hexadecimal escape
+     * sequence must start with {@code 00} and is a byte rather than a UTF-16 code unit.
+     *
+     * @return {@link #tmpbuf}, whose first {@link #tmpbufLength} bytes are the decoded content
+     */
+    private byte[] unescape(ByteBuf buf) throws TException {
+        byte[] tmpbuf = this.tmpbuf;
+        int length = 0;
+        for (;;) {
+            ensureReadable(buf, 1);
+            byte ch = buf.readByte();
+            if (ch == QUOTE) {
+                break;
+            }
+            if (ch == BACKSLASH) {
+                ensureReadable(buf, 1);
+                ch = buf.readByte();
+                switch (ch) {
+                case 'u':
+                    readSyntaxChar(buf, (byte) '0');
+                    readSyntaxChar(buf, (byte) '0');
+                    ensureReadable(buf, 2);
+                    ch = (byte) (hexVal(buf.readByte()) << 4 | hexVal(buf.readByte()));
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    break;
+                case 'b':
+                    ch = '\b';
+                    break;
+                case 'f':
+                    ch = '\f';
+                    break;
+                case 'n':
+                    ch = '\n';
+                    break;
+                case 'r':
+                    ch = '\r';
+                    break;
+                case 't':
+                    ch = '\t';
+                    break;
+                default:
+                    throw new TProtocolException(TProtocolException.INVALID_DATA, "Expected control char");
+                }
+            }
+
+            if (length == tmpbuf.length) {
+                tmpbuf = this.tmpbuf = Arrays.copyOf(tmpbuf, length << 1);
+            }
+            tmpbuf[length++] = ch;
+        }
+        tmpbufLength = length;
+        return tmpbuf;
+    }
+
+    private static int hexVal(byte ch) throws TProtocolException {
+        if (ch >= '0' && ch <= '9') {
+            return ch - '0';
+        }
+        if (ch >= 'a' && ch <= 'f') {
+            return ch - 'a' + 10;
+        }
+        if (ch >= 'A' && ch <= 'F') {
+            return ch - 'A' + 10;
+        }
+        throw new TProtocolException(TProtocolException.INVALID_DATA, "Expected hex character");
+    }
+
+    /**
+     * Reads a type name such as {@code "i32"} without decoding it into a {@link String}.
+     */
+    private byte readTypeName(ByteBuf buf) throws TException {
+        readContext(buf);
+        readSyntaxChar(buf, QUOTE);
+
+        final int length = buf.bytesBefore(QUOTE);
+        if (length < 0) {
+            throw new TTransportException(TTransportException.END_OF_FILE, "unexpected end of frame");
+        }
+
+        final int start = buf.readerIndex();
+        final byte type = typeId(length > 0 ? buf.getByte(start) : 0,
+                                 length > 1 ? buf.getByte(start + 1) : 0);
+        buf.skipBytes(length + 1);
+        return type;
+    }
+
+    /**
+     * Returns the type for the first two characters of a type name, as TJSONProtocol does.
+     */
+    private static byte typeId(byte ch0, byte ch1) throws TException {
+        switch (ch0) {
+        case 'd':
+            return TType.DOUBLE;
+        case 'i':
+            switch (ch1) {
+            case '8':
+                return TType.BYTE;
+            case '1':
+                return TType.I16;
+            case '3':
+                return TType.I32;
+            case '6':
+                return TType.I64;
+            }
+            break;
+        case 'l':
+            return TType.LIST;
+        case 'm':
+            return TType.MAP;
+        case 'r':
+            return TType.STRUCT;
+        case 's':
+            if (ch1 == 't') {
+                return TType.STRING;
+            }
+            if (ch1 == 'e') {
+                return TType.SET;
+            }
+            break;
+        case 't':
+            return TType.BOOL;
+        }
+        throw new TProtocolException(TProtocolException.NOT_IMPLEMENTED, "Unrecognized type");
+    }
+
+    /**
+     * Decodes the base64 text in the specified range directly from the {@link ByteBuf}, ignoring the
+     * padding. Like TJSONProtocol, this never fails but yields garbage for an invalid input, because
+     * {@link org.apache.thrift.protocol.TProtocolUtil#skip(TProtocol, byte)} reads any string as a binary.
+     */
+    private static byte[] decodeBase64(ByteBuf src, int offset, int length) {
+        for (int i = 0; i < 2 && length > 0 && src.getByte(offset + length - 1) == '='; i++) {
+            length--;
+        }
+
+        final int remainder = length & 3;
+        final byte[] dst = new byte[length / 4 * 3 + (remainder > 1 ? remainder - 1 : 0)];
+        int i = offset;
+        int j = 0;
+        for (final int end = offset + length - remainder; i < end; i += 4) {
+            final int v0 = base64Value(src, i);
+            final int v1 = base64Value(src, i + 1);
+            final int v2 = base64Value(src, i + 2);
+            dst[j++] = (byte) (v0 << 2 | v1 >> 4);
+            dst[j++] = (byte) (v1 << 4 & 0xF0 | v2 >> 2);
+            dst[j++] = (byte) (v2 << 6 & 0xC0 | base64Value(src, i + 3));
+        }
+        if (remainder > 1) {
+            final int v1 = base64Value(src, i + 1);
+            dst[j++] = (byte) (base64Value(src, i) << 2 | v1 >> 4);
+            if (remainder > 2) {
+                dst[j] = (byte) (v1 << 4 & 0xF0 | base64Value(src, i + 2) >> 2);
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * Returns the 6-bit value of the base64 character at the specified index, or {@code -1} if invalid.
+     */
+    private static int base64Value(ByteBuf src, int index) {
+        return BASE64_VALUES[src.getByte(index) & 0xFF];
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2015 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.thrift;
+
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A {@link TTransport} which reads from and writes to a {@link ByteBuf}. The {@link ThriftProtocolFactories}
+ * create the {@link org.apache.thrift.protocol.TProtocol}s which access the {@link ByteBuf} directly for
+ * this transport, rather than going through the byte array based methods of {@link TTransport}.
+ *
+ * <p>This class is used internally by the Thrift client and service implementations of Armeria and thus
+ * you should not need to use it.</p>
+ */
+public final class TByteBufTransport extends TTransport {
+
+    private ByteBuf buf;
+    private boolean zeroCopyBinary;
+
+    /**
+     * Creates a new instance which has no {@link ByteBuf}. {@link #reset(ByteBuf)} must be called before
+     * using it.
+     */
+    public TByteBufTransport() {}
+
+    /**
+     * Creates a new instance which reads from and writes to the specified {@link ByteBuf}.
+     */
+    public TByteBufTransport(ByteBuf buf) {
+        this.buf = buf;
+    }
+
+    /**
+     * Creates a new instance which reads from and writes to the specified {@link ByteBuf}.
+     *
+     * @param zeroCopyBinary whether the {@link org.apache.thrift.protocol.TProtocol}s created by
+     *                       {@link ThriftProtocolFactories} read a {@code binary} value as a read-only
+     *                       {@link java.nio.ByteBuffer} which shares the memory of the {@link ByteBuf}.
+     *                       The caller must keep the {@link ByteBuf} alive while the value is in use.
+     */
+    public TByteBufTransport(ByteBuf buf, boolean zeroCopyBinary) {
+        this.buf = buf;
+        this.zeroCopyBinary = zeroCopyBinary;
+    }
+
+    /**
+     * Returns the {@link ByteBuf} this transport reads from and writes to.
+     */
+    public ByteBuf buf() {
+        return buf;
+    }
+
+    /**
+     * Makes this transport read from and write to the specified {@link ByteBuf}.
+     */
+    public void reset(ByteBuf buf) {
+        reset(buf, false);
+    }
+
+    /**
+     * Makes this transport read from and write to the specified {@link ByteBuf}.
+     *
+     * @param zeroCopyBinary whether a {@code binary} value is read as a read-only
+     *                       {@link java.nio.ByteBuffer} which shares the memory of the {@link ByteBuf}
+     *
+     * @see #TByteBufTransport(ByteBuf, boolean)
+     */
+    public void reset(ByteBuf buf, boolean zeroCopyBinary) {
+        this.buf = buf;
+        this.zeroCopyBinary = zeroCopyBinary;
+    }
+
+    /**
+     * Returns whether a {@code binary} value is read as a read-only {@link java.nio.ByteBuffer} which
+     * shares the memory of the {@link ByteBuf} of this transport.
+     */
+    public boolean isZeroCopyBinary() {
+        return zeroCopyBinary;
+    }
+
+    /**
+     * Releases the reference to the {@link ByteBuf} of this transport.
+     */
+    public void clear() {
+        buf = null;
+        zeroCopyBinary = false;
+    }
+
+    @Override
+    public void close() { }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void open() { }
+
+    @Override
+    public int read(byte[] buf, int off, int len) {
+        int bytesRemaining = this.buf.readableBytes();
+        int amtToRead = len > bytesRemaining ? bytesRemaining : len;
+        if (amtToRead > 0) {
+            this.buf.readBytes(buf, off, amtToRead);
+        }
+        return amtToRead;
+    }
+
+    @Override
+    public int readAll(byte[] buf, int off, int len) throws TTransportException {
+        int bytesRemaining = this.buf.readableBytes();
+        if (len > bytesRemaining) {
+            throw new TTransportException("unexpected end of frame");
+        }
+
+        this.buf.readBytes(buf, off, len);
+        return len;
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) {
+        this.buf.writeBytes(buf, off, len);
+    }
+
+    @Override
+    public byte[] getBuffer() {
+        ByteBuf buf = this.buf;
+        if (buf == null || !buf.hasArray())  {
+            return null;
+        } else {
+            return buf.array();
+        }
+    }
+
+    @Override
+    public int getBufferPosition() {
+        ByteBuf buf = this.buf;
+        if (buf == null || !buf.hasArray())  {
+            return 0;
+        } else {
+            return buf.arrayOffset() + buf.readerIndex();
+        }
+    }
+
+    @Override
+    public int getBytesRemainingInBuffer() {
+        ByteBuf buf = this.buf;
+        if (buf.hasArray()) {
+            return buf.readableBytes();
+        } else {
+            return -1;
+        }
+    }
+
+    @Override
+    public void consumeBuffer(int len) {
+        buf.skipBytes(len);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.thrift;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TBase;
+
+import com.linecorp.armeria.common.SessionProtocol;
+
+import io.netty.util.AsciiString;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * A Thrift call whose arguments and result are handed over between a client and a server in the same JVM
+ * without serialization. A client registers a call with the deep copy of its arguments and sends only
+ * the ID of the call in the {@link #HEADER_NAME} header over {@link SessionProtocol#LOCAL}. The server
+ * {@linkplain #take(CharSequence) takes} the call, invokes the service with the arguments, and then
+ * {@linkplain #complete(TBase) completes} the call with the deep copy of its result.
+ *
+ * <p>This class is used internally by the Thrift client and service implementations of Armeria and thus
+ * you should not need to use it.</p>
+ */
+public final class ThriftInProcessCall {
+
+    /**
+     * The name of the HTTP header which contains the ID of an in-process call.
+     */
+    public static final AsciiString HEADER_NAME = AsciiString.of("armeria-thrift-in-process-call");
+
+    private static final ConcurrentMap<Long, ThriftInProcessCall> pendingCalls =
+            PlatformDependent.newConcurrentHashMap();
+
+    private static final AtomicLong nextId = new AtomicLong();
+
+    /**
+     * Registers a new call with the specified arguments, so that a server in the same JVM can
+     * {@linkplain #take(CharSequence) take} it. The specified {@code args} must not be shared with
+     * the caller.
+     */
+    public static ThriftInProcessCall register(String methodName, byte messageType, int seqId,
+                                               TBase<?, ?> args) {
+        final ThriftInProcessCall call =
+                new ThriftInProcessCall(nextId.incrementAndGet(), methodName, messageType, seqId, args);
+        pendingCalls.put(call.id, call);
+        return call;
+    }
+
+    /**
+     * Removes the call of the specified ID from the registry.
+     *
+     * @return the removed call, or {@code null} if there is no such call or the ID is malformed
+     */
+    public static ThriftInProcessCall take(CharSequence id) {
+        requireNonNull(id, "id");
+        final long longId;
+        try {
+            longId = Long.parseLong(id.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        return pendingCalls.remove(longId);
+    }
+
+    /**
+     * Returns the number of the calls which have been registered but neither taken nor unregistered yet.
+     */
+    public static int pendingCalls() {
+        return pendingCalls.size();
+    }
+
+    private final long id;
+    private final String methodName;
+    private final byte messageType;
+    private final int seqId;
+    private final TBase<?, ?> args;
+    private volatile TBase<?, ?> result;
+    private volatile TApplicationException exception;
+
+    private ThriftInProcessCall(long id, String methodName, byte messageType, int seqId, TBase<?, ?> args) {
+        this.id = id;
+        this.methodName = requireNonNull(methodName, "methodName");
+        this.messageType = messageType;
+        this.seqId = seqId;
+        this.args = requireNonNull(args, "args");
+    }
+
+    /**
+     * Returns the ID of this call, which is sent in the {@link #HEADER_NAME} header.
+     */
+    public String id() {
+        return Long.toString(id);
+    }
+
+    /**
+     * Returns the name of the invoked method.
+     */
+    public String methodName() {
+        return methodName;
+    }
+
+    /**
+     * Returns the {@link org.apache.thrift.protocol.TMessageType} of this call.
+     */
+    public byte messageType() {
+        return messageType;
+    }
+
+    /**
+     * Returns the sequence ID of this call.
+     */
+    public int seqId() {
+        return seqId;
+    }
+
+    /**
+     * Returns the arguments of this call.
+     */
+    public TBase<?, ?> args() {
+        return args;
+    }
+
+    /**
+     * Returns the result of this call, or {@code null} if this call has not been
+     * {@linkplain #complete(TBase) completed} with a result.
+     */
+    public TBase<?, ?> result() {
+        return result;
+    }
+
+    /**
+     * Returns the exception of this call, or {@code null} if this call has not been
+     * {@linkplain #fail(TApplicationException) failed}.
+     */
+    public TApplicationException exception() {
+        return exception;
+    }
+
+    /**
+     * Completes this call with the specified result. The specified {@code result} must not be shared with
+     * the service.
+     */
+    public void complete(TBase<?, ?> result) {
+        this.result = requireNonNull(result, "result");
+    }
+
+    /**
+     * Fails this call with the specified {@link TApplicationException}.
+     */
+    public void fail(TApplicationException exception) {
+        this.exception = requireNonNull(exception, "exception");
+    }
+
+    /**
+     * Removes this call from the registry if it has not been {@linkplain #take(CharSequence) taken} yet.
+     */
+    public void unregister() {
+        pendingCalls.remove(id, this);
+    }
+
+    @Override
+    public String toString() {
+        return "ThriftInProcessCall(" + id + ", " + methodName + ')';
+    }
+}
@@ -21,7 +21,9 @@ import static java.util.Objects.requireNonNull;
 import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.protocol.TCompactProtocol;
 import org.apache.thrift.protocol.TJSONProtocol;
+import org.apache.thrift.protocol.TProtocol;
 import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TTransport;
 
 import com.linecorp.armeria.common.SerializationFormat;
 import com.linecorp.armeria.common.thrift.text.TTextProtocol;
@@ -32,11 +34,20 @@ import com.linecorp.armeria.common.thrift.text.TTextProtocol;
 public final class ThriftProtocolFactories {
 
     /**
-     * {@link TProtocolFactory} for Thrift TBinary protocol
+     * {@link TProtocolFactory} for Thrift TBinary protocol. The {@link TProtocol} created for
+     * a {@link TByteBufTransport} reads and writes its {@link io.netty.buffer.ByteBuf} directly.
      */
     public static final TProtocolFactory BINARY = new TBinaryProtocol.Factory() {
         private static final long serialVersionUID = -9020693963961565748L;
 
+        @Override
+        public TProtocol getProtocol(TTransport trans) {
+            if (trans instanceof TByteBufTransport) {
+                return new TByteBufBinaryProtocol((TByteBufTransport) trans);
+            }
+            return super.getProtocol(trans);
+        }
+
         @Override
         public String toString() {
             return "TProtocolFactory(binary)";
@@ -44,11 +55,20 @@ public final class ThriftProtocolFactories {
     };
 
     /**
-     * {@link TProtocolFactory} for Thrift TCompact protocol
+     * {@link TProtocolFactory} for Thrift TCompact protocol. The {@link TProtocol} created for
+     * a {@link TByteBufTransport} reads and writes its {@link io.netty.buffer.ByteBuf} directly.
      */
     public static final TProtocolFactory COMPACT = new TCompactProtocol.Factory() {
         private static final long serialVersionUID = 1629726795326210377L;
 
+        @Override
+        public TProtocol getProtocol(TTransport trans) {
+            if (trans instanceof TByteBufTransport) {
+                return new TByteBufCompactProtocol((TByteBufTransport) trans);
+            }
+            return super.getProtocol(trans);
+        }
+
         @Override
         public String toString() {
             return "TProtocolFactory(compact)";
@@ -56,11 +76,20 @@ public final class ThriftProtocolFactories {
     };
 
     /**
-     * {@link TProtocolFactory} for the Thrift TJSON protocol
+     * {@link TProtocolFactory} for the Thrift TJSON protocol. The {@link TProtocol} created for
+     * a {@link TByteBufTransport} reads and writes its {@link io.netty.buffer.ByteBuf} directly.
      */
     public static final TProtocolFactory JSON = new TJSONProtocol.Factory() {
         private static final long serialVersionUID = 7690636602996870153L;
 
+        @Override
+        public TProtocol getProtocol(TTransport trans) {
+            if (trans instanceof TByteBufTransport) {
+                return new TByteBufJsonProtocol((TByteBufTransport) trans);
+            }
+            return super.getProtocol(trans);
+        }
+
         @Override
         public String toString() {
             return "TProtocolFactory(JSON)";
@@ -17,9 +17,10 @@
 package com.linecorp.armeria.common.thrift.text;
 
 import org.apache.thrift.TException;
+import org.apache.thrift.meta_data.FieldValueMetaData;
 import org.apache.thrift.protocol.TField;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 
 /**
  * A base parsing context. Used as a root level parsing context for
@@ -29,6 +30,13 @@ import com.fasterxml.jackson.databind.JsonNode;
  */
 class BaseContext {
 
+    /**
+     * The parser which was in use before this context started to read from its own parser, e.g. the
+     * buffered elements of a container or a map key, or {@code null} if this context reads from the same
+     * parser with its parent.
+     */
+    JsonParser parentParser;
+
     /**
      * Complain about a method called on a BaseContext that shouldn't have been.
      */
@@ -65,17 +73,10 @@ class BaseContext {
     }
 
     /**
-     * Return the json element that should be processed next. Used for
-     * Contexts that have child JsonElements, e.g. Sequences, Maps, etc.
-     */
-    protected JsonNode getCurrentChild() {
-        return unsupportedOperation();
-    }
-
-    /**
-     * Are there more child elements to process?
+     * Return the metadata of the item that is read next, or {@code null}
+     * if unknown, e.g. at the root level.
      */
-    protected boolean hasMoreChildren() {
-        return (Boolean) unsupportedOperation();
+    protected FieldValueMetaData getCurrentChildMetaData() {
+        return null;
     }
 }
@@ -16,7 +16,7 @@
 
 package com.linecorp.armeria.common.thrift.text;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.thrift.meta_data.FieldValueMetaData;
 
 /**
  * A map parsing context. Just a PairContext that responds to isMapKey
@@ -27,13 +27,25 @@ import com.fasterxml.jackson.databind.JsonNode;
  */
 class MapContext extends PairContext {
 
-    // SUPPRESS CHECKSTYLE JavadocMethod
-    protected MapContext(JsonNode json) {
-        super(json);
+    private final FieldValueMetaData keyMetaData;
+    private final FieldValueMetaData valueMetaData;
+
+    /**
+     * Create a context whose keys and values are described by the given
+     * metadata, which may be null if unknown or if we only use it for writing.
+     */
+    protected MapContext(FieldValueMetaData keyMetaData, FieldValueMetaData valueMetaData) {
+        this.keyMetaData = keyMetaData;
+        this.valueMetaData = valueMetaData;
     }
 
     @Override
     protected boolean isMapKey() {
         return isLhs();
     }
+
+    @Override
+    protected FieldValueMetaData getCurrentChildMetaData() {
+        return isLhs() ? keyMetaData : valueMetaData;
+    }
 }
@@ -16,12 +16,6 @@
 
 package com.linecorp.armeria.common.thrift.text;
 
-import java.util.Iterator;
-import java.util.Map;
-
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.TextNode;
-
 /**
  * A map parsing context that tracks if we are parsing a key, which
  * is on the left hand side of the ":" operator, or a value.
@@ -32,23 +26,12 @@ import com.fasterxml.jackson.databind.node.TextNode;
  * "2" : 2,
  * }
  * Note the required quotes on the lhs.
- * We maintain an iterator over all of our child name/value pairs, and
- * a pointer to the current one being parsed.
  *
  * @author Alex Roetter
  */
 class PairContext extends BaseContext {
 
-    private final Iterator<Map.Entry<String, JsonNode>> children;
     private boolean lhs;
-    private Map.Entry<String, JsonNode> currentChild;
-
-    /**
-     * Create an iterator over this object's children
-     */
-    protected PairContext(JsonNode json) {
-        children = null != json ? json.fields() : null;
-    }
 
     @Override
     protected void write() {
@@ -58,28 +41,6 @@ class PairContext extends BaseContext {
     @Override
     protected void read() {
         lhs = !lhs;
-        // every other time, do a read, since the read gets the name & value
-        // at once.
-        if (isLhs()) {
-            if (!children.hasNext()) {
-                throw new RuntimeException(
-                        "Called PairContext.read() too many times!");
-            }
-            currentChild = children.next();
-        }
-    }
-
-    @Override
-    protected JsonNode getCurrentChild() {
-        if (lhs) {
-            return new TextNode(currentChild.getKey());
-        }
-        return currentChild.getValue();
-    }
-
-    @Override
-    protected boolean hasMoreChildren() {
-        return children.hasNext();
     }
 
     protected boolean isLhs() {
@@ -16,45 +16,28 @@
 
 package com.linecorp.armeria.common.thrift.text;
 
-import java.util.Iterator;
-
-import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.thrift.meta_data.FieldValueMetaData;
 
 /**
- * A parsing context used for Sequences (lists & sets). Maintains its
- * child elements, and a pointer to the current one being parsed.
+ * A parsing context used for Sequences (lists & sets), whose elements are
+ * read one by one from the parser.
  *
  * @author Alex Roetter
  */
 class SequenceContext extends BaseContext {
 
-    private final Iterator<JsonNode> children;
-    private JsonNode currentChild;
+    private final FieldValueMetaData elemMetaData;
 
     /**
-     * Create an iterator over the children. May be constructed with a null
-     * JsonArray if we only use it for writing.
+     * Create a context whose elements are described by the given metadata,
+     * which may be null if unknown or if we only use it for writing.
      */
-    protected SequenceContext(JsonNode json) {
-        children = null != json ? json.elements() : null;
-    }
-
-    @Override
-    protected void read() {
-        if (!children.hasNext()) {
-            throw new RuntimeException(
-                    "Called SequenceContext.read() too many times!");
-        }
-        currentChild = children.next();
-    }
-
-    @Override
-    protected JsonNode getCurrentChild() {
-        return currentChild;
+    protected SequenceContext(FieldValueMetaData elemMetaData) {
+        this.elemMetaData = elemMetaData;
     }
 
     @Override
-    protected boolean hasMoreChildren() {
-        return children.hasNext();
+    protected FieldValueMetaData getCurrentChildMetaData() {
+        return elemMetaData;
     }
 }
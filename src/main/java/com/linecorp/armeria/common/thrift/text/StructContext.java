@@ -18,50 +18,97 @@ package com.linecorp.armeria.common.thrift.text;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.thrift.TApplicationException;
 import org.apache.thrift.TBase;
 import org.apache.thrift.TException;
 import org.apache.thrift.TFieldIdEnum;
 import org.apache.thrift.meta_data.FieldMetaData;
+import org.apache.thrift.meta_data.FieldValueMetaData;
 import org.apache.thrift.protocol.TField;
-import org.apache.thrift.protocol.TStruct;
 import org.apache.thrift.protocol.TType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import io.netty.util.internal.PlatformDependent;
 
 /**
- * A struct parsing context. Builds a map from field name to TField.
+ * A struct parsing context. Looks up a TField by its field name.
  *
  * @author Alex Roetter
  */
 class StructContext extends PairContext {
     private static final Logger log = LoggerFactory.getLogger(StructContext.class);
 
+    /**
+     * The field name maps of the thrift message classes, which never change once computed.
+     */
+    private static final ClassValue<Map<String, Field>> FIELD_NAME_MAPS = new ClassValue<Map<String, Field>>() {
+        @Override
+        protected Map<String, Field> computeValue(Class<?> type) {
+            return computeFieldNameMap(type);
+        }
+    };
+
+    /**
+     * The name of the method of a scheme, a {@link TBase} or {@link TApplicationException} which reads
+     * a thrift message from a protocol. Only the frames of this method are looked up in the call stack.
+     */
+    private static final String READ_METHOD_NAME = "read";
+
+    /**
+     * The maximum number of the entries in {@link #STACK_FRAME_CLASSES}.
+     */
+    private static final int MAX_STACK_FRAME_CLASSES = 4096;
+
+    /**
+     * The results of looking up the classes of the {@code read} frames in the call stack, whose value is
+     * {@link Void} if the class is not a thrift message class, so that a class is loaded only once.
+     * It holds at most {@value #MAX_STACK_FRAME_CLASSES} entries, and the classes beyond that are
+     * looked up every time.
+     */
+    private static final ConcurrentMap<String, Class<?>> STACK_FRAME_CLASSES =
+            PlatformDependent.newConcurrentHashMap();
+
     // When processing a given thrift struct, we need certain information
     // for every field in that struct. We store that here, in a map
     // from fieldName (a string) to a TField object describing that
     // field.
-    private final Map<String, TField> fieldNameMap;
+    private final Map<String, Field> fieldNameMap;
+    private FieldValueMetaData currentFieldMetaData;
 
     /**
-     * Build the name -> TField map
+     * Create a context for writing, which does not need to look up fields.
      */
-    StructContext(JsonNode json) {
-        super(json);
-        fieldNameMap = computeFieldNameMap();
+    StructContext() {
+        fieldNameMap = Collections.emptyMap();
+    }
+
+    /**
+     * Create a context for reading a struct of the given class, or of the
+     * class found in the call stack if null.
+     */
+    StructContext(Class<?> clazz) {
+        fieldNameMap = FIELD_NAME_MAPS.get(clazz != null ? clazz : getCurrentThriftMessageClass());
     }
 
     @Override
     protected TField getTFieldByName(String name) throws TException {
-        if (!fieldNameMap.containsKey(name)) {
+        final Field field = fieldNameMap.get(name);
+        if (field == null) {
             throw new TException("Unknown field: " + name);
         }
-        return fieldNameMap.get(name);
+        currentFieldMetaData = field.metaData;
+        return field.tField;
+    }
+
+    @Override
+    protected FieldValueMetaData getCurrentChildMetaData() {
+        return currentFieldMetaData;
     }
 
     /**
@@ -71,13 +118,19 @@ class StructContext extends PairContext {
      * StatsThriftMessage, or similar, to know that count should be
      * of type int32, and have a thrift id 1.
      * <p>
+     * A nested struct is described by the metadata of its enclosing
+     * struct, so this method is only used for the top level struct.
      * In order to figure this out, I assume that this method was
      * called (indirectly) by the read() method in a class T which
      * is a TBase subclass. It is called that way by thrift generated
      * code. So, I iterate backwards up the call stack, stopping
-     * at the first method call which belongs to a TBase object.
+     * at the first read() method call which belongs to a TBase object.
      * I return the Class for that object.
      * <p>
+     * Only the frames of read() methods are looked up, so that the classes
+     * cached for the call stack are bounded by the read() call sites rather
+     * than growing with every class which happens to be on the stack.
+     * <p>
      * One could argue this is someone fragile and error prone.
      * The alternative is to modify the thrift compiler to generate
      * code which passes class information into this (and other)
@@ -88,55 +141,72 @@ class StructContext extends PairContext {
      * their types & relationships, will have to be the caller of
      * the TProtocol methods.
      * <p>
-     * Note: this approach does not handle TUnion, because TUnion has its own implementation of
+     * Note: this approach does not handle a top level TUnion, because TUnion has its own implementation of
      * read/write and any TUnion thrift structure does not override its read and write method.
      * Thus this algorithm fail to get current specific TUnion thrift structure by reading the stack.
-     * To fix this, we can track call stack of nested thrift objects on our own by overriding
-     * TProtocol.writeStructBegin(), rather than relying on the stack trace.
      */
-    private Class<?> getCurrentThriftMessageClass() {
+    private static Class<?> getCurrentThriftMessageClass() {
         StackTraceElement[] frames =
                 Thread.currentThread().getStackTrace();
 
-        for (int i = 0; i < frames.length; ++i) {
-            String className = frames[i].getClassName();
-
-            try {
-                Class clazz = Class.forName(className);
-
-                // Note, we need to check
-                // if the class is abstract, because abstract class does not have metaDataMap
-                // if the class has no-arg constructor, because FieldMetaData.getStructMetaDataMap
-                //   calls clazz.newInstance
-                if (isTBase(clazz) && !isAbstract(clazz) && hasNoArgConstructor(clazz)) {
-                    return clazz;
-                }
+        for (StackTraceElement frame : frames) {
+            // The generated code reads a struct in a 'read' method, so the other frames,
+            // e.g. the ones of the protocol, Netty and the application, are never loaded nor cached.
+            if (!READ_METHOD_NAME.equals(frame.getMethodName())) {
+                continue;
+            }
 
-                if (isTApplicationException(clazz)) {
-                    return clazz;
+            final String className = frame.getClassName();
+            Class<?> clazz = STACK_FRAME_CLASSES.get(className);
+            if (clazz == null) {
+                clazz = findThriftMessageClass(className);
+                if (STACK_FRAME_CLASSES.size() < MAX_STACK_FRAME_CLASSES) {
+                    STACK_FRAME_CLASSES.putIfAbsent(className, clazz);
                 }
-            } catch (ClassNotFoundException ex) {
-                log.warn("Can't find class: " + className, ex);
+            }
+            if (clazz != Void.class) {
+                return clazz;
             }
         }
         throw new RuntimeException("Must call (indirectly) from a TBase/TApplicationException object.");
     }
 
-    private boolean isTBase(Class clazz) {
+    private static Class<?> findThriftMessageClass(String className) {
+        try {
+            Class<?> clazz = Class.forName(className);
+
+            // Note, we need to check
+            // if the class is abstract, because abstract class does not have metaDataMap
+            // if the class has no-arg constructor, because FieldMetaData.getStructMetaDataMap
+            //   calls clazz.newInstance
+            if (isTBase(clazz) && !isAbstract(clazz) && hasNoArgConstructor(clazz)) {
+                return clazz;
+            }
+
+            if (isTApplicationException(clazz)) {
+                return clazz;
+            }
+        } catch (ClassNotFoundException ex) {
+            log.warn("Can't find class: " + className, ex);
+        }
+        return Void.class;
+    }
+
+    private static boolean isTBase(Class<?> clazz) {
         return TBase.class.isAssignableFrom(clazz);
     }
 
-    private boolean isTApplicationException(Class clazz) {
+    private static boolean isTApplicationException(Class<?> clazz) {
         return TApplicationException.class.isAssignableFrom(clazz);
     }
 
-    private boolean isAbstract(Class clazz) {
+    private static boolean isAbstract(Class<?> clazz) {
         return Modifier.isAbstract(clazz.getModifiers());
     }
 
-    private boolean hasNoArgConstructor(Class clazz) {
-        Constructor[] allConstructors = clazz.getConstructors();
-        for (Constructor ctor : allConstructors) {
+    private static boolean hasNoArgConstructor(Class<?> clazz) {
+        Constructor<?>[] allConstructors = clazz.getConstructors();
+        for (Constructor<?> ctor : allConstructors) {
             Class<?>[] pType = ctor.getParameterTypes();
             if (pType.length == 0) {
                 return true;
@@ -147,13 +217,11 @@ class StructContext extends PairContext {
     }
 
     /**
-     * Compute a new field name map for the current thrift message
-     * we are parsing.
+     * Compute a new field name map for the given thrift message class.
      */
-    private Map<String, TField> computeFieldNameMap() {
-        Map<String, TField> map = new HashMap<String, TField>();
-
-        Class<?> clazz = getCurrentThriftMessageClass();
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Map<String, Field> computeFieldNameMap(Class<?> clazz) {
+        Map<String, Field> map = new HashMap<>();
 
         if (isTBase(clazz)) {
             // Get the metaDataMap for this Thrift class
@@ -173,15 +241,26 @@ class StructContext extends PairContext {
                             ? TType.I32 : metaData.valueMetaData.type;
 
                 map.put(fieldName,
-                        new TField(fieldName,
-                                   type,
-                                   key.getThriftFieldId()));
+                        new Field(new TField(fieldName,
+                                             type,
+                                             key.getThriftFieldId()),
+                                  metaData.valueMetaData));
             }
         } else { // TApplicationException
-            map.put("message", new TField("message", (byte)11, (short)1));
-            map.put("type", new TField("type", (byte)8, (short)2));
+            map.put("message", new Field(new TField("message", (byte)11, (short)1), null));
+            map.put("type", new Field(new TField("type", (byte)8, (short)2), null));
         }
 
         return map;
     }
+
+    private static final class Field {
+        final TField tField;
+        final FieldValueMetaData metaData;
+
+        Field(TField tField, FieldValueMetaData metaData) {
+            this.tField = tField;
+            this.metaData = metaData;
+        }
+    }
 }
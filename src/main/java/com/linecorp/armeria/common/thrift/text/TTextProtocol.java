@@ -18,10 +18,18 @@ package com.linecorp.armeria.common.thrift.text;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import org.apache.thrift.TException;
+import org.apache.thrift.meta_data.FieldValueMetaData;
+import org.apache.thrift.meta_data.ListMetaData;
+import org.apache.thrift.meta_data.MapMetaData;
+import org.apache.thrift.meta_data.SetMetaData;
+import org.apache.thrift.meta_data.StructMetaData;
 import org.apache.thrift.protocol.TField;
 import org.apache.thrift.protocol.TList;
 import org.apache.thrift.protocol.TMap;
@@ -38,10 +46,16 @@ import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
 
 import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.core.JsonParser.Feature;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import com.linecorp.armeria.common.thrift.TByteBufTransport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 
 /**
  * A simple text format for serializing/deserializing thrift
@@ -96,18 +110,47 @@ public class TTextProtocol extends TProtocol {
     private static final String SEQUENCE_AS_KEY_ILLEGAL =
             "Can't have a sequence (list or set) as a key in a map!";
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
-            .configure(Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .enable(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES)
+            // The transport is not ours to close.
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 
     private static final TStruct ANONYMOUS_STRUCT = new TStruct();
 
-    // how many bytes to read at once
-    private static final int READ_BUFFER_SIZE = 1024;
-
     private static final byte UNUSED_TYPE = TType.STOP;
-    private final Stack<WriterByteArrayOutputStream> writers;
-    private final Stack<BaseContext> contextStack;
-    private JsonNode root;
+    private static final TField STOP_FIELD = new TField("", UNUSED_TYPE, (short) 0);
+
+    private final Deque<WriterByteArrayOutputStream> writers;
+    private final Deque<BaseContext> contextStack;
+    private final OutputStream transportOutputStream;
+
+    /**
+     * Whether a message is being written, i.e. whether the writer must not be
+     * released at the end of the top level struct.
+     */
+    private boolean writingMessage;
+
+    /**
+     * The parser of the top level value, or null if not reading.
+     */
+    private JsonParser rootParser;
+
+    /**
+     * The parser which the next token is read from.
+     */
+    private JsonParser parser;
+
+    /**
+     * Whether the current token of the parser has not been consumed yet.
+     */
+    private boolean pendingToken;
+
+    /**
+     * Whether a message is being read, i.e. whether the root parser must not be
+     * released at the end of the top level struct.
+     */
+    private boolean readingMessage;
 
     /**
      * Create a parser which can read from trans, and create the output writer
@@ -116,13 +159,10 @@ public class TTextProtocol extends TProtocol {
     public TTextProtocol(TTransport trans) {
         super(trans);
 
-        writers = new Stack<>();
-
-        ByteArrayOutputStream mybaos = new TTransportOutputStream();
-        pushWriter(mybaos);
+        writers = new ArrayDeque<>();
+        transportOutputStream = new TTransportOutputStream();
 
-        reset();
-        contextStack = new Stack<>();
+        contextStack = new ArrayDeque<>();
         contextStack.push(new BaseContext());
     }
 
@@ -133,7 +173,11 @@ public class TTextProtocol extends TProtocol {
 
     @Override
     public final void reset() {
-        root = null;
+        closeParsers();
+        releaseWriters();
+        while (contextStack.size() > 1) {
+            contextStack.pop();
+        }
     }
 
     /**
@@ -143,6 +187,7 @@ public class TTextProtocol extends TProtocol {
      */
     @Override
     public void writeMessageBegin(TMessage message) throws TException {
+        writingMessage = true;
         try {
             getCurrentWriter().writeStartObject();
             getCurrentWriter().writeFieldName("method");
@@ -159,17 +204,20 @@ public class TTextProtocol extends TProtocol {
 
     @Override
     public void writeMessageEnd() throws TException {
+        writingMessage = false;
         try {
             getCurrentWriter().writeEndObject();
             getCurrentWriter().flush();
         } catch (IOException e) {
             throw new TTransportException(e);
+        } finally {
+            releaseWriters();
         }
     }
 
     @Override
     public void writeStructBegin(TStruct struct) throws TException {
-        writeJsonObjectBegin(new StructContext(null));
+        writeJsonObjectBegin(new StructContext());
     }
 
     @Override
@@ -196,7 +244,7 @@ public class TTextProtocol extends TProtocol {
 
     @Override
     public void writeMapBegin(TMap map) throws TException {
-        writeJsonObjectBegin(new MapContext(null));
+        writeJsonObjectBegin(new MapContext(null, null));
     }
 
     @Override
@@ -240,6 +288,9 @@ public class TTextProtocol extends TProtocol {
             // flush at the end of the final struct.
             if (1 == contextStack.size()) {
                 getCurrentWriter().flush();
+                if (!writingMessage) {
+                    releaseWriters();
+                }
             }
         } catch (IOException ex) {
             throw new TException(ex);
@@ -359,106 +410,151 @@ public class TTextProtocol extends TProtocol {
     /////////////////////////////////////////
     // Read methods
     /////////////////////////////////////////
+
+    /**
+     * Reads the header of a message. The header fields are expected to precede
+     * 'args' as written by {@link #writeMessageBegin(TMessage)}, so that 'args'
+     * can be read from the parser directly. Otherwise, 'args' is buffered until
+     * the end of the message.
+     */
     @Override
     public TMessage readMessageBegin() throws TException {
+        closeParsers();
+        readingMessage = true;
+
         try {
-            readRoot();
-        } catch (IOException e) {
-            throw new TException("Could not parse input, is it valid json?", e);
-        }
-        if (!root.isObject()) {
-            throw new TException("The top level of the input must be a json object with method and args!");
-        }
+            final JsonParser parser = openRootParser();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new TException("The top level of the input must be a json object with method and args!");
+            }
 
-        if (!root.has("method")) {
-            throw new TException("Object must have field 'method' with the rpc method name!");
-        }
-        String methodName = root.get("method").asText();
+            String methodName = null;
+            Byte messageType = null;
+            Integer sequenceId = null;
+            TokenBuffer args = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken valueToken = parser.nextToken();
+                switch (name) {
+                case "method":
+                    methodName = TypedParser.asText(parser);
+                    break;
+                case "type":
+                    messageType = TypedParser.TMESSAGE_TYPE.readFromParser(parser);
+                    break;
+                case "seqid":
+                    sequenceId = parser.getValueAsInt();
+                    break;
+                case "args":
+                    if (valueToken != JsonToken.START_OBJECT) {
+                        throw new TException("Object must have field 'args' with the rpc method args!");
+                    }
+                    if (methodName != null && messageType != null && sequenceId != null) {
+                        // Thrift's rpc reading will proceed to read 'args' as a message object.
+                        pendingToken = true;
+                        return new TMessage(methodName, messageType, sequenceId);
+                    }
+                    args = new TokenBuffer(parser);
+                    args.copyCurrentStructure(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                }
+            }
 
-        if (!root.has("type")) {
-            throw new TException(
-                    "Object must have field 'type' with the message type (CALL, REPLY, EXCEPTION, ONEWAY)!");
-        }
-        Byte messageType = TypedParser.TMESSAGE_TYPE.readFromJsonElement(root.get("type"));
+            if (methodName == null) {
+                throw new TException("Object must have field 'method' with the rpc method name!");
+            }
+            if (messageType == null) {
+                throw new TException(
+                        "Object must have field 'type' with the message type (CALL, REPLY, EXCEPTION, ONEWAY)!");
+            }
+            if (args == null) {
+                throw new TException("Object must have field 'args' with the rpc method args!");
+            }
 
-        if (!root.has("args") || !root.get("args").isObject()) {
-            throw new TException("Object must have field 'args' with the rpc method args!");
+            // If 'seqid' is not provided, it will be treated as 0.
+            this.parser = args.asParser();
+            this.parser.nextToken();
+            pendingToken = true;
+            return new TMessage(methodName, messageType, sequenceId != null ? sequenceId : 0);
+        } catch (IOException e) {
+            throw new TException("Could not parse input, is it valid json?", e);
         }
-
-        int sequenceId = root.has("seqid") ? root.get("seqid").asInt() : 0;
-
-        // Override the root with the content of args - thrift's rpc reading will
-        // proceed to read it as a message object.
-        root = root.get("args");
-
-        return new TMessage(methodName, messageType, sequenceId);
     }
 
     @Override
     public void readMessageEnd() throws TException {
-        // We've already finished parsing the top level struct in
-        // readMessageBegin, so nothing to do here.
+        try {
+            if (parser == rootParser && rootParser != null) {
+                // Skip the fields following 'args'.
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    parser.nextToken();
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new TException("Could not parse input, is it valid json?", e);
+        } finally {
+            closeParsers();
+        }
     }
 
     @Override
     public TStruct readStructBegin() throws TException {
         getCurrentContext().read();
 
-        JsonNode structElem;
         // Reading a new top level struct if the only item on the stack
         // is the BaseContext
-        if (1 == contextStack.size()) {
+        if (1 == contextStack.size() && parser == null) {
             try {
-                readRoot();
+                openRootParser();
             } catch (IOException e) {
                 throw new TException("Could not parse input, is it valid json?", e);
             }
-            if (root == null) {
-                throw new TException("parser.next() has nothing to parse!");
-            }
-            structElem = root;
-        } else {
-            structElem = getCurrentContext().getCurrentChild();
         }
 
-        if (getCurrentContext().isMapKey()) {
-            try {
-                structElem = OBJECT_MAPPER.readTree(structElem.asText());
-            } catch (IOException e) {
-                throw new TException("Could not parse map key, is it valid json?", e);
-            }
+        final Class<?> structClass;
+        final FieldValueMetaData metaData = getCurrentContext().getCurrentChildMetaData();
+        if (metaData instanceof StructMetaData) {
+            structClass = ((StructMetaData) metaData).structClass;
+        } else {
+            structClass = null;
         }
 
-        if (!structElem.isObject()) {
+        final JsonParser parentParser = readObjectBegin();
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
             throw new TException("Expected Json Object!");
         }
 
-        pushContext(new StructContext(structElem));
+        final StructContext context = new StructContext(structClass);
+        context.parentParser = parentParser;
+        pushContext(context);
         return ANONYMOUS_STRUCT;
     }
 
     @Override
     public void readStructEnd() throws TException {
-        popContext();
+        popReadContext();
+        if (1 == contextStack.size() && !readingMessage) {
+            closeParsers();
+        }
     }
 
     @Override
     public TField readFieldBegin() throws TException {
-        String name = null;
-
-        if (!getCurrentContext().hasMoreChildren()) {
-            return new TField("", UNUSED_TYPE, (short) 0);
+        final JsonToken token = nextToken();
+        if (token != JsonToken.FIELD_NAME) {
+            return STOP_FIELD;
         }
 
         getCurrentContext().read();
 
-        JsonNode jsonName = getCurrentContext().getCurrentChild();
-
-        if (!jsonName.isTextual()) {
-            throw new RuntimeException("Expected String for a field name");
+        try {
+            return getCurrentContext().getTFieldByName(parser.getCurrentName());
+        } catch (IOException e) {
+            throw new TException(e);
         }
-
-        return getCurrentContext().getTFieldByName(jsonName.asText());
     }
 
     @Override
@@ -469,28 +565,32 @@ public class TTextProtocol extends TProtocol {
     public TMap readMapBegin() throws TException {
         getCurrentContext().read();
 
-        JsonNode curElem = getCurrentContext().getCurrentChild();
-
-        if (getCurrentContext().isMapKey()) {
-            try {
-                curElem = OBJECT_MAPPER.readTree(curElem.asText());
-            } catch (IOException e) {
-                throw new TException("Could not parse map key, is it valid json?", e);
-            }
+        final FieldValueMetaData keyMetaData;
+        final FieldValueMetaData valueMetaData;
+        final FieldValueMetaData metaData = getCurrentContext().getCurrentChildMetaData();
+        if (metaData instanceof MapMetaData) {
+            keyMetaData = ((MapMetaData) metaData).keyMetaData;
+            valueMetaData = ((MapMetaData) metaData).valueMetaData;
+        } else {
+            keyMetaData = null;
+            valueMetaData = null;
         }
 
-        if (!curElem.isObject()) {
+        final JsonParser parentParser = readObjectBegin();
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
             throw new TException("Expected JSON Object!");
         }
 
-        pushContext(new MapContext(curElem));
+        final MapContext context = new MapContext(keyMetaData, valueMetaData);
+        final int size = bufferChildren(context, parentParser);
+        pushContext(context);
 
-        return new TMap(UNUSED_TYPE, UNUSED_TYPE, curElem.size());
+        return new TMap(UNUSED_TYPE, UNUSED_TYPE, size);
     }
 
     @Override
     public void readMapEnd() throws TException {
-        popContext();
+        popReadContext();
     }
 
     @Override
@@ -524,20 +624,31 @@ public class TTextProtocol extends TProtocol {
             throw new TException(SEQUENCE_AS_KEY_ILLEGAL);
         }
 
-        JsonNode curElem = getCurrentContext().getCurrentChild();
-        if (!curElem.isArray()) {
+        final FieldValueMetaData elemMetaData;
+        final FieldValueMetaData metaData = getCurrentContext().getCurrentChildMetaData();
+        if (metaData instanceof ListMetaData) {
+            elemMetaData = ((ListMetaData) metaData).elemMetaData;
+        } else if (metaData instanceof SetMetaData) {
+            elemMetaData = ((SetMetaData) metaData).elemMetaData;
+        } else {
+            elemMetaData = null;
+        }
+
+        if (nextValueToken() != JsonToken.START_ARRAY) {
             throw new TException("Expected JSON Array!");
         }
 
-        pushContext(new SequenceContext(curElem));
-        return curElem.size();
+        final SequenceContext context = new SequenceContext(elemMetaData);
+        final int size = bufferChildren(context, null);
+        pushContext(context);
+        return size;
     }
 
     /**
      * Helper shared by read{List/Set}End
      */
     private void readSequenceEnd() {
-        popContext();
+        popReadContext();
     }
 
     @Override
@@ -582,46 +693,180 @@ public class TTextProtocol extends TProtocol {
 
     /**
      * Read in a value of the given type, either as a name (meaning the
-     * JSONElement is a string and we convert it), or as a value
-     * (meaning the JSONElement has the type we expect).
+     * current token is a field name and we convert it), or as a value
+     * (meaning the current token has the type we expect).
      * Uses a TypedParser to do the real work.
-     * <p>
-     * TODO(Alex Roetter): not sure TypedParser is a win for the number of
-     * lines it saves. Consider expanding out all the readX() methods to
-     * do what readNameOrValue does, calling the relevant methods from
-     * the TypedParser directly.
      */
-    private <T> T readNameOrValue(TypedParser<T> ch) {
+    private <T> T readNameOrValue(TypedParser<T> ch) throws TException {
         getCurrentContext().read();
 
-        JsonNode elem = getCurrentContext().getCurrentChild();
-        if (getCurrentContext().isMapKey()) {
-            // Will throw a ClassCastException if this is not a JsonPrimitive string
-            return ch.readFromString(elem.asText());
-        } else {
-            return ch.readFromJsonElement(elem);
+        final JsonToken token = nextValueToken();
+        try {
+            if (getCurrentContext().isMapKey()) {
+                return ch.readFromString(parser.getCurrentName());
+            }
+            if (token.isStructStart()) {
+                // Not a value of the expected type; skip it entirely to stay in sync.
+                parser.skipChildren();
+            }
+            return ch.readFromParser(parser);
+        } catch (IOException e) {
+            throw new TException("Could not parse input, is it valid json?", e);
         }
     }
 
     /**
-     * Read in the root node if it has not yet been read.
+     * Advances the parser to the beginning of a JSON object, which is either
+     * the next value or, if reading a map key, the JSON text of the key.
+     *
+     * @return the parser to switch back to at the end of the object if the
+     *         object is read from the JSON text of a map key, or null otherwise.
      */
-    private void readRoot() throws IOException {
-        if (root != null) {
-            return;
+    private JsonParser readObjectBegin() throws TException {
+        nextValueToken();
+        if (!getCurrentContext().isMapKey()) {
+            return null;
+        }
+
+        final JsonParser parentParser = parser;
+        try {
+            parser = JSON_FACTORY.createParser(parentParser.getCurrentName());
+            parser.nextToken();
+        } catch (IOException e) {
+            parser = parentParser;
+            throw new TException("Could not parse map key, is it valid json?", e);
         }
-        ByteArrayOutputStream content = new ByteArrayOutputStream();
-        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        return parentParser;
+    }
+
+    /**
+     * Copies the children of the current JSON object or array into a buffer,
+     * so that the number of the children is known before reading them, and
+     * makes the given context read the children from the buffer.
+     *
+     * @param parentParser the parser to switch back to at the end of the context,
+     *                     or null to switch back to the current parser
+     * @return the number of the children
+     */
+    private int bufferChildren(BaseContext context, JsonParser parentParser) throws TException {
+        final JsonParser parser = this.parser;
+        int size = 0;
         try {
-            while (trans_.read(buffer, 0, READ_BUFFER_SIZE) > 0) {
-                content.write(buffer);
+            final TokenBuffer buffer = new TokenBuffer(parser);
+            final boolean isObject = parser.getCurrentToken() == JsonToken.START_OBJECT;
+            if (isObject) {
+                buffer.writeStartObject();
+                // copyCurrentStructure() copies the value as well when the current token is a field name.
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    buffer.copyCurrentStructure(parser);
+                    size++;
+                }
+                buffer.writeEndObject();
+            } else {
+                buffer.writeStartArray();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    buffer.copyCurrentStructure(parser);
+                    size++;
+                }
+                buffer.writeEndArray();
             }
-        } catch (TTransportException e) {
-            if (TTransportException.END_OF_FILE != e.getType()) {
-                throw new IOException(e);
+
+            if (parentParser != null) {
+                // The JSON text of a map key has been consumed.
+                parser.close();
+                context.parentParser = parentParser;
+            } else {
+                context.parentParser = parser;
             }
+
+            this.parser = buffer.asParser();
+            this.parser.nextToken();
+        } catch (IOException e) {
+            throw new TException("Could not parse input, is it valid json?", e);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the first token of the next value, which is the current token
+     * if it has not been consumed yet.
+     */
+    private JsonToken nextValueToken() throws TException {
+        if (pendingToken) {
+            pendingToken = false;
+            return parser.getCurrentToken();
+        }
+        return nextToken();
+    }
+
+    private JsonToken nextToken() throws TException {
+        final JsonToken token;
+        try {
+            token = parser.nextToken();
+        } catch (IOException e) {
+            throw new TException("Could not parse input, is it valid json?", e);
+        }
+        if (token == null) {
+            throw new TException("parser.next() has nothing to parse!");
+        }
+        return token;
+    }
+
+    /**
+     * Create the parser of the top level value, which reads directly from the
+     * buffer of the transport if possible.
+     */
+    private JsonParser openRootParser() throws IOException {
+        final JsonParser parser;
+        if (trans_ instanceof TByteBufTransport) {
+            final ByteBuf buf = ((TByteBufTransport) trans_).buf();
+            if (buf.hasArray()) {
+                parser = JSON_FACTORY.createParser(buf.array(), buf.arrayOffset() + buf.readerIndex(),
+                                                   buf.readableBytes());
+                buf.skipBytes(buf.readableBytes());
+            } else {
+                parser = JSON_FACTORY.createParser(new ByteBufInputStream(buf));
+            }
+        } else {
+            parser = JSON_FACTORY.createParser(new TTransportInputStream());
+        }
+        rootParser = parser;
+        this.parser = parser;
+        return parser;
+    }
+
+    private void closeParsers() {
+        try {
+            if (parser != null && parser != rootParser) {
+                parser.close();
+            }
+            if (rootParser != null) {
+                rootParser.close();
+            }
+        } catch (IOException ignored) {
+            // Never happens because the parsers do not close their sources.
+        }
+        rootParser = null;
+        parser = null;
+        pendingToken = false;
+        readingMessage = false;
+    }
+
+    /**
+     * Pop a parsing context, switching back to the parser of the
+     * parent context if the context had its own parser.
+     */
+    private void popReadContext() {
+        final BaseContext context = contextStack.pop();
+        final JsonParser parentParser = context.parentParser;
+        if (parentParser != null) {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // Never happens for an in-memory parser.
+            }
+            parser = parentParser;
         }
-        root = OBJECT_MAPPER.readTree(content.toByteArray());
     }
 
     /**
@@ -646,9 +891,13 @@ public class TTextProtocol extends TProtocol {
     }
 
     /**
-     * Return the current parsing context
+     * Return the current writer, creating the writer of the top level value
+     * which writes directly to the transport if there's none.
      */
     private JsonGenerator getCurrentWriter() {
+        if (writers.isEmpty()) {
+            pushWriter(transportOutputStream);
+        }
         return writers.peek().writer;
     }
 
@@ -665,17 +914,18 @@ public class TTextProtocol extends TProtocol {
         return ret;
     }
 
-    private void pushWriter(ByteArrayOutputStream baos) {
+    private void pushWriter(OutputStream out) {
         JsonGenerator generator;
         try {
-            generator = OBJECT_MAPPER.getFactory().createGenerator(baos, JsonEncoding.UTF8)
-                    .useDefaultPrettyPrinter();
+            generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)
+                                    .useDefaultPrettyPrinter();
         } catch (IOException e) {
             // Can't happen, using a byte stream.
             throw new IllegalStateException(e);
         }
 
-        WriterByteArrayOutputStream wbaos = new WriterByteArrayOutputStream(generator, baos);
+        WriterByteArrayOutputStream wbaos = new WriterByteArrayOutputStream(
+                generator, out instanceof ByteArrayOutputStream ? (ByteArrayOutputStream) out : null);
         writers.push(wbaos);
     }
 
@@ -683,6 +933,21 @@ public class TTextProtocol extends TProtocol {
         writers.pop();
     }
 
+    /**
+     * Release the writers so that the internal buffers of the writers are
+     * recycled. Closing the writer of the top level value does not close the
+     * transport.
+     */
+    private void releaseWriters() {
+        while (!writers.isEmpty()) {
+            try {
+                writers.pop().writer.close();
+            } catch (IOException ignored) {
+                // Everything has been flushed already.
+            }
+        }
+    }
+
     private static class WriterByteArrayOutputStream {
         final JsonGenerator writer;
         final ByteArrayOutputStream baos;
@@ -704,33 +969,55 @@ public class TTextProtocol extends TProtocol {
     }
 
     /**
-     * Just a byte array output stream that forwards all data to
-     * a TTransport when it is flushed or closed
+     * An output stream that forwards all data to a TTransport as it is
+     * written, without buffering it again.
      */
-    private class TTransportOutputStream extends ByteArrayOutputStream {
-        // This isn't necessary, but a good idea to close the transport
+    private class TTransportOutputStream extends OutputStream {
         @Override
-        public void close() throws IOException {
-            flush();
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
 
-            super.close();
-            trans_.close();
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                trans_.write(b, off, len);
+            } catch (TTransportException ex) {
+                throw new IOException(ex);
+            }
         }
 
         @Override
         public void flush() throws IOException {
             try {
-                super.flush();
-                byte[] bytes = toByteArray();
-                trans_.write(bytes);
                 trans_.flush();
-
             } catch (TTransportException ex) {
                 throw new IOException(ex);
             }
-            // Clears the internal memory buffer, since we've already
-            // written it out.
-            super.reset();
+        }
+    }
+
+    /**
+     * An input stream that reads from a TTransport until it has no more data.
+     */
+    private class TTransportInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) > 0 ? b[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                final int read = trans_.read(b, off, len);
+                return read > 0 ? read : -1;
+            } catch (TTransportException e) {
+                if (TTransportException.END_OF_FILE != e.getType()) {
+                    throw new IOException(e);
+                }
+                return -1;
+            }
         }
     }
 }
@@ -23,11 +23,12 @@ import org.apache.thrift.protocol.TMessageType;
 
 import com.fasterxml.jackson.core.Base64Variants;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
 /**
  * A type parsing helper, knows how to parse a given type either from a string
- * or from a JsonElement, and knows how to emit a given type to a JsonGenerator.
+ * or from a JsonParser, and knows how to emit a given type to a JsonGenerator.
  * <p>
  * Clients should use the static members defined here for common types.
  * Should be implemented for each integral type we need to read/write.
@@ -46,8 +47,8 @@ abstract class TypedParser<T> {
         }
 
         @Override
-        public Boolean readFromJsonElement(JsonNode elem) {
-            return elem.asBoolean();
+        public Boolean readFromParser(JsonParser parser) throws IOException {
+            return parser.getValueAsBoolean();
         }
 
         @Override
@@ -64,8 +65,8 @@ abstract class TypedParser<T> {
         }
 
         @Override
-        public Byte readFromJsonElement(JsonNode elem) {
-            return (byte) elem.asInt();
+        public Byte readFromParser(JsonParser parser) throws IOException {
+            return (byte) parser.getValueAsInt();
         }
 
         @Override
@@ -82,8 +83,8 @@ abstract class TypedParser<T> {
         }
 
         @Override
-        public Short readFromJsonElement(JsonNode elem) {
-            return (short) elem.asInt();
+        public Short readFromParser(JsonParser parser) throws IOException {
+            return (short) parser.getValueAsInt();
         }
 
         @Override
@@ -100,8 +101,8 @@ abstract class TypedParser<T> {
         }
 
         @Override
-        public Integer readFromJsonElement(JsonNode elem) {
-            return elem.asInt();
+        public Integer readFromParser(JsonParser parser) throws IOException {
+            return parser.getValueAsInt();
         }
 
         @Override
@@ -117,8 +118,8 @@ abstract class TypedParser<T> {
         }
 
         @Override
-        public Long readFromJsonElement(JsonNode elem) {
-            return elem.asLong();
+        public Long readFromParser(JsonParser parser) throws IOException {
+            return parser.getValueAsLong();
         }
 
         @Override
@@ -134,8 +135,8 @@ abstract class TypedParser<T> {
         }
 
         @Override
-        public Double readFromJsonElement(JsonNode elem) {
-            return elem.asDouble();
+        public Double readFromParser(JsonParser parser) throws IOException {
+            return parser.getValueAsDouble();
         }
 
         @Override
@@ -151,8 +152,8 @@ abstract class TypedParser<T> {
         }
 
         @Override
-        public String readFromJsonElement(JsonNode elem) {
-            return elem.asText();
+        public String readFromParser(JsonParser parser) throws IOException {
+            return asText(parser);
         }
 
         @Override
@@ -168,9 +169,9 @@ abstract class TypedParser<T> {
         }
 
         @Override
-        public ByteBuffer readFromJsonElement(JsonNode elem) {
+        public ByteBuffer readFromParser(JsonParser parser) {
             try {
-                return ByteBuffer.wrap(elem.binaryValue());
+                return ByteBuffer.wrap(parser.getBinaryValue());
             } catch (IOException e) {
                 throw new IllegalArgumentException("Error decoding binary value, is it valid base64?", e);
             }
@@ -178,7 +179,13 @@ abstract class TypedParser<T> {
 
         @Override
         public void writeValue(JsonGenerator jw, ByteBuffer val) throws IOException {
-            jw.writeBinary(val.array());
+            if (val.hasArray()) {
+                jw.writeBinary(val.array(), val.arrayOffset() + val.position(), val.remaining());
+            } else {
+                final byte[] bytes = new byte[val.remaining()];
+                val.duplicate().get(bytes);
+                jw.writeBinary(bytes);
+            }
         }
     };
 
@@ -200,8 +207,8 @@ abstract class TypedParser<T> {
         }
 
         @Override
-        Byte readFromJsonElement(JsonNode elem) {
-            return readFromString(elem.asText());
+        Byte readFromParser(JsonParser parser) throws IOException {
+            return readFromString(asText(parser));
         }
 
         @Override
@@ -233,12 +240,24 @@ abstract class TypedParser<T> {
     abstract T readFromString(String s);
 
     /**
-     * Read the given type from a JsonElement
+     * Read the given type from the current token of a JsonParser
      */
-    abstract T readFromJsonElement(JsonNode elem);
+    abstract T readFromParser(JsonParser parser) throws IOException;
 
     /**
      * Write the given type out using a JsonGenerator
      */
     abstract void writeValue(JsonGenerator jw, T val) throws IOException;
+
+    /**
+     * Return the text of the current token if it is a scalar value, or an
+     * empty string otherwise, like {@code JsonNode.asText()} does.
+     */
+    static String asText(JsonParser parser) throws IOException {
+        final JsonToken token = parser.getCurrentToken();
+        if (token == null || !token.isScalarValue()) {
+            return "";
+        }
+        return parser.getText();
+    }
 }
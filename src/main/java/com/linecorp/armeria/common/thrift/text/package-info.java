@@ -27,6 +27,7 @@
  *     <li>Remove obsolete TODOs</li>
  *     <li>Reformat code to armeria specification</li>
  *     <li>Miscellaneous style cleanups</li>
+ *     <li>Read and write JSON tokens on demand instead of building a tree or intermediate buffers</li>
  * </ul>
  */
 package com.linecorp.armeria.common.thrift.text;
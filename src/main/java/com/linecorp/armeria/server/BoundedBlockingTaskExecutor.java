@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * A {@link ThreadPoolExecutor} with a bounded queue, which can be dedicated to the blocking tasks of
+ * a {@link Service} or a {@link VirtualHost} so that a slow service does not exhaust the threads of
+ * the others. A task beyond the queue is rejected with a {@link RejectedExecutionException}, which is
+ * responded with {@code 503 Service Unavailable} or a {@code TApplicationException}.
+ *
+ * <p>This executor also keeps the statistics of its tasks such as the number of the pending tasks and
+ * the total time the tasks spent in the queue.
+ *
+ * @see ServerBuilder#blockingTaskExecutor(java.util.concurrent.Executor)
+ * @see VirtualHostBuilder#blockingTaskExecutor(java.util.concurrent.Executor)
+ * @see VirtualHostBuilder#service(PathMapping, Service, java.util.concurrent.Executor)
+ */
+public final class BoundedBlockingTaskExecutor extends ThreadPoolExecutor {
+
+    private final int maxPendingTasks;
+
+    private final LongAdder numExecutedTasks = new LongAdder();
+    private final LongAdder numRejectedTasks = new LongAdder();
+    private final LongAdder totalWaitTimeNanos = new LongAdder();
+    private final LongAdder totalRunTimeNanos = new LongAdder();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param name the prefix of the names of the threads
+     * @param maxThreads the maximum number of the threads which run the tasks
+     * @param maxPendingTasks the maximum number of the tasks which wait for a thread
+     */
+    public BoundedBlockingTaskExecutor(String name, int maxThreads, int maxPendingTasks) {
+        super(validateMaxThreads(maxThreads), maxThreads, 60, TimeUnit.SECONDS,
+              newQueue(maxPendingTasks), new DefaultThreadFactory(requireNonNull(name, "name"), true));
+
+        this.maxPendingTasks = maxPendingTasks;
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler((task, executor) -> {
+            numRejectedTasks.increment();
+            throw new RejectedExecutionException(
+                    "too many blocking tasks: " + name + " (maxThreads: " + maxThreads +
+                    ", maxPendingTasks: " + maxPendingTasks + ')');
+        });
+    }
+
+    private static int validateMaxThreads(int maxThreads) {
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("maxThreads: " + maxThreads + " (expected: > 0)");
+        }
+        return maxThreads;
+    }
+
+    private static BlockingQueue<Runnable> newQueue(int maxPendingTasks) {
+        if (maxPendingTasks < 0) {
+            throw new IllegalArgumentException("maxPendingTasks: " + maxPendingTasks + " (expected: >= 0)");
+        }
+        return maxPendingTasks == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(maxPendingTasks);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(new TimedTask(requireNonNull(command, "command")));
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        final TimedTask task = (TimedTask) r;
+        task.startTimeNanos = System.nanoTime();
+        totalWaitTimeNanos.add(task.startTimeNanos - task.submissionTimeNanos);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        final TimedTask task = (TimedTask) r;
+        totalRunTimeNanos.add(System.nanoTime() - task.startTimeNanos);
+        numExecutedTasks.increment();
+    }
+
+    /**
+     * Returns the maximum number of the tasks which wait for a thread.
+     */
+    public int maxPendingTasks() {
+        return maxPendingTasks;
+    }
+
+    /**
+     * Returns the number of the tasks which wait for a thread.
+     */
+    public int numPendingTasks() {
+        return getQueue().size();
+    }
+
+    /**
+     * Returns the number of the tasks which have been run.
+     */
+    public long numExecutedTasks() {
+        return numExecutedTasks.sum();
+    }
+
+    /**
+     * Returns the number of the tasks which have been rejected because the queue was full.
+     */
+    public long numRejectedTasks() {
+        return numRejectedTasks.sum();
+    }
+
+    /**
+     * Returns the total time in nanoseconds the tasks waited for a thread.
+     */
+    public long totalWaitTimeNanos() {
+        return totalWaitTimeNanos.sum();
+    }
+
+    /**
+     * Returns the total time in nanoseconds the tasks took to run.
+     */
+    public long totalRunTimeNanos() {
+        return totalRunTimeNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+               "(maxThreads: " + getMaximumPoolSize() +
+               ", maxPendingTasks: " + maxPendingTasks +
+               ", pendingTasks: " + numPendingTasks() +
+               ", activeThreads: " + getActiveCount() +
+               ", executedTasks: " + numExecutedTasks() +
+               ", rejectedTasks: " + numRejectedTasks() + ')';
+    }
+
+    private static final class TimedTask implements Runnable {
+
+        private final Runnable task;
+        final long submissionTimeNanos = System.nanoTime();
+        long startTimeNanos;
+
+        TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+}
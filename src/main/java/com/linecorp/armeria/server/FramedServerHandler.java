@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linecorp.armeria.common.ServiceInvocationContext;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.util.Exceptions;
+import com.linecorp.armeria.server.ServiceCodec.DecodeResult;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+/**
+ * Handles the frames received from a {@link SessionProtocol#FRAMED} port. Unlike {@link HttpServerHandler},
+ * a frame has neither a host name nor a path, so every frame is handled by the service bound at
+ * {@link #PATH} of the default {@link VirtualHost}. The responses are written in the order of completion;
+ * the client tells them apart by their sequence IDs.
+ */
+final class FramedServerHandler extends ChannelInboundHandlerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FramedServerHandler.class);
+
+    /**
+     * The path of the service which handles the frames.
+     */
+    static final String PATH = "/";
+
+    private static final ChannelFutureListener CLOSE_ON_FAILURE = future -> {
+        final Throwable cause = future.cause();
+        if (cause != null) {
+            Exceptions.logIfUnexpected(logger, future.channel(), cause);
+            future.channel().close();
+        }
+    };
+
+    private final ServerConfig config;
+
+    FramedServerHandler(ServerConfig config) {
+        this.config = requireNonNull(config, "config");
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        final ByteBuf frame = (ByteBuf) msg;
+        boolean invoked = false;
+        try {
+            final VirtualHost host = config.defaultVirtualHost();
+            final PathMapped<ServiceConfig> mapped = host.findServiceConfig(PATH);
+            if (!mapped.isPresent()) {
+                logger.warn("{} No service bound at '{}' of the default virtual host; closing the connection",
+                            ctx.channel(), PATH);
+                respond(ctx, Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+                return;
+            }
+
+            final ServiceConfig serviceCfg = mapped.value();
+            final Service service = serviceCfg.service();
+            final ServiceCodec codec = service.codec();
+            final Promise<Object> promise = ctx.executor().newPromise();
+            final DecodeResult decodeResult = codec.decodeRequest(
+                    serviceCfg, ctx.channel(), SessionProtocol.FRAMED,
+                    host.hostnamePattern(), PATH, mapped.mappedPath(), frame, frame, promise);
+
+            switch (decodeResult.type()) {
+            case SUCCESS: {
+                final ServiceInvocationContext iCtx = decodeResult.invocationContext();
+                invoke(iCtx, service.handler(), serviceCfg.blockingTaskExecutor(), promise);
+                invoked = true;
+                handleInvocationPromise(ctx, frame, codec, iCtx, promise);
+                break;
+            }
+            case FAILURE: {
+                final Object errorResponse = decodeResult.errorResponse();
+                promise.tryFailure(new RequestDecodeException(decodeResult.cause(), 0));
+                if (errorResponse instanceof ByteBuf) {
+                    // An encoded Thrift exception.
+                    respond(ctx, (ByteBuf) errorResponse);
+                } else {
+                    // Cannot tell the client about the failure without an HTTP envelope.
+                    ReferenceCountUtil.safeRelease(errorResponse);
+                    respond(ctx, Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+                }
+                break;
+            }
+            case NOT_FOUND:
+                promise.tryFailure(new ServiceNotFoundException());
+                respond(ctx, Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+                break;
+            }
+        } finally {
+            // If invocation has been started successfully, handleInvocationResult() will release the frame
+            // when the invocation is done.
+            if (!invoked) {
+                ReferenceCountUtil.safeRelease(frame);
+            }
+        }
+    }
+
+    private void invoke(ServiceInvocationContext iCtx, ServiceInvocationHandler handler,
+                        Executor blockingTaskExecutor, Promise<Object> promise) {
+
+        ServiceInvocationContext.setCurrent(iCtx);
+        try {
+            handler.invoke(iCtx, blockingTaskExecutor, promise);
+        } catch (Throwable t) {
+            if (!promise.tryFailure(t)) {
+                logger.warn("{} invoke() failed with a finished promise: {}", iCtx, promise, t);
+            }
+        } finally {
+            ServiceInvocationContext.removeCurrent();
+        }
+    }
+
+    private void handleInvocationPromise(ChannelHandlerContext ctx, ByteBuf frame, ServiceCodec codec,
+                                         ServiceInvocationContext iCtx, Promise<Object> promise)
+            throws Exception {
+
+        if (promise.isDone()) {
+            handleInvocationResult(ctx, frame, iCtx, codec, promise, null);
+            return;
+        }
+
+        final long timeoutMillis = config.requestTimeoutPolicy().timeout(iCtx);
+        final ScheduledFuture<?> timeoutFuture;
+        if (timeoutMillis > 0) {
+            timeoutFuture = ctx.executor().schedule(
+                    () -> promise.tryFailure(new RequestTimeoutException(
+                            "request timed out after " + timeoutMillis + "ms: " + iCtx)),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+        } else {
+            timeoutFuture = null;
+        }
+
+        promise.addListener((Future<Object> future) -> {
+            try {
+                handleInvocationResult(ctx, frame, iCtx, codec, future, timeoutFuture);
+            } catch (Exception e) {
+                Exceptions.logIfUnexpected(logger, ctx.channel(), e);
+                ctx.close();
+            }
+        });
+    }
+
+    private static void handleInvocationResult(
+            ChannelHandlerContext ctx, ByteBuf frame, ServiceInvocationContext iCtx, ServiceCodec codec,
+            Future<Object> future, ScheduledFuture<?> timeoutFuture) throws Exception {
+
+        ReferenceCountUtil.safeRelease(frame);
+
+        if (timeoutFuture != null && !timeoutFuture.isDone()) {
+            timeoutFuture.cancel(true);
+        }
+
+        final ByteBuf encoded;
+        if (future.isSuccess()) {
+            encoded = codec.encodeResponse(iCtx, future.getNow());
+        } else {
+            encoded = codec.encodeFailureResponse(iCtx, future.cause());
+        }
+
+        // A null response means a oneway call, which has no reply.
+        respond(ctx, encoded != null ? encoded : Unpooled.EMPTY_BUFFER);
+    }
+
+    /**
+     * Writes the specified response frame. An empty buffer marks the end of a call which has no reply,
+     * so that the request counting handlers such as {@link GracefulShutdownHandler} are notified;
+     * {@link FrameEncoder} writes nothing for it.
+     */
+    private static ChannelFuture respond(ChannelHandlerContext ctx, ByteBuf content) {
+        return ctx.writeAndFlush(content).addListener(CLOSE_ON_FAILURE);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        Exceptions.logIfUnexpected(logger, ctx.channel(), cause);
+        if (ctx.channel().isActive()) {
+            ctx.close();
+        }
+    }
+
+    /**
+     * Prepends the length of a frame, but writes nothing for an empty buffer, which does not have to
+     * reach the client.
+     */
+    static final class FrameEncoder extends LengthFieldPrepender {
+
+        FrameEncoder() {
+            super(4);
+        }
+
+        @Override
+        protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+            if (!msg.isReadable()) {
+                out.add(Unpooled.EMPTY_BUFFER);
+                return;
+            }
+            super.encode(ctx, msg, out);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 
 import com.linecorp.armeria.common.util.Ticker;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
@@ -60,11 +61,12 @@ class GracefulShutdownHandler extends ChannelDuplexHandler {
     }
 
     boolean isRequestStart(Object msg) {
-        return msg instanceof HttpRequest;
+        // A ByteBuf is a whole request frame of a SessionProtocol.FRAMED port.
+        return msg instanceof HttpRequest || msg instanceof ByteBuf;
     }
 
     boolean isResponseEnd(Object msg) {
-        return msg instanceof LastHttpContent;
+        return msg instanceof LastHttpContent || msg instanceof ByteBuf;
     }
 
     @Override
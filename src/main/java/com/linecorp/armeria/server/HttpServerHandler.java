@@ -19,6 +19,8 @@ package com.linecorp.armeria.server;
 import static java.util.Objects.requireNonNull;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -224,7 +226,7 @@ final class HttpServerHandler extends ChannelInboundHandlerAdapter {
             case SUCCESS: {
                 // A successful decode; perform the invocation.
                 final ServiceInvocationContext iCtx = decodeResult.invocationContext();
-                invoke(iCtx, service.handler(), promise);
+                invoke(iCtx, service.handler(), serviceCfg.blockingTaskExecutor(), promise);
                 invoked = true;
 
                 // Do the post-invocation tasks such as scheduling a timeout.
@@ -273,11 +275,11 @@ final class HttpServerHandler extends ChannelInboundHandlerAdapter {
     }
 
     private void invoke(ServiceInvocationContext iCtx, ServiceInvocationHandler handler,
-                        Promise<Object> promise) {
+                        Executor blockingTaskExecutor, Promise<Object> promise) {
 
         ServiceInvocationContext.setCurrent(iCtx);
         try {
-            handler.invoke(iCtx, config.blockingTaskExecutor(), promise);
+            handler.invoke(iCtx, blockingTaskExecutor, promise);
         } catch (Throwable t) {
             if (!promise.tryFailure(t)) {
                 logger.warn("{} invoke() failed with a finished promise: {}", iCtx, promise, t);
@@ -383,7 +385,7 @@ final class HttpServerHandler extends ChannelInboundHandlerAdapter {
     }
 
     private static HttpResponseStatus toHttpResponseStatus(Throwable cause) {
-        if (cause instanceof RequestTimeoutException) {
+        if (cause instanceof RequestTimeoutException || cause instanceof RejectedExecutionException) {
             return HttpResponseStatus.SERVICE_UNAVAILABLE;
         }
 
@@ -21,6 +21,7 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.http.FullHttpResponse;
@@ -48,7 +49,8 @@ class HttpServerIdleTimeoutHandler extends IdleStateHandler {
     }
 
     boolean isRequestStart(Object msg) {
-        return msg instanceof HttpRequest;
+        // A ByteBuf is a whole request frame of a SessionProtocol.FRAMED port.
+        return msg instanceof HttpRequest || msg instanceof ByteBuf;
     }
 
     boolean isResponseEnd(Object msg) {
@@ -56,7 +58,7 @@ class HttpServerIdleTimeoutHandler extends IdleStateHandler {
             return !"1".equals(((HttpMessage) msg).headers().get(ExtensionHeaderNames.STREAM_ID.text()));
         }
 
-        return msg instanceof LastHttpContent;
+        return msg instanceof LastHttpContent || msg instanceof ByteBuf;
     }
 
     @Override
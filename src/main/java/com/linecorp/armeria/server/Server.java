@@ -19,6 +19,7 @@ package com.linecorp.armeria.server;
 import static java.util.Objects.requireNonNull;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,9 @@ import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.linecorp.armeria.common.DomainSocketAddress;
+import com.linecorp.armeria.common.SessionProtocol;
+
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
@@ -41,7 +45,10 @@ import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.epoll.Epoll;
 import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
 import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalServerChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.ssl.SslContext;
@@ -65,8 +72,8 @@ public final class Server implements AutoCloseable {
     private final DomainNameMapping<SslContext> sslContexts;
 
     private final StateManager stateManager = new StateManager();
-    private final Map<InetSocketAddress, ServerPort> activePorts = new ConcurrentHashMap<>();
-    private final Map<InetSocketAddress, ServerPort> unmodifiableActivePorts = Collections.unmodifiableMap(activePorts);
+    private final Map<SocketAddress, ServerPort> activePorts = new ConcurrentHashMap<>();
+    private final Map<SocketAddress, ServerPort> unmodifiableActivePorts = Collections.unmodifiableMap(activePorts);
 
     private final List<ServerListener> listeners = new CopyOnWriteArrayList<>();
 
@@ -132,12 +139,13 @@ public final class Server implements AutoCloseable {
     /**
      * Returns all {@link ServerPort}s that this {@link Server} is listening to.
      *
-     * @return a {@link Map} whose key is the bind address and value is {@link ServerPort}.
+     * @return a {@link Map} whose key is the bind address, i.e. an {@link InetSocketAddress} or
+     *         a {@link DomainSocketAddress}, and value is {@link ServerPort}.
      *         an empty {@link Map} if this {@link Server} did not start.
      *
      * @see Server#activePort()
      */
-    public Map<InetSocketAddress, ServerPort> activePorts() {
+    public Map<SocketAddress, ServerPort> activePorts() {
         return unmodifiableActivePorts;
     }
 
@@ -267,10 +275,26 @@ public final class Server implements AutoCloseable {
         ServerBootstrap b = new ServerBootstrap();
 
         b.group(bossGroup, workerGroup);
-        b.channel(Epoll.isAvailable()? EpollServerSocketChannel.class : NioServerSocketChannel.class);
         b.childHandler(new ServerInitializer(config, port, sslContexts, gracefulShutdownHandler));
 
-        return b.bind(port.localAddress());
+        final SocketAddress localAddress = port.localSocketAddress();
+        if (port.protocol() == SessionProtocol.LOCAL) {
+            b.channel(LocalServerChannel.class);
+            return b.bind(new LocalAddress(port.localAddress().getHostString()));
+        }
+
+        if (localAddress instanceof DomainSocketAddress) {
+            if (!Epoll.isAvailable()) {
+                throw new IllegalStateException(
+                        "Unix domain socket requires the native epoll transport: " + port,
+                        Epoll.unavailabilityCause());
+            }
+            b.channel(EpollServerDomainSocketChannel.class);
+            return b.bind(((DomainSocketAddress) localAddress).asNettyAddress());
+        }
+
+        b.channel(Epoll.isAvailable()? EpollServerSocketChannel.class : NioServerSocketChannel.class);
+        return b.bind(localAddress);
     }
 
     /**
@@ -561,8 +585,19 @@ public final class Server implements AutoCloseable {
             }
 
             if (f.isSuccess()) {
-                InetSocketAddress localAddress = (InetSocketAddress) f.channel().localAddress();
-                ServerPort actualPort = new ServerPort(localAddress, port.protocol());
+                final SocketAddress boundAddress = f.channel().localAddress();
+                final SocketAddress localAddress;
+                final ServerPort actualPort;
+                if (boundAddress instanceof LocalAddress) {
+                    localAddress = InetSocketAddress.createUnresolved(((LocalAddress) boundAddress).id(), 0);
+                    actualPort = new ServerPort((InetSocketAddress) localAddress, port.protocol());
+                } else if (boundAddress instanceof io.netty.channel.unix.DomainSocketAddress) {
+                    localAddress = DomainSocketAddress.convert(boundAddress);
+                    actualPort = new ServerPort((DomainSocketAddress) localAddress, port.protocol());
+                } else {
+                    localAddress = boundAddress;
+                    actualPort = new ServerPort((InetSocketAddress) localAddress, port.protocol());
+                }
 
                 activePorts.put(localAddress, actualPort);
 
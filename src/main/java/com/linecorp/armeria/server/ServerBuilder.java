@@ -31,6 +31,7 @@ import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLException;
 
+import com.linecorp.armeria.common.DomainSocketAddress;
 import com.linecorp.armeria.common.ServiceInvocationContext;
 import com.linecorp.armeria.common.SessionProtocol;
 import com.linecorp.armeria.common.TimeoutPolicy;
@@ -122,6 +123,9 @@ public final class ServerBuilder {
      * interfaces using the specified {@link SessionProtocol}. If no port is added (i.e. no {@code port()}
      * method is called), a default of {@code 0} (randomly-assigned port) and {@link SessionProtocol#HTTP}
      * will be used.
+     *
+     * <p>Note that a {@link SessionProtocol#FRAMED} port has neither host names nor paths, and thus it serves
+     * only the Thrift service bound at {@code "/"} of the default virtual host.</p>
      */
     public ServerBuilder port(int port, SessionProtocol protocol) {
         ports.add(new ServerPort(port, protocol));
@@ -138,6 +142,27 @@ public final class ServerBuilder {
         return this;
     }
 
+    /**
+     * Adds a new {@link ServerPort} that listens to the Unix domain socket of the specified
+     * {@code localAddress} using the specified {@link SessionProtocol}. Note that a Unix domain socket is
+     * available only when the native epoll transport is available.
+     */
+    public ServerBuilder port(DomainSocketAddress localAddress, SessionProtocol protocol) {
+        ports.add(new ServerPort(localAddress, protocol));
+        return this;
+    }
+
+    /**
+     * Adds a new {@link ServerPort} that listens to the in-JVM local port of the specified {@code name}
+     * using {@link SessionProtocol#LOCAL}. The clients in the same JVM connect to it with a URI whose
+     * host part is the {@code name}, e.g. {@code "tbinary+local://<name>/path"}, without using sockets.
+     */
+    public ServerBuilder localPort(String name) {
+        requireNonNull(name, "name");
+        ports.add(new ServerPort(InetSocketAddress.createUnresolved(name, 0), SessionProtocol.LOCAL));
+        return this;
+    }
+
     /**
      * Adds the specified {@link ServerPort}. If no port is added (i.e. no {@code port()} method is called),
      * a default of {@code 0} (randomly-assigned port) and {@link SessionProtocol#HTTP} will be used.
@@ -268,7 +293,12 @@ public final class ServerBuilder {
 
     /**
      * Sets the {@link Executor} dedicated to the execution of blocking tasks or invocations.
-     * If not set, the global default thread pool is used instead.
+     * If not set, the global default thread pool is used instead. A {@link VirtualHost} or a {@link Service}
+     * can have its own {@link Executor} instead.
+     *
+     * @see VirtualHostBuilder#blockingTaskExecutor(Executor)
+     * @see #service(PathMapping, Service, Executor)
+     * @see VirtualThreadExecutors
      */
     public ServerBuilder blockingTaskExecutor(Executor blockingTaskExecutor) {
         this.blockingTaskExecutor = requireNonNull(blockingTaskExecutor, "blockingTaskExecutor");
@@ -390,6 +420,48 @@ public final class ServerBuilder {
         return this;
     }
 
+    /**
+     * Binds the specified {@link Service} at the specified {@link PathMapping} of the default
+     * {@link VirtualHost}.
+     *
+     * @param blockingTaskExecutor the {@link Executor} dedicated to the execution of the blocking tasks or
+     *                             invocations of the {@link Service}, instead of
+     *                             {@link #blockingTaskExecutor(Executor)}
+     *
+     * @throws IllegalStateException if the default {@link VirtualHost} has been set via
+     *                               {@link #defaultVirtualHost(VirtualHost)} already
+     *
+     * @see BoundedBlockingTaskExecutor
+     */
+    public ServerBuilder service(PathMapping pathMapping, Service service, Executor blockingTaskExecutor) {
+        defaultVirtualHostBuilderUpdated();
+        defaultVirtualHostBuilder.service(pathMapping, service, blockingTaskExecutor);
+        return this;
+    }
+
+    /**
+     * Binds the specified {@link Service} at the specified {@link PathMapping} of the default
+     * {@link VirtualHost}.
+     *
+     * @param loggerName the name of the {@linkplain ServiceInvocationContext#logger() service logger};
+     *                   must be a string of valid Java identifier names concatenated by period ({@code '.'}),
+     *                   such as a package name or a fully-qualified class name
+     * @param blockingTaskExecutor the {@link Executor} dedicated to the execution of the blocking tasks or
+     *                             invocations of the {@link Service}, instead of
+     *                             {@link #blockingTaskExecutor(Executor)}
+     *
+     * @throws IllegalStateException if the default {@link VirtualHost} has been set via
+     *                               {@link #defaultVirtualHost(VirtualHost)} already
+     *
+     * @see BoundedBlockingTaskExecutor
+     */
+    public ServerBuilder service(PathMapping pathMapping, Service service, String loggerName,
+                                 Executor blockingTaskExecutor) {
+        defaultVirtualHostBuilderUpdated();
+        defaultVirtualHostBuilder.service(pathMapping, service, loggerName, blockingTaskExecutor);
+        return this;
+    }
+
     private void defaultVirtualHostBuilderUpdated() {
         updatedDefaultVirtualHostBuilder = true;
         if (defaultVirtualHost != null) {
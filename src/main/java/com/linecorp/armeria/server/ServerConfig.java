@@ -196,9 +196,10 @@ public final class ServerConfig {
         }
 
         return new VirtualHost(
-                "*", sslCtx,
+                "*", sslCtx, h.blockingTaskExecutorWithoutDefault(),
                 h.serviceConfigs().stream().map(
-                        e -> new ServiceConfig(e.pathMapping(), e.service(), e.loggerNameWithoutPrefix()))
+                        e -> new ServiceConfig(e.pathMapping(), e.service(), e.loggerNameWithoutPrefix(),
+                                               e.blockingTaskExecutorWithoutDefault()))
                  .collect(Collectors.toList()));
     }
 
@@ -398,7 +399,7 @@ public final class ServerConfig {
 
         boolean hasPorts = false;
         for (ServerPort p : ports) {
-            buf.append(ServerPort.toString(null, p.localAddress(), p.protocol()));
+            buf.append(ServerPort.toString(null, p.localSocketAddress(), p.protocol()));
             buf.append(", ");
             hasPorts = true;
         }
@@ -30,6 +30,7 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.HttpServerUpgradeHandler;
@@ -80,7 +81,9 @@ final class ServerInitializer extends ChannelInitializer<Channel> {
     protected void initChannel(Channel ch) throws Exception {
         final ChannelPipeline p = ch.pipeline();
 
-        if (port.protocol().isTls()) {
+        if (port.protocol() == SessionProtocol.FRAMED) {
+            configureFramed(p);
+        } else if (port.protocol().isTls()) {
             p.addLast(new SniHandler(sslContexts) {
                 @Override
                 protected void decode(
@@ -125,6 +128,13 @@ final class ServerInitializer extends ChannelInitializer<Channel> {
         p.addLast(new HttpServerHandler(config, SessionProtocol.H1C));
     }
 
+    private void configureFramed(ChannelPipeline p) {
+        p.addLast(new LengthFieldBasedFrameDecoder(config.maxFrameLength(), 0, 4, 0, 4));
+        p.addLast(new FramedServerHandler.FrameEncoder());
+        configureRequestCountingHandlers(p);
+        p.addLast(new FramedServerHandler(config));
+    }
+
     private void configureRequestCountingHandlers(ChannelPipeline p) {
         if (config.idleTimeoutMillis() > 0) {
             p.addLast(new HttpServerIdleTimeoutHandler(config.idleTimeoutMillis()));
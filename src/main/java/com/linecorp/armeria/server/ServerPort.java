@@ -20,8 +20,10 @@ import static java.util.Objects.requireNonNull;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.net.UnknownHostException;
 
+import com.linecorp.armeria.common.DomainSocketAddress;
 import com.linecorp.armeria.common.SessionProtocol;
 
 /**
@@ -29,7 +31,7 @@ import com.linecorp.armeria.common.SessionProtocol;
  */
 public final class ServerPort implements Comparable<ServerPort> {
 
-    private final InetSocketAddress localAddress;
+    private final SocketAddress localAddress;
     private final String localAddressString;
     private final SessionProtocol protocol;
     private int hashCode;
@@ -49,8 +51,12 @@ public final class ServerPort implements Comparable<ServerPort> {
      */
     public ServerPort(InetSocketAddress localAddress, SessionProtocol protocol) {
 
+        requireNonNull(localAddress, "localAddress");
+        validateProtocol(protocol);
+
         // Try to resolve the localAddress if not resolved yet.
-        if (requireNonNull(localAddress, "localAddress").isUnresolved()) {
+        // The host name of a local port is its name, which must not be resolved.
+        if (localAddress.isUnresolved() && protocol != SessionProtocol.LOCAL) {
             try {
                 localAddress = new InetSocketAddress(
                         InetAddress.getByName(localAddress.getHostString()),
@@ -60,24 +66,63 @@ public final class ServerPort implements Comparable<ServerPort> {
             }
         }
 
-        requireNonNull(protocol, "protocol");
+        this.localAddress = localAddress;
+        this.protocol = protocol;
+
+        if (protocol == SessionProtocol.LOCAL) {
+            localAddressString = "local:" + localAddress.getHostString();
+        } else {
+            localAddressString = localAddress.getAddress().getHostAddress() + ':' + localAddress.getPort();
+        }
+    }
 
-        if (protocol != SessionProtocol.HTTP && protocol != SessionProtocol.HTTPS) {
+    /**
+     * Creates a new {@link ServerPort} that listens to the Unix domain socket of the specified
+     * {@code localAddress} using the specified {@link SessionProtocol}.
+     */
+    public ServerPort(DomainSocketAddress localAddress, SessionProtocol protocol) {
+        requireNonNull(localAddress, "localAddress");
+        validateProtocol(protocol);
+        if (protocol == SessionProtocol.LOCAL) {
             throw new IllegalArgumentException(
                     "protocol: " + protocol +
-                    " (expected: " + SessionProtocol.HTTP + " or " + SessionProtocol.HTTPS + ')');
+                    " (expected: a protocol other than " + SessionProtocol.LOCAL + ')');
         }
 
         this.localAddress = localAddress;
         this.protocol = protocol;
+        localAddressString = localAddress.toString();
+    }
 
-        localAddressString = localAddress.getAddress().getHostAddress() + ':' + localAddress.getPort();
+    private static void validateProtocol(SessionProtocol protocol) {
+        requireNonNull(protocol, "protocol");
+        if (protocol != SessionProtocol.HTTP && protocol != SessionProtocol.HTTPS &&
+            protocol != SessionProtocol.LOCAL && protocol != SessionProtocol.FRAMED) {
+            throw new IllegalArgumentException(
+                    "protocol: " + protocol +
+                    " (expected: " + SessionProtocol.HTTP + ", " + SessionProtocol.HTTPS + ", " +
+                    SessionProtocol.LOCAL + " or " + SessionProtocol.FRAMED + ')');
+        }
     }
 
     /**
-     * Returns the local address this {@link ServerPort} listens to.
+     * Returns the local IP address and port this {@link ServerPort} listens to.
+     *
+     * @throws IllegalStateException if this {@link ServerPort} listens to a Unix domain socket.
+     *                               Use {@link #localSocketAddress()} instead.
      */
     public InetSocketAddress localAddress() {
+        if (!(localAddress instanceof InetSocketAddress)) {
+            throw new IllegalStateException("not an IP socket address: " + localAddress);
+        }
+        return (InetSocketAddress) localAddress;
+    }
+
+    /**
+     * Returns the local address this {@link ServerPort} listens to, which is either
+     * an {@link InetSocketAddress} or a {@link DomainSocketAddress}.
+     */
+    public SocketAddress localSocketAddress() {
         return localAddress;
     }
 
@@ -131,13 +176,13 @@ public final class ServerPort implements Comparable<ServerPort> {
     public String toString() {
         String strVal = this.strVal;
         if (strVal == null) {
-            this.strVal = strVal = toString(getClass(), localAddress(), protocol());
+            this.strVal = strVal = toString(getClass(), localSocketAddress(), protocol());
         }
 
         return strVal;
     }
 
-    static String toString(Class<?> type, InetSocketAddress localAddress, SessionProtocol protocol) {
+    static String toString(Class<?> type, SocketAddress localAddress, SessionProtocol protocol) {
         StringBuilder buf = new StringBuilder();
         if (type != null) {
             buf.append(type.getSimpleName());
@@ -19,6 +19,7 @@ package com.linecorp.armeria.server;
 import static java.util.Objects.requireNonNull;
 
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
@@ -43,6 +44,7 @@ public final class ServiceConfig {
     private final PathMapping pathMapping;
     private final String loggerName;
     private final Service service;
+    private final Executor blockingTaskExecutor;
 
     private String fullLoggerName;
 
@@ -58,18 +60,31 @@ public final class ServiceConfig {
      */
     public ServiceConfig(VirtualHost virtualHost, PathMapping pathMapping, Service service,
                          @Nullable String loggerName) {
-        this(pathMapping, service, loggerName);
+        this(virtualHost, pathMapping, service, loggerName, null);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param blockingTaskExecutor the {@link Executor} dedicated to the blocking tasks of the {@link Service},
+     *                             or {@code null} to use the {@link Executor} of the {@link VirtualHost}
+     */
+    public ServiceConfig(VirtualHost virtualHost, PathMapping pathMapping, Service service,
+                         @Nullable String loggerName, @Nullable Executor blockingTaskExecutor) {
+        this(pathMapping, service, loggerName, blockingTaskExecutor);
         this.virtualHost = requireNonNull(virtualHost, "virtualHost");
     }
 
     /**
      * Creates a new instance.
      */
-    ServiceConfig(PathMapping pathMapping, Service service, @Nullable String loggerName) {
+    ServiceConfig(PathMapping pathMapping, Service service, @Nullable String loggerName,
+                  @Nullable Executor blockingTaskExecutor) {
         this.pathMapping = requireNonNull(pathMapping, "pathMapping");
         this.service = requireNonNull(service, "service");
         this.loggerName = loggerName != null ? validateLoggerName(loggerName, "loggerName")
                                              : defaultLoggerName(pathMapping);
+        this.blockingTaskExecutor = blockingTaskExecutor;
     }
 
     static String validateLoggerName(String value, String propertyName) {
@@ -134,7 +149,7 @@ public final class ServiceConfig {
 
     ServiceConfig build(VirtualHost virtualHost) {
         requireNonNull(virtualHost, "virtualHost");
-        return new ServiceConfig(virtualHost, pathMapping(), service());
+        return new ServiceConfig(virtualHost, pathMapping(), service(), loggerName, blockingTaskExecutor);
     }
 
     /**
@@ -168,6 +183,24 @@ public final class ServiceConfig {
         return service;
     }
 
+    /**
+     * Returns the {@link Executor} dedicated to the execution of the blocking tasks or invocations of
+     * the {@link #service()}. If not set, the {@link Executor} of the {@link #virtualHost()} is returned.
+     *
+     * @see VirtualHost#blockingTaskExecutor()
+     */
+    public Executor blockingTaskExecutor() {
+        if (blockingTaskExecutor != null) {
+            return blockingTaskExecutor;
+        }
+        return virtualHost().blockingTaskExecutor();
+    }
+
+    @Nullable
+    Executor blockingTaskExecutorWithoutDefault() {
+        return blockingTaskExecutor;
+    }
+
     /**
      * Returns the name of the {@link ServiceInvocationContext#logger() service logger}.
      */
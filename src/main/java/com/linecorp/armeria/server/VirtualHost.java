@@ -23,6 +23,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+
+import javax.annotation.Nullable;
 
 import io.netty.handler.ssl.SslContext;
 
@@ -34,6 +37,7 @@ import io.netty.handler.ssl.SslContext;
  *       <a href="http://tools.ietf.org/html/rfc2818#section-3.1">the section 3.1 of RFC2818</a></li>
  *   <li>{@link SslContext} if TLS is enabled</li>
  *   <li>the list of available {@link Service}s and their {@link PathMapping}s</li>
+ *   <li>the {@link Executor} dedicated to the blocking tasks of the {@link Service}s if set</li>
  * </ul>
  *
  * @see VirtualHostBuilder
@@ -45,15 +49,18 @@ public final class VirtualHost {
 
     private final String hostnamePattern;
     private final SslContext sslContext;
+    private final Executor blockingTaskExecutor;
     private final List<ServiceConfig> services;
     private final PathMappings<ServiceConfig> serviceMapping = new PathMappings<>();
 
     private String strVal;
 
-    VirtualHost(String hostnamePattern, SslContext sslContext, Iterable<ServiceConfig> serviceConfigs) {
+    VirtualHost(String hostnamePattern, SslContext sslContext, @Nullable Executor blockingTaskExecutor,
+                Iterable<ServiceConfig> serviceConfigs) {
 
         this.hostnamePattern = normalizeHostnamePattern(hostnamePattern);
         this.sslContext = validateSslContext(sslContext);
+        this.blockingTaskExecutor = blockingTaskExecutor;
 
         requireNonNull(serviceConfigs, "serviceConfigs");
 
@@ -131,6 +138,28 @@ public final class VirtualHost {
         return sslContext;
     }
 
+    /**
+     * Returns the {@link Executor} dedicated to the execution of the blocking tasks or invocations of
+     * the {@link Service}s of this virtual host. If not set, {@link ServerConfig#blockingTaskExecutor()}
+     * is returned.
+     *
+     * @see ServiceConfig#blockingTaskExecutor()
+     */
+    public Executor blockingTaskExecutor() {
+        if (blockingTaskExecutor != null) {
+            return blockingTaskExecutor;
+        }
+        if (serverConfig == null) {
+            throw new IllegalStateException("server is not configured yet.");
+        }
+        return serverConfig.blockingTaskExecutor();
+    }
+
+    @Nullable
+    Executor blockingTaskExecutorWithoutDefault() {
+        return blockingTaskExecutor;
+    }
+
     /**
      * Returns the information about the {@link Service}s bound to this virtual host.
      */
@@ -21,6 +21,7 @@ import static java.util.Objects.requireNonNull;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import javax.net.ssl.SSLException;
 
@@ -65,6 +66,7 @@ public final class VirtualHostBuilder {
     private final String hostnamePattern;
     private final List<ServiceConfig> services = new ArrayList<>();
     private SslContext sslContext;
+    private Executor blockingTaskExecutor;
 
     /**
      * Creates a new {@link VirtualHostBuilder} whose hostname pattern is {@code "*"} (match-all).
@@ -116,6 +118,18 @@ public final class VirtualHostBuilder {
         return this;
     }
 
+    /**
+     * Sets the {@link Executor} dedicated to the execution of the blocking tasks or invocations of
+     * the {@link Service}s of this {@link VirtualHost}. If not set, {@link ServerConfig#blockingTaskExecutor()}
+     * is used instead.
+     *
+     * @see BoundedBlockingTaskExecutor
+     */
+    public VirtualHostBuilder blockingTaskExecutor(Executor blockingTaskExecutor) {
+        this.blockingTaskExecutor = requireNonNull(blockingTaskExecutor, "blockingTaskExecutor");
+        return this;
+    }
+
     /**
      * Binds the specified {@link Service} at the specified exact path.
      */
@@ -134,7 +148,21 @@ public final class VirtualHostBuilder {
      * Binds the specified {@link Service} at the specified {@link PathMapping}.
      */
     public VirtualHostBuilder service(PathMapping pathMapping, Service service) {
-        services.add(new ServiceConfig(pathMapping, service, null));
+        services.add(new ServiceConfig(pathMapping, service, null, null));
+        return this;
+    }
+
+    /**
+     * Binds the specified {@link Service} at the specified {@link PathMapping}.
+     *
+     * @param blockingTaskExecutor the {@link Executor} dedicated to the execution of the blocking tasks or
+     *                             invocations of the {@link Service}
+     *
+     * @see BoundedBlockingTaskExecutor
+     */
+    public VirtualHostBuilder service(PathMapping pathMapping, Service service, Executor blockingTaskExecutor) {
+        requireNonNull(blockingTaskExecutor, "blockingTaskExecutor");
+        services.add(new ServiceConfig(pathMapping, service, null, blockingTaskExecutor));
         return this;
     }
 
@@ -146,7 +174,26 @@ public final class VirtualHostBuilder {
      *                   such as a package name or a fully-qualified class name
      */
     public VirtualHostBuilder service(PathMapping pathMapping, Service service, String loggerName) {
-        services.add(new ServiceConfig(pathMapping, service, loggerName));
+        services.add(new ServiceConfig(pathMapping, service, loggerName, null));
+        return this;
+    }
+
+    /**
+     * Binds the specified {@link Service} at the specified {@link PathMapping}.
+     *
+     * @param loggerName the name of the {@linkplain ServiceInvocationContext#logger() service logger};
+     *                   must be a string of valid Java identifier names concatenated by period ({@code '.'}),
+     *                   such as a package name or a fully-qualified class name
+     * @param blockingTaskExecutor the {@link Executor} dedicated to the execution of the blocking tasks or
+     *                             invocations of the {@link Service}
+     *
+     * @see BoundedBlockingTaskExecutor
+     */
+    public VirtualHostBuilder service(PathMapping pathMapping, Service service, String loggerName,
+                                      Executor blockingTaskExecutor) {
+        requireNonNull(loggerName, "loggerName");
+        requireNonNull(blockingTaskExecutor, "blockingTaskExecutor");
+        services.add(new ServiceConfig(pathMapping, service, loggerName, blockingTaskExecutor));
         return this;
     }
 
@@ -154,7 +201,7 @@ public final class VirtualHostBuilder {
      * Creates a new {@link VirtualHost}.
      */
     public VirtualHost build() {
-        return new VirtualHost(hostnamePattern, sslContext, services);
+        return new VirtualHost(hostnamePattern, sslContext, blockingTaskExecutor, services);
     }
 
     @Override
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates an {@link ExecutorService} which runs each task in a new virtual thread, so that
+ * the synchronous services which block for a long time, such as a Thrift {@code *.Iface} implementation
+ * or a {@link com.linecorp.armeria.server.http.tomcat.TomcatService} which queries a slow database,
+ * can have a lot more concurrent invocations than the threads of a thread pool.
+ * Virtual threads are available since Java 21, and this class is loaded without them as well.
+ * <pre>{@code
+ * ServerBuilder sb = new ServerBuilder();
+ * if (VirtualThreadExecutors.isAvailable()) {
+ *     sb.blockingTaskExecutor(VirtualThreadExecutors.newExecutor("armeria-blocking-tasks"));
+ * }
+ * }</pre>
+ *
+ * <p>{@link com.linecorp.armeria.common.ServiceInvocationContext#current()} works in a virtual thread as
+ * usual. Note that a virtual thread is pinned to its carrier thread while it blocks in
+ * a {@code synchronized} block, and that no limit is applied to the number of the concurrent tasks.
+ */
+public final class VirtualThreadExecutors {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadExecutors.class);
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        Throwable cause = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builderName = builderType.getMethod("name", String.class, long.class);
+            builderFactory = builderType.getMethod("factory");
+            newThreadPerTaskExecutor =
+                    Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+
+            // Virtual threads are a preview feature before Java 21.
+            newThreadFactory(ofVirtual, builderName, builderFactory, "armeria-virtual-thread-test-")
+                    .newThread(() -> {});
+        } catch (Throwable t) {
+            cause = t instanceof InvocationTargetException ? t.getCause() : t;
+        }
+
+        if (cause == null) {
+            OF_VIRTUAL = ofVirtual;
+            BUILDER_NAME = builderName;
+            BUILDER_FACTORY = builderFactory;
+            NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+        } else {
+            logger.debug("Virtual threads are not available:", cause);
+            OF_VIRTUAL = null;
+            BUILDER_NAME = null;
+            BUILDER_FACTORY = null;
+            NEW_THREAD_PER_TASK_EXECUTOR = null;
+        }
+        UNAVAILABILITY_CAUSE = cause;
+    }
+
+    /**
+     * Returns whether virtual threads are available in the current JVM.
+     */
+    public static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Ensures that virtual threads are available in the current JVM.
+     *
+     * @throws UnsupportedOperationException if virtual threads are not available
+     */
+    public static void ensureAvailability() {
+        if (UNAVAILABILITY_CAUSE != null) {
+            final UnsupportedOperationException e = new UnsupportedOperationException(
+                    "virtual threads are not available (expected: Java 21 or above)");
+            e.initCause(UNAVAILABILITY_CAUSE);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the cause of the unavailability of virtual threads, or {@code null} if they are available.
+     */
+    public static Throwable unavailabilityCause() {
+        return UNAVAILABILITY_CAUSE;
+    }
+
+    /**
+     * Creates a new {@link ExecutorService} which runs each task in a new virtual thread.
+     *
+     * @param name the prefix of the names of the virtual threads
+     *
+     * @throws UnsupportedOperationException if virtual threads are not available
+     */
+    public static ExecutorService newExecutor(String name) {
+        requireNonNull(name, "name");
+        ensureAvailability();
+        try {
+            final ThreadFactory threadFactory =
+                    newThreadFactory(OF_VIRTUAL, BUILDER_NAME, BUILDER_FACTORY, name + '-');
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("failed to create a virtual thread executor", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("failed to create a virtual thread executor", e);
+        }
+    }
+
+    private static ThreadFactory newThreadFactory(
+            Method ofVirtual, Method builderName, Method builderFactory,
+            String namePrefix) throws ReflectiveOperationException {
+
+        final Object builder = builderName.invoke(ofVirtual.invoke(null), namePrefix, 0L);
+        return (ThreadFactory) builderFactory.invoke(builder);
+    }
+
+    private VirtualThreadExecutors() {}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server.thrift;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Limits the number of the concurrent calls to a Thrift function. A call beyond the limit waits in a queue
+ * of the specified length until another call is complete, and a call beyond the queue is rejected.
+ */
+final class ThriftConcurrencyLimiter {
+
+    final int maxConcurrency;
+    final int maxPendingCalls;
+
+    /**
+     * The number of the calls which have been accepted but not complete, including the pending calls.
+     */
+    private int numCalls;
+    private int numRunningCalls;
+    private final Queue<Call> pendingCalls = new ArrayDeque<>();
+
+    ThriftConcurrencyLimiter(int maxConcurrency, int maxPendingCalls) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency: " + maxConcurrency + " (expected: > 0)");
+        }
+        if (maxPendingCalls < 0) {
+            throw new IllegalArgumentException("maxPendingCalls: " + maxPendingCalls + " (expected: >= 0)");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.maxPendingCalls = maxPendingCalls;
+    }
+
+    /**
+     * Accepts a new call.
+     *
+     * @return the accepted {@link Call}, or {@code null} if there are too many calls already
+     */
+    Call tryAcquire() {
+        synchronized (this) {
+            if (numCalls >= maxConcurrency + maxPendingCalls) {
+                return null;
+            }
+            numCalls++;
+        }
+        return new Call();
+    }
+
+    /**
+     * A call accepted by {@link #tryAcquire()}, which holds its slot until {@link #complete()} or
+     * {@link #cancel()} is called.
+     */
+    final class Call {
+
+        private boolean invoked;
+        private boolean running;
+        private boolean done;
+        private Runnable task;
+        private Executor executor;
+
+        /**
+         * Runs the specified task immediately if the number of the running calls is less than
+         * {@code maxConcurrency}, or queues it so that the specified {@link Executor} runs it when
+         * another call is complete.
+         */
+        void invoke(Runnable task, Executor executor) {
+            synchronized (ThriftConcurrencyLimiter.this) {
+                if (done || invoked) {
+                    return;
+                }
+                invoked = true;
+                if (numRunningCalls >= maxConcurrency) {
+                    this.task = task;
+                    this.executor = executor;
+                    pendingCalls.add(this);
+                    return;
+                }
+                numRunningCalls++;
+                running = true;
+            }
+            task.run();
+        }
+
+        /**
+         * Releases the slot of this call, which is either complete or given up while pending, and runs
+         * the next pending call if any.
+         */
+        void complete() {
+            release(false);
+        }
+
+        /**
+         * Releases the slot of this call if it has never been invoked, e.g. when the request failed
+         * before reaching the service.
+         */
+        void cancel() {
+            release(true);
+        }
+
+        private void release(boolean onlyIfNotInvoked) {
+            final Runnable nextTask;
+            final Executor nextExecutor;
+            synchronized (ThriftConcurrencyLimiter.this) {
+                if (done || onlyIfNotInvoked && invoked) {
+                    return;
+                }
+                done = true;
+                numCalls--;
+                if (!running) {
+                    if (invoked) {
+                        pendingCalls.remove(this);
+                        task = null;
+                        executor = null;
+                    }
+                    return;
+                }
+
+                final Call next = pendingCalls.poll();
+                if (next == null) {
+                    numRunningCalls--;
+                    return;
+                }
+
+                // Hand over the running slot to the next call.
+                next.running = true;
+                nextTask = next.task;
+                nextExecutor = next.executor;
+                next.task = null;
+                next.executor = null;
+            }
+
+            nextExecutor.execute(nextTask);
+        }
+    }
+}
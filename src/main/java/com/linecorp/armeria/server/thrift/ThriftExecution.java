@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server.thrift;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Specifies where a synchronous Thrift function, i.e. a method of an {@code *.Iface} implementation, is
+ * invoked by {@link ThriftService}. An annotated method is invoked by:
+ * <ul>
+ *   <li>{@value #INLINE} - the I/O event loop which received the call, without a thread hop. Use it only for
+ *       a function which never blocks and completes quickly, such as an in-memory lookup.</li>
+ *   <li>{@value #BLOCKING} - the blocking task executor of the server. This is the default.</li>
+ *   <li>any other name - the executor registered with the name via
+ *       {@link ThriftService#withExecutor(String, java.util.concurrent.Executor)}.</li>
+ * </ul>
+ * The policy specified via {@link ThriftService#withExecution(String, String)} takes precedence over
+ * this annotation. An asynchronous function, i.e. a method of an {@code *.AsyncIface} implementation, is
+ * always invoked by the I/O event loop and thus must not be annotated. A policy of an asynchronous function
+ * or an unknown executor name fails when the service is added to a {@link com.linecorp.armeria.server.Server}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ThriftExecution {
+
+    /**
+     * The name of the execution policy which invokes a function in the I/O event loop.
+     */
+    String INLINE = "inline";
+
+    /**
+     * The name of the execution policy which invokes a function in the blocking task executor of the server.
+     */
+    String BLOCKING = "blocking";
+
+    /**
+     * The name of the execution policy: {@value #INLINE}, {@value #BLOCKING} or the name of an executor
+     * registered via {@link ThriftService#withExecutor(String, java.util.concurrent.Executor)}.
+     */
+    String value();
+}
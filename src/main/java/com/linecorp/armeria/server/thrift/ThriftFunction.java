@@ -16,8 +16,9 @@
 
 package com.linecorp.armeria.server.thrift;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -42,9 +43,13 @@ final class ThriftFunction {
     private final String name;
     private final Object func;
     private final Type type;
+    @SuppressWarnings("rawtypes")
+    private final Class<? extends TBase> argsType;
     private final TBase<TBase<?, ?>, TFieldIdEnum> result;
     private final TFieldIdEnum successField;
-    private final Map<Class<Throwable>, TFieldIdEnum> exceptionFields = new HashMap<>();
+    private final Class<?>[] exceptionTypes;
+    private final TFieldIdEnum[] exceptionFields;
+    private final TFieldIdEnum[] argFields;
     private final List<Class<?>> paramTypes;
     private final Class<?> returnType;
 
@@ -65,17 +70,25 @@ final class ThriftFunction {
         this.type = type;
 
         // Determine the parameter types of the function.
+        argsType = newArgs().getClass();
+        final Map<? extends TFieldIdEnum, FieldMetaData> argsMetaDataMap =
+                FieldMetaData.getStructMetaDataMap(argsType);
+        argFields = argsMetaDataMap.keySet().toArray(new TFieldIdEnum[argsMetaDataMap.size()]);
         paramTypes = Collections.unmodifiableList(
-                FieldMetaData.getStructMetaDataMap(newArgs().getClass()).values().stream()
+                argsMetaDataMap.values().stream()
                         .map(e -> ThriftUtil.toJavaType(e.valueMetaData)).collect(Collectors.toList()));
 
         // Determine the success and exception fields of the function.
+        final List<Class<?>> exceptionTypes = new ArrayList<>();
+        final List<TFieldIdEnum> exceptionFields = new ArrayList<>();
         TFieldIdEnum successField = null;
         FieldValueMetaData successFieldMetadata = null;
 
         if (resultType != null) {
             result = resultType.newInstance();
 
+            // The metadata map of a generated struct is an EnumMap of its fields, so the exception fields are
+            // found in their declaration order, which is the order the generated ProcessFunction catches them.
             @SuppressWarnings("unchecked")
             final Map<TFieldIdEnum, FieldMetaData> metaDataMap =
                     (Map<TFieldIdEnum, FieldMetaData>) FieldMetaData.getStructMetaDataMap(resultType);
@@ -91,9 +104,8 @@ final class ThriftFunction {
 
                 Class<?> fieldType = resultType.getField(fieldName).getType();
                 if (Throwable.class.isAssignableFrom(fieldType)) {
-                    @SuppressWarnings("unchecked")
-                    Class<Throwable> exceptionFieldType = (Class<Throwable>) fieldType;
-                    exceptionFields.put(exceptionFieldType, key);
+                    exceptionTypes.add(fieldType);
+                    exceptionFields.add(key);
                 }
             }
         } else {
@@ -101,6 +113,8 @@ final class ThriftFunction {
         }
 
         this.successField = successField;
+        this.exceptionTypes = exceptionTypes.toArray(new Class<?>[exceptionTypes.size()]);
+        this.exceptionFields = exceptionFields.toArray(new TFieldIdEnum[exceptionFields.size()]);
 
         if (successFieldMetadata != null) {
             returnType = ThriftUtil.toJavaType(successFieldMetadata);
@@ -128,11 +142,7 @@ final class ThriftFunction {
     }
 
     String methodName() {
-        if (isAsync()) {
-            return asyncFunc().getMethodName();
-        } else {
-            return syncFunc().getMethodName();
-        }
+        return name;
     }
 
     List<Class<?>> paramTypes() {
@@ -155,6 +165,24 @@ final class ThriftFunction {
         }
     }
 
+    /**
+     * Returns the parameter values of the specified arguments, in the same order with {@link #paramTypes()}.
+     * Unlike {@link ThriftUtil#toJavaParams(TBase)}, this method does not look up the metadata of
+     * the arguments.
+     */
+    List<Object> toParams(TBase<TBase<?, ?>, TFieldIdEnum> args) {
+        final TFieldIdEnum[] argFields = this.argFields;
+        final Object[] params = new Object[argFields.length];
+        for (int i = 0; i < params.length; i++) {
+            params[i] = args.getFieldValue(argFields[i]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(params));
+    }
+
+    boolean isArgs(Object obj) {
+        return argsType.isInstance(obj);
+    }
+
     boolean isResult(Object obj) {
         return result != null && result.getClass().isInstance(obj);
     }
@@ -169,11 +197,16 @@ final class ThriftFunction {
         }
     }
 
+    /**
+     * Sets the specified {@code cause} to the field of the first declared exception type it is an instance of.
+     *
+     * @return {@code false} if the {@code cause} is none of the declared exception types
+     */
     boolean setException(TBase<?, TFieldIdEnum> result, Throwable cause) {
-        Class<?> causeType = cause.getClass();
-        for (Entry<Class<Throwable>, TFieldIdEnum> e: exceptionFields.entrySet()) {
-            if (e.getKey().isAssignableFrom(causeType)) {
-                result.setFieldValue(e.getValue(), cause);
+        final Class<?>[] exceptionTypes = this.exceptionTypes;
+        for (int i = 0; i < exceptionTypes.length; i++) {
+            if (exceptionTypes[i].isInstance(cause)) {
+                result.setFieldValue(exceptionFields[i], cause);
                 return true;
             }
         }
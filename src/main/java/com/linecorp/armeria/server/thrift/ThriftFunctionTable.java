@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server.thrift;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.MathUtil;
+
+/**
+ * An immutable open-addressing hash table of {@link ThriftFunction}s whose keys are the UTF-8 bytes of
+ * their names, so that the {@link ThriftFunction} of a request can be found without decoding its method name
+ * into a {@link String}.
+ */
+final class ThriftFunctionTable {
+
+    private final byte[][] names;
+    private final ThriftFunction[] functions;
+    private final int mask;
+
+    ThriftFunctionTable(Map<String, ThriftFunction> functions) {
+        // Keep the load factor at or below 0.5 so that a miss terminates quickly.
+        final int capacity = MathUtil.findNextPositivePowerOfTwo(Math.max(2, functions.size() * 2));
+        names = new byte[capacity][];
+        this.functions = new ThriftFunction[capacity];
+        mask = capacity - 1;
+
+        functions.forEach((name, f) -> {
+            final byte[] nameBytes = name.getBytes(UTF_8);
+            int i = hash(nameBytes) & mask;
+            while (names[i] != null) {
+                i = i + 1 & mask;
+            }
+            names[i] = nameBytes;
+            this.functions[i] = f;
+        });
+    }
+
+    /**
+     * Returns the {@link ThriftFunction} whose name is the specified range of the {@link ByteBuf}, or
+     * {@code null} if there is no such function.
+     */
+    ThriftFunction get(ByteBuf buf, int offset, int length) {
+        int i = hash(buf, offset, length) & mask;
+        for (;;) {
+            final byte[] name = names[i];
+            if (name == null) {
+                return null;
+            }
+            if (equals(name, buf, offset, length)) {
+                return functions[i];
+            }
+            i = i + 1 & mask;
+        }
+    }
+
+    private static int hash(byte[] bytes) {
+        int hash = 0;
+        for (byte b : bytes) {
+            hash = hash * 31 + b;
+        }
+        return hash ^ hash >>> 16;
+    }
+
+    private static int hash(ByteBuf buf, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = hash * 31 + buf.getByte(i);
+        }
+        return hash ^ hash >>> 16;
+    }
+
+    private static boolean equals(byte[] name, ByteBuf buf, int offset, int length) {
+        if (name.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name[i] != buf.getByte(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server.thrift;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.linecorp.armeria.common.SerializationFormat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.FastThreadLocal;
+
+/**
+ * The header of a Thrift message decoded from a {@link ByteBuf} in place, without decoding its method name
+ * into a {@link String}. An instance is reused by the thread which decodes a request, so that decoding
+ * a header does not produce any garbage.
+ */
+final class ThriftMessageHeader {
+
+    private static final int BINARY_VERSION_MASK = 0xffff0000;
+    private static final int BINARY_VERSION_1 = 0x80010000;
+
+    private static final byte COMPACT_PROTOCOL_ID = (byte) 0x82;
+    private static final byte COMPACT_VERSION = 1;
+    private static final byte COMPACT_VERSION_MASK = 0x1f;
+    private static final int COMPACT_TYPE_SHIFT_AMOUNT = 5;
+    private static final byte COMPACT_TYPE_BITS = 0x07;
+
+    private static final FastThreadLocal<ThriftMessageHeader> threadLocalHeader =
+            new FastThreadLocal<ThriftMessageHeader>() {
+                @Override
+                protected ThriftMessageHeader initialValue() {
+                    return new ThriftMessageHeader();
+                }
+            };
+
+    static ThriftMessageHeader get() {
+        return threadLocalHeader.get();
+    }
+
+    byte type;
+    int seqId;
+    int nameOffset;
+    int nameLength;
+
+    /**
+     * The index of the first byte after the header.
+     */
+    int endIndex;
+
+    private ThriftMessageHeader() {}
+
+    /**
+     * Decodes the header of the message at the reader index of the specified {@link ByteBuf} without
+     * changing its reader index.
+     *
+     * @return {@code true} if the header has been decoded. {@code false} if the specified
+     *         {@link SerializationFormat} is not a binary format or the header is not in the expected form,
+     *         in which case the message has to be decoded by a {@link org.apache.thrift.protocol.TProtocol},
+     *         which reports the problem if any.
+     */
+    boolean decode(SerializationFormat serializationFormat, ByteBuf buf) {
+        switch (serializationFormat) {
+        case THRIFT_BINARY:
+            return decodeBinary(buf);
+        case THRIFT_COMPACT:
+            return decodeCompact(buf);
+        default:
+            return false;
+        }
+    }
+
+    String name(ByteBuf buf) {
+        return buf.toString(nameOffset, nameLength, UTF_8);
+    }
+
+    private boolean decodeBinary(ByteBuf buf) {
+        final int start = buf.readerIndex();
+        final int end = buf.writerIndex();
+        if (end - start < 12) {
+            return false;
+        }
+
+        final int versionAndType = buf.getInt(start);
+        if ((versionAndType & BINARY_VERSION_MASK) != BINARY_VERSION_1) {
+            // A bad version or an old client which does not send the version.
+            return false;
+        }
+
+        final int nameLength = buf.getInt(start + 4);
+        if (nameLength < 0 || nameLength > end - start - 12) {
+            return false;
+        }
+
+        type = (byte) versionAndType;
+        nameOffset = start + 8;
+        this.nameLength = nameLength;
+        seqId = buf.getInt(nameOffset + nameLength);
+        endIndex = nameOffset + nameLength + 4;
+        return true;
+    }
+
+    private boolean decodeCompact(ByteBuf buf) {
+        final int start = buf.readerIndex();
+        final int end = buf.writerIndex();
+        if (end - start < 4 || buf.getByte(start) != COMPACT_PROTOCOL_ID) {
+            return false;
+        }
+
+        final byte versionAndType = buf.getByte(start + 1);
+        if ((versionAndType & COMPACT_VERSION_MASK) != COMPACT_VERSION) {
+            return false;
+        }
+
+        // Decode the sequence ID and the name length, which are varints.
+        endIndex = start + 2;
+        final long seqId = readVarint32(buf, end);
+        if (seqId < 0) {
+            return false;
+        }
+        final long nameLength = readVarint32(buf, end);
+        if (nameLength < 0 || nameLength > end - endIndex) {
+            return false;
+        }
+
+        type = (byte) (versionAndType >> COMPACT_TYPE_SHIFT_AMOUNT & COMPACT_TYPE_BITS);
+        this.seqId = (int) seqId;
+        nameOffset = endIndex;
+        this.nameLength = (int) nameLength;
+        endIndex += (int) nameLength;
+        return true;
+    }
+
+    /**
+     * Reads an unsigned 32-bit varint at {@link #endIndex}, advancing {@link #endIndex}.
+     *
+     * @return the value of the varint, or {@code -1} if the varint is truncated or malformed.
+     */
+    private long readVarint32(ByteBuf buf, int end) {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (endIndex >= end) {
+                return -1;
+            }
+            final byte b = buf.getByte(endIndex++);
+            result |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return result & 0xFFFFFFFFL;
+            }
+        }
+        return -1;
+    }
+}
@@ -18,13 +18,18 @@ package com.linecorp.armeria.server.thrift;
 
 import static java.util.Objects.requireNonNull;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import com.linecorp.armeria.common.SerializationFormat;
 import com.linecorp.armeria.common.thrift.ThriftProtocolFactories;
 import com.linecorp.armeria.server.Service;
+import com.linecorp.armeria.server.ServiceConfig;
 import com.linecorp.armeria.server.SimpleService;
 
 /**
@@ -111,6 +116,205 @@ public class ThriftService extends SimpleService {
                 new ThriftServiceInvocationHandler(thriftService));
     }
 
+    /**
+     * Returns a new {@link ThriftService} which is identical to this service except that it decodes
+     * the {@code binary} fields of a request as read-only {@link java.nio.ByteBuffer}s which share
+     * the memory of the received request rather than copying them. The request is released when
+     * the invocation is complete, so the service must not access the {@link java.nio.ByteBuffer}s after
+     * completing the invocation. Use {@code bufferFor*()} rather than {@code get*()} of a Thrift struct to
+     * get a {@code binary} field without copying it.
+     */
+    public ThriftService withZeroCopyBinary() {
+        final ThriftServiceCodec codec = (ThriftServiceCodec) codec();
+        return new ThriftService(
+                new ThriftServiceCodec(
+                        codec.thriftService(),
+                        codec.defaultSerializationFormat(),
+                        codec.allowedSerializationFormats(),
+                        true,
+                        codec.concurrencyLimiters()),
+                invocationHandler());
+    }
+
+    /**
+     * Returns whether this service decodes the {@code binary} fields of a request without copying them.
+     *
+     * @see #withZeroCopyBinary()
+     */
+    public boolean isZeroCopyBinary() {
+        return ((ThriftServiceCodec) codec()).isZeroCopyBinary();
+    }
+
+    /**
+     * Returns a new {@link ThriftService} which is identical to this service except that it responds to
+     * a {@code oneway} call as soon as its arguments are decoded, rather than when its function is complete,
+     * so that the client does not wait for the function. The function is still invoked with the same
+     * {@link com.linecorp.armeria.common.ServiceInvocationContext} and execution policy, but its failure is
+     * only logged because the response has been sent already. Note that a decorator such as
+     * {@link com.linecorp.armeria.server.metrics.MetricCollectingService} observes the response rather than
+     * the completion of the function.
+     */
+    public ThriftService withImmediateOnewayResponse() {
+        return new ThriftService((ThriftServiceCodec) codec(),
+                                 invocationHandler().withImmediateOnewayResponse());
+    }
+
+    /**
+     * Returns whether this service responds to a {@code oneway} call before invoking its function.
+     *
+     * @see #withImmediateOnewayResponse()
+     */
+    public boolean isImmediateOnewayResponse() {
+        return invocationHandler().isImmediateOnewayResponse();
+    }
+
+    /**
+     * Returns a new {@link ThriftService} which is identical to this service except that it invokes
+     * the synchronous function with the specified name using the specified execution policy, overriding
+     * the {@link ThriftExecution} annotation of the function if any.
+     *
+     * @param methodName the name of a synchronous Thrift function of this service
+     * @param policy {@value ThriftExecution#INLINE}, {@value ThriftExecution#BLOCKING} or the name of
+     *               an executor registered via {@link #withExecutor(String, Executor)}. An unknown
+     *               executor name fails when this service is added to a server.
+     *
+     * @see ThriftExecution
+     */
+    public ThriftService withExecution(String methodName, String policy) {
+        requireNonNull(methodName, "methodName");
+        final ThriftServiceCodec codec = (ThriftServiceCodec) codec();
+        final ThriftFunction func = codec.function(methodName);
+        if (func == null || func.isAsync()) {
+            throw new IllegalArgumentException(
+                    "methodName: " + methodName + " (expected: a synchronous Thrift function of " +
+                    codec.thriftService().getClass().getName() + ')');
+        }
+        return new ThriftService(codec, invocationHandler().withExecution(methodName, policy));
+    }
+
+    /**
+     * Returns a new {@link ThriftService} which is identical to this service except that the specified
+     * {@link Executor} is registered with the specified name, so that the functions whose execution policy
+     * is the name are invoked by the {@link Executor}.
+     *
+     * @see ThriftExecution
+     */
+    public ThriftService withExecutor(String name, Executor executor) {
+        return new ThriftService((ThriftServiceCodec) codec(),
+                                 invocationHandler().withExecutor(name, executor));
+    }
+
+    /**
+     * Returns a new {@link ThriftService} which is identical to this service except that it logs a warning
+     * when a function invoked in the I/O event loop takes longer than the specified amount of time.
+     * The default is 10 milliseconds.
+     *
+     * @see ThriftExecution#INLINE
+     */
+    public ThriftService withInlineTimeBudget(Duration inlineTimeBudget) {
+        requireNonNull(inlineTimeBudget, "inlineTimeBudget");
+        return new ThriftService((ThriftServiceCodec) codec(),
+                                 invocationHandler().withInlineTimeBudgetNanos(inlineTimeBudget.toNanos()));
+    }
+
+    /**
+     * Returns a new {@link ThriftService} which is identical to this service except that it logs a warning
+     * when a function invoked in the I/O event loop takes longer than the specified number of milliseconds.
+     * The default is 10 milliseconds.
+     *
+     * @see ThriftExecution#INLINE
+     */
+    public ThriftService withInlineTimeBudgetMillis(long inlineTimeBudgetMillis) {
+        return withInlineTimeBudget(Duration.ofMillis(inlineTimeBudgetMillis));
+    }
+
+    /**
+     * Returns a new {@link ThriftService} which is identical to this service except that it limits
+     * the number of the concurrent calls to the function with the specified name. A call beyond
+     * the limit is rejected immediately with a {@link org.apache.thrift.TApplicationException}, without
+     * decoding its arguments or entering the executor of the function.
+     *
+     * @param methodName the name of a Thrift function of this service
+     * @param maxConcurrency the maximum number of the calls which are in progress at the same time
+     *
+     * @see #withMaxConcurrency(String, int, int)
+     */
+    public ThriftService withMaxConcurrency(String methodName, int maxConcurrency) {
+        return withMaxConcurrency(methodName, maxConcurrency, 0);
+    }
+
+    /**
+     * Returns a new {@link ThriftService} which is identical to this service except that it limits
+     * the number of the concurrent calls to the function with the specified name. A call beyond
+     * {@code maxConcurrency} waits until another call is complete, and a call beyond
+     * {@code maxPendingCalls} waiting calls is rejected immediately with
+     * a {@link org.apache.thrift.TApplicationException}, without decoding its arguments or entering
+     * the executor of the function. Note that the concurrency of a {@code oneway} function responded
+     * via {@link #withImmediateOnewayResponse()} is limited by its invocations rather than its responses.
+     *
+     * @param methodName the name of a Thrift function of this service
+     * @param maxConcurrency the maximum number of the calls which are in progress at the same time
+     * @param maxPendingCalls the maximum number of the calls which wait for another call to complete
+     */
+    public ThriftService withMaxConcurrency(String methodName, int maxConcurrency, int maxPendingCalls) {
+        requireNonNull(methodName, "methodName");
+        final ThriftServiceCodec codec = (ThriftServiceCodec) codec();
+        if (!codec.hasFunction(methodName)) {
+            throw new IllegalArgumentException(
+                    "methodName: " + methodName + " (expected: a Thrift function of " +
+                    codec.thriftService().getClass().getName() + ')');
+        }
+
+        final Map<String, ThriftConcurrencyLimiter> concurrencyLimits =
+                new HashMap<>(codec.concurrencyLimiters());
+        concurrencyLimits.put(methodName, new ThriftConcurrencyLimiter(maxConcurrency, maxPendingCalls));
+        return new ThriftService(
+                new ThriftServiceCodec(
+                        codec.thriftService(),
+                        codec.defaultSerializationFormat(),
+                        codec.allowedSerializationFormats(),
+                        codec.isZeroCopyBinary(),
+                        concurrencyLimits),
+                invocationHandler());
+    }
+
+    /**
+     * Returns the maximum number of the concurrent calls to the function with the specified name,
+     * or {@link Integer#MAX_VALUE} if unlimited.
+     *
+     * @see #withMaxConcurrency(String, int, int)
+     */
+    public int maxConcurrency(String methodName) {
+        requireNonNull(methodName, "methodName");
+        final ThriftConcurrencyLimiter limiter =
+                ((ThriftServiceCodec) codec()).concurrencyLimiters().get(methodName);
+        return limiter != null ? limiter.maxConcurrency : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the maximum number of the calls to the function with the specified name which wait for
+     * another call to complete, or {@link Integer#MAX_VALUE} if the concurrency of the function is unlimited.
+     *
+     * @see #withMaxConcurrency(String, int, int)
+     */
+    public int maxPendingCalls(String methodName) {
+        requireNonNull(methodName, "methodName");
+        final ThriftConcurrencyLimiter limiter =
+                ((ThriftServiceCodec) codec()).concurrencyLimiters().get(methodName);
+        return limiter != null ? limiter.maxPendingCalls : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the name of the execution policy of the function with the specified name.
+     *
+     * @see #withExecution(String, String)
+     * @see ThriftExecution
+     */
+    public String executionPolicy(String methodName) {
+        requireNonNull(methodName, "methodName");
+        return invocationHandler().executionPolicy(methodName);
+    }
+
     /**
      * Returns the Thrift service object that implements {@code *.Iface} or {@code *.AsyncIface}.
      */
@@ -132,6 +336,16 @@ public class ThriftService extends SimpleService {
         return ((ThriftServiceCodec) codec()).defaultSerializationFormat();
     }
 
+    @Override
+    public void serviceAdded(ServiceConfig cfg) throws Exception {
+        super.serviceAdded(cfg);
+        invocationHandler().validateExecutionPolicies((ThriftServiceCodec) codec());
+    }
+
+    private ThriftServiceInvocationHandler invocationHandler() {
+        return (ThriftServiceInvocationHandler) handler();
+    }
+
     private ThriftService(ThriftServiceCodec codec,
                           ThriftServiceInvocationHandler handler) {
         super(codec, handler);
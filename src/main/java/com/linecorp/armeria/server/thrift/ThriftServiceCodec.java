@@ -26,8 +26,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import org.apache.thrift.AsyncProcessFunction;
 import org.apache.thrift.ProcessFunction;
@@ -40,7 +38,6 @@ import org.apache.thrift.TFieldIdEnum;
 import org.apache.thrift.protocol.TMessage;
 import org.apache.thrift.protocol.TMessageType;
 import org.apache.thrift.protocol.TProtocol;
-import org.apache.thrift.protocol.TProtocolFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +45,8 @@ import com.linecorp.armeria.common.Scheme;
 import com.linecorp.armeria.common.SerializationFormat;
 import com.linecorp.armeria.common.ServiceInvocationContext;
 import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.thrift.TByteBufTransport;
+import com.linecorp.armeria.common.thrift.ThriftInProcessCall;
 import com.linecorp.armeria.common.thrift.ThriftProtocolFactories;
 import com.linecorp.armeria.common.thrift.ThriftUtil;
 import com.linecorp.armeria.server.ServiceCodec;
@@ -55,13 +54,18 @@ import com.linecorp.armeria.server.ServiceConfig;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.local.LocalChannel;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AsciiString;
+import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.Promise;
 import io.netty.util.internal.EmptyArrays;
 
@@ -88,20 +92,45 @@ final class ThriftServiceCodec implements ServiceCodec {
 
     private final Set<SerializationFormat> allowedSerializationFormats;
     private final Object service;
+    private final boolean zeroCopyBinary;
 
     /**
      * A map whose key is a method name and whose value is {@link AsyncProcessFunction} or {@link ProcessFunction}.
      */
     private final Map<String, ThriftFunction> functions = new HashMap<>();
 
-    private static final Map<SerializationFormat, ThreadLocalTProtocol> FORMAT_TO_THREAD_LOCAL_IN_PROTOCOL =
-            createFormatToThreadLocalTProtocolMap();
-    private static final Map<SerializationFormat, ThreadLocalTProtocol> FORMAT_TO_THREAD_LOCAL_OUT_PROTOCOL =
-            createFormatToThreadLocalTProtocolMap();
+    /**
+     * The same {@link ThriftFunction}s with {@link #functions}, whose keys are the raw bytes of method names.
+     */
+    private final ThriftFunctionTable functionTable;
+
+    /**
+     * A map whose key is a method name and whose value is the {@link ThriftConcurrencyLimiter} of the function.
+     * A function which is not in this map has no concurrency limit.
+     */
+    private final Map<String, ThriftConcurrencyLimiter> concurrencyLimiters;
+
+    static final ThreadLocalTProtocols THREAD_LOCAL_IN_PROTOCOLS = new ThreadLocalTProtocols();
+    private static final ThreadLocalTProtocols THREAD_LOCAL_OUT_PROTOCOLS = new ThreadLocalTProtocols();
 
     ThriftServiceCodec(Object service, SerializationFormat defaultSerializationFormat,
                        Set<SerializationFormat> allowedSerializationFormats) {
+        this(service, defaultSerializationFormat, allowedSerializationFormats, false, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param concurrencyLimits the {@link ThriftConcurrencyLimiter}s whose limits are applied to
+     *                          the functions with the same names. Their states are not shared with
+     *                          the new instance.
+     */
+    ThriftServiceCodec(Object service, SerializationFormat defaultSerializationFormat,
+                       Set<SerializationFormat> allowedSerializationFormats, boolean zeroCopyBinary,
+                       Map<String, ThriftConcurrencyLimiter> concurrencyLimits) {
         requireNonNull(allowedSerializationFormats, "allowedSerializationFormats");
+        requireNonNull(concurrencyLimits, "concurrencyLimits");
+        this.zeroCopyBinary = zeroCopyBinary;
         this.service = requireNonNull(service, "service");
         this.defaultSerializationFormat =
                 requireNonNull(defaultSerializationFormat, "defaultSerializationFormat");
@@ -134,6 +163,20 @@ final class ThriftServiceCodec implements ServiceCodec {
             throw new IllegalArgumentException('\'' + serviceClass.getName() +
                                                "' is not a Thrift service implementation.");
         }
+
+        functionTable = new ThriftFunctionTable(functions);
+
+        final Map<String, ThriftConcurrencyLimiter> concurrencyLimiters = new HashMap<>();
+        concurrencyLimits.forEach((name, limit) -> {
+            if (!functions.containsKey(name)) {
+                throw new IllegalArgumentException(
+                        "concurrencyLimits: " + name + " (expected: a Thrift function of " +
+                        serviceClass.getName() + ')');
+            }
+            concurrencyLimiters.put(
+                    name, new ThriftConcurrencyLimiter(limit.maxConcurrency, limit.maxPendingCalls));
+        });
+        this.concurrencyLimiters = Collections.unmodifiableMap(concurrencyLimiters);
     }
 
     @SuppressWarnings("rawtypes")
@@ -236,6 +279,22 @@ final class ThriftServiceCodec implements ServiceCodec {
         return defaultSerializationFormat;
     }
 
+    boolean isZeroCopyBinary() {
+        return zeroCopyBinary;
+    }
+
+    boolean hasFunction(String methodName) {
+        return functions.containsKey(methodName);
+    }
+
+    ThriftFunction function(String methodName) {
+        return functions.get(methodName);
+    }
+
+    Map<String, ThriftConcurrencyLimiter> concurrencyLimiters() {
+        return concurrencyLimiters;
+    }
+
     @Override
     public DecodeResult decodeRequest(
             ServiceConfig cfg, Channel ch, SessionProtocol sessionProtocol, String hostname,
@@ -249,16 +308,41 @@ final class ThriftServiceCodec implements ServiceCodec {
                     new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, e.httpResponseStatus), e.getCause());
         }
 
-        final TProtocol inProto = FORMAT_TO_THREAD_LOCAL_IN_PROTOCOL.get(serializationFormat).get();
+        if (ch instanceof LocalChannel && originalRequest instanceof HttpRequest) {
+            final String inProcessCallId =
+                    ((HttpRequest) originalRequest).headers().get(ThriftInProcessCall.HEADER_NAME);
+            if (inProcessCallId != null) {
+                return decodeInProcessRequest(cfg, ch, sessionProtocol, hostname, path, mappedPath,
+                                              originalRequest, promise, serializationFormat, inProcessCallId);
+            }
+        }
+
+        final TProtocol inProto = THREAD_LOCAL_IN_PROTOCOLS.get(serializationFormat);
         inProto.reset();
         final TByteBufTransport inTransport = (TByteBufTransport) inProto.getTransport();
-        inTransport.reset(in);
+        inTransport.reset(in, zeroCopyBinary);
 
         try {
-            final TMessage header = inProto.readMessageBegin();
-            final byte typeValue = header.type;
-            final int seqId = header.seqid;
-            final String methodName = header.name;
+            final byte typeValue;
+            final int seqId;
+            final String methodName;
+            final ThriftFunction f;
+
+            final ThriftMessageHeader rawHeader = ThriftMessageHeader.get();
+            if (rawHeader.decode(serializationFormat, in)) {
+                // Find the function by the raw bytes of the method name to avoid decoding it.
+                typeValue = rawHeader.type;
+                seqId = rawHeader.seqId;
+                f = functionTable.get(in, rawHeader.nameOffset, rawHeader.nameLength);
+                methodName = f != null ? f.methodName() : rawHeader.name(in);
+                in.readerIndex(rawHeader.endIndex);
+            } else {
+                final TMessage header = inProto.readMessageBegin();
+                typeValue = header.type;
+                seqId = header.seqid;
+                methodName = header.name;
+                f = functions.get(methodName);
+            }
 
             // Basic sanity check. We usually should never fail here.
             if (typeValue != TMessageType.CALL && typeValue != TMessageType.ONEWAY) {
@@ -274,7 +358,6 @@ final class ThriftServiceCodec implements ServiceCodec {
 
 
             // Ensure that such a method exists.
-            final ThriftFunction f = functions.get(methodName);
             if (f == null) {
                 final TApplicationException cause = new TApplicationException(
                         TApplicationException.UNKNOWN_METHOD, "unknown method: " + methodName);
@@ -285,6 +368,24 @@ final class ThriftServiceCodec implements ServiceCodec {
                         cause, seqId, methodName, null);
             }
 
+            // Reject the call before decoding its arguments if the function is too busy already,
+            // so that the call does not consume the executor of the function.
+            final ThriftConcurrencyLimiter.Call call;
+            final ThriftConcurrencyLimiter limiter =
+                    concurrencyLimiters.isEmpty() ? null : concurrencyLimiters.get(methodName);
+            if (limiter != null) {
+                call = limiter.tryAcquire();
+                if (call == null) {
+                    final TApplicationException cause = newTooManyCallsException(methodName, limiter);
+                    return new ThriftDecodeFailureResult(
+                            serializationFormat,
+                            encodeException(ch.alloc(), serializationFormat, methodName, seqId, cause),
+                            cause, seqId, methodName, null);
+                }
+            } else {
+                call = null;
+            }
+
             // Decode the invocation parameters.
             final TBase<TBase<?, ?>, TFieldIdEnum> args;
             try {
@@ -303,6 +404,10 @@ final class ThriftServiceCodec implements ServiceCodec {
                 }
             } catch (Exception e) {
                 // Failed to decode the invocation parameters.
+                if (call != null) {
+                    call.cancel();
+                }
+
                 final TApplicationException cause = new TApplicationException(
                         TApplicationException.PROTOCOL_ERROR, "argument decode failure: " + e);
 
@@ -312,12 +417,126 @@ final class ThriftServiceCodec implements ServiceCodec {
                         cause, seqId, methodName, null);
             }
 
-            return new ThriftServiceInvocationContext(
+            final ThriftServiceInvocationContext ctx = new ThriftServiceInvocationContext(
                     ch, Scheme.of(serializationFormat, sessionProtocol),
                     hostname, path, mappedPath, cfg.loggerName(), originalRequest, f, seqId, args);
+
+            if (zeroCopyBinary) {
+                // Keep the request until the invocation is complete, because the decoded binary fields
+                // share its memory.
+                in.retain();
+                promise.addListener(future -> in.release());
+                ctx.zeroCopyRequest = in;
+            }
+
+            setConcurrencyLimiterCall(ctx, call, promise);
+            return ctx;
         } finally {
+            // Do not keep the request or the state grown by it in the thread-local protocol.
             inTransport.clear();
+            inProto.reset();
+        }
+    }
+
+    /**
+     * Decodes the request of a client in the same JVM, whose arguments have been handed over as
+     * a {@link ThriftInProcessCall} rather than serialized.
+     */
+    private DecodeResult decodeInProcessRequest(
+            ServiceConfig cfg, Channel ch, SessionProtocol sessionProtocol, String hostname,
+            String path, String mappedPath, Object originalRequest, Promise<Object> promise,
+            SerializationFormat serializationFormat, String inProcessCallId) {
+
+        final ThriftInProcessCall call = ThriftInProcessCall.take(inProcessCallId);
+        if (call == null) {
+            // The client gave up the call already, or sent a bogus ID.
+            final TApplicationException cause = new TApplicationException(
+                    TApplicationException.INTERNAL_ERROR, "unknown in-process call: " + inProcessCallId);
+            return new ThriftDecodeFailureResult(
+                    serializationFormat, newInProcessFailureResponse(ch, serializationFormat, "", 0, cause),
+                    cause, 0, "", null);
+        }
+
+        final byte typeValue = call.messageType();
+        final int seqId = call.seqId();
+        final String methodName = call.methodName();
+
+        final TApplicationException cause;
+        final ThriftFunction f = functions.get(methodName);
+        final ThriftConcurrencyLimiter limiter =
+                concurrencyLimiters.isEmpty() ? null : concurrencyLimiters.get(methodName);
+        final ThriftConcurrencyLimiter.Call limiterCall = limiter != null ? limiter.tryAcquire() : null;
+        if (typeValue != TMessageType.CALL && typeValue != TMessageType.ONEWAY) {
+            cause = new TApplicationException(TApplicationException.INVALID_MESSAGE_TYPE,
+                                              "unexpected TMessageType: " + typeString(typeValue));
+        } else if (f == null) {
+            cause = new TApplicationException(TApplicationException.UNKNOWN_METHOD,
+                                              "unknown method: " + methodName);
+        } else if (!f.isArgs(call.args())) {
+            // The client was built with a different version of the IDL or loaded by another class loader.
+            cause = new TApplicationException(TApplicationException.PROTOCOL_ERROR,
+                                              "argument type mismatch: " + call.args().getClass().getName());
+        } else if (limiter != null && limiterCall == null) {
+            cause = newTooManyCallsException(methodName, limiter);
+        } else {
+            @SuppressWarnings("unchecked")
+            final TBase<TBase<?, ?>, TFieldIdEnum> args = (TBase<TBase<?, ?>, TFieldIdEnum>) call.args();
+            final ThriftServiceInvocationContext ctx = new ThriftServiceInvocationContext(
+                    ch, Scheme.of(serializationFormat, sessionProtocol),
+                    hostname, path, mappedPath, cfg.loggerName(), originalRequest, f, seqId, args, call);
+            setConcurrencyLimiterCall(ctx, limiterCall, promise);
+            return ctx;
         }
+
+        if (limiterCall != null) {
+            limiterCall.cancel();
+        }
+        call.fail(cause);
+        return new ThriftDecodeFailureResult(
+                serializationFormat,
+                newInProcessFailureResponse(ch, serializationFormat, methodName, seqId, cause),
+                cause, seqId, methodName, null);
+    }
+
+    /**
+     * Returns the response to an in-process call which could not be invoked. Unlike the responses to
+     * the other malformed requests, it is sent with {@code 200 OK}, so that the client decodes the serialized
+     * {@link TApplicationException} rather than failing only with the HTTP status.
+     */
+    private static FullHttpResponse newInProcessFailureResponse(
+            Channel ch, SerializationFormat serializationFormat,
+            String methodName, int seqId, TApplicationException cause) {
+
+        final FullHttpResponse res = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                encodeException(ch.alloc(), serializationFormat, methodName, seqId, cause));
+        res.headers().set(HttpHeaderNames.CONTENT_TYPE, serializationFormat.mimeType());
+        return res;
+    }
+
+    private static TApplicationException newTooManyCallsException(
+            String methodName, ThriftConcurrencyLimiter limiter) {
+        return new TApplicationException(
+                TApplicationException.INTERNAL_ERROR,
+                "too many concurrent calls: " + methodName + "() (maxConcurrency: " + limiter.maxConcurrency +
+                ", maxPendingCalls: " + limiter.maxPendingCalls + ')');
+    }
+
+    private static void setConcurrencyLimiterCall(ThriftServiceInvocationContext ctx,
+                                                  ThriftConcurrencyLimiter.Call call, Promise<Object> promise) {
+        if (call == null) {
+            return;
+        }
+
+        ctx.concurrencyLimiterCall = call;
+        promise.addListener(future -> {
+            // Release the slot of the call if the handler has never invoked the function, e.g. a decorator
+            // rejected the call. The handler might have handed over the call to another promise.
+            final ThriftConcurrencyLimiter.Call c = ctx.concurrencyLimiterCall;
+            if (c != null) {
+                c.cancel();
+            }
+        });
     }
 
     @Override
@@ -350,6 +569,10 @@ final class ThriftServiceCodec implements ServiceCodec {
         final ThriftServiceInvocationContext tctx = (ThriftServiceInvocationContext) ctx;
         final ThriftFunction func = tctx.func;
         if (func.isOneway()) {
+            if (tctx.scheme().sessionProtocol() == SessionProtocol.FRAMED) {
+                // A framed client does not expect any reply for a oneway call.
+                return null;
+            }
             return encodeException(tctx, cause);
         }
 
@@ -368,8 +591,14 @@ final class ThriftServiceCodec implements ServiceCodec {
     private static ByteBuf encodeSuccess(ThriftServiceInvocationContext ctx,
                                          TBase<TBase<?, ?>, TFieldIdEnum> result) {
 
-        final TProtocol outProto =
-                FORMAT_TO_THREAD_LOCAL_OUT_PROTOCOL.get(ctx.scheme().serializationFormat()).get();
+        final ThriftInProcessCall inProcessCall = ctx.inProcessCall;
+        if (inProcessCall != null) {
+            // Copy the result so that the client does not share any object with the service.
+            inProcessCall.complete(result.deepCopy());
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        final TProtocol outProto = THREAD_LOCAL_OUT_PROTOCOLS.get(ctx.scheme().serializationFormat());
         outProto.reset();
         final TByteBufTransport outTransport = (TByteBufTransport) outProto.getTransport();
         final ByteBuf out = ctx.alloc().buffer();
@@ -382,6 +611,7 @@ final class ThriftServiceCodec implements ServiceCodec {
             throw new Error(e); // Should never reach here.
         } finally {
             outTransport.clear();
+            outProto.reset();
         }
 
         return out;
@@ -389,22 +619,28 @@ final class ThriftServiceCodec implements ServiceCodec {
 
     private static ByteBuf encodeException(ThriftServiceInvocationContext ctx, Throwable t) {
 
+        final TApplicationException cause;
         if (t instanceof TApplicationException) {
-            return encodeException(ctx.alloc(), ctx.scheme().serializationFormat(),
-                                   ctx.method(), ctx.seqId, (TApplicationException) t);
+            cause = (TApplicationException) t;
         } else {
-            return encodeException(ctx.alloc(), ctx.scheme().serializationFormat(),
-                                   ctx.method(), ctx.seqId,
-                                   new TApplicationException(
-                                           TApplicationException.INTERNAL_ERROR, t.toString()));
+            cause = new TApplicationException(TApplicationException.INTERNAL_ERROR, t.toString());
+        }
+
+        final ThriftInProcessCall inProcessCall = ctx.inProcessCall;
+        if (inProcessCall != null) {
+            inProcessCall.fail(cause);
+            return Unpooled.EMPTY_BUFFER;
         }
+
+        return encodeException(ctx.alloc(), ctx.scheme().serializationFormat(),
+                               ctx.method(), ctx.seqId, cause);
     }
 
     private static ByteBuf encodeException(
             ByteBufAllocator alloc, SerializationFormat serializationFormat,
             String methodName, int seqId, TApplicationException cause) {
 
-        final TProtocol outProto = FORMAT_TO_THREAD_LOCAL_OUT_PROTOCOL.get(serializationFormat).get();
+        final TProtocol outProto = THREAD_LOCAL_OUT_PROTOCOLS.get(serializationFormat);
         outProto.reset();
         final TByteBufTransport outTransport = (TByteBufTransport) outProto.getTransport();
         final ByteBuf out = alloc.buffer();
@@ -418,6 +654,7 @@ final class ThriftServiceCodec implements ServiceCodec {
             throw new Error(e); // Should never reach here.
         } finally {
             outTransport.clear();
+            outProto.reset();
         }
 
         return out;
@@ -437,7 +674,7 @@ final class ThriftServiceCodec implements ServiceCodec {
 
         final String contentTypeHeader = httpRequest.headers().get(HttpHeaderNames.CONTENT_TYPE);
         if (contentTypeHeader != null) {
-            serializationFormat = SerializationFormat.fromMimeType(contentTypeHeader)
+            serializationFormat = SerializationFormatCache.get(contentTypeHeader)
                     .orElse(defaultSerializationFormat);
             if (!allowedSerializationFormats.contains(serializationFormat)) {
                 throw new InvalidHttpRequestException(HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE,
@@ -452,7 +689,7 @@ final class ThriftServiceCodec implements ServiceCodec {
             // If accept header is present, make sure it is sane. Currently, we do not support accept
             // headers with a different format than the content type header.
             SerializationFormat outputSerializationFormat =
-                    SerializationFormat.fromMimeType(acceptHeader).orElse(serializationFormat);
+                    SerializationFormatCache.get(acceptHeader).orElse(serializationFormat);
             if (outputSerializationFormat != serializationFormat) {
                 throw new InvalidHttpRequestException(HttpResponseStatus.NOT_ACCEPTABLE,
                                                       ACCEPT_THRIFT_PROTOCOL_MUST_MATCH_CONTENT_TYPE);
@@ -476,6 +713,51 @@ final class ThriftServiceCodec implements ServiceCodec {
         }
     }
 
+    /**
+     * A direct-mapped cache of the {@link SerializationFormat}s resolved from the values of the
+     * {@code Content-Type} and {@code Accept} headers, which are almost always one of a few values.
+     * A value is looked up by its case-insensitive {@link AsciiString#hashCode(CharSequence)}, so that
+     * a cache hit does not produce any garbage unlike {@link SerializationFormat#fromMimeType(String)}.
+     */
+    private static final class SerializationFormatCache {
+
+        private static final int SIZE = 64;
+
+        /**
+         * The cached entries, which are immutable and thus can be published without synchronization.
+         * A colliding value simply replaces the existing entry.
+         */
+        private static final Entry[] entries = new Entry[SIZE];
+
+        static Optional<SerializationFormat> get(String mimeType) {
+            final int hash = AsciiString.hashCode(mimeType);
+            final int index = hash & SIZE - 1;
+            final Entry e = entries[index];
+            if (e != null && e.hash == hash && AsciiString.contentEqualsIgnoreCase(e.mimeType, mimeType)) {
+                return e.serializationFormat;
+            }
+
+            final Optional<SerializationFormat> serializationFormat =
+                    SerializationFormat.fromMimeType(mimeType);
+            entries[index] = new Entry(hash, mimeType, serializationFormat);
+            return serializationFormat;
+        }
+
+        private static final class Entry {
+            final int hash;
+            final String mimeType;
+            final Optional<SerializationFormat> serializationFormat;
+
+            Entry(int hash, String mimeType, Optional<SerializationFormat> serializationFormat) {
+                this.hash = hash;
+                this.mimeType = mimeType;
+                this.serializationFormat = serializationFormat;
+            }
+        }
+
+        private SerializationFormatCache() {}
+    }
+
     private static final class InvalidHttpRequestException extends Exception {
         private static final long serialVersionUID = -8742741687997488293L;
 
@@ -541,24 +823,28 @@ final class ThriftServiceCodec implements ServiceCodec {
         }
     }
 
-    private static Map<SerializationFormat, ThreadLocalTProtocol> createFormatToThreadLocalTProtocolMap() {
-        return Collections.unmodifiableMap(
-                SerializationFormat.ofThrift().stream().collect(
-                        Collectors.toMap(Function.identity(),
-                                         f -> new ThreadLocalTProtocol(ThriftProtocolFactories.get(f)))));
-    }
-
-    private static final class ThreadLocalTProtocol extends ThreadLocal<TProtocol> {
-
-        private final TProtocolFactory protoFactory;
+    /**
+     * The {@link TProtocol}s of the current thread, indexed by {@link SerializationFormat#ordinal()}.
+     * A protocol is created when the current thread uses its format for the first time, so that a thread
+     * does not retain the protocols of the formats it never uses.
+     */
+    static final class ThreadLocalTProtocols extends FastThreadLocal<TProtocol[]> {
 
-        private ThreadLocalTProtocol(TProtocolFactory protoFactory) {
-            this.protoFactory = protoFactory;
+        @Override
+        protected TProtocol[] initialValue() {
+            return new TProtocol[SerializationFormat.values().length];
         }
 
-        @Override
-        protected TProtocol initialValue() {
-            return protoFactory.getProtocol(new TByteBufTransport());
+        TProtocol get(SerializationFormat serializationFormat) {
+            final TProtocol[] protocols = get();
+            final int index = serializationFormat.ordinal();
+            TProtocol protocol = protocols[index];
+            if (protocol == null) {
+                protocol = ThriftProtocolFactories.get(serializationFormat)
+                                                  .getProtocol(new TByteBufTransport());
+                protocols[index] = protocol;
+            }
+            return protocol;
         }
     }
 
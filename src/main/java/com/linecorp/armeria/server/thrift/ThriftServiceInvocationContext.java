@@ -25,6 +25,7 @@ import org.apache.thrift.TFieldIdEnum;
 import com.linecorp.armeria.common.Scheme;
 import com.linecorp.armeria.common.SerializationFormat;
 import com.linecorp.armeria.common.ServiceInvocationContext;
+import com.linecorp.armeria.common.thrift.ThriftInProcessCall;
 import com.linecorp.armeria.common.thrift.ThriftUtil;
 import com.linecorp.armeria.server.ServiceCodec.DecodeResult;
 import com.linecorp.armeria.server.ServiceCodec.DecodeResultType;
@@ -37,6 +38,21 @@ final class ThriftServiceInvocationContext extends ServiceInvocationContext impl
     final ThriftFunction func;
     final int seqId;
     final TBase<TBase<?, ?>, TFieldIdEnum> args;
+    /**
+     * The {@link ThriftInProcessCall} to store the result into, or {@code null} if the result has to be
+     * serialized.
+     */
+    final ThriftInProcessCall inProcessCall;
+    /**
+     * The request whose memory is shared by the decoded {@code binary} fields, which is released when
+     * the promise of the invocation is done, or {@code null} if the fields have been copied.
+     */
+    ByteBuf zeroCopyRequest;
+    /**
+     * The slot of this call in the {@link ThriftConcurrencyLimiter} of the function, or {@code null} if
+     * the function has no concurrency limit.
+     */
+    ThriftConcurrencyLimiter.Call concurrencyLimiterCall;
     private String seqIdStr;
     private List<Object> argList;
 
@@ -44,11 +60,20 @@ final class ThriftServiceInvocationContext extends ServiceInvocationContext impl
             Channel ch, Scheme protocol, String host, String path, String mappedPath,
             String loggerName, Object originalRequest,
             ThriftFunction func, int seqId, TBase<TBase<?, ?>, TFieldIdEnum> args) {
+        this(ch, protocol, host, path, mappedPath, loggerName, originalRequest, func, seqId, args, null);
+    }
+
+    ThriftServiceInvocationContext(
+            Channel ch, Scheme protocol, String host, String path, String mappedPath,
+            String loggerName, Object originalRequest,
+            ThriftFunction func, int seqId, TBase<TBase<?, ?>, TFieldIdEnum> args,
+            ThriftInProcessCall inProcessCall) {
         super(ch, protocol, host, path, mappedPath, loggerName, originalRequest);
 
         this.func = func;
         this.seqId = seqId;
         this.args = args;
+        this.inProcessCall = inProcessCall;
     }
 
     @Override
@@ -79,7 +104,7 @@ final class ThriftServiceInvocationContext extends ServiceInvocationContext impl
     public List<Object> params() {
         List<Object> argList = this.argList;
         if (argList == null) {
-            this.argList = argList = ThriftUtil.toJavaParams(args);
+            this.argList = argList = func.toParams(args);
         }
         return argList;
     }
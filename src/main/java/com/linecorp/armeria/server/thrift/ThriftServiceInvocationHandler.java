@@ -18,7 +18,13 @@ package com.linecorp.armeria.server.thrift;
 
 import static java.util.Objects.requireNonNull;
 
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.thrift.AsyncProcessFunction;
 import org.apache.thrift.ProcessFunction;
@@ -29,29 +35,270 @@ import org.apache.thrift.async.AsyncMethodCallback;
 import com.linecorp.armeria.common.ServiceInvocationContext;
 import com.linecorp.armeria.server.ServiceInvocationHandler;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.util.concurrent.Promise;
 
 final class ThriftServiceInvocationHandler implements ServiceInvocationHandler {
 
+    static final long DEFAULT_INLINE_TIME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Where a synchronous function is invoked.
+     */
+    private enum ExecutionType {
+        /**
+         * The I/O event loop which received the call.
+         */
+        INLINE,
+        /**
+         * The blocking task executor of the server.
+         */
+        BLOCKING,
+        /**
+         * The {@link Executor} in {@link #functionExecutors}.
+         */
+        EXECUTOR
+    }
+
     private final Object service;
 
+    /**
+     * A map whose key is a method name and whose value is the name of its execution policy.
+     */
+    private final Map<String, String> executionPolicies;
+
+    /**
+     * A map whose key is the name of an executor registered via {@link ThriftService#withExecutor}.
+     */
+    private final Map<String, Executor> executors;
+
+    private final long inlineTimeBudgetNanos;
+
+    /**
+     * Whether a oneway function is responded as soon as its arguments are decoded.
+     */
+    private final boolean immediateOnewayResponse;
+
+    /**
+     * A map whose key is a method name and whose value is where the function is invoked.
+     * A function which is not in this map is invoked by the blocking task executor.
+     */
+    private final Map<String, ExecutionType> functionExecutionTypes;
+
+    /**
+     * A map whose key is a method name and whose value is the {@link Executor} which invokes the function
+     * of {@link ExecutionType#EXECUTOR}.
+     */
+    private final Map<String, Executor> functionExecutors;
+
     ThriftServiceInvocationHandler(Object service) {
+        this(service, findExecutionPolicies(requireNonNull(service, "service")), Collections.emptyMap(),
+             DEFAULT_INLINE_TIME_BUDGET_NANOS, false);
+    }
+
+    private ThriftServiceInvocationHandler(Object service, Map<String, String> executionPolicies,
+                                           Map<String, Executor> executors, long inlineTimeBudgetNanos,
+                                           boolean immediateOnewayResponse) {
         this.service = requireNonNull(service, "service");
+        this.executionPolicies = Collections.unmodifiableMap(executionPolicies);
+        this.executors = Collections.unmodifiableMap(executors);
+        this.inlineTimeBudgetNanos = inlineTimeBudgetNanos;
+        this.immediateOnewayResponse = immediateOnewayResponse;
+
+        final Map<String, ExecutionType> functionExecutionTypes = new HashMap<>();
+        final Map<String, Executor> functionExecutors = new HashMap<>();
+        executionPolicies.forEach((methodName, policy) -> {
+            switch (policy) {
+            case ThriftExecution.BLOCKING:
+                break;
+            case ThriftExecution.INLINE:
+                functionExecutionTypes.put(methodName, ExecutionType.INLINE);
+                break;
+            default:
+                final Executor executor = executors.get(policy);
+                functionExecutionTypes.put(methodName, ExecutionType.EXECUTOR);
+                functionExecutors.put(methodName, executor != null ? executor : command -> {
+                    throw new RejectedExecutionException("no executor named '" + policy + "' for " +
+                                                         methodName + "()");
+                });
+            }
+        });
+        this.functionExecutionTypes = functionExecutionTypes;
+        this.functionExecutors = functionExecutors;
+    }
+
+    private static Map<String, String> findExecutionPolicies(Object service) {
+        final Map<String, String> executionPolicies = new HashMap<>();
+        for (Method m : service.getClass().getMethods()) {
+            final ThriftExecution execution = m.getAnnotation(ThriftExecution.class);
+            if (execution != null) {
+                executionPolicies.put(m.getName(), validatePolicy(execution.value()));
+            }
+        }
+        return executionPolicies;
+    }
+
+    private static String validatePolicy(String policy) {
+        requireNonNull(policy, "policy");
+        if (policy.isEmpty()) {
+            throw new IllegalArgumentException("policy is empty.");
+        }
+        return policy;
+    }
+
+    /**
+     * Ensures that the execution policies refer to the synchronous functions of the specified
+     * {@link ThriftServiceCodec} and to the registered executors, so that a misspelled name fails
+     * when the service is added to a server rather than when the function is called.
+     */
+    void validateExecutionPolicies(ThriftServiceCodec codec) {
+        executionPolicies.forEach((methodName, policy) -> {
+            final ThriftFunction func = codec.function(methodName);
+            if (func == null) {
+                throw new IllegalStateException(
+                        "execution policy of " + methodName + "(): " + policy +
+                        " (expected: specified for a Thrift function of " +
+                        codec.thriftService().getClass().getName() + ')');
+            }
+            if (func.isAsync()) {
+                throw new IllegalStateException(
+                        "execution policy of " + methodName + "(): " + policy +
+                        " (expected: specified for a synchronous function)");
+            }
+            if (!ThriftExecution.INLINE.equals(policy) && !ThriftExecution.BLOCKING.equals(policy) &&
+                !executors.containsKey(policy)) {
+                throw new IllegalStateException(
+                        "execution policy of " + methodName + "(): " + policy + " (expected: " +
+                        ThriftExecution.INLINE + ", " + ThriftExecution.BLOCKING +
+                        " or one of the executors " + executors.keySet() + ')');
+            }
+        });
+    }
+
+    ThriftServiceInvocationHandler withExecution(String methodName, String policy) {
+        requireNonNull(methodName, "methodName");
+        final Map<String, String> executionPolicies = new HashMap<>(this.executionPolicies);
+        executionPolicies.put(methodName, validatePolicy(policy));
+        return new ThriftServiceInvocationHandler(service, executionPolicies, executors, inlineTimeBudgetNanos,
+                                                  immediateOnewayResponse);
+    }
+
+    ThriftServiceInvocationHandler withExecutor(String name, Executor executor) {
+        validatePolicy(name);
+        requireNonNull(executor, "executor");
+        if (ThriftExecution.INLINE.equals(name) || ThriftExecution.BLOCKING.equals(name)) {
+            throw new IllegalArgumentException("name: " + name + " (expected: not a reserved name)");
+        }
+
+        final Map<String, Executor> executors = new HashMap<>(this.executors);
+        executors.put(name, executor);
+        return new ThriftServiceInvocationHandler(service, executionPolicies, executors, inlineTimeBudgetNanos,
+                                                  immediateOnewayResponse);
+    }
+
+    ThriftServiceInvocationHandler withInlineTimeBudgetNanos(long inlineTimeBudgetNanos) {
+        if (inlineTimeBudgetNanos <= 0) {
+            throw new IllegalArgumentException(
+                    "inlineTimeBudgetNanos: " + inlineTimeBudgetNanos + " (expected: > 0)");
+        }
+        return new ThriftServiceInvocationHandler(service, executionPolicies, executors, inlineTimeBudgetNanos,
+                                                  immediateOnewayResponse);
+    }
+
+    ThriftServiceInvocationHandler withImmediateOnewayResponse() {
+        return new ThriftServiceInvocationHandler(service, executionPolicies, executors, inlineTimeBudgetNanos,
+                                                  true);
+    }
+
+    boolean isImmediateOnewayResponse() {
+        return immediateOnewayResponse;
+    }
+
+    String executionPolicy(String methodName) {
+        return executionPolicies.getOrDefault(methodName, ThriftExecution.BLOCKING);
+    }
+
+    long inlineTimeBudgetNanos() {
+        return inlineTimeBudgetNanos;
     }
 
     @Override
     public void invoke(ServiceInvocationContext ctx,
                        Executor blockingTaskExecutor, Promise<Object> promise) throws Exception {
         final ThriftServiceInvocationContext tCtx = (ThriftServiceInvocationContext) ctx;
-        final ThriftFunction f = tCtx.func;
+        if (immediateOnewayResponse && tCtx.func.isOneway()) {
+            invokeDetached(tCtx, blockingTaskExecutor, promise);
+        } else {
+            invoke(tCtx, blockingTaskExecutor, promise, tCtx.concurrencyLimiterCall);
+        }
+    }
+
+    private void invoke(ThriftServiceInvocationContext ctx, Executor blockingTaskExecutor,
+                        Promise<Object> promise, ThriftConcurrencyLimiter.Call call) {
+        if (call == null) {
+            dispatch(ctx, blockingTaskExecutor, promise);
+            return;
+        }
 
+        // Hold the slot of the call until the promise is done. If the function has too many running calls,
+        // the call is dispatched in the event loop when one of them is complete.
+        promise.addListener(future -> call.complete());
+        call.invoke(() -> dispatch(ctx, blockingTaskExecutor, promise), ctx.contextAwareEventLoop());
+    }
+
+    private void dispatch(ThriftServiceInvocationContext ctx,
+                          Executor blockingTaskExecutor, Promise<Object> promise) {
+        final ThriftFunction f = ctx.func;
         if (f.isAsync()) {
-            invokeAsynchronously(tCtx, promise);
-        } else {
-            invokeSynchronously(tCtx, blockingTaskExecutor, promise);
+            invokeAsynchronously(ctx, promise);
+            return;
+        }
+
+        final String methodName = f.methodName();
+        switch (functionExecutionTypes.getOrDefault(methodName, ExecutionType.BLOCKING)) {
+        case INLINE:
+            invokeInline(ctx, promise);
+            break;
+        case EXECUTOR:
+            invokeSynchronously(ctx, functionExecutors.get(methodName), promise);
+            break;
+        default:
+            invokeSynchronously(ctx, blockingTaskExecutor, promise);
         }
     }
 
+    /**
+     * Responds to a oneway call immediately and then invokes its function with a separate {@link Promise},
+     * whose failure is only logged because the client does not wait for the result.
+     */
+    private void invokeDetached(ThriftServiceInvocationContext ctx,
+                                Executor blockingTaskExecutor, Promise<Object> promise) {
+        final Promise<Object> detachedPromise = ctx.eventLoop().newPromise();
+
+        // The request would be released as soon as the response is sent otherwise.
+        final ByteBuf zeroCopyRequest = ctx.zeroCopyRequest;
+        if (zeroCopyRequest != null) {
+            zeroCopyRequest.retain();
+        }
+
+        detachedPromise.addListener(future -> {
+            if (zeroCopyRequest != null) {
+                zeroCopyRequest.release();
+            }
+            if (!future.isSuccess()) {
+                ctx.logger().warn("{}() failed after its oneway response was sent:",
+                                  ctx.method(), future.cause());
+            }
+        });
+
+        // The detached invocation rather than the response holds the slot of the call.
+        final ThriftConcurrencyLimiter.Call call = ctx.concurrencyLimiterCall;
+        ctx.concurrencyLimiterCall = null;
+
+        ctx.resolvePromise(promise, null);
+        invoke(ctx, blockingTaskExecutor, detachedPromise, call);
+    }
+
     private void invokeAsynchronously(ThriftServiceInvocationContext ctx, Promise<Object> promise) {
         final ThriftFunction func = ctx.func;
         final AsyncProcessFunction<Object, TBase<TBase<?, ?>, TFieldIdEnum>, Object> f = func.asyncFunc();
@@ -84,13 +331,33 @@ final class ThriftServiceInvocationHandler implements ServiceInvocationHandler {
         }
     }
 
-    private void invokeSynchronously(ThriftServiceInvocationContext ctx,
-                                     Executor blockingTaskExecutor, Promise<Object> promise) {
+    /**
+     * Invokes a synchronous function in the current I/O event loop. A function which takes longer than
+     * the inline time budget delays all other calls on the same event loop, so it is logged as a warning.
+     */
+    private void invokeInline(ThriftServiceInvocationContext ctx, Promise<Object> promise) {
+        if (promise.isDone()) {
+            // The call timed out while waiting for the concurrency limiter.
+            ctx.logger().warn("Promise is done already; not invoking: {}", promise);
+            return;
+        }
 
-        final ThriftFunction func = ctx.func;
-        final ProcessFunction<Object, TBase<TBase<?, ?>, TFieldIdEnum>> f = func.syncFunc();
+        final long startNanos = System.nanoTime();
+        invoke0(ctx, promise);
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        if (elapsedNanos > inlineTimeBudgetNanos) {
+            ctx.logger().warn(
+                    "{}() took {} ms in the I/O event loop, exceeding the inline time budget of {} ms; " +
+                    "consider using a different execution policy.", ctx.method(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    TimeUnit.NANOSECONDS.toMillis(inlineTimeBudgetNanos));
+        }
+    }
+
+    private void invokeSynchronously(ThriftServiceInvocationContext ctx,
+                                     Executor executor, Promise<Object> promise) {
         try {
-            blockingTaskExecutor.execute(() -> {
+            executor.execute(() -> {
                 if (promise.isDone()) {
                     ctx.logger().warn("Promise is done already; not invoking: {}", promise);
                     return;
@@ -98,15 +365,7 @@ final class ThriftServiceInvocationHandler implements ServiceInvocationHandler {
 
                 ServiceInvocationContext.setCurrent(ctx);
                 try {
-                    @SuppressWarnings("unchecked")
-                    TBase<TBase<?, ?>, TFieldIdEnum> result = f.getResult(service, ctx.args);
-                    if (func.isOneway()) {
-                        result = null;
-                    }
-
-                    ctx.resolvePromise(promise, result);
-                } catch (Throwable t) {
-                    ctx.rejectPromise(promise, t);
+                    invoke0(ctx, promise);
                 } finally {
                     ServiceInvocationContext.removeCurrent();
                 }
@@ -115,4 +374,20 @@ final class ThriftServiceInvocationHandler implements ServiceInvocationHandler {
             ctx.rejectPromise(promise, t);
         }
     }
+
+    private void invoke0(ThriftServiceInvocationContext ctx, Promise<Object> promise) {
+        final ThriftFunction func = ctx.func;
+        final ProcessFunction<Object, TBase<TBase<?, ?>, TFieldIdEnum>> f = func.syncFunc();
+        try {
+            @SuppressWarnings("unchecked")
+            TBase<TBase<?, ?>, TFieldIdEnum> result = f.getResult(service, ctx.args);
+            if (func.isOneway()) {
+                result = null;
+            }
+
+            ctx.resolvePromise(promise, result);
+        } catch (Throwable t) {
+            ctx.rejectPromise(promise, t);
+        }
+    }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.FramedSessionHandler.Invocation;
+import com.linecorp.armeria.client.pool.PoolKey;
+import com.linecorp.armeria.common.Scheme;
+import com.linecorp.armeria.common.SerializationFormat;
+import com.linecorp.armeria.common.ServiceInvocationContext;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.thrift.TByteBufTransport;
+import com.linecorp.armeria.common.thrift.ThriftProtocolFactories;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class FramedSessionHandlerTest {
+
+    private static final InetSocketAddress ADDRESS = InetSocketAddress.createUnresolved("foo.com", 9090);
+
+    @Test
+    public void testPoolKeyPerSerializationFormat() {
+        final PoolKey binaryKey =
+                new PoolKey(ADDRESS, SessionProtocol.FRAMED, SerializationFormat.THRIFT_BINARY);
+        assertThat(binaryKey,
+                   is(new PoolKey(ADDRESS, SessionProtocol.FRAMED, SerializationFormat.THRIFT_BINARY)));
+        assertThat(binaryKey,
+                   is(not(new PoolKey(ADDRESS, SessionProtocol.FRAMED, SerializationFormat.THRIFT_COMPACT))));
+        assertThat(new PoolKey(ADDRESS, SessionProtocol.H2C),
+                   is(new PoolKey(ADDRESS, SessionProtocol.H2C, SerializationFormat.NONE)));
+    }
+
+    @Test
+    public void testResponsesAreReadInSessionFormat() throws Exception {
+        final EmbeddedChannel ch =
+                new EmbeddedChannel(new FramedSessionHandler(SerializationFormat.THRIFT_COMPACT));
+
+        final Invocation first = newInvocation(ch, SerializationFormat.THRIFT_COMPACT, 1);
+        final Invocation second = newInvocation(ch, SerializationFormat.THRIFT_COMPACT, 2);
+        assertThat(ch.writeAndFlush(first).isSuccess(), is(true));
+        assertThat(ch.writeAndFlush(second).isSuccess(), is(true));
+        releaseOutbound(ch);
+
+        // The responses are matched with the calls by their sequence IDs, read in the format of the session.
+        ch.writeInbound(newMessage(SerializationFormat.THRIFT_COMPACT, TMessageType.REPLY, 2));
+        assertThat(first.responsePromise().isDone(), is(false));
+        assertThat(second.responsePromise().isSuccess(), is(true));
+        second.responsePromise().getNow().release();
+
+        ch.writeInbound(newMessage(SerializationFormat.THRIFT_COMPACT, TMessageType.REPLY, 1));
+        assertThat(first.responsePromise().isSuccess(), is(true));
+        first.responsePromise().getNow().release();
+    }
+
+    @Test
+    public void testCallInOtherFormatIsRejected() throws Exception {
+        final EmbeddedChannel ch =
+                new EmbeddedChannel(new FramedSessionHandler(SerializationFormat.THRIFT_COMPACT));
+
+        final Invocation invocation = newInvocation(ch, SerializationFormat.THRIFT_BINARY, 1);
+        final ChannelFuture future = ch.writeAndFlush(invocation);
+        assertThat(future.cause(), is(instanceOf(IllegalStateException.class)));
+        assertThat(invocation.content().refCnt(), is(0));
+        assertThat(ch.readOutbound(), is((Object) null));
+    }
+
+    private static Invocation newInvocation(Channel ch, SerializationFormat serializationFormat,
+                                            int seqId) throws TException {
+        return new Invocation(new TestInvocationContext(ch, serializationFormat), ch.eventLoop().newPromise(),
+                              newMessage(serializationFormat, TMessageType.CALL, seqId));
+    }
+
+    private static ByteBuf newMessage(SerializationFormat serializationFormat, byte type, int seqId)
+            throws TException {
+        final ByteBuf buf = Unpooled.buffer();
+        final TProtocol out =
+                ThriftProtocolFactories.get(serializationFormat).getProtocol(new TByteBufTransport(buf));
+        out.writeMessageBegin(new TMessage("hello", type, seqId));
+        out.writeMessageEnd();
+        return buf;
+    }
+
+    private static void releaseOutbound(EmbeddedChannel ch) {
+        for (;;) {
+            final ByteBuf buf = (ByteBuf) ch.readOutbound();
+            if (buf == null) {
+                break;
+            }
+            buf.release();
+        }
+    }
+
+    private static final class TestInvocationContext extends ServiceInvocationContext {
+
+        TestInvocationContext(Channel ch, SerializationFormat serializationFormat) {
+            super(ch, Scheme.of(serializationFormat, SessionProtocol.FRAMED), "foo.com", "/", "/",
+                  FramedSessionHandlerTest.class.getName(), null);
+        }
+
+        @Override
+        public String invocationId() {
+            return "test";
+        }
+
+        @Override
+        public String method() {
+            return "hello";
+        }
+
+        @Override
+        public List<Class<?>> paramTypes() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Class<?> returnType() {
+            return Void.class;
+        }
+
+        @Override
+        public List<Object> params() {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.OptionalLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.linecorp.armeria.common.SessionProtocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2ConnectionHandlerBuilder;
+import io.netty.handler.codec.http2.Http2FrameAdapter;
+
+public class Http2ClientKeepAliveHandlerTest {
+
+    private static final InetSocketAddress REMOTE_ADDRESS = InetSocketAddress.createUnresolved("foo.com", 80);
+
+    private static final long PING_INTERVAL_MILLIS = 100;
+
+    private static final int FRAME_HEADER_LENGTH = 9;
+    private static final byte SETTINGS = 4;
+    private static final byte PING = 6;
+    private static final byte ACK = 1;
+
+    private SessionRoundTripTimes roundTripTimes;
+
+    @Before
+    public void before() {
+        roundTripTimes = new SessionRoundTripTimes();
+    }
+
+    @Test
+    public void testPingAck() throws Exception {
+        final EmbeddedChannel ch = newChannel(10000);
+        final long payload = waitForPing(ch);
+
+        // Acknowledge the PING as the server does.
+        final ByteBuf frames = Unpooled.buffer();
+        writeFrameHeader(frames, 0, SETTINGS, 0);
+        writeFrameHeader(frames, 8, PING, ACK);
+        frames.writeLong(payload);
+        ch.writeInbound(frames);
+
+        final OptionalLong rtt = roundTripTimes.get(REMOTE_ADDRESS);
+        assertThat(rtt.isPresent(), is(true));
+        assertThat(rtt.getAsLong(), is(greaterThanOrEqualTo(0L)));
+        assertThat(roundTripTimes.get("foo.com", 80), is(rtt));
+
+        // The RTT of a closed session is not kept.
+        ch.close();
+        assertThat(roundTripTimes.get(REMOTE_ADDRESS).isPresent(), is(false));
+    }
+
+    @Test
+    public void testPingTimeout() throws Exception {
+        final EmbeddedChannel ch = newChannel(PING_INTERVAL_MILLIS);
+        waitForPing(ch);
+        assertThat(ch.isOpen(), is(true));
+
+        Thread.sleep(PING_INTERVAL_MILLIS * 2);
+        ch.runPendingTasks();
+        assertThat(ch.isOpen(), is(false));
+        assertThat(roundTripTimes.get(REMOTE_ADDRESS).isPresent(), is(false));
+    }
+
+    private EmbeddedChannel newChannel(long pingTimeoutMillis) {
+        return new EmbeddedChannel(
+                new Http2ConnectionHandlerBuilder().server(false).frameListener(new Http2FrameAdapter() {
+                    @Override
+                    public void onPingAckRead(ChannelHandlerContext ctx, ByteBuf data) {
+                        Http2ClientKeepAliveHandler.pingAckReceived(ctx.channel(), data);
+                    }
+                }).build(),
+                new Http2ClientKeepAliveHandler(PING_INTERVAL_MILLIS, pingTimeoutMillis, roundTripTimes),
+                new HttpSessionHandler(SessionProtocol.H2C)) {
+            @Override
+            public SocketAddress remoteAddress() {
+                return REMOTE_ADDRESS;
+            }
+        };
+    }
+
+    /**
+     * Waits until the session becomes idle and sends a PING frame, and returns its payload.
+     */
+    private static long waitForPing(EmbeddedChannel ch) throws Exception {
+        Thread.sleep(PING_INTERVAL_MILLIS * 2);
+        ch.runPendingTasks();
+
+        final ByteBuf out = Unpooled.buffer();
+        for (;;) {
+            final ByteBuf buf = (ByteBuf) ch.readOutbound();
+            if (buf == null) {
+                break;
+            }
+            out.writeBytes(buf);
+            buf.release();
+        }
+
+        out.skipBytes(Http2CodecUtil.connectionPrefaceBuf().readableBytes());
+        while (out.readableBytes() >= FRAME_HEADER_LENGTH) {
+            final int length = out.readUnsignedMedium();
+            final byte type = out.readByte();
+            final byte flags = out.readByte();
+            out.skipBytes(4); // Stream ID
+            if (type == PING && flags == 0) {
+                return out.readLong();
+            }
+            out.skipBytes(length);
+        }
+
+        throw new AssertionError("PING not sent");
+    }
+
+    private static void writeFrameHeader(ByteBuf buf, int length, byte type, int flags) {
+        buf.writeMedium(length);
+        buf.writeByte(type);
+        buf.writeByte(flags);
+        buf.writeInt(0);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client;
+
+import static com.linecorp.armeria.common.SessionProtocol.H1;
+import static com.linecorp.armeria.common.SessionProtocol.H1C;
+import static com.linecorp.armeria.common.SessionProtocol.H2;
+import static com.linecorp.armeria.common.SessionProtocol.H2C;
+import static com.linecorp.armeria.common.SessionProtocol.HTTP;
+import static com.linecorp.armeria.common.SessionProtocol.HTTPS;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.net.InetSocketAddress;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.pool.PoolKey;
+
+public class HttpRemoteInvokerTest {
+
+    private static final InetSocketAddress ADDRESS = InetSocketAddress.createUnresolved("foo.com", 8080);
+
+    @After
+    public void clearCache() {
+        SessionProtocolNegotiationCache.clear();
+    }
+
+    @Test
+    public void testCoalesceConnects() {
+        assertThat(HttpRemoteInvoker.coalesceConnects(new PoolKey(ADDRESS, H2C)), is(true));
+        assertThat(HttpRemoteInvoker.coalesceConnects(new PoolKey(ADDRESS, H2)), is(true));
+        assertThat(HttpRemoteInvoker.coalesceConnects(new PoolKey(ADDRESS, H1C)), is(false));
+
+        // The protocol to be negotiated is unknown yet.
+        assertThat(HttpRemoteInvoker.coalesceConnects(new PoolKey(ADDRESS, HTTP)), is(false));
+
+        // HTTP/2 has been negotiated with the remote address.
+        SessionProtocolNegotiationCache.setNegotiated(ADDRESS, H2C);
+        assertThat(HttpRemoteInvoker.coalesceConnects(new PoolKey(ADDRESS, HTTP)), is(true));
+        assertThat(HttpRemoteInvoker.coalesceConnects(new PoolKey(ADDRESS, H1C)), is(false));
+
+        // HTTP/1 has been negotiated with the remote address.
+        SessionProtocolNegotiationCache.setNegotiated(ADDRESS, H1);
+        assertThat(HttpRemoteInvoker.coalesceConnects(new PoolKey(ADDRESS, HTTPS)), is(false));
+        SessionProtocolNegotiationCache.setNegotiated(ADDRESS, H2);
+        assertThat(HttpRemoteInvoker.coalesceConnects(new PoolKey(ADDRESS, HTTPS)), is(true));
+    }
+}
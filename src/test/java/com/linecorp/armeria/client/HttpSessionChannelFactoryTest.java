@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HttpSessionChannelFactoryTest {
+
+    private static final InetSocketAddress IPV4_A = address("192.0.2.1");
+    private static final InetSocketAddress IPV4_B = address("192.0.2.2");
+    private static final InetSocketAddress IPV4_C = address("192.0.2.3");
+    private static final InetSocketAddress IPV6_A = address("2001:db8::1");
+    private static final InetSocketAddress IPV6_B = address("2001:db8::2");
+
+    @Test
+    public void testSortAddressesInterleavesFamilies() {
+        final List<InetSocketAddress> sorted = HttpSessionChannelFactory.sortAddresses(
+                Arrays.asList(IPV6_A, IPV6_B, IPV4_A, IPV4_B, IPV4_C));
+
+        assertThat(sorted, contains(IPV6_A, IPV4_A, IPV6_B, IPV4_B, IPV4_C));
+    }
+
+    @Test
+    public void testSortAddressesTriesRecentlyFailedLast() {
+        final InetSocketAddress failed = address("192.0.2.100");
+        HttpSessionChannelFactory.setRecentlyFailed(failed.getAddress());
+        assertThat(HttpSessionChannelFactory.isRecentlyFailed(failed.getAddress()), is(true));
+
+        final List<InetSocketAddress> sorted = HttpSessionChannelFactory.sortAddresses(
+                Arrays.asList(failed, IPV4_A, IPV4_B));
+
+        assertThat(sorted, contains(IPV4_A, IPV4_B, failed));
+    }
+
+    private static InetSocketAddress address(String ipAddress) {
+        try {
+            return new InetSocketAddress(InetAddress.getByName(ipAddress), 8080);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
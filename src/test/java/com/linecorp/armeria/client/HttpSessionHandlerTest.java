@@ -0,0 +1,286 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.linecorp.armeria.client.ClientCodec.EncodeResult;
+import com.linecorp.armeria.client.HttpSessionHandler.Invocation;
+import com.linecorp.armeria.client.http.SimpleHttpClient;
+import com.linecorp.armeria.client.http.SimpleHttpClientCodec;
+import com.linecorp.armeria.client.http.SimpleHttpRequest;
+import com.linecorp.armeria.client.http.SimpleHttpRequestBuilder;
+import com.linecorp.armeria.client.http.SimpleHttpResponse;
+import com.linecorp.armeria.client.pool.DefaultKeyedChannelPool;
+import com.linecorp.armeria.client.pool.KeyedChannelPool;
+import com.linecorp.armeria.client.pool.KeyedChannelPoolHandlerAdapter;
+import com.linecorp.armeria.client.pool.PoolKey;
+import com.linecorp.armeria.common.SessionProtocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2ConnectionHandlerBuilder;
+import io.netty.handler.codec.http2.Http2FrameAdapter;
+import io.netty.handler.codec.http2.HttpConversionUtil.ExtensionHeaderNames;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+
+public class HttpSessionHandlerTest {
+
+    private static final PoolKey KEY =
+            new PoolKey(InetSocketAddress.createUnresolved("foo.com", 80), SessionProtocol.H2C);
+
+    private static final Method EXECUTE_METHOD;
+
+    static {
+        try {
+            EXECUTE_METHOD = SimpleHttpClient.class.getMethod("execute", SimpleHttpRequest.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Did you rename the execute method?");
+        }
+    }
+
+    @Test
+    public void testUnprocessedInvocationIsSentAgainOnce() {
+        final List<EmbeddedChannel> channels = new ArrayList<>();
+        final EventLoop eventLoop = new EmbeddedChannel().eventLoop();
+        final KeyedChannelPool<PoolKey> pool = new DefaultKeyedChannelPool<>(
+                eventLoop,
+                key -> {
+                    final EmbeddedChannel ch =
+                            new EmbeddedChannel(new HttpSessionHandler(key.sessionProtocol()));
+                    channels.add(ch);
+                    return ch.eventLoop().newSucceededFuture(ch);
+                },
+                HttpSessionChannelFactory.HEALTH_CHECKER, new KeyedChannelPoolHandlerAdapter<>(), true,
+                key -> key.sessionProtocol().isMultiplex());
+
+        final CountingCodec codec = new CountingCodec();
+        final Promise<SimpleHttpResponse> processed = invoke(pool, codec, "/processed");
+        final Promise<SimpleHttpResponse> unprocessed = invoke(pool, codec, "/unprocessed");
+        assertThat(channels.size(), is(1));
+        assertThat(codec.numEncodedRequests, is(2));
+
+        final EmbeddedChannel ch = channels.get(0);
+        assertThat(readRequest(ch), is("3 /processed"));
+        assertThat(readRequest(ch), is("5 /unprocessed"));
+
+        // The server accepted only the first stream.
+        HttpSessionHandler.goAwayReceived(ch, 3);
+        assertThat(processed.isDone(), is(false));
+        assertThat(unprocessed.isDone(), is(false));
+
+        // The unprocessed request was sent again on a new session without being encoded again.
+        assertThat(channels.size(), is(2));
+        assertThat(codec.numEncodedRequests, is(2));
+        final EmbeddedChannel newCh = channels.get(1);
+        assertThat(readRequest(newCh), is("3 /unprocessed"));
+
+        // The pool closed the inactive session, but it is open until the processed invocation completes.
+        assertThat(ch.isOpen(), is(true));
+        writeResponse(ch, 3);
+        assertThat(processed.isSuccess(), is(true));
+        assertThat(ch.isOpen(), is(false));
+
+        // The request is not sent again more than once.
+        HttpSessionHandler.goAwayReceived(newCh, 1);
+        assertThat(unprocessed.cause(), is(sameInstance(HttpSessionHandler.UNPROCESSED_EXCEPTION)));
+        assertThat(channels.size(), is(2));
+        assertThat(codec.numEncodedRequests, is(2));
+    }
+
+    @Test
+    public void testProcessedInvocationsCompleteBeforeClose() {
+        final EmbeddedChannel ch = new EmbeddedChannel(new HttpSessionHandler(SessionProtocol.H2C));
+        final Invocation first = writeInvocation(ch, "/first");
+        final Invocation second = writeInvocation(ch, "/second");
+        final Invocation third = writeInvocation(ch, "/third");
+
+        HttpSessionHandler.goAwayReceived(ch, 5);
+        assertThat(first.resultPromise().isDone(), is(false));
+        assertThat(second.resultPromise().isDone(), is(false));
+        assertThat(third.resultPromise().cause(), is(sameInstance(HttpSessionHandler.UNPROCESSED_EXCEPTION)));
+        assertThat(HttpSessionHandler.isActive(ch), is(false));
+
+        closeSession(ch);
+        assertThat(ch.isOpen(), is(true));
+
+        writeResponse(ch, 3);
+        assertThat(first.resultPromise().isSuccess(), is(true));
+        assertThat(ch.isOpen(), is(true));
+
+        writeResponse(ch, 5);
+        assertThat(second.resultPromise().isSuccess(), is(true));
+        assertThat(ch.isOpen(), is(false));
+    }
+
+    @Test
+    public void testRetryContentReleasedWhenStreamAccepted() {
+        final EmbeddedChannel ch = new EmbeddedChannel(new HttpSessionHandler(SessionProtocol.H2C));
+        final ByteBuf firstRetryContent = Unpooled.buffer();
+        final ByteBuf secondRetryContent = Unpooled.buffer();
+        final ByteBuf thirdRetryContent = Unpooled.buffer();
+        final Invocation first = writeInvocation(ch, "/first", firstRetryContent);
+        final Invocation second = writeInvocation(ch, "/second", secondRetryContent);
+        final Invocation third = writeInvocation(ch, "/third", thirdRetryContent);
+
+        // The server started to respond to the first stream.
+        HttpSessionHandler.responseStarted(ch, 3);
+        assertThat(firstRetryContent.refCnt(), is(0));
+        assertThat(first.takeRetryContent(), is(nullValue()));
+        assertThat(secondRetryContent.refCnt(), is(1));
+
+        // The server accepted the second stream, but not the third one.
+        HttpSessionHandler.goAwayReceived(ch, 5);
+        assertThat(secondRetryContent.refCnt(), is(0));
+        assertThat(second.takeRetryContent(), is(nullValue()));
+        assertThat(third.takeRetryContent(), is(sameInstance(thirdRetryContent)));
+        assertThat(thirdRetryContent.release(), is(true));
+    }
+
+    @Test
+    public void testDrainTimeout() throws Exception {
+        final EmbeddedChannel ch = new EmbeddedChannel(new HttpSessionHandler(SessionProtocol.H2C, 100));
+        final Invocation invocation = writeInvocation(ch, "/stuck");
+
+        HttpSessionHandler.goAwayReceived(ch, 3);
+        closeSession(ch);
+        assertThat(ch.isOpen(), is(true));
+
+        Thread.sleep(200);
+        ch.runPendingTasks();
+        assertThat(ch.isOpen(), is(false));
+        ch.runPendingTasks();
+        assertThat(invocation.resultPromise().cause(), is(instanceOf(ClosedSessionException.class)));
+    }
+
+    @Test
+    public void testPingTimeoutClosesDrainingSession() throws Exception {
+        final EmbeddedChannel ch = new EmbeddedChannel(
+                new Http2ConnectionHandlerBuilder().server(false)
+                                                   .frameListener(new Http2FrameAdapter()).build(),
+                new Http2ClientKeepAliveHandler(100, 100, new SessionRoundTripTimes()),
+                new HttpSessionHandler(SessionProtocol.H2C));
+        final Invocation invocation = writeInvocation(ch, "/stuck");
+
+        HttpSessionHandler.goAwayReceived(ch, 3);
+        closeSession(ch);
+        assertThat(ch.isOpen(), is(true));
+
+        // Send a PING, and then time out.
+        for (int i = 0; i < 2; i++) {
+            Thread.sleep(200);
+            ch.runPendingTasks();
+        }
+
+        assertThat(ch.isOpen(), is(false));
+        ch.runPendingTasks();
+        assertThat(invocation.resultPromise().cause(), is(instanceOf(ClosedSessionException.class)));
+    }
+
+    /**
+     * Closes the specified {@link EmbeddedChannel} as the pool does. Unlike {@link EmbeddedChannel#close()},
+     * this does not cancel the scheduled tasks.
+     */
+    private static void closeSession(EmbeddedChannel ch) {
+        ch.pipeline().close();
+    }
+
+    private static Promise<SimpleHttpResponse> invoke(KeyedChannelPool<PoolKey> pool, ClientCodec codec,
+                                                      String path) {
+        final Promise<SimpleHttpResponse> promise = ImmediateEventExecutor.INSTANCE.newPromise();
+        final Channel ch = pool.acquire(KEY).getNow();
+        HttpRemoteInvoker.invoke0(codec, ch, EXECUTE_METHOD, new Object[] { newRequest(path) },
+                                  ClientOptions.DEFAULT, promise, KEY, System.nanoTime());
+        return promise;
+    }
+
+    private static Invocation writeInvocation(EmbeddedChannel ch, String path) {
+        return writeInvocation(ch, path, null);
+    }
+
+    private static Invocation writeInvocation(EmbeddedChannel ch, String path, Object retryContent) {
+        final EncodeResult result = new SimpleHttpClientCodec("foo.com").encodeRequest(
+                ch, SessionProtocol.H2C, EXECUTE_METHOD, new Object[] { newRequest(path) });
+        final Invocation invocation = new Invocation(result.invocationContext(), ClientOptions.DEFAULT,
+                                                     ch.eventLoop().newPromise(), result.content(),
+                                                     retryContent);
+        ch.writeAndFlush(invocation);
+        return invocation;
+    }
+
+    private static SimpleHttpRequest newRequest(String path) {
+        return SimpleHttpRequestBuilder.forPost(path).content(path, StandardCharsets.UTF_8).build();
+    }
+
+    /**
+     * Returns the stream ID and the content of the next request written to the specified {@link Channel}.
+     */
+    private static String readRequest(EmbeddedChannel ch) {
+        final FullHttpRequest req = (FullHttpRequest) ch.readOutbound();
+        try {
+            return req.headers().get(ExtensionHeaderNames.STREAM_ID.text()) + ' ' +
+                   req.content().toString(StandardCharsets.UTF_8);
+        } finally {
+            ReferenceCountUtil.release(req);
+        }
+    }
+
+    private static void writeResponse(EmbeddedChannel ch, int streamId) {
+        final FullHttpResponse res = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.EMPTY_BUFFER);
+        res.headers().setInt(ExtensionHeaderNames.STREAM_ID.text(), streamId);
+        ch.writeInbound(res);
+    }
+
+    private static final class CountingCodec extends DecoratingClientCodec {
+
+        int numEncodedRequests;
+
+        CountingCodec() {
+            super(new SimpleHttpClientCodec("foo.com"));
+        }
+
+        @Override
+        public EncodeResult encodeRequest(Channel channel, SessionProtocol sessionProtocol, Method method,
+                                          Object[] args) {
+            numEncodedRequests++;
+            return delegate().encodeRequest(channel, sessionProtocol, method, args);
+        }
+    }
+}
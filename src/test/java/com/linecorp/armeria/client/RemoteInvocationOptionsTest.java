@@ -16,6 +16,7 @@
 package com.linecorp.armeria.client;
 
 import static com.linecorp.armeria.client.RemoteInvokerOption.CONNECT_TIMEOUT;
+import static com.linecorp.armeria.client.RemoteInvokerOption.DRAIN_TIMEOUT;
 import static com.linecorp.armeria.client.RemoteInvokerOption.EVENT_LOOP_GROUP;
 import static com.linecorp.armeria.client.RemoteInvokerOption.IDLE_TIMEOUT;
 import static com.linecorp.armeria.client.RemoteInvokerOption.MAX_CONCURRENCY;
@@ -46,6 +47,7 @@ public class RemoteInvocationOptionsTest {
         assertThat(options.trustManagerFactory(), is(Optional.empty()));
         assertThat(options.maxFrameLength(), greaterThan(0));
         assertThat(options.maxConcurrency(), greaterThan(0));
+        assertThat(options.drainTimeoutMillis(), greaterThan(0L));
     }
 
     @Test
@@ -84,6 +86,11 @@ public class RemoteInvocationOptionsTest {
         RemoteInvokerOptions.of(IDLE_TIMEOUT.newValue(Duration.ofMillis(-1)));
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testValidateFailDrainTimeout(){
+        RemoteInvokerOptions.of(DRAIN_TIMEOUT.newValue(Duration.ZERO));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testValidateMaxFrameLength(){
         RemoteInvokerOptions.of(MAX_FRAME_LENGTH.newValue(0));
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client;
+
+import static com.linecorp.armeria.common.SessionProtocol.H1C;
+import static com.linecorp.armeria.common.SessionProtocol.H2;
+import static com.linecorp.armeria.common.SessionProtocol.H2C;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SessionProtocolNegotiationCacheTest {
+
+    @After
+    public void clearCache() {
+        SessionProtocolNegotiationCache.clear();
+    }
+
+    @Test
+    public void testUnsupported() {
+        final InetSocketAddress addr = InetSocketAddress.createUnresolved("foo.com", 8080);
+        assertThat(SessionProtocolNegotiationCache.isUnsupported(addr, H2C), is(false));
+
+        SessionProtocolNegotiationCache.setUnsupported(addr, H2C);
+        assertThat(SessionProtocolNegotiationCache.isUnsupported(addr, H2C), is(true));
+        assertThat(SessionProtocolNegotiationCache.isUnsupported(addr, H2), is(false));
+        assertThat(SessionProtocolNegotiationCache.isUnsupported(
+                InetSocketAddress.createUnresolved("foo.com", 8081), H2C), is(false));
+    }
+
+    @Test
+    public void testResolvedAddressSharesEntry() throws Exception {
+        final InetSocketAddress resolved = new InetSocketAddress(
+                InetAddress.getByAddress("bar.com", new byte[] { 127, 0, 0, 1 }), 8080);
+        SessionProtocolNegotiationCache.setUnsupported(resolved, H2C);
+
+        assertThat(SessionProtocolNegotiationCache.isUnsupported(
+                InetSocketAddress.createUnresolved("bar.com", 8080), H2C), is(true));
+    }
+
+    @Test
+    public void testNegotiated() {
+        final InetSocketAddress addr = InetSocketAddress.createUnresolved("baz.com", 8080);
+        assertThat(SessionProtocolNegotiationCache.negotiatedProtocol(addr), is(Optional.empty()));
+
+        SessionProtocolNegotiationCache.setUnsupported(addr, H2C);
+        SessionProtocolNegotiationCache.setNegotiated(addr, H1C);
+        assertThat(SessionProtocolNegotiationCache.negotiatedProtocol(addr), is(Optional.of(H1C)));
+        assertThat(SessionProtocolNegotiationCache.isUnsupported(addr, H2C), is(true));
+
+        // A successful negotiation overrides the previous failure.
+        SessionProtocolNegotiationCache.setNegotiated(addr, H2C);
+        assertThat(SessionProtocolNegotiationCache.negotiatedProtocol(addr), is(Optional.of(H2C)));
+        assertThat(SessionProtocolNegotiationCache.isUnsupported(addr, H2C), is(false));
+    }
+
+    @Test
+    public void testHitAndMissCount() {
+        final InetSocketAddress addr = InetSocketAddress.createUnresolved("qux.com", 8080);
+        final long hitCount = SessionProtocolNegotiationCache.hitCount();
+        final long missCount = SessionProtocolNegotiationCache.missCount();
+
+        SessionProtocolNegotiationCache.isUnsupported(addr, H2C);
+        assertThat(SessionProtocolNegotiationCache.hitCount(), is(hitCount));
+        assertThat(SessionProtocolNegotiationCache.missCount(), is(missCount + 1));
+
+        SessionProtocolNegotiationCache.setUnsupported(addr, H2C);
+        SessionProtocolNegotiationCache.isUnsupported(addr, H2C);
+        assertThat(SessionProtocolNegotiationCache.hitCount(), is(hitCount + 1));
+        assertThat(SessionProtocolNegotiationCache.missCount(), is(missCount + 1));
+    }
+}
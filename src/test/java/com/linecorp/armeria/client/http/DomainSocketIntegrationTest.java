@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.Clients;
+import com.linecorp.armeria.client.RemoteInvokerFactory;
+import com.linecorp.armeria.common.DomainSocketAddress;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.server.Server;
+import com.linecorp.armeria.server.ServerBuilder;
+import com.linecorp.armeria.server.ServerPort;
+import com.linecorp.armeria.server.http.HttpService;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.epoll.Epoll;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+
+public class DomainSocketIntegrationTest {
+
+    private static File socketFile;
+    private static Server server;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        assumeTrue(Epoll.isAvailable());
+
+        socketFile = File.createTempFile("armeria-", ".sock");
+        if (!socketFile.delete()) {
+            throw new IllegalStateException("failed to delete: " + socketFile);
+        }
+
+        final ServerBuilder sb = new ServerBuilder();
+        sb.port(new DomainSocketAddress(socketFile.getPath()), SessionProtocol.HTTP);
+        sb.serviceAt("/hello", new HttpService((ctx, executor, promise) -> {
+            final FullHttpRequest request = ctx.originalRequest();
+            final String content = "HOST: " + request.headers().get(HttpHeaderNames.HOST);
+            promise.setSuccess(new DefaultFullHttpResponse(
+                    HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                    Unpooled.copiedBuffer(content, StandardCharsets.UTF_8)));
+        }));
+        server = sb.build();
+        server.start().sync();
+    }
+
+    @AfterClass
+    public static void destroy() throws Exception {
+        if (server != null) {
+            server.stop().sync();
+        }
+        if (socketFile != null) {
+            socketFile.delete();
+        }
+    }
+
+    @Test
+    public void testActivePort() throws Exception {
+        final ServerPort port = server.activePort().get();
+        assertEquals(new DomainSocketAddress(socketFile.getPath()), port.localSocketAddress());
+        assertEquals(port, server.activePorts().get(new DomainSocketAddress(socketFile.getPath())));
+    }
+
+    @Test(timeout = 10000)
+    public void testRequest() throws Exception {
+        final String uri = "none+http://unix:" +
+                           URLEncoder.encode(socketFile.getPath(), StandardCharsets.UTF_8.name());
+        final SimpleHttpClient client =
+                Clients.newClient(RemoteInvokerFactory.DEFAULT, uri, SimpleHttpClient.class);
+
+        // Send twice to make sure the pooled session is reused.
+        for (int i = 0; i < 2; i++) {
+            final SimpleHttpResponse response = client.execute(
+                    SimpleHttpRequestBuilder.forGet("/hello").build()).get();
+            assertEquals(HttpResponseStatus.OK, response.status());
+            final String content = new String(response.content(), StandardCharsets.UTF_8);
+            assertTrue(content, content.startsWith("HOST: " + DomainSocketAddress.HOST));
+        }
+    }
+}
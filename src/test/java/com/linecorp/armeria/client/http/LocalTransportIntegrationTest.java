@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.Clients;
+import com.linecorp.armeria.client.RemoteInvokerFactory;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.server.Server;
+import com.linecorp.armeria.server.ServerBuilder;
+import com.linecorp.armeria.server.ServerPort;
+import com.linecorp.armeria.server.http.HttpService;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+
+public class LocalTransportIntegrationTest {
+
+    private static final Server server;
+
+    static {
+        final ServerBuilder sb = new ServerBuilder();
+        sb.localPort("armeria-local-test");
+        sb.serviceAt("/hello", new HttpService((ctx, executor, promise) -> {
+            final FullHttpRequest request = ctx.originalRequest();
+            final String content = "HOST: " + request.headers().get(HttpHeaderNames.HOST);
+            promise.setSuccess(new DefaultFullHttpResponse(
+                    HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                    Unpooled.copiedBuffer(content, StandardCharsets.UTF_8)));
+        }));
+        server = sb.build();
+    }
+
+    @BeforeClass
+    public static void init() throws Exception {
+        server.start().sync();
+    }
+
+    @AfterClass
+    public static void destroy() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void testActivePort() throws Exception {
+        final ServerPort port = server.activePort().get();
+        assertEquals(SessionProtocol.LOCAL, port.protocol());
+        assertEquals("armeria-local-test", port.localAddress().getHostString());
+    }
+
+    @Test
+    public void testRequest() throws Exception {
+        final SimpleHttpClient client = Clients.newClient(
+                RemoteInvokerFactory.DEFAULT, "none+local://armeria-local-test", SimpleHttpClient.class);
+
+        for (int i = 0; i < 2; i++) {
+            final SimpleHttpResponse response = client.execute(
+                    SimpleHttpRequestBuilder.forGet("/hello").build()).get();
+            assertEquals(HttpResponseStatus.OK, response.status());
+            assertEquals("HOST: armeria-local-test", new String(response.content(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testUnknownLocalPort() throws Exception {
+        final SimpleHttpClient client = Clients.newClient(
+                RemoteInvokerFactory.DEFAULT, "none+local://armeria-no-such-port", SimpleHttpClient.class);
+        try {
+            client.execute(SimpleHttpRequestBuilder.forGet("/hello").build()).get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() != null);
+            return;
+        }
+        throw new AssertionError("connected to a non-existent local port");
+    }
+}
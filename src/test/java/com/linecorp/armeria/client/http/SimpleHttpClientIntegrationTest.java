@@ -17,15 +17,23 @@
 package com.linecorp.armeria.client.http;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.linecorp.armeria.client.Client;
+import com.linecorp.armeria.client.ClientInvocationTimings;
+import com.linecorp.armeria.client.ClientOption;
 import com.linecorp.armeria.client.Clients;
+import com.linecorp.armeria.client.DecoratingClientCodec;
 import com.linecorp.armeria.client.RemoteInvokerFactory;
+import com.linecorp.armeria.common.ServiceInvocationContext;
 import com.linecorp.armeria.common.SessionProtocol;
 import com.linecorp.armeria.server.Server;
 import com.linecorp.armeria.server.ServerBuilder;
@@ -145,4 +153,36 @@ public class SimpleHttpClientIntegrationTest {
         SimpleHttpResponse response = client.execute(request).get();
         assertEquals(HttpResponseStatus.NOT_FOUND, response.status());
     }
+
+    @Test
+    public void testInvocationTimings() throws Exception {
+        final AtomicReference<ServiceInvocationContext> ctxHolder = new AtomicReference<>();
+        final Function<Client, Client> decorator = Client.newDecorator(
+                codec -> new DecoratingClientCodec(codec) {
+                    @Override
+                    public <T> T decodeResponse(ServiceInvocationContext ctx, ByteBuf content,
+                                                Object originalResponse) throws Exception {
+                        ctxHolder.set(ctx);
+                        return super.decodeResponse(ctx, content, originalResponse);
+                    }
+                }, Function.identity());
+
+        // Use 'localhost' so that a new session is created with DNS resolution.
+        SimpleHttpClient client = Clients.newClient(remoteInvokerFactory, "none+http://localhost:" + httpPort,
+                                                    SimpleHttpClient.class,
+                                                    ClientOption.DECORATOR.newValue(decorator));
+        SimpleHttpRequest request = SimpleHttpRequestBuilder.forGet("/not200").build();
+        client.execute(request).get();
+
+        final ClientInvocationTimings timings = ClientInvocationTimings.get(ctxHolder.get()).get();
+        assertTrue(timings.isNewSession());
+        assertTrue(timings.acquireDurationNanos() >= 0);
+        assertTrue(timings.dnsResolutionDurationNanos() >= 0);
+        assertTrue(timings.socketConnectDurationNanos() >= 0);
+        assertEquals(-1, timings.tlsHandshakeDurationNanos());
+        assertTrue(timings.protocolNegotiationDurationNanos() >= 0);
+        assertTrue(timings.requestWriteDurationNanos() >= 0);
+        assertTrue(timings.responseWaitDurationNanos() >= 0);
+        assertTrue(timings.responseDecodeDurationNanos() >= 0);
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client.metrics;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.net.InetSocketAddress;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.linecorp.armeria.client.pool.KeyedChannelPoolHandler;
+import com.linecorp.armeria.client.pool.KeyedChannelPoolHandlerAdapter;
+import com.linecorp.armeria.client.pool.PoolKey;
+import com.linecorp.armeria.common.SessionProtocol;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class KeyedChannelPoolMetricCollectingHandlerTest {
+
+    private static final PoolKey key =
+            new PoolKey(InetSocketAddress.createUnresolved("foo.com", 8080), SessionProtocol.H1C);
+
+    @Test
+    public void testChannelCounts() throws Exception {
+        final KeyedChannelPoolMetrics metrics = new KeyedChannelPoolMetrics();
+        final KeyedChannelPoolHandler<PoolKey> handler =
+                metrics.newHandlerDecorator().apply(new KeyedChannelPoolHandlerAdapter<>());
+        assertThat(metrics.snapshot(key), is(Optional.empty()));
+
+        final Channel ch1 = new EmbeddedChannel();
+        final Channel ch2 = new EmbeddedChannel();
+        handler.channelCreated(key, ch1);
+        handler.channelCreated(key, ch2);
+        handler.channelReleased(key, ch1);
+
+        ChannelPoolMetrics m = metrics.snapshot(key).get();
+        assertThat(m.createdChannels(), is(2L));
+        assertThat(m.openChannels(), is(2L));
+        assertThat(m.inUseChannels(), is(1L));
+        assertThat(m.idleChannels(), is(1L));
+
+        handler.channelReleased(key, ch2);
+        handler.channelUnhealthy(key, ch2);
+        handler.channelClosed(key, ch2);
+        handler.channelAcquired(key, ch1);
+
+        m = metrics.snapshot().get(key);
+        assertThat(m.openChannels(), is(1L));
+        assertThat(m.inUseChannels(), is(1L));
+        assertThat(m.idleChannels(), is(0L));
+        assertThat(m.closedChannels(), is(1L));
+        assertThat(m.healthCheckFailureCount(), is(1L));
+        assertThat(m.maxLifetimeNanos(), is(m.totalLifetimeNanos()));
+    }
+
+    @Test
+    public void testAcquireTimeHistogram() throws Exception {
+        final KeyedChannelPoolMetrics metrics = new KeyedChannelPoolMetrics();
+        final KeyedChannelPoolHandler<PoolKey> handler =
+                new KeyedChannelPoolMetricCollectingHandler(new KeyedChannelPoolHandlerAdapter<>(), metrics);
+
+        handler.acquireCompleted(key, TimeUnit.MICROSECONDS.toNanos(100), null);
+        handler.acquireCompleted(key, TimeUnit.MILLISECONDS.toNanos(3), null);
+        handler.acquireCompleted(key, TimeUnit.MINUTES.toNanos(1), new Exception());
+
+        final ChannelPoolMetrics m = metrics.snapshot(key).get();
+        assertThat(m.acquireCount(), is(3L));
+        assertThat(m.acquireFailureCount(), is(1L));
+
+        final long[] histogram = m.acquireTimeHistogram();
+        assertThat(histogram.length, is(ChannelPoolMetrics.acquireTimeBucketBoundsNanos().size() + 1));
+        assertThat(histogram[0], is(1L));
+        assertThat(histogram[3], is(1L));
+        assertThat(histogram[histogram.length - 1], is(1L));
+    }
+}
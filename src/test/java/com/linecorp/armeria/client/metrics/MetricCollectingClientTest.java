@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client.metrics;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.linecorp.armeria.client.Client;
+import com.linecorp.armeria.client.ClientCodec;
+import com.linecorp.armeria.client.ClientCodec.EncodeResult;
+import com.linecorp.armeria.client.ClientOptions;
+import com.linecorp.armeria.client.RemoteInvoker;
+import com.linecorp.armeria.common.Scheme;
+import com.linecorp.armeria.common.SessionProtocol;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+
+public class MetricCollectingClientTest {
+
+    private static final URI uri = URI.create("none+http://foo.com:8080/bar");
+    private static final Method method;
+
+    static {
+        try {
+            method = Object.class.getMethod("toString");
+        } catch (NoSuchMethodException e) {
+            throw new Error(e);
+        }
+    }
+
+    private final Object[] metrics = new Object[11];
+
+    private final ClientMetricConsumer consumer =
+            (scheme, hostname, path, method, code, acquireTimeNanos, wireTimeNanos, totalTimeNanos,
+             requestSize, responseSize, cause) -> {
+                metrics[0] = scheme;
+                metrics[1] = hostname;
+                metrics[2] = path;
+                metrics[3] = method;
+                metrics[4] = code;
+                metrics[5] = acquireTimeNanos;
+                metrics[6] = wireTimeNanos;
+                metrics[7] = totalTimeNanos;
+                metrics[8] = requestSize;
+                metrics[9] = responseSize;
+                metrics[10] = cause;
+            };
+
+    @Test
+    public void testSuccess() throws Exception {
+        final ClientCodec codec = mock(ClientCodec.class);
+        final EncodeResult encodeResult = mock(EncodeResult.class);
+        when(encodeResult.isSuccess()).thenReturn(true);
+        when(encodeResult.content()).thenReturn(Unpooled.wrappedBuffer(new byte[3]));
+        when(codec.encodeRequest(any(), any(), any(), any())).thenReturn(encodeResult);
+
+        final RemoteInvoker invoker = new RemoteInvoker() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> Future<T> invoke(URI uri, ClientOptions options, ClientCodec codec, Method method,
+                                        Object[] args) throws Exception {
+                codec.encodeRequest(mock(Channel.class), SessionProtocol.HTTP, method, args);
+                codec.decodeResponse(null, Unpooled.wrappedBuffer(new byte[5]),
+                                     new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                                                                 HttpResponseStatus.OK));
+                return (Future<T>) ImmediateEventExecutor.INSTANCE.newSucceededFuture("result");
+            }
+
+            @Override
+            public void close() {}
+        };
+
+        invoke(codec, invoker);
+
+        assertThat(metrics[0], is(Scheme.parse("none+http")));
+        assertThat(metrics[1], is("foo.com"));
+        assertThat(metrics[2], is("/bar"));
+        assertThat(metrics[3], is("toString"));
+        assertThat(metrics[4], is(200));
+        assertThat((Long) metrics[7], is(greaterThanOrEqualTo((Long) metrics[5] + (Long) metrics[6])));
+        assertThat(metrics[8], is(3));
+        assertThat(metrics[9], is(5));
+        assertThat(metrics[10], is(Optional.empty()));
+    }
+
+    @Test
+    public void testFailureBeforeEncode() throws Exception {
+        final Exception cause = new Exception();
+        final RemoteInvoker invoker = new RemoteInvoker() {
+            @Override
+            public <T> Future<T> invoke(URI uri, ClientOptions options, ClientCodec codec, Method method,
+                                        Object[] args) throws Exception {
+                return ImmediateEventExecutor.INSTANCE.newFailedFuture(cause);
+            }
+
+            @Override
+            public void close() {}
+        };
+
+        invoke(mock(ClientCodec.class), invoker);
+
+        assertThat(metrics[4], is(0));
+        assertThat(metrics[5], is(metrics[7]));
+        assertThat(metrics[6], is(0L));
+        assertThat(metrics[8], is(0));
+        assertThat(metrics[9], is(0));
+        assertThat(metrics[10], is(Optional.of(cause)));
+    }
+
+    private void invoke(ClientCodec codec, RemoteInvoker invoker) throws Exception {
+        final Client client = mock(Client.class);
+        when(client.codec()).thenReturn(codec);
+        when(client.invoker()).thenReturn(invoker);
+
+        final Client decorated = new MetricCollectingClient(client, consumer);
+        decorated.invoker().invoke(uri, ClientOptions.DEFAULT, decorated.codec(), method, new Object[0]);
+    }
+}
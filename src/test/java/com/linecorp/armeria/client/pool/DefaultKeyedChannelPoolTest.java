@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client.pool;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+public class DefaultKeyedChannelPoolTest {
+
+    private static final String KEY = "foo";
+
+    private EventLoop eventLoop;
+    private List<Promise<Channel>> connectPromises;
+
+    @Before
+    public void before() {
+        eventLoop = new EmbeddedChannel().eventLoop();
+        connectPromises = new ArrayList<>();
+    }
+
+    @Test
+    public void testCoalescedConnect() {
+        final KeyedChannelPool<String> pool = newPool(true);
+
+        final List<Future<Channel>> futures = acquire(pool, 3);
+        assertThat(connectPromises.size(), is(1));
+
+        final Channel ch = new EmbeddedChannel();
+        connectPromises.get(0).setSuccess(ch);
+
+        assertThat(connectPromises.size(), is(1));
+        for (Future<Channel> f : futures) {
+            assertThat(f.isSuccess(), is(true));
+            assertThat(f.getNow(), is(sameInstance(ch)));
+        }
+    }
+
+    @Test
+    public void testCoalescedConnectFailure() {
+        final KeyedChannelPool<String> pool = newPool(true);
+
+        final List<Future<Channel>> futures = acquire(pool, 3);
+        assertThat(connectPromises.size(), is(1));
+
+        final Exception cause = new Exception();
+        connectPromises.get(0).setFailure(cause);
+
+        assertThat(connectPromises.size(), is(1));
+        for (Future<Channel> f : futures) {
+            assertThat(f.isDone(), is(true));
+            assertThat(f.cause(), is(sameInstance(cause)));
+        }
+    }
+
+    @Test
+    public void testCoalescedConnectWithDeferredRelease() {
+        final KeyedChannelPool<String> pool = newPool(true);
+
+        // Acquire without releasing, as HttpRemoteInvoker does until it writes the request.
+        final List<Future<Channel>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(pool.acquire(KEY));
+        }
+        assertThat(connectPromises.size(), is(1));
+
+        final Channel ch = new EmbeddedChannel();
+        connectPromises.get(0).setSuccess(ch);
+        assertThat(futures.get(0).getNow(), is(sameInstance(ch)));
+        assertThat(futures.get(1).isDone(), is(false));
+        assertThat(futures.get(2).isDone(), is(false));
+
+        // A new acquirer waits as well while the Channel is held.
+        futures.add(pool.acquire(KEY));
+
+        for (int i = 1; i < futures.size(); i++) {
+            pool.release(KEY, futures.get(i - 1).getNow());
+            assertThat(futures.get(i).getNow(), is(sameInstance(ch)));
+        }
+        pool.release(KEY, ch);
+
+        // The Channel is in the pool now.
+        final Future<Channel> f = pool.acquire(KEY);
+        assertThat(f.getNow(), is(sameInstance(ch)));
+        assertThat(connectPromises.size(), is(1));
+    }
+
+    @Test
+    public void testCoalescedConnectWithClosedChannel() {
+        final KeyedChannelPool<String> pool = newPool(true);
+
+        final Future<Channel> first = pool.acquire(KEY);
+        final Future<Channel> second = pool.acquire(KEY);
+        final Future<Channel> third = pool.acquire(KEY);
+
+        final Channel ch = new EmbeddedChannel();
+        connectPromises.get(0).setSuccess(ch);
+        assertThat(first.getNow(), is(sameInstance(ch)));
+
+        // The Channel is closed before being released; the waiters share a new connection.
+        ch.close();
+        assertThat(connectPromises.size(), is(2));
+
+        final Channel newCh = new EmbeddedChannel();
+        connectPromises.get(1).setSuccess(newCh);
+        assertThat(second.getNow(), is(sameInstance(newCh)));
+        assertThat(third.isDone(), is(false));
+
+        pool.release(KEY, newCh);
+        assertThat(third.getNow(), is(sameInstance(newCh)));
+        assertThat(connectPromises.size(), is(2));
+    }
+
+    @Test
+    public void testNonCoalescedConnect() {
+        final KeyedChannelPool<String> pool = newPool(false);
+
+        final List<Future<Channel>> futures = acquire(pool, 3);
+        assertThat(connectPromises.size(), is(3));
+
+        for (int i = 0; i < futures.size(); i++) {
+            final Channel ch = new EmbeddedChannel();
+            connectPromises.get(i).setSuccess(ch);
+            assertThat(futures.get(i).getNow(), is(sameInstance(ch)));
+        }
+    }
+
+    @Test
+    public void testAcquireCompleted() {
+        final List<Throwable> causes = new ArrayList<>();
+        final KeyedChannelPool<String> pool = newPool(new KeyedChannelPoolHandler<String>() {
+            @Override
+            public void channelCreated(String key, Channel ch) {}
+
+            @Override
+            public void channelAcquired(String key, Channel ch) {}
+
+            @Override
+            public void channelReleased(String key, Channel ch) {}
+
+            @Override
+            public void channelClosed(String key, Channel ch) {}
+
+            @Override
+            public void acquireCompleted(String key, long elapsedNanos, Throwable cause) {
+                assertThat(elapsedNanos, is(greaterThanOrEqualTo(0L)));
+                causes.add(cause);
+            }
+        }, false);
+
+        final Future<Channel> success = pool.acquire(KEY);
+        final Future<Channel> failure = pool.acquire(KEY);
+        assertThat(causes.isEmpty(), is(true));
+
+        connectPromises.get(0).setSuccess(new EmbeddedChannel());
+        assertThat(success.isSuccess(), is(true));
+        final Exception cause = new Exception();
+        connectPromises.get(1).setFailure(cause);
+        assertThat(failure.isDone(), is(true));
+
+        assertThat(causes.size(), is(2));
+        assertThat(causes.get(0), is(nullValue()));
+        assertThat(causes.get(1), is(sameInstance(cause)));
+    }
+
+    @Test
+    public void testHandlesAcquireCompleted() {
+        final KeyedChannelPoolHandler<String> noop = new KeyedChannelPoolHandlerAdapter<>();
+        assertThat(handlesAcquireCompleted(noop), is(false));
+        assertThat(handlesAcquireCompleted(new DecoratingKeyedChannelPoolHandler<String>(noop) {}),
+                   is(false));
+
+        final KeyedChannelPoolHandler<String> measuring = new KeyedChannelPoolHandlerAdapter<String>() {
+            @Override
+            public void acquireCompleted(String key, long elapsedNanos, Throwable cause) {}
+        };
+        assertThat(handlesAcquireCompleted(measuring), is(true));
+        assertThat(handlesAcquireCompleted(new DecoratingKeyedChannelPoolHandler<String>(measuring) {}),
+                   is(true));
+        assertThat(handlesAcquireCompleted(new DecoratingKeyedChannelPoolHandler<String>(noop) {
+            @Override
+            public void acquireCompleted(String key, long elapsedNanos, Throwable cause) {}
+        }), is(true));
+    }
+
+    private static boolean handlesAcquireCompleted(KeyedChannelPoolHandler<String> handler) {
+        return new SafeKeyedChannelPoolHandler<>(handler).handlesAcquireCompleted();
+    }
+
+    private KeyedChannelPool<String> newPool(boolean coalesceConnects) {
+        return newPool(new KeyedChannelPoolHandlerAdapter<>(), coalesceConnects);
+    }
+
+    private KeyedChannelPool<String> newPool(KeyedChannelPoolHandler<String> handler,
+                                             boolean coalesceConnects) {
+        return new DefaultKeyedChannelPool<>(
+                eventLoop,
+                key -> {
+                    final Promise<Channel> promise = eventLoop.newPromise();
+                    connectPromises.add(promise);
+                    return promise;
+                },
+                ChannelHealthChecker.ACTIVE, handler, true,
+                key -> coalesceConnects);
+    }
+
+    private static List<Future<Channel>> acquire(KeyedChannelPool<String> pool, int numAcquisitions) {
+        final List<Future<Channel>> futures = new ArrayList<>();
+        for (int i = 0; i < numAcquisitions; i++) {
+            final Future<Channel> f = pool.acquire(KEY);
+            // Release the Channel as soon as it's acquired, as we do for a multiplexed session.
+            f.addListener((Future<Channel> future) -> {
+                if (future.isSuccess()) {
+                    pool.release(KEY, future.getNow());
+                }
+            });
+            futures.add(f);
+        }
+        return futures;
+    }
+}
@@ -25,7 +25,12 @@ import static org.junit.Assert.fail;
 import java.lang.reflect.Method;
 import java.net.URI;
 
+import org.apache.thrift.TApplicationException;
 import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
 import org.junit.Test;
 
 import com.linecorp.armeria.client.ClientCodec.EncodeResult;
@@ -33,11 +38,18 @@ import com.linecorp.armeria.common.Scheme;
 import com.linecorp.armeria.common.SerializationFormat;
 import com.linecorp.armeria.common.ServiceInvocationContext;
 import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.thrift.TByteBufTransport;
 import com.linecorp.armeria.common.thrift.ThriftProtocolFactories;
 import com.linecorp.armeria.service.test.thrift.main.HelloService;
+import com.linecorp.armeria.service.test.thrift.main.HelloService.hello_args;
+import com.linecorp.armeria.service.test.thrift.main.HelloService.hello_result;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Promise;
 
 public class ThriftClientCodecTest {
 
@@ -93,6 +105,39 @@ public class ThriftClientCodecTest {
         verifySuccessResult(result);
     }
 
+    @Test
+    public void testEncodeRequestMultipleTimes() throws Exception {
+        // Ensure the reused TProtocol does not leak any state from one request to another.
+        int lastSeqId = -1;
+        for (int i = 1; i <= 3; i++) {
+            final String name = "world" + i;
+            final EncodeResult result = syncClient.encodeRequest(
+                    channel, scheme.sessionProtocol(), helloMethod, new Object[] { name });
+            assertThat(result.isSuccess(), is(true));
+
+            final ByteBuf content = (ByteBuf) result.content();
+            try {
+                final TProtocol in = new TBinaryProtocol(new TByteBufTransport(content));
+                final TMessage header = in.readMessageBegin();
+                assertThat(header.name, is("hello"));
+                assertThat(header.type, is(TMessageType.CALL));
+                if (lastSeqId >= 0) {
+                    // The sequence IDs are unique in a JVM, but still increase one by one.
+                    assertThat(header.seqid, is(lastSeqId + 1));
+                }
+                lastSeqId = header.seqid;
+
+                final hello_args args = new hello_args();
+                args.read(in);
+                in.readMessageEnd();
+                assertThat(args.getName(), is(name));
+                assertThat(content.isReadable(), is(false));
+            } finally {
+                content.release();
+            }
+        }
+    }
+
     private void verifySuccessResult(EncodeResult result) {
         assertThat(result.isSuccess(), is(true));
         ServiceInvocationContext ctx = result.invocationContext();
@@ -104,6 +149,76 @@ public class ThriftClientCodecTest {
         assertThat(ctx.invocationId(), is("1"));
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroCopyBinaryWithSyncClient() {
+        // A synchronous client returns the result after the response has been released.
+        new ThriftClientCodec(uri, HelloService.Iface.class, ThriftProtocolFactories.BINARY, false, true);
+    }
+
+    @Test
+    public void testZeroCopyBinaryResponse() throws Exception {
+        final ThriftClientCodec client = new ThriftClientCodec(
+                uri, HelloService.AsyncIface.class, ThriftProtocolFactories.BINARY, false, true);
+        final ServiceInvocationContext ctx = encodeAsyncHello(client);
+
+        final ByteBuf content = Unpooled.buffer();
+        final TProtocol out = new TBinaryProtocol(new TByteBufTransport(content));
+        out.writeMessageBegin(new TMessage("hello", TMessageType.REPLY, 0));
+        new hello_result().setSuccess("Hello, world!").write(out);
+        out.writeMessageEnd();
+
+        try {
+            final Object result = client.decodeResponse(ctx, content, content);
+            assertThat(result, is("Hello, world!"));
+
+            // The response is kept until the invocation is complete.
+            assertThat(content.refCnt(), is(2));
+            final Promise<Object> promise = channel.eventLoop().newPromise();
+            ctx.resolvePromise(promise, result);
+            assertThat(promise.isSuccess(), is(true));
+            assertThat(content.refCnt(), is(1));
+        } finally {
+            content.release();
+        }
+    }
+
+    @Test
+    public void testZeroCopyBinaryExceptionResponse() throws Exception {
+        final ThriftClientCodec client = new ThriftClientCodec(
+                uri, HelloService.AsyncIface.class, ThriftProtocolFactories.BINARY, false, true);
+        final ServiceInvocationContext ctx = encodeAsyncHello(client);
+
+        final ByteBuf content = Unpooled.buffer();
+        final TProtocol out = new TBinaryProtocol(new TByteBufTransport(content));
+        out.writeMessageBegin(new TMessage("hello", TMessageType.EXCEPTION, 0));
+        new TApplicationException(TApplicationException.INTERNAL_ERROR, "failed").write(out);
+        out.writeMessageEnd();
+
+        try {
+            try {
+                client.decodeResponse(ctx, content, content);
+                fail();
+            } catch (TApplicationException e) {
+                final Promise<Object> promise = channel.eventLoop().newPromise();
+                ctx.rejectPromise(promise, e);
+                assertThat(promise.cause(), is((Throwable) e));
+            }
+
+            // The response is released even if the invocation failed.
+            assertThat(content.refCnt(), is(1));
+        } finally {
+            content.release();
+        }
+    }
+
+    private ServiceInvocationContext encodeAsyncHello(ThriftClientCodec client) {
+        final EncodeResult result = client.encodeRequest(
+                channel, scheme.sessionProtocol(), asyncHelloMethod, new Object[] { "world", dummyCallback() });
+        assertThat(result.isSuccess(), is(true));
+        ReferenceCountUtil.release(result.content());
+        return result.invocationContext();
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testEncodeRequestFailed() throws NoSuchMethodException {
         Object[] args = { "world" };
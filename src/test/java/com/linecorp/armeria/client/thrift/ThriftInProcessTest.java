@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.thrift;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.thrift.TApplicationException;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.ClientCodec;
+import com.linecorp.armeria.client.ClientOption;
+import com.linecorp.armeria.client.Clients;
+import com.linecorp.armeria.client.DecoratingClientCodec;
+import com.linecorp.armeria.client.RemoteInvokerFactory;
+import com.linecorp.armeria.client.logging.LoggingClient;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.thrift.ThriftInProcessCall;
+import com.linecorp.armeria.common.util.Exceptions;
+import com.linecorp.armeria.server.Server;
+import com.linecorp.armeria.server.ServerBuilder;
+import com.linecorp.armeria.server.logging.LoggingService;
+import com.linecorp.armeria.server.thrift.ThriftService;
+import com.linecorp.armeria.service.test.thrift.main.FileService;
+import com.linecorp.armeria.service.test.thrift.main.FileServiceException;
+import com.linecorp.armeria.service.test.thrift.main.HelloService;
+import com.linecorp.armeria.service.test.thrift.main.Name;
+import com.linecorp.armeria.service.test.thrift.main.NameService;
+import com.linecorp.armeria.service.test.thrift.main.OnewayHelloService;
+
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpRequest;
+
+public class ThriftInProcessTest {
+
+    private static final String LOCAL_PORT = "armeria-thrift-in-process-test";
+
+    private static final Server server;
+
+    private static final BlockingQueue<String> serverReceivedNames = new LinkedBlockingQueue<>();
+
+    private static final HelloService.AsyncIface helloHandler = (name, resultHandler) -> {
+        if ("error".equals(name)) {
+            resultHandler.onError(new IllegalStateException(name));
+        } else {
+            resultHandler.onComplete("Hello, " + name + '!');
+        }
+    };
+
+    private static final OnewayHelloService.AsyncIface onewayHelloHandler = (name, resultHandler) -> {
+        resultHandler.onComplete(null);
+        serverReceivedNames.add(name);
+    };
+
+    private static final FileService.AsyncIface fileServiceHandler =
+            (path, resultHandler) -> resultHandler.onError(Exceptions.clearTrace(new FileServiceException()));
+
+    /**
+     * Modifies the received argument and returns it as it is, so that a test can tell whether the objects
+     * are shared between the client and the service.
+     */
+    private static final NameService.Iface nameServiceHandler = name -> name.setMiddle("");
+
+    static {
+        final ServerBuilder sb = new ServerBuilder();
+        sb.localPort(LOCAL_PORT);
+        sb.serviceAt("/hello", ThriftService.of(helloHandler).decorate(LoggingService::new));
+        sb.serviceAt("/oneway", ThriftService.of(onewayHelloHandler).decorate(LoggingService::new));
+        sb.serviceAt("/file", ThriftService.of(fileServiceHandler).decorate(LoggingService::new));
+        sb.serviceAt("/name", ThriftService.of(nameServiceHandler).decorate(LoggingService::new));
+        server = sb.build();
+    }
+
+    @BeforeClass
+    public static void init() throws Exception {
+        server.start().sync();
+    }
+
+    @AfterClass
+    public static void destroy() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void testHello() throws Exception {
+        final HelloService.Iface client = newClient("/hello", HelloService.Iface.class);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Hello, kukuman" + i + '!', client.hello("kukuman" + i));
+        }
+        assertThat(ThriftInProcessCall.pendingCalls(), is(0));
+    }
+
+    @Test
+    public void testUndeclaredException() throws Exception {
+        final HelloService.Iface client = newClient("/hello", HelloService.Iface.class);
+        try {
+            client.hello("error");
+            fail();
+        } catch (TApplicationException e) {
+            assertThat(e.getType(), is(TApplicationException.INTERNAL_ERROR));
+        }
+    }
+
+    @Test(expected = FileServiceException.class)
+    public void testDeclaredException() throws Exception {
+        final FileService.Iface client = newClient("/file", FileService.Iface.class);
+        client.create("test");
+    }
+
+    @Test(timeout = 10000)
+    public void testOneway() throws Exception {
+        final OnewayHelloService.Iface client = newClient("/oneway", OnewayHelloService.Iface.class);
+        client.hello("kukuman");
+        assertEquals("kukuman", serverReceivedNames.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testObjectsAreNotShared() throws Exception {
+        final NameService.Iface client = newClient("/name", NameService.Iface.class);
+        final Name name = new Name("John", "Jacob", "Smith");
+        final Name result = client.removeMiddle(name);
+
+        assertEquals(new Name("John", "", "Smith"), result);
+        // The service must have modified its own copy of the argument.
+        assertEquals(new Name("John", "Jacob", "Smith"), name);
+    }
+
+    @Test
+    public void testUnknownCall() throws Exception {
+        final HelloService.Iface client = Clients.newClient(
+                RemoteInvokerFactory.DEFAULT, "tbinary+local://" + LOCAL_PORT + "/hello",
+                HelloService.Iface.class,
+                ClientOption.IN_PROCESS.newValue(true),
+                ClientOption.DECORATOR.newValue(c -> c.decorateCodec(UnknownCallIdCodec::new)));
+        try {
+            client.hello("kukuman");
+            fail();
+        } catch (TApplicationException e) {
+            // The server must tell why it could not take the call rather than leaving the result missing.
+            assertThat(e.getType(), is(TApplicationException.INTERNAL_ERROR));
+            assertThat(e.getMessage(), startsWith("unknown in-process call"));
+        }
+    }
+
+    private static <T> T newClient(String path, Class<T> iface) {
+        return Clients.newClient(RemoteInvokerFactory.DEFAULT, "tbinary+local://" + LOCAL_PORT + path, iface,
+                                 ClientOption.IN_PROCESS.newValue(true),
+                                 ClientOption.DECORATOR.newValue(LoggingClient::new));
+    }
+
+    /**
+     * Replaces the ID of the in-process call with the one the server does not know.
+     */
+    private static final class UnknownCallIdCodec extends DecoratingClientCodec {
+
+        UnknownCallIdCodec(ClientCodec delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public EncodeResult encodeRequest(Channel channel, SessionProtocol sessionProtocol, Method method,
+                                          Object[] args) {
+            final EncodeResult result = delegate().encodeRequest(channel, sessionProtocol, method, args);
+            if (result.isSuccess()) {
+                ((HttpRequest) result.content()).headers().set(ThriftInProcessCall.HEADER_NAME, "unknown");
+            }
+            return result;
+        }
+    }
+}
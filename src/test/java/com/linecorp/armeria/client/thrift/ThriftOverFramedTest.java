@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.thrift;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.ClientOption;
+import com.linecorp.armeria.client.Clients;
+import com.linecorp.armeria.client.RemoteInvokerFactory;
+import com.linecorp.armeria.client.logging.LoggingClient;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.server.Server;
+import com.linecorp.armeria.server.ServerBuilder;
+import com.linecorp.armeria.server.logging.LoggingService;
+import com.linecorp.armeria.server.thrift.ThriftService;
+import com.linecorp.armeria.service.test.thrift.main.HelloService;
+import com.linecorp.armeria.service.test.thrift.main.OnewayHelloService;
+
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+public class ThriftOverFramedTest {
+
+    private static final Server server;
+    private static final Server onewayServer;
+
+    private static final BlockingQueue<String> serverReceivedNames = new LinkedBlockingQueue<>();
+
+    private static int port;
+    private static int onewayPort;
+
+    /**
+     * Responds to the calls in the reverse order of arrival, so that a test can tell whether the responses
+     * are matched with their calls correctly.
+     */
+    private static final HelloService.AsyncIface helloHandler = (name, resultHandler) -> {
+        final long delayMillis = name.startsWith("delayed") ? 1000 - Integer.parseInt(name.substring(7)) * 100
+                                                            : 0;
+        GlobalEventExecutor.INSTANCE.schedule(() -> resultHandler.onComplete("Hello, " + name + '!'),
+                                              delayMillis, TimeUnit.MILLISECONDS);
+    };
+
+    private static final OnewayHelloService.AsyncIface onewayHelloHandler = (name, resultHandler) -> {
+        resultHandler.onComplete(null);
+        serverReceivedNames.add(name);
+    };
+
+    static {
+        final ServerBuilder sb = new ServerBuilder();
+        sb.port(0, SessionProtocol.FRAMED);
+        sb.serviceAt("/", ThriftService.of(helloHandler).decorate(LoggingService::new));
+        server = sb.build();
+
+        final ServerBuilder onewaySb = new ServerBuilder();
+        onewaySb.port(0, SessionProtocol.FRAMED);
+        onewaySb.serviceAt("/", ThriftService.of(onewayHelloHandler).decorate(LoggingService::new));
+        onewayServer = onewaySb.build();
+    }
+
+    @BeforeClass
+    public static void init() throws Exception {
+        server.start().sync();
+        onewayServer.start().sync();
+
+        port = server.activePort().get().localAddress().getPort();
+        onewayPort = onewayServer.activePort().get().localAddress().getPort();
+    }
+
+    @AfterClass
+    public static void destroy() throws Exception {
+        server.stop();
+        onewayServer.stop();
+    }
+
+    @Test
+    public void testHello() throws Exception {
+        final HelloService.Iface client = newClient(port, HelloService.Iface.class);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Hello, kukuman" + i + '!', client.hello("kukuman" + i));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testOutOfOrderResponses() throws Exception {
+        final HelloService.AsyncIface client = newClient(port, HelloService.AsyncIface.class);
+        final List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final CompletableFuture<String> future = new CompletableFuture<>();
+            client.hello("delayed" + i, new AsyncMethodCallback<String>() {
+                @Override
+                public void onComplete(String response) {
+                    future.complete(response);
+                }
+
+                @Override
+                public void onError(Exception exception) {
+                    future.completeExceptionally(exception);
+                }
+            });
+            futures.add(future);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Hello, delayed" + i + '!', futures.get(i).get());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testOneway() throws Exception {
+        final OnewayHelloService.Iface client = newClient(onewayPort, OnewayHelloService.Iface.class);
+        client.hello("kukuman");
+        assertEquals("kukuman", serverReceivedNames.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testVanillaThriftClient() throws Exception {
+        try (TTransport transport = new TFramedTransport(new TSocket("127.0.0.1", port))) {
+            transport.open();
+            final HelloService.Client client = new HelloService.Client(new TBinaryProtocol(transport));
+            assertEquals("Hello, vanilla!", client.hello("vanilla"));
+        }
+    }
+
+    private static <T> T newClient(int port, Class<T> iface) {
+        return Clients.newClient(RemoteInvokerFactory.DEFAULT,
+                                 "tbinary+framed://127.0.0.1:" + port + '/', iface,
+                                 ClientOption.DECORATOR.newValue(LoggingClient::new));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.common;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.linecorp.armeria.client.pool.PoolKey;
+import com.linecorp.armeria.server.ServerPort;
+
+public class DomainSocketAddressTest {
+
+    @Test
+    public void testUri() {
+        final URI uri = URI.create("tbinary+http://unix:%2Fvar%2Frun%2Fhello.sock/hello");
+        final DomainSocketAddress addr = DomainSocketAddress.of(uri).get();
+        assertThat(addr.path(), is("/var/run/hello.sock"));
+        assertThat(addr.toString(), is("unix:/var/run/hello.sock"));
+        assertThat(DomainSocketAddress.host(uri), is(DomainSocketAddress.HOST));
+
+        final URI tcpUri = URI.create("tbinary+http://unix:8080/hello");
+        assertThat(DomainSocketAddress.of(tcpUri), is(Optional.empty()));
+        assertThat(DomainSocketAddress.host(tcpUri), is("unix"));
+    }
+
+    @Test
+    public void testEquality() {
+        final DomainSocketAddress a = new DomainSocketAddress("/tmp/a.sock");
+        assertThat(a, is(new DomainSocketAddress("/tmp/a.sock")));
+        assertThat(a.hashCode(), is(new DomainSocketAddress("/tmp/a.sock").hashCode()));
+        assertThat(a, is(not(new DomainSocketAddress("/tmp/b.sock"))));
+        assertThat(a, is(not(new InetSocketAddress("127.0.0.1", 0))));
+
+        assertThat(new PoolKey(a, SessionProtocol.H1C),
+                   is(not(new PoolKey(new DomainSocketAddress("/tmp/b.sock"), SessionProtocol.H1C))));
+    }
+
+    @Test
+    public void testNoInetAddress() {
+        final DomainSocketAddress a = new DomainSocketAddress("/tmp/a.sock");
+
+        // The path is not disguised as an IP address.
+        final PoolKey key = new PoolKey(a, SessionProtocol.H1C);
+        assertThat(key.remoteSocketAddress(), is(sameInstance(a)));
+        assertThat(key.toString(), is("PoolKey[h1c://unix:/tmp/a.sock]"));
+        try {
+            key.remoteAddress();
+            fail();
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+
+        final ServerPort port = new ServerPort(a, SessionProtocol.HTTP);
+        assertThat(port.localSocketAddress(), is(sameInstance(a)));
+        assertThat(port, is(new ServerPort(new DomainSocketAddress("/tmp/a.sock"), SessionProtocol.HTTP)));
+        try {
+            port.localAddress();
+            fail();
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testConvert() {
+        final DomainSocketAddress a = new DomainSocketAddress("/tmp/a.sock");
+        assertThat(a.asNettyAddress().path(), is("/tmp/a.sock"));
+        assertThat(DomainSocketAddress.convert(a.asNettyAddress()), is(a));
+
+        final InetSocketAddress inet = InetSocketAddress.createUnresolved("foo.com", 80);
+        assertThat(DomainSocketAddress.convert(inet), is(inet));
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.thrift;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TJSONProtocol;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TMap;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.protocol.TProtocolUtil;
+import org.apache.thrift.protocol.TSet;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+@RunWith(Parameterized.class)
+public class TByteBufProtocolTest {
+
+    private static final String ASCII = "hello";
+    private static final String NON_ASCII = "éあ😀";
+    private static final String MALFORMED = "\ud83d";
+    private static final String ESCAPED = "\"\\/\b\f\n\r\t\u0001";
+    private static final byte[] BINARY = { 0, 1, 2, (byte) 0xff };
+    private static final String LONG_ESCAPED = String.join("", Collections.nCopies(1000, ESCAPED));
+    private static final int NESTING_DEPTH = 1000;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[] { ThriftProtocolFactories.BINARY, new TBinaryProtocol.Factory() },
+                             new Object[] { ThriftProtocolFactories.COMPACT, new TCompactProtocol.Factory() },
+                             new Object[] { ThriftProtocolFactories.JSON, new TJSONProtocol.Factory() });
+    }
+
+    private final TProtocolFactory factory;
+    private final TProtocolFactory vanillaFactory;
+
+    public TByteBufProtocolTest(TProtocolFactory factory, TProtocolFactory vanillaFactory) {
+        this.factory = factory;
+        this.vanillaFactory = vanillaFactory;
+    }
+
+    @Test
+    public void testProtocolType() {
+        final TProtocol proto = factory.getProtocol(new TByteBufTransport());
+        final Class<?> expectedType;
+        if (factory == ThriftProtocolFactories.BINARY) {
+            expectedType = TByteBufBinaryProtocol.class;
+        } else if (factory == ThriftProtocolFactories.COMPACT) {
+            expectedType = TByteBufCompactProtocol.class;
+        } else {
+            expectedType = TByteBufJsonProtocol.class;
+        }
+        assertThat(proto, is(instanceOf(expectedType)));
+    }
+
+    @Test
+    public void testSameEncoding() throws Exception {
+        final ByteBuf buf = Unpooled.buffer(1);
+        final TProtocol proto = factory.getProtocol(new TByteBufTransport(buf));
+        write(proto);
+
+        final TMemoryBuffer vanillaBuf = new TMemoryBuffer(64);
+        write(vanillaFactory.getProtocol(vanillaBuf));
+
+        final byte[] actual = new byte[buf.readableBytes()];
+        buf.getBytes(buf.readerIndex(), actual);
+        assertArrayEquals(Arrays.copyOf(vanillaBuf.getArray(), vanillaBuf.length()), actual);
+    }
+
+    @Test
+    public void testDecodeVanillaEncoding() throws Exception {
+        final TMemoryBuffer vanillaBuf = new TMemoryBuffer(64);
+        write(vanillaFactory.getProtocol(vanillaBuf));
+
+        final ByteBuf buf = Unpooled.wrappedBuffer(vanillaBuf.getArray(), 0, vanillaBuf.length());
+        read(factory.getProtocol(new TByteBufTransport(buf)));
+        assertThat(buf.isReadable(), is(false));
+    }
+
+    @Test
+    public void testSkip() throws Exception {
+        final ByteBuf buf = Unpooled.buffer();
+        write(factory.getProtocol(new TByteBufTransport(buf)));
+
+        final TProtocol proto = factory.getProtocol(new TByteBufTransport(buf));
+        proto.readMessageBegin();
+        TProtocolUtil.skip(proto, TType.STRUCT);
+        proto.readMessageEnd();
+        assertThat(buf.isReadable(), is(false));
+    }
+
+    @Test
+    public void testReuseAfterReset() throws Exception {
+        final TByteBufTransport trans = new TByteBufTransport();
+        final TProtocol proto = factory.getProtocol(trans);
+        for (int i = 0; i < 3; i++) {
+            final ByteBuf buf = Unpooled.buffer();
+            proto.reset();
+            trans.reset(buf);
+            write(proto);
+            proto.reset();
+            read(proto);
+            assertThat(buf.isReadable(), is(false));
+            trans.clear();
+        }
+    }
+
+    @Test
+    public void testReuseAfterDeeplyNestedMessage() throws Exception {
+        final TByteBufTransport trans = new TByteBufTransport();
+        final TProtocol proto = factory.getProtocol(trans);
+        final int initialBufferLength = retainedBufferLength(proto);
+
+        // Grow the state of the protocol.
+        final ByteBuf nested = Unpooled.buffer();
+        trans.reset(nested);
+        writeNested(proto);
+        proto.reset();
+        readNested(proto);
+        assertThat(nested.isReadable(), is(false));
+        if (factory != ThriftProtocolFactories.BINARY) {
+            assertThat(retainedBufferLength(proto), is(greaterThan(initialBufferLength)));
+        }
+
+        // Fail in the middle of a deeply nested message.
+        nested.readerIndex(0);
+        nested.writerIndex(nested.writerIndex() / 2);
+        proto.reset();
+        try {
+            readNested(proto);
+            fail();
+        } catch (TException expected) {
+            // Expected
+        }
+        trans.clear();
+
+        // The grown state must not be kept by a protocol which is reused by a thread for a long time.
+        proto.reset();
+        assertThat(retainedBufferLength(proto), is(initialBufferLength));
+
+        // The protocol must work as usual for the next message.
+        final ByteBuf buf = Unpooled.buffer();
+        trans.reset(buf);
+        write(proto);
+        proto.reset();
+        read(proto);
+        assertThat(buf.isReadable(), is(false));
+    }
+
+    @Test
+    public void testZeroCopyBinary() throws Exception {
+        // A binary value is encoded in base64 in the JSON protocol.
+        assumeTrue(factory != ThriftProtocolFactories.JSON);
+
+        final ByteBuf buf = Unpooled.buffer();
+        final TProtocol out = factory.getProtocol(new TByteBufTransport(buf));
+        out.writeBinary(ByteBuffer.wrap(BINARY));
+        out.writeI32(42);
+
+        final TProtocol in = factory.getProtocol(new TByteBufTransport(buf, true));
+        // The length of a binary is an int in the binary protocol and a varint in the compact protocol.
+        final int binaryOffset = out instanceof TByteBufBinaryProtocol ? 4 : 1;
+        final ByteBuffer binary = in.readBinary();
+        assertThat(binary.isReadOnly(), is(true));
+        assertThat(binary.remaining(), is(BINARY.length));
+        assertThat(in.readI32(), is(42));
+
+        // The binary value must share the memory of the buffer.
+        buf.setByte(binaryOffset, 42);
+        assertThat(binary.get(binary.position()), is((byte) 42));
+    }
+
+    @Test(expected = TException.class)
+    public void testTruncated() throws Exception {
+        final ByteBuf buf = Unpooled.buffer();
+        write(factory.getProtocol(new TByteBufTransport(buf)));
+        buf.writerIndex(buf.writerIndex() - 2);
+
+        read(factory.getProtocol(new TByteBufTransport(buf)));
+    }
+
+    private static void write(TProtocol proto) throws TException {
+        proto.writeMessageBegin(new TMessage("method", TMessageType.CALL, 0x12345678));
+        proto.writeStructBegin(new TStruct("args"));
+
+        proto.writeFieldBegin(new TField("bool1", TType.BOOL, (short) 1));
+        proto.writeBool(true);
+        proto.writeFieldEnd();
+        proto.writeFieldBegin(new TField("bool2", TType.BOOL, (short) 2));
+        proto.writeBool(false);
+        proto.writeFieldEnd();
+
+        proto.writeFieldBegin(new TField("byte", TType.BYTE, (short) 3));
+        proto.writeByte((byte) -1);
+        proto.writeFieldEnd();
+
+        // A large delta from the previous field ID.
+        proto.writeFieldBegin(new TField("i16", TType.I16, (short) 100));
+        proto.writeI16(Short.MIN_VALUE);
+        proto.writeFieldEnd();
+
+        // A field ID less than the previous one.
+        proto.writeFieldBegin(new TField("i32", TType.I32, (short) 50));
+        proto.writeI32(Integer.MIN_VALUE);
+        proto.writeFieldEnd();
+        proto.writeFieldBegin(new TField("i32_2", TType.I32, (short) 51));
+        proto.writeI32(Integer.MAX_VALUE);
+        proto.writeFieldEnd();
+        proto.writeFieldBegin(new TField("i32_3", TType.I32, (short) 52));
+        proto.writeI32(-64);
+        proto.writeFieldEnd();
+
+        proto.writeFieldBegin(new TField("i64", TType.I64, (short) 53));
+        proto.writeI64(Long.MIN_VALUE);
+        proto.writeFieldEnd();
+        proto.writeFieldBegin(new TField("i64_2", TType.I64, (short) 54));
+        proto.writeI64(Long.MAX_VALUE);
+        proto.writeFieldEnd();
+
+        proto.writeFieldBegin(new TField("double", TType.DOUBLE, (short) 55));
+        proto.writeDouble(Math.PI);
+        proto.writeFieldEnd();
+
+        proto.writeFieldBegin(new TField("strings", TType.LIST, (short) 56));
+        proto.writeListBegin(new TList(TType.STRING, 4));
+        proto.writeString(ASCII);
+        proto.writeString(NON_ASCII);
+        proto.writeString(MALFORMED);
+        proto.writeString(ESCAPED);
+        proto.writeListEnd();
+        proto.writeFieldEnd();
+
+        proto.writeFieldBegin(new TField("binary", TType.STRING, (short) 57));
+        proto.writeBinary(ByteBuffer.wrap(BINARY));
+        proto.writeFieldEnd();
+
+        // A list longer than 14 elements.
+        proto.writeFieldBegin(new TField("bools", TType.LIST, (short) 58));
+        proto.writeListBegin(new TList(TType.BOOL, 20));
+        for (int i = 0; i < 20; i++) {
+            proto.writeBool(i % 3 == 0);
+        }
+        proto.writeListEnd();
+        proto.writeFieldEnd();
+
+        proto.writeFieldBegin(new TField("set", TType.SET, (short) 59));
+        proto.writeSetBegin(new TSet(TType.I64, 2));
+        proto.writeI64(1);
+        proto.writeI64(-1);
+        proto.writeSetEnd();
+        proto.writeFieldEnd();
+
+        proto.writeFieldBegin(new TField("map", TType.MAP, (short) 60));
+        proto.writeMapBegin(new TMap(TType.STRING, TType.STRUCT, 1));
+        proto.writeString(ASCII);
+        proto.writeStructBegin(new TStruct("nested"));
+        proto.writeFieldBegin(new TField("nestedBool", TType.BOOL, (short) 1));
+        proto.writeBool(true);
+        proto.writeFieldEnd();
+        proto.writeFieldStop();
+        proto.writeStructEnd();
+        proto.writeMapEnd();
+        proto.writeFieldEnd();
+
+        proto.writeFieldBegin(new TField("emptyMap", TType.MAP, (short) 61));
+        proto.writeMapBegin(new TMap(TType.I32, TType.I32, 0));
+        proto.writeMapEnd();
+        proto.writeFieldEnd();
+
+        // A field after a nested struct, whose ID must be relative to the field of the outer struct.
+        proto.writeFieldBegin(new TField("last", TType.I32, (short) 62));
+        proto.writeI32(42);
+        proto.writeFieldEnd();
+
+        proto.writeFieldStop();
+        proto.writeStructEnd();
+        proto.writeMessageEnd();
+    }
+
+    private static void read(TProtocol proto) throws TException {
+        final TMessage message = proto.readMessageBegin();
+        assertThat(message.name, is("method"));
+        assertThat(message.type, is(TMessageType.CALL));
+        assertThat(message.seqid, is(0x12345678));
+        proto.readStructBegin();
+
+        assertField(proto, TType.BOOL, 1);
+        assertThat(proto.readBool(), is(true));
+        proto.readFieldEnd();
+        assertField(proto, TType.BOOL, 2);
+        assertThat(proto.readBool(), is(false));
+        proto.readFieldEnd();
+        assertField(proto, TType.BYTE, 3);
+        assertThat(proto.readByte(), is((byte) -1));
+        proto.readFieldEnd();
+        assertField(proto, TType.I16, 100);
+        assertThat(proto.readI16(), is(Short.MIN_VALUE));
+        proto.readFieldEnd();
+        assertField(proto, TType.I32, 50);
+        assertThat(proto.readI32(), is(Integer.MIN_VALUE));
+        proto.readFieldEnd();
+        assertField(proto, TType.I32, 51);
+        assertThat(proto.readI32(), is(Integer.MAX_VALUE));
+        proto.readFieldEnd();
+        assertField(proto, TType.I32, 52);
+        assertThat(proto.readI32(), is(-64));
+        proto.readFieldEnd();
+        assertField(proto, TType.I64, 53);
+        assertThat(proto.readI64(), is(Long.MIN_VALUE));
+        proto.readFieldEnd();
+        assertField(proto, TType.I64, 54);
+        assertThat(proto.readI64(), is(Long.MAX_VALUE));
+        proto.readFieldEnd();
+        assertField(proto, TType.DOUBLE, 55);
+        assertThat(proto.readDouble(), is(Math.PI));
+        proto.readFieldEnd();
+
+        assertField(proto, TType.LIST, 56);
+        final TList strings = proto.readListBegin();
+        assertThat(strings.elemType, is(TType.STRING));
+        assertThat(strings.size, is(4));
+        assertThat(proto.readString(), is(ASCII));
+        assertThat(proto.readString(), is(NON_ASCII));
+        assertThat(proto.readString(), is(new String(MALFORMED.getBytes(UTF_8), UTF_8)));
+        assertThat(proto.readString(), is(ESCAPED));
+        proto.readListEnd();
+        proto.readFieldEnd();
+
+        assertField(proto, TType.STRING, 57);
+        final ByteBuffer binary = proto.readBinary();
+        final byte[] binaryBytes = new byte[binary.remaining()];
+        binary.get(binaryBytes);
+        assertArrayEquals(BINARY, binaryBytes);
+        proto.readFieldEnd();
+
+        assertField(proto, TType.LIST, 58);
+        final TList bools = proto.readListBegin();
+        assertThat(bools.elemType, is(TType.BOOL));
+        assertThat(bools.size, is(20));
+        for (int i = 0; i < 20; i++) {
+            assertThat(proto.readBool(), is(i % 3 == 0));
+        }
+        proto.readListEnd();
+        proto.readFieldEnd();
+
+        assertField(proto, TType.SET, 59);
+        final TSet set = proto.readSetBegin();
+        assertThat(set.elemType, is(TType.I64));
+        assertThat(set.size, is(2));
+        assertThat(proto.readI64(), is(1L));
+        assertThat(proto.readI64(), is(-1L));
+        proto.readSetEnd();
+        proto.readFieldEnd();
+
+        assertField(proto, TType.MAP, 60);
+        final TMap map = proto.readMapBegin();
+        assertThat(map.keyType, is(TType.STRING));
+        assertThat(map.valueType, is(TType.STRUCT));
+        assertThat(map.size, is(1));
+        assertThat(proto.readString(), is(ASCII));
+        proto.readStructBegin();
+        assertField(proto, TType.BOOL, 1);
+        assertThat(proto.readBool(), is(true));
+        proto.readFieldEnd();
+        assertThat(proto.readFieldBegin().type, is(TType.STOP));
+        proto.readStructEnd();
+        proto.readMapEnd();
+        proto.readFieldEnd();
+
+        assertField(proto, TType.MAP, 61);
+        assertThat(proto.readMapBegin().size, is(0));
+        proto.readMapEnd();
+        proto.readFieldEnd();
+
+        assertField(proto, TType.I32, 62);
+        assertThat(proto.readI32(), is(42));
+        proto.readFieldEnd();
+
+        assertThat(proto.readFieldBegin().type, is(TType.STOP));
+        proto.readStructEnd();
+        proto.readMessageEnd();
+    }
+
+    /**
+     * Writes a message which nests {@link #NESTING_DEPTH} structs, the innermost of which has a long string
+     * with escape sequences.
+     */
+    private static void writeNested(TProtocol proto) throws TException {
+        proto.writeMessageBegin(new TMessage("method", TMessageType.CALL, 0));
+        for (int i = 0; i < NESTING_DEPTH; i++) {
+            proto.writeStructBegin(new TStruct("nested"));
+            proto.writeFieldBegin(new TField("nested", TType.STRUCT, (short) 1));
+        }
+
+        proto.writeStructBegin(new TStruct("innermost"));
+        proto.writeFieldBegin(new TField("string", TType.STRING, (short) 1));
+        proto.writeString(LONG_ESCAPED);
+        proto.writeFieldEnd();
+        proto.writeFieldStop();
+        proto.writeStructEnd();
+
+        for (int i = 0; i < NESTING_DEPTH; i++) {
+            proto.writeFieldEnd();
+            proto.writeFieldStop();
+            proto.writeStructEnd();
+        }
+        proto.writeMessageEnd();
+    }
+
+    private static void readNested(TProtocol proto) throws TException {
+        assertThat(proto.readMessageBegin().name, is("method"));
+        for (int i = 0; i < NESTING_DEPTH; i++) {
+            proto.readStructBegin();
+            assertField(proto, TType.STRUCT, 1);
+        }
+
+        proto.readStructBegin();
+        assertField(proto, TType.STRING, 1);
+        assertThat(proto.readString(), is(LONG_ESCAPED));
+        proto.readFieldEnd();
+        assertThat(proto.readFieldBegin().type, is(TType.STOP));
+        proto.readStructEnd();
+
+        for (int i = 0; i < NESTING_DEPTH; i++) {
+            proto.readFieldEnd();
+            assertThat(proto.readFieldBegin().type, is(TType.STOP));
+            proto.readStructEnd();
+        }
+        proto.readMessageEnd();
+    }
+
+    private static int retainedBufferLength(TProtocol proto) {
+        if (proto instanceof TByteBufCompactProtocol) {
+            return ((TByteBufCompactProtocol) proto).retainedBufferLength();
+        }
+        if (proto instanceof TByteBufJsonProtocol) {
+            return ((TByteBufJsonProtocol) proto).retainedBufferLength();
+        }
+        // The binary protocol has no state.
+        return 0;
+    }
+
+    private static void assertField(TProtocol proto, byte type, int id) throws TException {
+        final TField field = proto.readFieldBegin();
+        assertThat(field.type, is(type));
+        assertThat(field.id, is((short) id));
+    }
+}
@@ -104,6 +104,69 @@ public class TTextProtocolTest {
         assertEquals(msg1, msg2);
     }
 
+    /**
+     * Reads the lists, sets and maps, which are buffered to count their elements before being read,
+     * and makes sure that the fields following them are read from where they end.
+     */
+    @Test
+    public void tTextProtocolReadBufferedCollectionsTest() throws Exception {
+        final TTextProtocolTestMsg msg = readTestMsg(fileContents);
+
+        assertEquals(ImmutableList.of(7, 8, 9, 10, 11), msg.getD());
+        assertEquals(ImmutableList.of(sub(2, 100), sub(3, 200), sub(4, 300)), msg.getE());
+        assertEquals(ImmutableMap.of(1, 2L, 3, 4L, 5, 6L), msg.getH());
+        assertEquals(ImmutableMap.of((short) 1, ImmutableList.of(true, true, false, true),
+                                     (short) 5, ImmutableList.of(false)), msg.getJ());
+        assertEquals(ImmutableSet.of(true, false), msg.getK());
+        assertEquals(EnumSet.allOf(Letter.class), msg.getQ());
+
+        // The fields following the collections.
+        assertEquals(true, msg.isF());
+        assertEquals(12, msg.getG());
+        assertEquals("hello \"spherical\" world!", msg.getM());
+        assertEquals(678, msg.getN());
+        assertEquals(testMsg(), msg);
+    }
+
+    /**
+     * Reads the structs and maps used as map keys, whose JSON text is parsed apart from the input.
+     */
+    @Test
+    public void tTextProtocolReadStructAndMapKeysTest() throws Exception {
+        final String contents = fileContents
+                .replace("\"{\\n  \\\"s\\\": 1,\\n  \\\"s2\\\": {\\n    \\\"x\\\": 2\\n  }\\n}\": 100",
+                         "\"{\\\"s\\\":5,\\\"s2\\\":{\\\"x\\\":6}}\": 100, " +
+                         "\"{\\\"s2\\\":{\\\"x\\\":8},\\\"s\\\":7}\": 200");
+        final TTextProtocolTestMsg msg = readTestMsg(contents);
+
+        assertEquals(ImmutableMap.of(sub(5, 6), 100L, sub(7, 8), 200L), msg.getR());
+        assertEquals(ImmutableMap.of(ImmutableMap.of(ImmutableMap.of(200L, 400L), 300L), 100L), msg.getS());
+    }
+
+    /**
+     * Reads the nested structs whose classes are resolved from the field metadata of their enclosing
+     * structs rather than from the call stack, which has only the class of the top level struct.
+     */
+    @Test
+    public void tTextProtocolReadNestedStructsTest() throws Exception {
+        final TTextProtocolTestMsg msg = readTestMsg(fileContents);
+        assertEquals(sub(1, 10), msg.getC());
+        assertEquals(new SubSub(10), msg.getC().getS2());
+        assertEquals(new SubSub(300), msg.getE().get(2).getS2());
+
+        // A nested struct as the top level struct.
+        final Sub sub = new Sub();
+        sub.read(new TTextProtocol(new TIOStreamTransport(new ByteArrayInputStream(
+                "{ \"s2\" : { \"x\" : 20 }, \"s\" : 2 }".getBytes()))));
+        assertEquals(sub(2, 20), sub);
+    }
+
+    private static TTextProtocolTestMsg readTestMsg(String contents) throws TException {
+        final TTextProtocolTestMsg msg = new TTextProtocolTestMsg();
+        msg.read(new TTextProtocol(new TIOStreamTransport(new ByteArrayInputStream(contents.getBytes()))));
+        return msg;
+    }
+
     private TTextProtocolTestMsg testMsg() {
 
         return new TTextProtocolTestMsg()
@@ -214,6 +277,41 @@ public class TTextProtocolTest {
         assertJsonEquals(request, new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
     }
 
+    @Test
+    public void rpcCall_argsBeforeHeader() throws Exception {
+        String request =
+                "{\n" +
+                "  \"args\" : {\n" +
+                "    \"methodArg1\" : \"foo1\",\n" +
+                "    \"methodArg2\" : 200,\n" +
+                "    \"details\" : {\n" +
+                "      \"detailsArg1\" : \"foo2\",\n" +
+                "      \"detailsArg2\" : 100\n" +
+                "    }\n" +
+                "  },\n" +
+                "  \"method\" : \"doDebug\",\n" +
+                "  \"unknown\" : [ { \"foo\" : 1 } ],\n" +
+                "  \"type\" : \"CALL\",\n" +
+                "  \"seqid\" : 1\n" +
+                '}';
+
+        TTextProtocol prot = new TTextProtocol(
+                new TIOStreamTransport(new ByteArrayInputStream(request.getBytes())));
+        TMessage header = prot.readMessageBegin();
+        doDebug_args args = new RpcDebugService.Processor.doDebug().getEmptyArgsInstance();
+        args.read(prot);
+        prot.readMessageEnd();
+
+        assertEquals("doDebug", header.name);
+        assertEquals(TMessageType.CALL, header.type);
+        assertEquals(1, header.seqid);
+
+        assertEquals("foo1", args.getMethodArg1());
+        assertEquals(200, args.getMethodArg2());
+        assertEquals("foo2", args.getDetails().getDetailsArg1());
+        assertEquals(100, args.getDetails().getDetailsArg2());
+    }
+
     @Test
     public void rpcCall_noSeqId() throws Exception {
         String request =
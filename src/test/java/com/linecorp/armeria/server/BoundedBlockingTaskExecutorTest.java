@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class BoundedBlockingTaskExecutorTest {
+
+    private final BoundedBlockingTaskExecutor executor = new BoundedBlockingTaskExecutor("test", 1, 1);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void testRejection() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        final Runnable task = () -> {
+            started.countDown();
+            try {
+                latch.await();
+            } catch (InterruptedException ignored) {
+                // Shut down.
+            }
+            done.countDown();
+        };
+
+        // The first task occupies the only thread, and the second task waits in the queue.
+        executor.execute(task);
+        started.await();
+        executor.execute(task);
+        assertThat(executor.numPendingTasks(), is(1));
+
+        try {
+            executor.execute(task);
+            fail();
+        } catch (RejectedExecutionException expected) {
+            // Expected
+        }
+        assertThat(executor.numRejectedTasks(), is(1L));
+
+        latch.countDown();
+        done.await();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+
+        assertThat(executor.numPendingTasks(), is(0));
+        assertThat(executor.numExecutedTasks(), is(2L));
+        assertThat(executor.totalWaitTimeNanos(), is(greaterThan(0L)));
+        assertThat(executor.totalRunTimeNanos(), is(greaterThan(0L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxThreads() {
+        new BoundedBlockingTaskExecutor("test", 0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxPendingTasks() {
+        new BoundedBlockingTaskExecutor("test", 1, -1);
+    }
+}
@@ -23,10 +23,16 @@ import static com.linecorp.armeria.server.PathMapping.ofPrefix;
 import static com.linecorp.armeria.server.PathMapping.ofRegex;
 import static com.linecorp.armeria.server.ServiceConfig.defaultLoggerName;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.Executor;
 
 import org.junit.Test;
 
+import com.linecorp.armeria.common.SessionProtocol;
+
 public class ServiceConfigTest {
 
     @Test
@@ -60,4 +66,42 @@ public class ServiceConfigTest {
     public void testDefaultLoggerNameForCatchAll() throws Exception {
         assertThat(defaultLoggerName(ofCatchAll()), is("__ROOT__"));
     }
+
+    @Test
+    public void testBlockingTaskExecutor() throws Exception {
+        final Executor serverExecutor = mock(Executor.class);
+        final Executor hostExecutor = mock(Executor.class);
+        final Executor serviceExecutor = mock(Executor.class);
+
+        final ServerBuilder sb = new ServerBuilder();
+        sb.port(0, SessionProtocol.HTTP);
+        sb.blockingTaskExecutor(serverExecutor);
+        sb.serviceAt("/default", newService());
+        sb.service(ofExact("/dedicated"), newService(), serviceExecutor);
+        sb.virtualHost(new VirtualHostBuilder("foo.com")
+                               .blockingTaskExecutor(hostExecutor)
+                               .serviceAt("/host", newService())
+                               .service(ofExact("/dedicated"), newService(), "foo", serviceExecutor)
+                               .build());
+
+        final ServerConfig config = sb.build().config();
+        final VirtualHost defaultHost = config.defaultVirtualHost();
+        final VirtualHost fooHost = config.virtualHosts().get(0);
+
+        assertThat(defaultHost.blockingTaskExecutor(), is(sameInstance(serverExecutor)));
+        assertThat(blockingTaskExecutor(defaultHost, "/default"), is(sameInstance(serverExecutor)));
+        assertThat(blockingTaskExecutor(defaultHost, "/dedicated"), is(sameInstance(serviceExecutor)));
+        assertThat(fooHost.blockingTaskExecutor(), is(sameInstance(hostExecutor)));
+        assertThat(blockingTaskExecutor(fooHost, "/host"), is(sameInstance(hostExecutor)));
+        assertThat(blockingTaskExecutor(fooHost, "/dedicated"), is(sameInstance(serviceExecutor)));
+        assertThat(fooHost.findServiceConfig("/dedicated").value().loggerName(), is("armeria.services.foo"));
+    }
+
+    private static Service newService() {
+        return Service.of(mock(ServiceCodec.class), mock(ServiceInvocationHandler.class));
+    }
+
+    private static Executor blockingTaskExecutor(VirtualHost host, String path) {
+        return host.findServiceConfig(path).value().blockingTaskExecutor();
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.linecorp.armeria.common.ServiceInvocationContext;
+
+public class VirtualThreadExecutorsTest {
+
+    @Test
+    public void testUnavailable() {
+        assumeFalse(VirtualThreadExecutors.isAvailable());
+        assertThat(VirtualThreadExecutors.unavailabilityCause(), is(notNullValue()));
+        try {
+            VirtualThreadExecutors.newExecutor("test");
+        } catch (UnsupportedOperationException expected) {
+            return;
+        }
+        throw new AssertionError();
+    }
+
+    @Test(timeout = 10000)
+    public void testCurrentContext() throws Exception {
+        assumeTrue(VirtualThreadExecutors.isAvailable());
+
+        final ServiceInvocationContext ctx = mock(ServiceInvocationContext.class);
+        final ExecutorService executor = VirtualThreadExecutors.newExecutor("test");
+        try {
+            final Future<ServiceInvocationContext> future = executor.submit(() -> {
+                assertThat(Thread.currentThread().getName(), startsWith("test-"));
+                assertThat(ServiceInvocationContext.mapCurrent(Function.identity(), null), is(nullValue()));
+                ServiceInvocationContext.setCurrent(ctx);
+                try {
+                    return ServiceInvocationContext.current();
+                } finally {
+                    ServiceInvocationContext.removeCurrent();
+                }
+            });
+
+            assertThat(future.get(), is(sameInstance(ctx)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.apache.thrift.transport.TTransportException;
 
 import com.linecorp.armeria.common.http.Http1ClientCodec;
 import com.linecorp.armeria.common.http.Http1ClientUpgradeHandler;
+import com.linecorp.armeria.common.thrift.TByteBufTransport;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server.thrift;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+import com.linecorp.armeria.server.thrift.ThriftConcurrencyLimiter.Call;
+
+public class ThriftConcurrencyLimiterTest {
+
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    private final List<String> invoked = new ArrayList<>();
+
+    @Test
+    public void testRejection() {
+        final ThriftConcurrencyLimiter limiter = new ThriftConcurrencyLimiter(1, 1);
+        final Call a = limiter.tryAcquire();
+        final Call b = limiter.tryAcquire();
+        assertThat(a, is(notNullValue()));
+        assertThat(b, is(notNullValue()));
+        assertThat(limiter.tryAcquire(), is(nullValue()));
+
+        a.invoke(task("a"), DIRECT_EXECUTOR);
+        a.complete();
+        assertThat(limiter.tryAcquire(), is(notNullValue()));
+    }
+
+    @Test
+    public void testPendingCall() {
+        final ThriftConcurrencyLimiter limiter = new ThriftConcurrencyLimiter(1, 1);
+        final Call a = limiter.tryAcquire();
+        final Call b = limiter.tryAcquire();
+
+        a.invoke(task("a"), DIRECT_EXECUTOR);
+        b.invoke(task("b"), DIRECT_EXECUTOR);
+        assertThat(invoked, contains("a"));
+
+        // The completion of the running call runs the pending call.
+        a.complete();
+        assertThat(invoked, contains("a", "b"));
+
+        // Completing twice must not release another slot.
+        a.complete();
+        final Call c = limiter.tryAcquire();
+        assertThat(c, is(notNullValue()));
+        c.invoke(task("c"), DIRECT_EXECUTOR);
+        assertThat(invoked, contains("a", "b"));
+
+        b.complete();
+        assertThat(invoked, contains("a", "b", "c"));
+    }
+
+    @Test
+    public void testCompletePendingCall() {
+        final ThriftConcurrencyLimiter limiter = new ThriftConcurrencyLimiter(1, 1);
+        final Call a = limiter.tryAcquire();
+        final Call b = limiter.tryAcquire();
+
+        a.invoke(task("a"), DIRECT_EXECUTOR);
+        b.invoke(task("b"), DIRECT_EXECUTOR);
+
+        // A pending call which was given up must not run.
+        b.complete();
+        a.complete();
+        assertThat(invoked, contains("a"));
+        assertThat(limiter.tryAcquire(), is(notNullValue()));
+        assertThat(limiter.tryAcquire(), is(notNullValue()));
+        assertThat(limiter.tryAcquire(), is(nullValue()));
+    }
+
+    @Test
+    public void testCancel() {
+        final ThriftConcurrencyLimiter limiter = new ThriftConcurrencyLimiter(1, 0);
+        final Call a = limiter.tryAcquire();
+        assertThat(limiter.tryAcquire(), is(nullValue()));
+
+        // Cancelling a call which has never been invoked releases its slot.
+        a.cancel();
+        final Call b = limiter.tryAcquire();
+        assertThat(b, is(notNullValue()));
+
+        // Cancelling an invoked call does nothing.
+        b.invoke(task("b"), DIRECT_EXECUTOR);
+        b.cancel();
+        assertThat(limiter.tryAcquire(), is(nullValue()));
+
+        // A cancelled call is never invoked.
+        a.invoke(task("a"), DIRECT_EXECUTOR);
+        assertThat(invoked, contains("b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxConcurrency() {
+        new ThriftConcurrencyLimiter(0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxPendingCalls() {
+        new ThriftConcurrencyLimiter(1, -1);
+    }
+
+    private Runnable task(String name) {
+        return () -> invoked.add(name);
+    }
+}
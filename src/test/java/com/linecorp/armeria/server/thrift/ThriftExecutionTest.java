@@ -0,0 +1,214 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server.thrift;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+import com.linecorp.armeria.client.Clients;
+import com.linecorp.armeria.client.RemoteInvokerFactory;
+import com.linecorp.armeria.common.ServiceInvocationContext;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.server.Server;
+import com.linecorp.armeria.server.ServerBuilder;
+import com.linecorp.armeria.service.test.thrift.main.HelloService;
+
+public class ThriftExecutionTest {
+
+    private static final ExecutorService namedExecutor =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "named-executor"));
+
+    private static final Server server;
+
+    private static int port;
+
+    /**
+     * Responds with whether the call was invoked in the I/O event loop and the name of the current thread.
+     */
+    static class ThreadReportingHelloService implements HelloService.Iface {
+        @Override
+        public String hello(String name) {
+            return ServiceInvocationContext.current().eventLoop().inEventLoop() + ":" +
+                   Thread.currentThread().getName();
+        }
+    }
+
+    static class InlineHelloService extends ThreadReportingHelloService {
+        @Override
+        @ThriftExecution(ThriftExecution.INLINE)
+        public String hello(String name) {
+            return super.hello(name);
+        }
+    }
+
+    static class InlineAsyncHelloService implements HelloService.AsyncIface {
+        @Override
+        @ThriftExecution(ThriftExecution.INLINE)
+        public void hello(String name, AsyncMethodCallback resultHandler) {
+            resultHandler.onComplete(name);
+        }
+    }
+
+    static {
+        final ServerBuilder sb = new ServerBuilder();
+        sb.port(0, SessionProtocol.HTTP);
+        sb.serviceAt("/blocking", ThriftService.of(new ThreadReportingHelloService()));
+        sb.serviceAt("/annotated", ThriftService.of(new InlineHelloService()));
+        sb.serviceAt("/inline", ThriftService.of(new ThreadReportingHelloService())
+                                             .withExecution("hello", ThriftExecution.INLINE));
+        sb.serviceAt("/overridden", ThriftService.of(new InlineHelloService())
+                                                 .withExecution("hello", ThriftExecution.BLOCKING));
+        sb.serviceAt("/named", ThriftService.of(new ThreadReportingHelloService())
+                                            .withExecutor("named", namedExecutor)
+                                            .withExecution("hello", "named"));
+        sb.serviceAt("/slow", ThriftService.of((HelloService.Iface) name -> {
+            final long deadline = System.nanoTime() + 50000000L;
+            while (System.nanoTime() < deadline) {
+                continue;
+            }
+            return name;
+        }).withExecution("hello", ThriftExecution.INLINE).withInlineTimeBudgetMillis(1));
+        server = sb.build();
+    }
+
+    @BeforeClass
+    public static void init() throws Exception {
+        server.start().sync();
+        port = server.activePort().get().localAddress().getPort();
+    }
+
+    @AfterClass
+    public static void destroy() throws Exception {
+        server.stop();
+        namedExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testBlockingByDefault() throws Exception {
+        assertThat(hello("/blocking"), startsWith("false:"));
+    }
+
+    @Test
+    public void testInlineByAnnotation() throws Exception {
+        assertThat(hello("/annotated"), startsWith("true:"));
+    }
+
+    @Test
+    public void testInlineByMethodName() throws Exception {
+        assertThat(hello("/inline"), startsWith("true:"));
+    }
+
+    @Test
+    public void testMethodNameOverridesAnnotation() throws Exception {
+        assertThat(hello("/overridden"), startsWith("false:"));
+    }
+
+    @Test
+    public void testNamedExecutor() throws Exception {
+        assertThat(hello("/named"), is("false:named-executor"));
+    }
+
+    @Test
+    public void testInlineTimeBudgetExceeded() throws Exception {
+        final Logger rootLogger = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+        final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        rootLogger.addAppender(appender);
+        try {
+            // The call must succeed even if it exceeds the budget; only a warning is logged.
+            assertThat(hello("/slow"), is("kukuman"));
+
+            // The warning is logged after the response is sent.
+            final long deadline = System.nanoTime() + 10000000000L;
+            while (!hasBudgetWarning(appender)) {
+                assertTrue("no warning about the inline time budget", System.nanoTime() < deadline);
+                Thread.sleep(10);
+            }
+        } finally {
+            rootLogger.detachAppender(appender);
+            appender.stop();
+        }
+    }
+
+    private static boolean hasBudgetWarning(ListAppender<ILoggingEvent> appender) {
+        synchronized (appender) {
+            return appender.list.stream().anyMatch(
+                    e -> e.getFormattedMessage().contains("exceeding the inline time budget of 1 ms"));
+        }
+    }
+
+    @Test
+    public void testExecutionPolicy() {
+        final ThriftService service = ThriftService.of(new InlineHelloService());
+        assertEquals(ThriftExecution.INLINE, service.executionPolicy("hello"));
+        assertEquals(ThriftExecution.BLOCKING,
+                     ThriftService.of(new ThreadReportingHelloService()).executionPolicy("hello"));
+        assertEquals("named", service.withExecution("hello", "named").executionPolicy("hello"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownMethodName() {
+        ThriftService.of(new ThreadReportingHelloService()).withExecution("unknown", ThriftExecution.INLINE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAsyncFunctionByMethodName() {
+        ThriftService.of((HelloService.AsyncIface) (name, resultHandler) -> resultHandler.onComplete(name))
+                     .withExecution("hello", ThriftExecution.INLINE);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAsyncFunctionByAnnotation() {
+        new ServerBuilder().serviceAt("/", ThriftService.of(new InlineAsyncHelloService())).build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownExecutorName() {
+        // A typo in the executor name fails when the service is added rather than when it is called.
+        new ServerBuilder().serviceAt("/", ThriftService.of(new ThreadReportingHelloService())
+                                                        .withExecutor("named", namedExecutor)
+                                                        .withExecution("hello", "naemd")).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReservedExecutorName() {
+        ThriftService.of(new ThreadReportingHelloService()).withExecutor(ThriftExecution.INLINE, namedExecutor);
+    }
+
+    private static String hello(String path) throws Exception {
+        final HelloService.Iface client = Clients.newClient(
+                RemoteInvokerFactory.DEFAULT, "tbinary+http://127.0.0.1:" + port + path,
+                HelloService.Iface.class);
+        return client.hello("kukuman");
+    }
+}
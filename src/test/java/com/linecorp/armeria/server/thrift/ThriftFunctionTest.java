@@ -0,0 +1,337 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server.thrift;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.apache.thrift.ProcessFunction;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.TFieldIdEnum;
+import org.apache.thrift.TFieldRequirementType;
+import org.apache.thrift.meta_data.FieldMetaData;
+import org.apache.thrift.meta_data.FieldValueMetaData;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TType;
+import org.junit.Test;
+
+import com.linecorp.armeria.common.Scheme;
+import com.linecorp.armeria.common.SerializationFormat;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.thrift.ThriftUtil;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class ThriftFunctionTest {
+
+    @Test
+    public void testParams() throws Exception {
+        final ThriftFunction func = new ThriftFunction(new FakeService.Processor.fail());
+        assertThat(func.methodName(), is("fail"));
+        assertThat(func.paramTypes(), is(Arrays.asList(Integer.class, String.class)));
+
+        final FakeService.fail_args args = new FakeService.fail_args();
+        args.num = 42;
+        args.str = "foo";
+        final ThriftServiceInvocationContext ctx = newContext(func, args);
+        assertThat(ctx.params(), is(Arrays.asList(42, "foo")));
+        assertThat(ctx.params(), is(ThriftUtil.toJavaParams(asTBase(args))));
+
+        // An unset argument is null.
+        final FakeService.fail_args unsetArgs = new FakeService.fail_args();
+        unsetArgs.str = "bar";
+        assertThat(newContext(func, unsetArgs).params(), is(Arrays.asList(null, "bar")));
+    }
+
+    @Test
+    public void testExceptionsInDeclarationOrder() throws Exception {
+        final ThriftFunction func = new ThriftFunction(new FakeService.Processor.fail());
+
+        // A SubException is also a BaseException, but it is declared first, as its catch clause must be.
+        final SubException subException = new SubException();
+        final FakeService.fail_result subResult = setException(func, subException);
+        assertThat(subResult.sub, is(sameInstance(subException)));
+        assertThat(subResult.base, is(nullValue()));
+
+        final BaseException baseException = new BaseException();
+        final FakeService.fail_result baseResult = setException(func, baseException);
+        assertThat(baseResult.sub, is(nullValue()));
+        assertThat(baseResult.base, is(sameInstance(baseException)));
+
+        // An undeclared exception is not set.
+        assertThat(func.setException(func.newResult(), new TException()), is(false));
+    }
+
+    private static ThriftServiceInvocationContext newContext(ThriftFunction func, FakeService.fail_args args) {
+        return new ThriftServiceInvocationContext(
+                new EmbeddedChannel(), Scheme.of(SerializationFormat.THRIFT_BINARY, SessionProtocol.HTTP),
+                "localhost", "/", "/", ThriftFunctionTest.class.getName(), null, func, 0, asTBase(args));
+    }
+
+    private static FakeService.fail_result setException(ThriftFunction func, Throwable cause) {
+        final TBase<TBase<?, ?>, TFieldIdEnum> result = func.newResult();
+        assertThat(func.setException(result, cause), is(true));
+        return (FakeService.fail_result) (Object) result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TBase<TBase<?, ?>, TFieldIdEnum> asTBase(Object struct) {
+        return (TBase<TBase<?, ?>, TFieldIdEnum>) struct;
+    }
+
+    public static class BaseException extends TException {
+        private static final long serialVersionUID = 7337016785213431542L;
+    }
+
+    public static final class SubException extends BaseException {
+        private static final long serialVersionUID = -5281749426815573838L;
+    }
+
+    /**
+     * Mimics the classes the Thrift compiler generates for:
+     * <pre>{@code
+     * service FakeService {
+     *     void fail(1: i32 num, 2: string str) throws (1: SubException sub, 2: BaseException base)
+     * }
+     * }</pre>
+     * which the IDL cannot express because a Thrift exception cannot extend another.
+     */
+    public static final class FakeService {
+
+        public static final class Processor {
+            public static final class fail extends ProcessFunction<Object, fail_args> {
+                public fail() {
+                    super("fail");
+                }
+
+                @Override
+                protected boolean isOneway() {
+                    return false;
+                }
+
+                @Override
+                public TBase<?, ?> getResult(Object iface, fail_args args) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public fail_args getEmptyArgsInstance() {
+                    return new fail_args();
+                }
+            }
+
+            private Processor() {}
+        }
+
+        public static final class fail_args extends FakeStruct<fail_args, fail_args._Fields> {
+            private static final long serialVersionUID = -2204585931380213404L;
+
+            public enum _Fields implements TFieldIdEnum {
+                NUM((short) 1, "num"),
+                STR((short) 2, "str");
+
+                private final short id;
+                private final String name;
+
+                _Fields(short id, String name) {
+                    this.id = id;
+                    this.name = name;
+                }
+
+                @Override
+                public short getThriftFieldId() {
+                    return id;
+                }
+
+                @Override
+                public String getFieldName() {
+                    return name;
+                }
+            }
+
+            static {
+                final Map<_Fields, FieldMetaData> metaDataMap = new EnumMap<>(_Fields.class);
+                metaDataMap.put(_Fields.NUM, new FieldMetaData(
+                        "num", TFieldRequirementType.DEFAULT, new FieldValueMetaData(TType.I32)));
+                metaDataMap.put(_Fields.STR, new FieldMetaData(
+                        "str", TFieldRequirementType.DEFAULT, new FieldValueMetaData(TType.STRING)));
+                FieldMetaData.addStructMetaDataMap(fail_args.class, Collections.unmodifiableMap(metaDataMap));
+            }
+
+            public Integer num;
+            public String str;
+
+            public fail_args() {
+                super(_Fields.class);
+            }
+
+            @Override
+            public Object getFieldValue(_Fields field) {
+                return field == _Fields.NUM ? num : str;
+            }
+
+            @Override
+            public void setFieldValue(_Fields field, Object value) {
+                if (field == _Fields.NUM) {
+                    num = (Integer) value;
+                } else {
+                    str = (String) value;
+                }
+            }
+
+            @Override
+            fail_args newInstance() {
+                return new fail_args();
+            }
+        }
+
+        public static final class fail_result extends FakeStruct<fail_result, fail_result._Fields> {
+            private static final long serialVersionUID = 3587263591206367337L;
+
+            public enum _Fields implements TFieldIdEnum {
+                SUB((short) 1, "sub"),
+                BASE((short) 2, "base");
+
+                private final short id;
+                private final String name;
+
+                _Fields(short id, String name) {
+                    this.id = id;
+                    this.name = name;
+                }
+
+                @Override
+                public short getThriftFieldId() {
+                    return id;
+                }
+
+                @Override
+                public String getFieldName() {
+                    return name;
+                }
+            }
+
+            static {
+                final Map<_Fields, FieldMetaData> metaDataMap = new EnumMap<>(_Fields.class);
+                metaDataMap.put(_Fields.SUB, new FieldMetaData(
+                        "sub", TFieldRequirementType.DEFAULT, new FieldValueMetaData(TType.STRUCT)));
+                metaDataMap.put(_Fields.BASE, new FieldMetaData(
+                        "base", TFieldRequirementType.DEFAULT, new FieldValueMetaData(TType.STRUCT)));
+                FieldMetaData.addStructMetaDataMap(fail_result.class, Collections.unmodifiableMap(metaDataMap));
+            }
+
+            public SubException sub;
+            public BaseException base;
+
+            public fail_result() {
+                super(_Fields.class);
+            }
+
+            @Override
+            public Object getFieldValue(_Fields field) {
+                return field == _Fields.SUB ? sub : base;
+            }
+
+            @Override
+            public void setFieldValue(_Fields field, Object value) {
+                if (field == _Fields.SUB) {
+                    sub = (SubException) value;
+                } else {
+                    base = (BaseException) value;
+                }
+            }
+
+            @Override
+            fail_result newInstance() {
+                return new fail_result();
+            }
+        }
+
+        private FakeService() {}
+    }
+
+    /**
+     * A {@link TBase} which is never serialized.
+     */
+    private abstract static class FakeStruct<T extends FakeStruct<T, F>, F extends Enum<F> & TFieldIdEnum>
+            implements TBase<T, F> {
+
+        private static final long serialVersionUID = 2867013431858271839L;
+
+        private final Class<F> fieldsType;
+
+        FakeStruct(Class<F> fieldsType) {
+            this.fieldsType = fieldsType;
+        }
+
+        abstract T newInstance();
+
+        @Override
+        public F fieldForId(int fieldId) {
+            for (F f : fieldsType.getEnumConstants()) {
+                if (f.getThriftFieldId() == fieldId) {
+                    return f;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isSet(F field) {
+            return getFieldValue(field) != null;
+        }
+
+        @Override
+        public T deepCopy() {
+            final T copy = newInstance();
+            for (F f : fieldsType.getEnumConstants()) {
+                copy.setFieldValue(f, getFieldValue(f));
+            }
+            return copy;
+        }
+
+        @Override
+        public void clear() {
+            for (F f : fieldsType.getEnumConstants()) {
+                setFieldValue(f, null);
+            }
+        }
+
+        @Override
+        public void read(TProtocol iprot) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(TProtocol oprot) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int compareTo(T o) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
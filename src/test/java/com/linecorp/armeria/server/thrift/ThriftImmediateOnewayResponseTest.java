@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server.thrift;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.thrift.TException;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.Clients;
+import com.linecorp.armeria.client.RemoteInvokerFactory;
+import com.linecorp.armeria.common.ServiceInvocationContext;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.server.Server;
+import com.linecorp.armeria.server.ServerBuilder;
+import com.linecorp.armeria.service.test.thrift.main.OnewayHelloService;
+
+public class ThriftImmediateOnewayResponseTest {
+
+    private static final CountDownLatch functionLatch = new CountDownLatch(1);
+    private static final BlockingQueue<String> serverReceivedNames = new LinkedBlockingQueue<>();
+
+    private static final Server server;
+
+    private static int port;
+
+    /**
+     * Blocks until {@link #functionLatch} is released, and then records the name with the path of
+     * the current {@link ServiceInvocationContext}.
+     */
+    private static final OnewayHelloService.Iface onewayHelloHandler = name -> {
+        if ("fail".equals(name)) {
+            throw new TException("expected failure");
+        }
+
+        try {
+            functionLatch.await();
+        } catch (InterruptedException e) {
+            throw new TException(e);
+        }
+        serverReceivedNames.add(ServiceInvocationContext.current().path() + ':' + name);
+    };
+
+    static {
+        final ServerBuilder sb = new ServerBuilder();
+        sb.port(0, SessionProtocol.HTTP);
+        sb.serviceAt("/immediate", ThriftService.of(onewayHelloHandler).withImmediateOnewayResponse());
+        sb.serviceAt("/zeroCopy", ThriftService.of(onewayHelloHandler)
+                                               .withZeroCopyBinary()
+                                               .withImmediateOnewayResponse());
+        server = sb.build();
+    }
+
+    @BeforeClass
+    public static void init() throws Exception {
+        server.start().sync();
+        port = server.activePort().get().localAddress().getPort();
+    }
+
+    @AfterClass
+    public static void destroy() throws Exception {
+        functionLatch.countDown();
+        server.stop();
+    }
+
+    @Test(timeout = 10000)
+    public void testRespondedBeforeInvocation() throws Exception {
+        // Both calls must return even though the function is blocked.
+        newClient("/immediate").hello("kukuman");
+        newClient("/zeroCopy").hello("kukuman");
+        assertThat(serverReceivedNames.isEmpty(), is(true));
+
+        functionLatch.countDown();
+        final String first = serverReceivedNames.poll(10, TimeUnit.SECONDS);
+        final String second = serverReceivedNames.poll(10, TimeUnit.SECONDS);
+        assertEquals(first.startsWith("/immediate") ? "/zeroCopy:kukuman" : "/immediate:kukuman", second);
+    }
+
+    @Test(timeout = 10000)
+    public void testFailureNotPropagated() throws Exception {
+        // The failure of the function is only logged.
+        newClient("/immediate").hello("fail");
+    }
+
+    @Test
+    public void testIsImmediateOnewayResponse() {
+        assertThat(ThriftService.of(onewayHelloHandler).isImmediateOnewayResponse(), is(false));
+        assertThat(ThriftService.of(onewayHelloHandler).withImmediateOnewayResponse()
+                                .withExecution("hello", ThriftExecution.INLINE)
+                                .isImmediateOnewayResponse(), is(true));
+    }
+
+    private static OnewayHelloService.Iface newClient(String path) {
+        return Clients.newClient(RemoteInvokerFactory.DEFAULT, "tbinary+http://127.0.0.1:" + port + path,
+                                 OnewayHelloService.Iface.class);
+    }
+}
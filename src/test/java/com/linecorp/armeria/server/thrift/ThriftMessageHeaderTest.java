@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server.thrift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.junit.Test;
+
+import com.linecorp.armeria.common.SerializationFormat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class ThriftMessageHeaderTest {
+
+    @Test
+    public void testBinary() throws Exception {
+        testDecode(SerializationFormat.THRIFT_BINARY, new TBinaryProtocol.Factory());
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        testDecode(SerializationFormat.THRIFT_COMPACT, new TCompactProtocol.Factory());
+    }
+
+    private static void testDecode(SerializationFormat format, TProtocolFactory factory) throws Exception {
+        for (int seqId : new int[] { 0, 1, 300, Integer.MAX_VALUE, -1 }) {
+            final ByteBuf buf = encode(factory, new TMessage("hello\u00e9", TMessageType.ONEWAY, seqId));
+            final ThriftMessageHeader header = ThriftMessageHeader.get();
+            assertTrue(header.decode(format, buf));
+            assertEquals(TMessageType.ONEWAY, header.type);
+            assertEquals(seqId, header.seqId);
+            assertEquals("hello\u00e9", header.name(buf));
+            // The reader index must not be changed.
+            assertEquals(0, buf.readerIndex());
+            // The header must end right before the payload.
+            assertEquals(0x7f, buf.getByte(header.endIndex));
+            assertEquals(buf.writerIndex() - 1, header.endIndex);
+        }
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        final ByteBuf buf = encode(new TBinaryProtocol.Factory(), new TMessage("hello", TMessageType.CALL, 1));
+        final ThriftMessageHeader header = ThriftMessageHeader.get();
+        for (int i = 0; i < buf.writerIndex() - 1; i++) {
+            assertFalse(header.decode(SerializationFormat.THRIFT_BINARY, buf.slice(0, i)));
+        }
+
+        final ByteBuf compactBuf =
+                encode(new TCompactProtocol.Factory(), new TMessage("hello", TMessageType.CALL, 1));
+        for (int i = 0; i < compactBuf.writerIndex() - 1; i++) {
+            assertFalse(header.decode(SerializationFormat.THRIFT_COMPACT, compactBuf.slice(0, i)));
+        }
+    }
+
+    @Test
+    public void testUnsupported() throws Exception {
+        final ThriftMessageHeader header = ThriftMessageHeader.get();
+
+        // An old binary client which does not send the version.
+        final ByteBuf oldBuf = encode(new TBinaryProtocol.Factory(false, false),
+                                      new TMessage("hello", TMessageType.CALL, 1));
+        assertFalse(header.decode(SerializationFormat.THRIFT_BINARY, oldBuf));
+
+        // A text format.
+        final ByteBuf buf = encode(new TBinaryProtocol.Factory(), new TMessage("hello", TMessageType.CALL, 1));
+        assertFalse(header.decode(SerializationFormat.THRIFT_JSON, buf));
+
+        // A wrong protocol.
+        assertFalse(header.decode(SerializationFormat.THRIFT_COMPACT, buf));
+    }
+
+    private static ByteBuf encode(TProtocolFactory factory, TMessage message) throws Exception {
+        final TMemoryBuffer out = new TMemoryBuffer(64);
+        final TProtocol proto = factory.getProtocol(out);
+        proto.writeMessageBegin(message);
+        proto.writeMessageEnd();
+        // A dummy payload.
+        out.write(new byte[] { 0x7f });
+        return Unpooled.wrappedBuffer(out.getArray(), 0, out.length());
+    }
+}
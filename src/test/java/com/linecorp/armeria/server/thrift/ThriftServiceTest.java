@@ -19,6 +19,7 @@ package com.linecorp.armeria.server.thrift;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
@@ -33,7 +34,12 @@ import javax.annotation.Nonnull;
 
 import org.apache.thrift.TApplicationException;
 import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
 import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.protocol.TType;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -45,6 +51,7 @@ import org.junit.runners.Parameterized.Parameters;
 import com.linecorp.armeria.common.SerializationFormat;
 import com.linecorp.armeria.common.ServiceInvocationContext;
 import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.thrift.TByteBufTransport;
 import com.linecorp.armeria.common.thrift.ThriftProtocolFactories;
 import com.linecorp.armeria.common.util.Exceptions;
 import com.linecorp.armeria.server.ServerBuilder;
@@ -585,6 +592,121 @@ public class ThriftServiceTest {
         assertThat(promise.get(), is(promise2.get()));
     }
 
+    @Test
+    public void testSync_HelloService_hello_deeplyNestedUnknownField() throws Exception {
+        HelloService.Client client = new HelloService.Client.Factory().getClient(inProto, outProto);
+
+        // The arguments with an unknown field which nests a lot of structs, which are skipped while decoding.
+        outProto.writeMessageBegin(new TMessage("hello", TMessageType.CALL, 0));
+        outProto.writeStructBegin(new TStruct("hello_args"));
+        outProto.writeFieldBegin(new TField("name", TType.STRING, (short) 1));
+        outProto.writeString(FOO);
+        outProto.writeFieldEnd();
+        outProto.writeFieldBegin(new TField("unknown", TType.STRUCT, (short) 100));
+        for (int i = 0; i < 1000; i++) {
+            outProto.writeStructBegin(new TStruct("nested"));
+            outProto.writeFieldBegin(new TField("nested", TType.STRUCT, (short) 1));
+        }
+        outProto.writeStructBegin(new TStruct("innermost"));
+        outProto.writeFieldStop();
+        outProto.writeStructEnd();
+        for (int i = 0; i < 1000; i++) {
+            outProto.writeFieldEnd();
+            outProto.writeFieldStop();
+            outProto.writeStructEnd();
+        }
+        outProto.writeFieldEnd();
+        outProto.writeFieldStop();
+        outProto.writeStructEnd();
+        outProto.writeMessageEnd();
+        final ByteBuf nestedReq = out.copy();
+        out.clear();
+
+        ThriftService service = ThriftService.of(
+                (HelloService.Iface) name -> "Hello, " + name + '!', defaultSerializationFormat);
+        final TProtocol threadLocalInProto =
+                ThriftServiceCodec.THREAD_LOCAL_IN_PROTOCOLS.get(defaultSerializationFormat);
+
+        try {
+            invoke(service, CH, PROTO, HOST, PATH, nestedReq, promise);
+            promise.sync();
+            in.writeBytes(promise.get());
+            assertThat(client.recv_hello(), is("Hello, foo!"));
+        } finally {
+            nestedReq.release();
+        }
+
+        // The request is not kept by the protocol of the current thread, ...
+        assertThat(((TByteBufTransport) threadLocalInProto.getTransport()).buf(), is(nullValue()));
+
+        // ... which decodes the next request as usual.
+        client.send_hello(BAR);
+        invoke(service, CH, PROTO, HOST, PATH, out, promise2);
+        promise2.sync();
+        in.writeBytes(promise2.get());
+        assertThat(client.recv_hello(), is("Hello, bar!"));
+        assertThat(ThriftServiceCodec.THREAD_LOCAL_IN_PROTOCOLS.get(defaultSerializationFormat),
+                   is(sameInstance(threadLocalInProto)));
+    }
+
+    @Test
+    public void testZeroCopyBinary_HelloService_hello() throws Exception {
+        HelloService.Client client = new HelloService.Client.Factory().getClient(inProto, outProto);
+        client.send_hello(FOO);
+        final ByteBuf req = out.copy();
+
+        final AtomicReference<Integer> refCntDuringInvocation = new AtomicReference<>();
+        ThriftService service = ThriftService.of(
+                (HelloService.AsyncIface) (name, resultHandler) -> {
+                    refCntDuringInvocation.set(req.refCnt());
+                    resultHandler.onComplete("Hello, " + name + '!');
+                }, defaultSerializationFormat).withZeroCopyBinary();
+
+        try {
+            invoke(service, CH, PROTO, HOST, PATH, req, promise);
+            promise.sync();
+
+            // The request is kept during the invocation and released when the invocation is complete.
+            assertThat(refCntDuringInvocation.get(), is(2));
+            assertThat(req.refCnt(), is(1));
+
+            in.writeBytes(promise.get());
+            assertThat(client.recv_hello(), is("Hello, foo!"));
+        } finally {
+            req.release();
+        }
+    }
+
+    @Test
+    public void testZeroCopyBinary_HelloService_hello_failure() throws Exception {
+        HelloService.Client client = new HelloService.Client.Factory().getClient(inProto, outProto);
+        client.send_hello(FOO);
+        final ByteBuf req = out.copy();
+
+        ThriftService service = ThriftService.of(
+                (HelloService.AsyncIface) (name, resultHandler) ->
+                        resultHandler.onError(Exceptions.clearTrace(new IllegalStateException(name))),
+                defaultSerializationFormat).withZeroCopyBinary();
+
+        try {
+            invoke(service, CH, PROTO, HOST, PATH, req, promise);
+            promise.sync();
+
+            // The request is released even if the invocation failed.
+            assertThat(req.refCnt(), is(1));
+
+            in.writeBytes(promise.get());
+            try {
+                client.recv_hello();
+                fail(TApplicationException.class.getSimpleName() + " not raised.");
+            } catch (TApplicationException e) {
+                assertThat(e.getType(), is(TApplicationException.INTERNAL_ERROR));
+            }
+        } finally {
+            req.release();
+        }
+    }
+
     @Test
     public void testMultipleInheritance() throws Exception {
         NameService.Client client1 = new NameService.Client.Factory().getClient(inProto, outProto);